@@ -0,0 +1,256 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+import org.odpi.openmetadata.accessservices.assetmanager.metadataelements.DataAssetElement;
+import org.odpi.openmetadata.accessservices.assetmanager.metadataelements.DataFlowElement;
+import org.odpi.openmetadata.accessservices.assetmanager.metadataelements.ProcessElement;
+import org.odpi.openmetadata.accessservices.assetmanager.metadataelements.SchemaAttributeElement;
+import org.odpi.openmetadata.accessservices.assetmanager.metadataelements.SchemaTypeElement;
+import org.odpi.openmetadata.accessservices.assetmanager.properties.*;
+import org.odpi.openmetadata.frameworks.connectors.ffdc.InvalidParameterException;
+import org.odpi.openmetadata.frameworks.connectors.ffdc.PropertyServerException;
+import org.odpi.openmetadata.frameworks.connectors.ffdc.UserNotAuthorizedException;
+import org.odpi.openmetadata.integrationservices.lineage.connector.LineageIntegratorContext;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LatencyLineageIntegratorContext stands in for the round trip to a metadata server: it waits for a fixed time before
+ * passing each call the processor makes on to an in-memory context, such as MockLineageIntegratorContext. The calling
+ * thread sleeps for the wait, so calls issued in parallel wait at the same time, as they would for a server.
+ */
+public class LatencyLineageIntegratorContext extends LineageIntegratorContext {
+
+    private final LineageIntegratorContext delegate;
+    private final long latencyNanos;
+
+    /**
+     * Constructor for LatencyLineageIntegratorContext
+     *
+     * @param delegate      the in-memory context that answers the calls
+     * @param latencyMillis time each call waits before it is answered, 0 for none
+     */
+    public LatencyLineageIntegratorContext(LineageIntegratorContext delegate, long latencyMillis) {
+        super(null, null, null, null, null, null, null, null, null, null, null, false, null, null, null, null, null, 0, null);
+        this.delegate = delegate;
+        this.latencyNanos = TimeUnit.MILLISECONDS.toNanos(latencyMillis);
+    }
+
+    private void pause() {
+        if (latencyNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(latencyNanos);
+            } catch (InterruptedException error) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public List<DataAssetElement> getDataAssetsByName(String name,
+                                                      int startFrom,
+                                                      int pageSize,
+                                                      Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        pause();
+        return delegate.getDataAssetsByName(name, startFrom, pageSize, effectiveTime);
+    }
+
+    @Override
+    public String createDataAsset(boolean assetManagerIsHome,
+                                  DataAssetProperties assetProperties) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        pause();
+        return delegate.createDataAsset(assetManagerIsHome, assetProperties);
+    }
+
+    @Override
+    public void updateDataAsset(String assetGUID,
+                                boolean isMergeUpdate,
+                                DataAssetProperties assetProperties,
+                                Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        pause();
+        delegate.updateDataAsset(assetGUID, isMergeUpdate, assetProperties, effectiveTime);
+    }
+
+    @Override
+    public DataAssetElement getDataAssetByGUID(String openMetadataGUID,
+                                               Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        pause();
+        return delegate.getDataAssetByGUID(openMetadataGUID, effectiveTime);
+    }
+
+    @Override
+    public SchemaTypeElement getSchemaTypeForElement(String parentElementGUID,
+                                                     String parentElementTypeName,
+                                                     Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        pause();
+        return delegate.getSchemaTypeForElement(parentElementGUID, parentElementTypeName, effectiveTime);
+    }
+
+    @Override
+    public void updateSchemaType(String schemaTypeGUID,
+                                 boolean isMergeUpdate,
+                                 SchemaTypeProperties schemaTypeProperties,
+                                 Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        pause();
+        delegate.updateSchemaType(schemaTypeGUID, isMergeUpdate, schemaTypeProperties, effectiveTime);
+    }
+
+    @Override
+    public String createSchemaType(boolean assetManagerIsHome,
+                                   SchemaTypeProperties schemaTypeProperties) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        pause();
+        return delegate.createSchemaType(assetManagerIsHome, schemaTypeProperties);
+    }
+
+    @Override
+    public void setupSchemaTypeParent(boolean assetManagerIsHome,
+                                      String schemaTypeGUID,
+                                      String parentElementGUID,
+                                      String parentElementTypeName,
+                                      RelationshipProperties properties,
+                                      Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        pause();
+        delegate.setupSchemaTypeParent(assetManagerIsHome, schemaTypeGUID, parentElementGUID, parentElementTypeName, properties, effectiveTime);
+    }
+
+    @Override
+    public SchemaTypeElement getSchemaTypeByGUID(String schemaTypeGUID,
+                                                 Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        pause();
+        return delegate.getSchemaTypeByGUID(schemaTypeGUID, effectiveTime);
+    }
+
+    @Override
+    public List<SchemaTypeElement> getSchemaTypeByName(String name,
+                                                       int startFrom,
+                                                       int pageSize,
+                                                       Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        pause();
+        return delegate.getSchemaTypeByName(name, startFrom, pageSize, effectiveTime);
+    }
+
+    @Override
+    public List<SchemaAttributeElement> getNestedSchemaAttributes(String parentSchemaElementGUID,
+                                                                  int startFrom,
+                                                                  int pageSize,
+                                                                  Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        pause();
+        return delegate.getNestedSchemaAttributes(parentSchemaElementGUID, startFrom, pageSize, effectiveTime);
+    }
+
+    @Override
+    public String createSchemaAttribute(boolean assetManagerIsHome,
+                                        String schemaElementGUID,
+                                        SchemaAttributeProperties schemaAttributeProperties,
+                                        Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        pause();
+        return delegate.createSchemaAttribute(assetManagerIsHome, schemaElementGUID, schemaAttributeProperties, effectiveTime);
+    }
+
+    @Override
+    public void updateSchemaAttribute(String schemaAttributeGUID,
+                                      boolean isMergeUpdate,
+                                      SchemaAttributeProperties schemaAttributeProperties,
+                                      Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        pause();
+        delegate.updateSchemaAttribute(schemaAttributeGUID, isMergeUpdate, schemaAttributeProperties, effectiveTime);
+    }
+
+    @Override
+    public void removeSchemaType(String schemaTypeGUID,
+                                 Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        pause();
+        delegate.removeSchemaType(schemaTypeGUID, effectiveTime);
+    }
+
+    @Override
+    public void removeSchemaAttribute(String schemaAttributeGUID,
+                                      Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        pause();
+        delegate.removeSchemaAttribute(schemaAttributeGUID, effectiveTime);
+    }
+
+    @Override
+    public void updateProcess(String processGUID,
+                              boolean isMergeUpdate,
+                              ProcessProperties processProperties,
+                              Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        pause();
+        delegate.updateProcess(processGUID, isMergeUpdate, processProperties, effectiveTime);
+    }
+
+    @Override
+    public String createProcess(boolean assetManagerIsHome,
+                                ProcessStatus processStatus,
+                                ProcessProperties processProperties) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        pause();
+        return delegate.createProcess(assetManagerIsHome, processStatus, processProperties);
+    }
+
+    @Override
+    public List<ProcessElement> getProcessesByName(String name,
+                                                   int startFrom,
+                                                   int pageSize,
+                                                   Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        pause();
+        return delegate.getProcessesByName(name, startFrom, pageSize, effectiveTime);
+    }
+
+    @Override
+    public String setupDataFlow(boolean assetManagerIsHome,
+                                String dataSupplierGUID,
+                                String dataConsumerGUID,
+                                DataFlowProperties properties,
+                                Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        pause();
+        return delegate.setupDataFlow(assetManagerIsHome, dataSupplierGUID, dataConsumerGUID, properties, effectiveTime);
+    }
+
+    @Override
+    public void updateDataFlow(String dataFlowGUID,
+                               DataFlowProperties properties,
+                               Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        pause();
+        delegate.updateDataFlow(dataFlowGUID, properties, effectiveTime);
+    }
+
+    @Override
+    public void clearDataFlow(String dataFlowGUID,
+                              Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        pause();
+        delegate.clearDataFlow(dataFlowGUID, effectiveTime);
+    }
+
+    @Override
+    public DataFlowElement getDataFlow(String dataSupplierGUID,
+                                       String dataConsumerGUID,
+                                       String qualifiedName,
+                                       Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        pause();
+        return delegate.getDataFlow(dataSupplierGUID, dataConsumerGUID, qualifiedName, effectiveTime);
+    }
+
+    @Override
+    public void setupSchemaElementRelationship(boolean assetManagerIsHome,
+                                               String endOneGUID,
+                                               String endTwoGUID,
+                                               String relationshipName,
+                                               Date effectiveTime,
+                                               RelationshipProperties properties) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        pause();
+        delegate.setupSchemaElementRelationship(assetManagerIsHome, endOneGUID, endTwoGUID, relationshipName, effectiveTime, properties);
+    }
+
+    @Override
+    public String createAnchoredSchemaType(boolean assetManagerIsHome,
+                                           String anchorGUID,
+                                           ExternalIdentifierProperties externalIdentifierProperties,
+                                           SchemaTypeProperties schemaTypeProperties) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        pause();
+        return delegate.createAnchoredSchemaType(assetManagerIsHome, anchorGUID, externalIdentifierProperties, schemaTypeProperties);
+    }
+}
@@ -0,0 +1,114 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+import org.odpi.openmetadata.frameworks.connectors.ffdc.ConnectorCheckedException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Events decoded per second by the LineageEventContentforSample constructor, which parses the event and builds its
+ * assets and the flattened attributes of their schemas. The gc profiler is on for ./gradlew jmh, so the results also
+ * show the bytes allocated per event (gc.alloc.rate.norm).
+ * <p>
+ * sampleFile decodes each sample in src/test/resources. generatedInputs decodes generated events with 1 to 10,000
+ * inputs and a small schema; generatedSchema decodes generated events with one input and a schema of up to 20 levels
+ * and thousands of properties. Each event is checked to decode when the benchmark is set up.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LineageEventDecodeBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class SampleEvent {
+        @Param({"src/test/resources/Sample1.json",
+                "src/test/resources/Sample2-update-assets-and-process.json",
+                "src/test/resources/Sample3-replace-assets.json",
+                "src/test/resources/Sample4-update-attributes.json",
+                "src/test/resources/Sample5-replace-eventtype.json",
+                "src/test/resources/Sample6-update-SQL.json",
+                "src/test/resources/Sample-real-anonymous.json"})
+        public String eventFile;
+
+        byte[] payload;
+
+        @Setup
+        public void setUp() throws IOException, ConnectorCheckedException {
+            payload = Files.readAllBytes(Paths.get(eventFile));
+            checkDecodes(payload);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class GeneratedInputs {
+        @Param({"1", "10", "100", "1000", "10000"})
+        public int inputCount;
+
+        byte[] payload;
+
+        @Setup
+        public void setUp() throws ConnectorCheckedException {
+            payload = LineageEventGenerator.generate("generated-inputs", inputCount, 1, 10, 0, 0).getBytes(StandardCharsets.UTF_8);
+            checkDecodes(payload);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class GeneratedSchema {
+        @Param({"1", "5", "20"})
+        public int schemaDepth;
+
+        @Param({"10", "1000", "5000"})
+        public int schemaProperties;
+
+        byte[] payload;
+
+        @Setup
+        public void setUp() throws ConnectorCheckedException {
+            payload = LineageEventGenerator.generate("generated-schema", 1, schemaDepth, schemaProperties, 0, 0).getBytes(StandardCharsets.UTF_8);
+            checkDecodes(payload);
+        }
+    }
+
+    @Benchmark
+    public LineageEventContentforSample sampleFile(SampleEvent event) throws ConnectorCheckedException {
+        return new LineageEventContentforSample(event.payload, "benchmark", "");
+    }
+
+    @Benchmark
+    public LineageEventContentforSample generatedInputs(GeneratedInputs event) throws ConnectorCheckedException {
+        return new LineageEventContentforSample(event.payload, "benchmark", "");
+    }
+
+    @Benchmark
+    public LineageEventContentforSample generatedSchema(GeneratedSchema event) throws ConnectorCheckedException {
+        return new LineageEventContentforSample(event.payload, "benchmark", "");
+    }
+
+    /**
+     * Check the event decodes before it is measured, so a benchmark never times the failure of a bad event.
+     */
+    private static void checkDecodes(byte[] payload) throws ConnectorCheckedException {
+        LineageEventContentforSample.warmUp();
+        new LineageEventContentforSample(payload, "benchmark", "");
+    }
+}
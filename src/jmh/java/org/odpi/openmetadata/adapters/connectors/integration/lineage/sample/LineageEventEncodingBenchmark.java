@@ -0,0 +1,62 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.odpi.openmetadata.frameworks.connectors.ffdc.ConnectorCheckedException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-event cost of parsing the same event encoded as json, Smile and CBOR.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LineageEventEncodingBenchmark {
+
+    @Param({"src/test/resources/Sample1.json", "src/test/resources/Sample-real-anonymous.json"})
+    public String eventFile;
+
+    @Param({"JSON", "SMILE", "CBOR"})
+    public LineageEventPayload.Format format;
+
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        JsonNode event = new ObjectMapper().readTree(Paths.get(eventFile).toFile());
+        ObjectMapper mapper = switch (format) {
+            case SMILE -> new ObjectMapper(new SmileFactory());
+            case CBOR -> new ObjectMapper(new CBORFactory());
+            default -> new ObjectMapper();
+        };
+        payload = mapper.writeValueAsBytes(event);
+        LineageEventContentforSample.warmUp();
+    }
+
+    @Benchmark
+    public LineageEventContentforSample decode() throws ConnectorCheckedException {
+        return new LineageEventContentforSample(payload, "benchmark", "");
+    }
+}
@@ -0,0 +1,81 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+/**
+ * Builds lineage events of a chosen size for the benchmarks, in the format of the sample events in src/test/resources:
+ * a process with some number of SQL inputs and one output whose json schema nests objects some levels deep.
+ */
+final class LineageEventGenerator {
+
+    private LineageEventGenerator() {
+    }
+
+    /**
+     * Build an event.
+     *
+     * @param processId     Id of the process, which becomes its qualifiedName
+     * @param inputCount    number of input assets
+     * @param depth         levels of the schema of the output, 1 for a flat schema
+     * @param properties    number of properties in the schema, spread across its levels; each level below the top is
+     *                      held in an object property of the level above, which is counted too, and there is at least
+     *                      one property on each level
+     * @param inputVariant  changes the names of the inputs, so events built with different input variants have
+     *                      different inputs
+     * @param schemaVariant changes the description of every property, so events built with different schema variants
+     *                      have different schemas
+     * @return event json
+     */
+    static String generate(String processId, int inputCount, int depth, int properties, int inputVariant, int schemaVariant) {
+        StringBuilder event = new StringBuilder(256 + inputCount * 128 + properties * 96);
+        event.append("{\n  \"Id\": \"").append(processId).append("\",\n")
+             .append("  \"Name\": \"Generated ").append(processId).append("\",\n")
+             .append("  \"Description\": \"Generated event\",\n")
+             .append("  \"Bounded Context\": \"Benchmark\",\n")
+             .append("  \"Team\": \"Benchmark\",\n")
+             .append("  \"Input\": [");
+        for (int input = 0; input < inputCount; input++) {
+            event.append(input == 0 ? "\n" : ",\n")
+                 .append("    {\"id\": \"").append(processId).append("-input-").append(inputVariant).append('-').append(input)
+                 .append("\", \"name\": \"Input ").append(input)
+                 .append("\", \"type\": \"SQL\", \"value\": \"select * from input_").append(input).append(";\"}");
+        }
+        event.append("\n  ],\n  \"Output\": [{\n")
+             .append("    \"id\": \"").append(processId).append("-output\",\n")
+             .append("    \"name\": \"Output\",\n")
+             .append("    \"schema-type\": \"json-schema\",\n")
+             .append("    \"schemas\": [{\n")
+             .append("      \"$schema\": \"https://json-schema.org/draft/2020-12/schema\",\n")
+             .append("      \"id\": \"Generated\",\n")
+             .append("      \"type\": \"object\",\n")
+             .append("      \"properties\": ");
+        int levels = Math.max(1, depth);
+        appendProperties(event, 1, levels, Math.max(levels, properties), schemaVariant);
+        event.append("\n    }]\n  }]\n}");
+        return event.toString();
+    }
+
+    /**
+     * Append one level of the schema and the levels below it.
+     */
+    private static void appendProperties(StringBuilder event, int level, int levels, int properties, int variant) {
+        int levelsLeft = levels - level + 1;
+        int propertiesAtLevel = properties / levelsLeft;
+        event.append('{');
+        int leaves = level < levels ? propertiesAtLevel - 1 : propertiesAtLevel;
+        for (int property = 0; property < leaves; property++) {
+            event.append(property == 0 ? "" : ",")
+                 .append("\n\"l").append(level).append("p").append(property)
+                 .append("\": {\"type\": \"string\", \"description\": \"Property ").append(property)
+                 .append(" of level ").append(level).append(" version ").append(variant).append("\"}");
+        }
+        if (level < levels) {
+            event.append(leaves == 0 ? "" : ",")
+                 .append("\n\"l").append(level).append("nested\": {\"type\": \"object\", \"properties\": ");
+            appendProperties(event, level + 1, levels, properties - propertiesAtLevel, variant);
+            event.append('}');
+        }
+        event.append('}');
+    }
+}
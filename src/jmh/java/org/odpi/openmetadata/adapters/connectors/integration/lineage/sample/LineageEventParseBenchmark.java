@@ -0,0 +1,78 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.odpi.openmetadata.adapters.connectors.integration.lineage.sample.beans.EventBean;
+import org.odpi.openmetadata.frameworks.connectors.ffdc.ConnectorCheckedException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-event cost of parsing an event payload. Run with ./gradlew jmh, which runs the gc profiler to show the
+ * allocation per event.
+ * <p>
+ * newObjectMapperPerEvent is how events were first parsed, with a new ObjectMapper for every event; sharedReaderBinding
+ * binds the beans with one shared reader; streamingDecoder is how the connector parses events now, in a single streaming
+ * pass that also builds the assets and attributes. streamingDecoderFromBytes parses the UTF-8 bytes of the event, as they
+ * arrive from the topic, without decoding them into a String first.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LineageEventParseBenchmark {
+
+    private static final ObjectReader EVENT_READER = new ObjectMapper().readerFor(EventBean.class);
+
+    @Param({"src/test/resources/Sample1.json", "src/test/resources/Sample-real-anonymous.json"})
+    public String eventFile;
+
+    private String payload;
+    private byte[] payloadBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        payload = Files.readString(Paths.get(eventFile));
+        payloadBytes = Files.readAllBytes(Paths.get(eventFile));
+        LineageEventContentforSample.warmUp();
+    }
+
+    @Benchmark
+    public EventBean newObjectMapperPerEvent() throws IOException {
+        return new ObjectMapper().readValue(payload, EventBean.class);
+    }
+
+    @Benchmark
+    public EventBean sharedReaderBinding() throws IOException {
+        return EVENT_READER.readValue(payload);
+    }
+
+    @Benchmark
+    public LineageEventContentforSample streamingDecoder() throws ConnectorCheckedException {
+        return new LineageEventContentforSample(payload, "benchmark", "");
+    }
+
+    @Benchmark
+    public LineageEventContentforSample streamingDecoderFromBytes() throws ConnectorCheckedException {
+        return new LineageEventContentforSample(payloadBytes, "benchmark", "");
+    }
+}
@@ -0,0 +1,175 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+import org.odpi.openmetadata.frameworks.connectors.ffdc.ConnectorCheckedException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end cost of SampleLineageEventProcessor.processEvent against an in-memory metadata server, the
+ * MockLineageIntegratorContext from the tests, with a fixed latency added to every call by
+ * LatencyLineageIntegratorContext. eventsPerSecond reports the throughput and latency reports the distribution of the
+ * processing time of an event, including its p99.
+ * <p>
+ * The scenarios are:
+ * <ul>
+ *     <li>FIRST_CREATION - every event is for a new process with new inputs and output</li>
+ *     <li>REEMISSION - the same event is received again and again</li>
+ *     <li>SCHEMA_CHANGE - every event gives the output of the process a schema not seen before</li>
+ *     <li>INPUT_CHANGE - every event replaces the inputs of the process with inputs not seen before</li>
+ * </ul>
+ * The metadata cache, parallel metadata calls and schema reconciliation are switched on and off by parameters, so their
+ * effect on each scenario can be compared. Running every combination takes a long time; pick the ones of interest with
+ * -p, for example -p latencyMillis=1 -p scenario=REEMISSION.
+ * <p>
+ * Each event is decoded in a setup before it is timed; with no latency the events are fast enough for the cost of that
+ * setup to show in the results, so compare them with each other rather than read them as absolute. The in-memory server
+ * is emptied at the start of each iteration.
+ */
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SampleLineageEventProcessorBenchmark {
+
+    /**
+     * How each event relates to the one processed before it.
+     */
+    public enum Scenario {
+        FIRST_CREATION,
+        REEMISSION,
+        SCHEMA_CHANGE,
+        INPUT_CHANGE
+    }
+
+    private static final String PROCESS_ID = "benchmark-process";
+    private static final int INPUT_COUNT = 5;
+    private static final int SCHEMA_DEPTH = 3;
+    private static final int SCHEMA_PROPERTIES = 30;
+    private static final int METADATA_CACHE_CAPACITY = 10000;
+    private static final long METADATA_CACHE_TTL_MILLIS = 600000;
+
+    @State(Scope.Thread)
+    public static class ProcessorState {
+        @Param({"0", "1", "5"})
+        public long latencyMillis;
+
+        @Param({"FIRST_CREATION", "REEMISSION", "SCHEMA_CHANGE", "INPUT_CHANGE"})
+        public Scenario scenario;
+
+        @Param({"false", "true"})
+        public boolean metadataCache;
+
+        @Param({"false", "true"})
+        public boolean parallelMetadataCalls;
+
+        @Param({"false", "true"})
+        public boolean reconcileSchemas;
+
+        private byte[] firstEvent;
+        private ExecutorService metadataCallExecutor;
+        private LineageEventMetrics metrics;
+        private SampleLineageEventProcessor eventProcessor;
+        private int eventNumber;
+        LineageEventContentforSample nextEvent;
+
+        @Setup(Level.Trial)
+        public void setUpEvents() {
+            LineageEventContentforSample.warmUp();
+            firstEvent = generate(PROCESS_ID, 0, 0);
+        }
+
+        @Setup(Level.Iteration)
+        public void setUpProcessor() throws ConnectorCheckedException {
+            metadataCallExecutor = parallelMetadataCalls ? newMetadataCallExecutor() : null;
+            LineageMetadataCaches metadataCaches = metadataCache
+                    ? new LineageMetadataCaches(METADATA_CACHE_CAPACITY, METADATA_CACHE_TTL_MILLIS)
+                    : LineageMetadataCaches.disabled();
+            metrics = new LineageEventMetrics();
+            eventProcessor = new SampleLineageEventProcessor(
+                    new LatencyLineageIntegratorContext(new MockLineageIntegratorContext(), latencyMillis),
+                    null,
+                    "benchmark",
+                    metadataCallExecutor,
+                    metadataCaches);
+            eventProcessor.setReconcileSchemas(reconcileSchemas);
+            eventProcessor.setMetrics(metrics);
+            eventNumber = 0;
+            if (scenario != Scenario.FIRST_CREATION) {
+                // the lineage the events change, or repeat, is already saved
+                eventProcessor.processEvent(new LineageEventContentforSample(firstEvent, "benchmark", ""));
+                eventNumber = 1;
+            }
+        }
+
+        @Setup(Level.Invocation)
+        public void setUpEvent() throws ConnectorCheckedException {
+            byte[] payload = switch (scenario) {
+                case FIRST_CREATION -> generate(PROCESS_ID + "-" + eventNumber, eventNumber, 0);
+                case REEMISSION -> firstEvent;
+                case SCHEMA_CHANGE -> generate(PROCESS_ID, 0, eventNumber);
+                case INPUT_CHANGE -> generate(PROCESS_ID, eventNumber, 0);
+            };
+            nextEvent = new LineageEventContentforSample(payload, "benchmark", "");
+            eventNumber++;
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDownProcessor() throws InterruptedException {
+            if (metadataCallExecutor != null) {
+                metadataCallExecutor.shutdown();
+                metadataCallExecutor.awaitTermination(1, TimeUnit.MINUTES);
+            }
+            if (metrics.getFailedEventCount() > 0) {
+                throw new IllegalStateException("Events failed: " + metrics.getFailedEventCountsByErrorCode());
+            }
+        }
+
+        /**
+         * Return the executor for the parallel metadata calls: virtual threads, as the connector uses, or platform
+         * threads when the benchmark runs on Java 17.
+         */
+        private static ExecutorService newMetadataCallExecutor() {
+            if (LineageEventThreads.isVirtualThreadSupported()) {
+                return LineageEventThreads.newVirtualThreadPerTaskExecutor();
+            }
+            return Executors.newCachedThreadPool(LineageEventThreads.daemonThreadFactory());
+        }
+
+        private static byte[] generate(String processId, int inputVariant, int schemaVariant) {
+            return LineageEventGenerator.generate(processId, INPUT_COUNT, SCHEMA_DEPTH, SCHEMA_PROPERTIES, inputVariant, schemaVariant)
+                                        .getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void eventsPerSecond(ProcessorState state) {
+        state.eventProcessor.processEvent(state.nextEvent);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void latency(ProcessorState state) {
+        state.eventProcessor.processEvent(state.nextEvent);
+    }
+}
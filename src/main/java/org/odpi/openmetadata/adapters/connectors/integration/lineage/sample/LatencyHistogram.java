@@ -0,0 +1,135 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyHistogram counts durations in buckets whose bounds double from one bucket to the next: bucket 0 holds the
+ * durations under 1 microsecond, and bucket i the durations from 2^(i-1) up to 2^i microseconds. Recording a duration
+ * is a few atomic increments, so it can be done on every call by any number of threads. Percentiles are reported as
+ * the upper bound of the bucket they fall in, so they are at most twice the real value.
+ */
+public class LatencyHistogram implements LatencyHistogramMXBean {
+
+    private static final int BUCKET_COUNT = 40;
+
+    private final String name;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Constructor for LatencyHistogram
+     *
+     * @param name name of what is measured, for example a stage or a method
+     */
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Record the time since a start time.
+     *
+     * @param startNanos start time from System.nanoTime()
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Record a duration.
+     *
+     * @param durationNanos duration in nanoseconds
+     */
+    public void record(long durationNanos) {
+        long nanos = Math.max(0, durationNanos);
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        int bucket = Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros));
+        buckets.incrementAndGet(bucket);
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public long getTotalMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(totalNanos.sum());
+    }
+
+    @Override
+    public long getMeanMicros() {
+        long calls = count.sum();
+        return calls == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalNanos.sum() / calls);
+    }
+
+    @Override
+    public long getMaxMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxNanos.get());
+    }
+
+    @Override
+    public long getP50Micros() {
+        return getPercentileMicros(50);
+    }
+
+    @Override
+    public long getP95Micros() {
+        return getPercentileMicros(95);
+    }
+
+    @Override
+    public long getP99Micros() {
+        return getPercentileMicros(99);
+    }
+
+    @Override
+    public long[] getBucketCounts() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            counts[bucket] = buckets.get(bucket);
+        }
+        return counts;
+    }
+
+    /**
+     * Return the upper bound of the bucket that holds the supplied percentile of the durations.
+     *
+     * @param percentile percentile, from 0 to 100
+     * @return duration in microseconds, 0 if nothing has been recorded
+     */
+    public long getPercentileMicros(double percentile) {
+        long[] counts = getBucketCounts();
+        long total = 0;
+        for (long bucketCount : counts) {
+            total = total + bucketCount;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen = seen + counts[bucket];
+            if (seen >= rank) {
+                return bucket == BUCKET_COUNT - 1 ? getMaxMicros() : 1L << bucket;
+            }
+        }
+        return getMaxMicros();
+    }
+}
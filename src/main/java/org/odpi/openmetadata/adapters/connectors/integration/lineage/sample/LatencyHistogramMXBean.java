@@ -0,0 +1,74 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+/**
+ * JMX view of a latency histogram. All durations are in microseconds.
+ */
+public interface LatencyHistogramMXBean {
+
+    /**
+     * Return the name of what is measured.
+     *
+     * @return stage or method name
+     */
+    String getName();
+
+    /**
+     * Return the number of durations recorded.
+     *
+     * @return count
+     */
+    long getCount();
+
+    /**
+     * Return the sum of the durations recorded.
+     *
+     * @return total time
+     */
+    long getTotalMicros();
+
+    /**
+     * Return the mean duration.
+     *
+     * @return mean time
+     */
+    long getMeanMicros();
+
+    /**
+     * Return the longest duration.
+     *
+     * @return maximum time
+     */
+    long getMaxMicros();
+
+    /**
+     * Return the median duration, to within a factor of two.
+     *
+     * @return 50th percentile
+     */
+    long getP50Micros();
+
+    /**
+     * Return the 95th percentile duration, to within a factor of two.
+     *
+     * @return 95th percentile
+     */
+    long getP95Micros();
+
+    /**
+     * Return the 99th percentile duration, to within a factor of two.
+     *
+     * @return 99th percentile
+     */
+    long getP99Micros();
+
+    /**
+     * Return the count in each bucket. Bucket 0 counts the durations under 1 microsecond, bucket i the durations from
+     * 2^(i-1) up to 2^i microseconds.
+     *
+     * @return bucket counts
+     */
+    long[] getBucketCounts();
+}
@@ -0,0 +1,50 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+/**
+ * LineageContextCall lists the LineageIntegratorContext methods the event processor calls. Each call is a round trip
+ * to the metadata server, and is counted by method for each event.
+ */
+public enum LineageContextCall {
+    GET_DATA_ASSETS_BY_NAME("getDataAssetsByName"),
+    CREATE_DATA_ASSET("createDataAsset"),
+    UPDATE_DATA_ASSET("updateDataAsset"),
+    GET_DATA_ASSET_BY_GUID("getDataAssetByGUID"),
+    GET_SCHEMA_TYPE_FOR_ELEMENT("getSchemaTypeForElement"),
+    UPDATE_SCHEMA_TYPE("updateSchemaType"),
+    CREATE_SCHEMA_TYPE("createSchemaType"),
+    SETUP_SCHEMA_TYPE_PARENT("setupSchemaTypeParent"),
+    GET_SCHEMA_TYPE_BY_GUID("getSchemaTypeByGUID"),
+    GET_SCHEMA_TYPE_BY_NAME("getSchemaTypeByName"),
+    GET_NESTED_SCHEMA_ATTRIBUTES("getNestedSchemaAttributes"),
+    CREATE_SCHEMA_ATTRIBUTE("createSchemaAttribute"),
+    UPDATE_SCHEMA_ATTRIBUTE("updateSchemaAttribute"),
+    REMOVE_SCHEMA_TYPE("removeSchemaType"),
+    REMOVE_SCHEMA_ATTRIBUTE("removeSchemaAttribute"),
+    UPDATE_PROCESS("updateProcess"),
+    CREATE_PROCESS("createProcess"),
+    GET_PROCESSES_BY_NAME("getProcessesByName"),
+    SETUP_DATA_FLOW("setupDataFlow"),
+    UPDATE_DATA_FLOW("updateDataFlow"),
+    CLEAR_DATA_FLOW("clearDataFlow"),
+    GET_DATA_FLOW("getDataFlow"),
+    SETUP_SCHEMA_ELEMENT_RELATIONSHIP("setupSchemaElementRelationship"),
+    CREATE_ANCHORED_SCHEMA_TYPE("createAnchoredSchemaType");
+
+    private final String methodName;
+
+    LineageContextCall(String methodName) {
+        this.methodName = methodName;
+    }
+
+    /**
+     * Return the name of the LineageIntegratorContext method.
+     *
+     * @return method name
+     */
+    public String getMethodName() {
+        return methodName;
+    }
+}
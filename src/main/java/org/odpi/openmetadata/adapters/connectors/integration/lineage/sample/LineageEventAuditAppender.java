@@ -0,0 +1,351 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+import org.odpi.openmetadata.adapters.connectors.integration.lineage.sample.ffdc.LineageEventSampleEventConnectorAuditCode;
+import org.odpi.openmetadata.frameworks.auditlog.AuditLog;
+import org.odpi.openmetadata.frameworks.auditlog.messagesets.AuditLogMessageDefinition;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * LineageEventAuditAppender writes audit messages to the audit log on a background thread, so a slow audit log does
+ * not hold up the threads that process events. The threads that log a message only add it to a bounded ring buffer,
+ * which is lock free: a thread claims a slot by advancing a position with compare-and-set, and each slot has a
+ * sequence number that tells whether it is free to write or ready to read.
+ * <p>
+ * When the buffer is full, the overflow policy decides which message is lost:
+ * <ul>
+ *     <li>DROP_NEWEST - the new message is discarded.</li>
+ *     <li>DROP_OLDEST - the oldest waiting message is discarded to make room.</li>
+ * </ul>
+ * Each discarded message is passed to the drop listener, so it can be counted. On shutdown the messages still in the
+ * buffer are written before the appender stops, and messages logged after that are written straight away. A message
+ * added while the appender is shutting down is written by the thread that added it.
+ * <p>
+ * A message the audit log fails to write is lost. The first such failure is reported to the audit log.
+ */
+public class LineageEventAuditAppender {
+
+    /**
+     * Which message to discard when the buffer is full.
+     */
+    public enum OverflowPolicy {
+        DROP_NEWEST,
+        DROP_OLDEST;
+
+        /**
+         * Return the policy with the supplied name, ignoring case and allowing '-' in place of '_'.
+         *
+         * @param name         policy name from the configuration
+         * @param defaultValue policy to use when the name is null or not recognised
+         * @return overflow policy
+         */
+        public static OverflowPolicy fromName(String name, OverflowPolicy defaultValue) {
+            if (name != null) {
+                try {
+                    return OverflowPolicy.valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+                } catch (IllegalArgumentException error) {
+                    return defaultValue;
+                }
+            }
+            return defaultValue;
+        }
+    }
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final AuditLog auditLog;
+    private final OverflowPolicy overflowPolicy;
+    private final Consumer<LineageEventSampleEventConnectorAuditCode> dropListener;
+
+    private final int mask;
+    private final AtomicReferenceArray<AuditRecord> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong writePosition = new AtomicLong();
+    private final AtomicLong readPosition = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong failedWriteCount = new AtomicLong();
+
+    private volatile boolean running = false;
+    private volatile boolean writerWaiting = false;
+    private Thread writer = null;
+
+    /**
+     * Constructor for LineageEventAuditAppender
+     *
+     * @param auditLog       audit log, may be null
+     * @param capacity       most messages waiting to be written, rounded up to a power of two
+     * @param overflowPolicy what to do when the buffer is full
+     * @param dropListener   called with the audit code of each discarded message
+     */
+    public LineageEventAuditAppender(AuditLog auditLog,
+                                     int capacity,
+                                     OverflowPolicy overflowPolicy,
+                                     Consumer<LineageEventSampleEventConnectorAuditCode> dropListener) {
+        this.auditLog = auditLog;
+        this.overflowPolicy = overflowPolicy;
+        this.dropListener = dropListener;
+        int size = Integer.highestOneBit(Math.max(2, Math.min(capacity, 1 << 30)) * 2 - 1);
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int index = 0; index < size; index++) {
+            sequences.set(index, index);
+        }
+    }
+
+    /**
+     * Start the thread that writes the messages to the audit log.
+     *
+     * @param threadFactory factory for the writer thread
+     * @param name          name of the writer thread
+     */
+    public synchronized void start(ThreadFactory threadFactory, String name) {
+        if (!running) {
+            running = true;
+            writer = threadFactory.newThread(this::writeMessages);
+            writer.setName(name);
+            writer.start();
+        }
+    }
+
+    /**
+     * Stop the writer thread once the waiting messages have been written. Any messages the writer thread did not get
+     * to within the timeout are written on the calling thread.
+     *
+     * @param timeoutMillis how long to wait for the writer thread
+     * @throws InterruptedException interrupted while waiting for the writer thread
+     */
+    public synchronized void shutdown(long timeoutMillis) throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            writer.join(Math.max(1, timeoutMillis));
+            if (writer.isAlive()) {
+                writer.interrupt();
+            }
+            writer = null;
+        }
+        writeWaitingMessages();
+    }
+
+    /**
+     * Add a message to the buffer, or write it straight away if the appender is not running.
+     *
+     * @param actionDescription calling method
+     * @param auditCode         audit code of the message
+     * @param messageDefinition message to log
+     * @param error             exception the message is about, or null
+     * @return false if the message was discarded because the buffer is full
+     */
+    public boolean append(String actionDescription,
+                          LineageEventSampleEventConnectorAuditCode auditCode,
+                          AuditLogMessageDefinition messageDefinition,
+                          Throwable error) {
+        AuditRecord record = new AuditRecord(actionDescription, auditCode, messageDefinition, error);
+        if (!running) {
+            write(record);
+            return true;
+        }
+        while (!offer(record)) {
+            if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+                AuditRecord oldest = poll();
+                if (oldest != null) {
+                    drop(oldest);
+                }
+            } else {
+                drop(record);
+                return false;
+            }
+        }
+        if (!running) {
+            // shutdown may have emptied the buffer before the message was added, so write it here
+            writeWaitingMessages();
+            return true;
+        }
+        if (writerWaiting) {
+            Thread waitingWriter = writer;
+            if (waitingWriter != null) {
+                LockSupport.unpark(waitingWriter);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return the number of messages waiting to be written.
+     *
+     * @return buffer depth
+     */
+    public int getDepth() {
+        return (int) Math.max(0, writePosition.get() - readPosition.get());
+    }
+
+    /**
+     * Return the number of messages discarded because the buffer was full.
+     *
+     * @return dropped message count
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    private void drop(AuditRecord record) {
+        droppedCount.incrementAndGet();
+        if (dropListener != null) {
+            dropListener.accept(record.auditCode);
+        }
+    }
+
+    /**
+     * Claim the next free slot and put the message in it.
+     *
+     * @param record message
+     * @return false if the buffer is full
+     */
+    private boolean offer(AuditRecord record) {
+        long position = writePosition.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (writePosition.compareAndSet(position, position + 1)) {
+                    slots.set(index, record);
+                    // publish the slot to the reader
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = writePosition.get();
+            } else if (difference < 0) {
+                // the slot still holds the message from one lap ago
+                return false;
+            } else {
+                position = writePosition.get();
+            }
+        }
+    }
+
+    /**
+     * Take the oldest message from the buffer. Called by the writer thread, and by the threads that log a message
+     * when the DROP_OLDEST policy makes room.
+     *
+     * @return oldest message, or null if the buffer is empty
+     */
+    private AuditRecord poll() {
+        long position = readPosition.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (readPosition.compareAndSet(position, position + 1)) {
+                    AuditRecord record = slots.getAndSet(index, null);
+                    // free the slot for the writer one lap ahead
+                    sequences.set(index, position + mask + 1);
+                    return record;
+                }
+                position = readPosition.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = readPosition.get();
+            }
+        }
+    }
+
+    /**
+     * Writer thread loop.
+     */
+    private void writeMessages() {
+        while (true) {
+            AuditRecord record = poll();
+            if (record != null) {
+                write(record);
+            } else if (!running) {
+                return;
+            } else {
+                writerWaiting = true;
+                if (getDepth() == 0 && running) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                writerWaiting = false;
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the messages in the buffer on the calling thread.
+     */
+    private void writeWaitingMessages() {
+        AuditRecord record;
+        while ((record = poll()) != null) {
+            write(record);
+        }
+    }
+
+    private void write(AuditRecord record) {
+        if (auditLog != null) {
+            try {
+                if (record.error != null) {
+                    auditLog.logException(record.actionDescription, record.messageDefinition, record.error);
+                } else {
+                    auditLog.logMessage(record.actionDescription, record.messageDefinition);
+                }
+            } catch (RuntimeException error) {
+                // a failing audit log must not stop the messages that follow from being written
+                if (failedWriteCount.incrementAndGet() == 1) {
+                    reportWriteFailure(record, error);
+                }
+            }
+        }
+    }
+
+    /**
+     * Report a message the audit log could not write. The report goes to the same audit log, which may fail again,
+     * so it is only made once.
+     */
+    private void reportWriteFailure(AuditRecord record, RuntimeException error) {
+        final String methodName = "write";
+        try {
+            auditLog.logException(methodName,
+                    LineageEventSampleEventConnectorAuditCode.AUDIT_MESSAGE_NOT_WRITTEN.getMessageDefinition(
+                            error.getClass().getName(),
+                            record.messageDefinition.getMessageId(),
+                            error.getMessage()),
+                    error);
+        } catch (RuntimeException reportError) {
+            // the audit log cannot write anything, so there is nowhere left to report to
+        }
+    }
+
+    /**
+     * A message waiting to be written.
+     */
+    private static class AuditRecord {
+        private final String actionDescription;
+        private final LineageEventSampleEventConnectorAuditCode auditCode;
+        private final AuditLogMessageDefinition messageDefinition;
+        private final Throwable error;
+
+        private AuditRecord(String actionDescription,
+                            LineageEventSampleEventConnectorAuditCode auditCode,
+                            AuditLogMessageDefinition messageDefinition,
+                            Throwable error) {
+            this.actionDescription = actionDescription;
+            this.auditCode = auditCode;
+            this.messageDefinition = messageDefinition;
+            this.error = error;
+        }
+    }
+}
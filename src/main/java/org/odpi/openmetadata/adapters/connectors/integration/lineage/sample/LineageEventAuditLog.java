@@ -0,0 +1,270 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+import org.odpi.openmetadata.adapters.connectors.integration.lineage.sample.ffdc.LineageEventSampleEventConnectorAuditCode;
+import org.odpi.openmetadata.frameworks.auditlog.AuditLog;
+import org.odpi.openmetadata.frameworks.auditlog.messagesets.AuditLogMessageDefinition;
+
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * LineageEventAuditLog writes the connector's messages to the audit log, applying a policy that keeps the audit log
+ * from becoming the bottleneck when many events are received:
+ * <ul>
+ *     <li>Sampling - only one in every N of the messages written for each event that is processed normally
+ *     (PROCESSING_EVENT and PROCESSED_EVENT_SUCCESSFULLY) is logged.</li>
+ *     <li>Rate limit - at most N messages of each audit code are logged in each minute.</li>
+ *     <li>Payload excerpts - event payloads in messages are cut short and followed by their size and SHA-256 digest.</li>
+ * </ul>
+ * The messages left out are counted for each audit code, and {@link #reportSuppressedMessages(String)} logs the
+ * counts since it was last called. The policy is applied even when there is no audit log, so it can be tested on
+ * its own.
+ * <p>
+ * Once an appender has been started, the messages that pass the policy are written to the audit log on the
+ * appender's thread rather than on the thread that logs them. Messages the appender has to discard because it is
+ * full are counted with the suppressed messages.
+ */
+public class LineageEventAuditLog {
+
+    private static final Set<LineageEventSampleEventConnectorAuditCode> SAMPLED_CODES =
+            EnumSet.of(LineageEventSampleEventConnectorAuditCode.PROCESSING_EVENT,
+                       LineageEventSampleEventConnectorAuditCode.PROCESSED_EVENT_SUCCESSFULLY);
+    private static final long RATE_LIMIT_WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final AuditLog auditLog;
+    private final int sampleRate;
+    private final int messagesPerMinute;
+    private final int payloadExcerptLength;
+    private final LongSupplier clock;
+
+    private final AtomicLongArray sampleCounts;
+    private final AtomicLongArray windowStarts;
+    private final AtomicLongArray windowCounts;
+    private final AtomicLongArray suppressedCounts;
+    private final AtomicLong suppressedTotal = new AtomicLong();
+
+    private volatile LineageEventAuditAppender appender = null;
+
+    /**
+     * Constructor for an audit log that logs every message with the whole payload.
+     *
+     * @param auditLog audit log, may be null
+     */
+    public LineageEventAuditLog(AuditLog auditLog) {
+        this(auditLog, 1, 0, 0);
+    }
+
+    /**
+     * Constructor for LineageEventAuditLog
+     *
+     * @param auditLog             audit log, may be null
+     * @param sampleRate           log one in every sampleRate of the messages for events processed normally, 1 logs them all
+     * @param messagesPerMinute    most messages of one audit code to log in a minute, 0 for no limit
+     * @param payloadExcerptLength most characters of a payload to put in a message, 0 for the whole payload
+     */
+    public LineageEventAuditLog(AuditLog auditLog, int sampleRate, int messagesPerMinute, int payloadExcerptLength) {
+        this(auditLog, sampleRate, messagesPerMinute, payloadExcerptLength, () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+    }
+
+    LineageEventAuditLog(AuditLog auditLog, int sampleRate, int messagesPerMinute, int payloadExcerptLength, LongSupplier clock) {
+        this.auditLog = auditLog;
+        this.sampleRate = Math.max(1, sampleRate);
+        this.messagesPerMinute = Math.max(0, messagesPerMinute);
+        this.payloadExcerptLength = Math.max(0, payloadExcerptLength);
+        this.clock = clock;
+        int codeCount = LineageEventSampleEventConnectorAuditCode.values().length;
+        this.sampleCounts = new AtomicLongArray(codeCount);
+        this.windowStarts = new AtomicLongArray(codeCount);
+        this.windowCounts = new AtomicLongArray(codeCount);
+        this.suppressedCounts = new AtomicLongArray(codeCount);
+        long now = clock.getAsLong();
+        for (int index = 0; index < codeCount; index++) {
+            windowStarts.set(index, now);
+        }
+    }
+
+    /**
+     * Log a message, if the policy allows it.
+     *
+     * @param actionDescription calling method
+     * @param auditCode         audit code of the message
+     * @param params            message inserts
+     */
+    public void logMessage(String actionDescription, LineageEventSampleEventConnectorAuditCode auditCode, String... params) {
+        if (isLogged(auditCode) && auditLog != null) {
+            write(actionDescription, auditCode, auditCode.getMessageDefinition(params), null);
+        }
+    }
+
+    /**
+     * Log a message about an exception, if the policy allows it.
+     *
+     * @param actionDescription calling method
+     * @param auditCode         audit code of the message
+     * @param error             the exception
+     * @param params            message inserts
+     */
+    public void logException(String actionDescription, LineageEventSampleEventConnectorAuditCode auditCode, Throwable error, String... params) {
+        if (isLogged(auditCode) && auditLog != null) {
+            write(actionDescription, auditCode, auditCode.getMessageDefinition(params), error);
+        }
+    }
+
+    /**
+     * Log that an event is about to be processed, with an excerpt of an event received as text or a description of
+     * an event received as bytes. The excerpt is only made if the message is logged.
+     *
+     * @param actionDescription    calling method
+     * @param payload              event payload
+     * @param maxDecompressedBytes largest number of bytes a compressed payload may decompress to
+     */
+    public void logProcessingEvent(String actionDescription, LineageEventPayload payload, long maxDecompressedBytes) {
+        LineageEventSampleEventConnectorAuditCode auditCode = LineageEventSampleEventConnectorAuditCode.PROCESSING_EVENT;
+        if (isLogged(auditCode) && auditLog != null) {
+            String event = payload.isBytes() ? payload.getDescription() : payload.getExcerpt(maxDecompressedBytes, payloadExcerptLength);
+            write(actionDescription, auditCode, auditCode.getMessageDefinition(event), null);
+        }
+    }
+
+    private void write(String actionDescription,
+                       LineageEventSampleEventConnectorAuditCode auditCode,
+                       AuditLogMessageDefinition messageDefinition,
+                       Throwable error) {
+        LineageEventAuditAppender currentAppender = appender;
+        if (currentAppender != null) {
+            currentAppender.append(actionDescription, auditCode, messageDefinition, error);
+        } else if (error != null) {
+            auditLog.logException(actionDescription, messageDefinition, error);
+        } else {
+            auditLog.logMessage(actionDescription, messageDefinition);
+        }
+    }
+
+    /**
+     * Write the messages to the audit log on a background thread from now on.
+     *
+     * @param capacity       most messages waiting to be written
+     * @param overflowPolicy which message to discard when the appender is full
+     * @param threadFactory  factory for the writer thread
+     * @param name           name of the writer thread
+     */
+    public synchronized void startAppender(int capacity,
+                                           LineageEventAuditAppender.OverflowPolicy overflowPolicy,
+                                           ThreadFactory threadFactory,
+                                           String name) {
+        if (appender == null && auditLog != null) {
+            LineageEventAuditAppender newAppender = new LineageEventAuditAppender(auditLog, capacity, overflowPolicy,
+                    auditCode -> suppress(auditCode.ordinal()));
+            newAppender.start(threadFactory, name);
+            appender = newAppender;
+        }
+    }
+
+    /**
+     * Write the messages waiting in the appender and go back to writing messages on the thread that logs them.
+     *
+     * @param timeoutMillis how long to wait for the appender's thread to write the waiting messages
+     * @throws InterruptedException interrupted while waiting for the appender's thread
+     */
+    public synchronized void stopAppender(long timeoutMillis) throws InterruptedException {
+        LineageEventAuditAppender currentAppender = appender;
+        if (currentAppender != null) {
+            appender = null;
+            currentAppender.shutdown(timeoutMillis);
+        }
+    }
+
+    /**
+     * Decide whether a message is logged, counting it as suppressed if it is not. Sampled messages count towards
+     * the rate limit only when they are sampled.
+     *
+     * @param auditCode audit code of the message
+     * @return true if the message is to be logged
+     */
+    boolean isLogged(LineageEventSampleEventConnectorAuditCode auditCode) {
+        int index = auditCode.ordinal();
+        if (sampleRate > 1 && SAMPLED_CODES.contains(auditCode) && sampleCounts.getAndIncrement(index) % sampleRate != 0) {
+            suppress(index);
+            return false;
+        }
+        if (messagesPerMinute > 0 && auditCode != LineageEventSampleEventConnectorAuditCode.AUDIT_MESSAGES_SUPPRESSED) {
+            long now = clock.getAsLong();
+            long windowStart = windowStarts.get(index);
+            if (now - windowStart >= RATE_LIMIT_WINDOW_MILLIS && windowStarts.compareAndSet(index, windowStart, now)) {
+                windowCounts.set(index, 0);
+            }
+            if (windowCounts.incrementAndGet(index) > messagesPerMinute) {
+                suppress(index);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void suppress(int index) {
+        suppressedCounts.incrementAndGet(index);
+        suppressedTotal.incrementAndGet();
+    }
+
+    /**
+     * Return the number of messages of each audit code suppressed since the last report, and reset the counts.
+     *
+     * @return suppressed messages by audit code, only codes with suppressed messages are included
+     */
+    Map<LineageEventSampleEventConnectorAuditCode, Long> takeSuppressedCounts() {
+        Map<LineageEventSampleEventConnectorAuditCode, Long> counts = new LinkedHashMap<>();
+        if (suppressedTotal.get() == 0) {
+            return counts;
+        }
+        for (LineageEventSampleEventConnectorAuditCode auditCode : LineageEventSampleEventConnectorAuditCode.values()) {
+            long count = suppressedCounts.getAndSet(auditCode.ordinal(), 0);
+            if (count > 0) {
+                counts.put(auditCode, count);
+                suppressedTotal.addAndGet(-count);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Log the number of messages suppressed since the last report, if there were any.
+     *
+     * @param connectorName connector name
+     */
+    public void reportSuppressedMessages(String connectorName) {
+        final String methodName = "reportSuppressedMessages";
+        Map<LineageEventSampleEventConnectorAuditCode, Long> counts = takeSuppressedCounts();
+        if (counts.isEmpty()) {
+            return;
+        }
+        long total = 0;
+        StringBuilder details = new StringBuilder();
+        for (Map.Entry<LineageEventSampleEventConnectorAuditCode, Long> entry : counts.entrySet()) {
+            total = total + entry.getValue();
+            if (details.length() > 0) {
+                details.append(", ");
+            }
+            details.append(entry.getKey().getMessageDefinition().getMessageId()).append(": ").append(entry.getValue());
+        }
+        logMessage(methodName, LineageEventSampleEventConnectorAuditCode.AUDIT_MESSAGES_SUPPRESSED, connectorName, Long.toString(total), details.toString());
+    }
+
+    /**
+     * Return the most characters of a payload to put in a message.
+     *
+     * @return excerpt length, 0 for the whole payload
+     */
+    public int getPayloadExcerptLength() {
+        return payloadExcerptLength;
+    }
+}
@@ -2,21 +2,28 @@
 /* Copyright Contributors to the ODPi Egeria project. */
 package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
 import org.odpi.openmetadata.adapters.connectors.integration.lineage.sample.beans.AssetBean;
 import org.odpi.openmetadata.adapters.connectors.integration.lineage.sample.beans.EventBean;
 import org.odpi.openmetadata.adapters.connectors.integration.lineage.sample.beans.SchemaBean;
 import org.odpi.openmetadata.adapters.connectors.integration.lineage.sample.ffdc.LineageEventSampleConnectorErrorCode;
 import org.odpi.openmetadata.frameworks.connectors.ffdc.ConnectorCheckedException;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.function.Supplier;
 
 /**
  * The EventContent is a java representation of the event json. It means that the connector can
- * retrieve elements like assets without needing to handle the json. It uses the beans to deserialise
- * the json.
+ * retrieve elements like assets without needing to handle the json. The json is read in a single pass with a
+ * streaming parser, the fields are read as the beans would read them, by the field names the beans declare. The same event structure is also accepted
+ * encoded as Smile or CBOR, and compressed with gzip or deflate, see LineageEventPayload.
  */
 public class LineageEventContentforSample {
 
@@ -32,62 +39,125 @@ public class LineageEventContentforSample {
 
     private Map<String, String> inputAssetFormulaMap = new HashMap<>();
 
+    // when the message holding the event was decoded, for the trace of the event
+    private long decodeStartNanos = 0;
+    private long decodeDurationNanos = 0;
 
     static final String SEPARATOR = "~";
     static final String TOPIC_SEPARATOR = ".";
 
+    private static final String WARM_UP_EVENT = "{\"Id\": \"warm-up\", \"Input\": [{\"id\": \"in\", \"type\": \"SQL\", \"value\": \"\"}]," +
+            "\"Output\": [{\"id\": \"out\", \"schemas\": [{\"id\": \"type\", \"properties\": {\"attribute\": {\"type\": \"string\"}}}]}]}";
+
+    /**
+     * Parse a small event so that the parsing code has been loaded before the first real event arrives.
+     */
+    static void warmUp() {
+        try {
+            new LineageEventContentforSample(WARM_UP_EVENT, "warm-up", null);
+        } catch (ConnectorCheckedException error) {
+            throw new IllegalStateException(error);
+        }
+    }
+
     protected LineageEventContentforSample(String jsonString, String connectorName, String topicNamespace) throws ConnectorCheckedException {
-        String methodName = "LineageEventContentforSample -constructor";
+        this(LineageEventPayload.of(jsonString), connectorName, topicNamespace);
+    }
 
-        // process json
+    /**
+     * Parse an event received as UTF-8 encoded json, Smile or CBOR, which may be gzip or deflate compressed.
+     *
+     * @param jsonBytes      event json
+     * @param connectorName  connector name, for error messages
+     * @param topicNamespace namespace prepended to the qualifiedName of the output assets
+     * @throws ConnectorCheckedException the event is not valid
+     */
+    protected LineageEventContentforSample(byte[] jsonBytes, String connectorName, String topicNamespace) throws ConnectorCheckedException {
+        this(LineageEventPayload.of(jsonBytes), connectorName, topicNamespace);
+    }
 
-        ObjectMapper om = new ObjectMapper();
-        EventBean eventBean = null;
-        try {
+    /**
+     * Parse an event received as UTF-8 encoded json, Smile or CBOR, which may be gzip or deflate compressed, between
+     * the position and the limit of the buffer.
+     *
+     * @param jsonBytes      event json
+     * @param connectorName  connector name, for error messages
+     * @param topicNamespace namespace prepended to the qualifiedName of the output assets
+     * @throws ConnectorCheckedException the event is not valid
+     */
+    protected LineageEventContentforSample(ByteBuffer jsonBytes, String connectorName, String topicNamespace) throws ConnectorCheckedException {
+        this(LineageEventPayload.of(jsonBytes), connectorName, topicNamespace);
+    }
 
-            eventBean = om.readValue(jsonString, EventBean.class);
+    /**
+     * Parse an event, decompressing it up to the default limit if it is compressed.
+     *
+     * @param payload        event payload
+     * @param connectorName  connector name, for error messages
+     * @param topicNamespace namespace prepended to the qualifiedName of the output assets
+     * @throws ConnectorCheckedException the event is not valid
+     */
+    protected LineageEventContentforSample(LineageEventPayload payload, String connectorName, String topicNamespace) throws ConnectorCheckedException {
+        this(payload, connectorName, topicNamespace, SampleLineageEventReceiverIntegrationProvider.DEFAULT_MAX_DECOMPRESSED_EVENT_BYTES);
+    }
 
-        } catch (JsonProcessingException error) {
-            throw new ConnectorCheckedException(LineageEventSampleConnectorErrorCode.INVALID_EVENT_JSON.getMessageDefinition(connectorName,
-                    jsonString
-                    , error.getClass().getName(), error.getMessage()),
-                    this.getClass().getName(),
-                    methodName,
-                    error);
-        }
+    /**
+     * Parse an event. The payload is parsed as it was received, its text is only needed for error messages.
+     *
+     * @param payload              event payload
+     * @param connectorName        connector name, for error messages
+     * @param topicNamespace       namespace prepended to the qualifiedName of the output assets
+     * @param maxDecompressedBytes largest number of bytes a compressed payload may decompress to
+     * @throws ConnectorCheckedException the event is not valid
+     */
+    protected LineageEventContentforSample(LineageEventPayload payload, String connectorName, String topicNamespace, long maxDecompressedBytes) throws ConnectorCheckedException {
+        this(parsePayload(payload, connectorName, maxDecompressedBytes), () -> payload.getText(maxDecompressedBytes), connectorName, topicNamespace);
+    }
+
+    /**
+     * Build the event from the values read from its payload, checking that it has everything the connector needs.
+     *
+     * @param parsedEvent    values read from the payload
+     * @param eventText      text of the event, for error messages
+     * @param connectorName  connector name, for error messages
+     * @param topicNamespace namespace prepended to the qualifiedName of the output assets
+     * @throws ConnectorCheckedException the event is not valid
+     */
+    LineageEventContentforSample(ParsedEvent parsedEvent, Supplier<String> eventText, String connectorName, String topicNamespace) throws ConnectorCheckedException {
+        String methodName = "LineageEventContentforSample -constructor";
 
-        this.processQualifiedName = eventBean.getQualifiedName();
+        this.processQualifiedName = parsedEvent.qualifiedName;
         if (this.processQualifiedName == null || this.processQualifiedName.length() == 0) {
             throw new ConnectorCheckedException(LineageEventSampleConnectorErrorCode.INVALID_EVENT_NO_PROCESS_ID.getMessageDefinition(connectorName,
-                    jsonString),
+                    eventText.get()),
                     this.getClass().getName(),
                     methodName);
         }
-        this.processTechnicalName = eventBean.getTechnicalName();
+        this.processTechnicalName = parsedEvent.technicalName;
         if (this.processTechnicalName == null || this.processTechnicalName.length() == 0) {
             this.processTechnicalName = this.processQualifiedName;
         }
-        this.processDescription = eventBean.getDescription();
-        this.teamName = eventBean.getTeam();
-        List<AssetBean> inputAssetBeans = eventBean.getInput();
-        if (inputAssetBeans == null || inputAssetBeans.size() == 0) {
+        this.processDescription = parsedEvent.description;
+        this.teamName = parsedEvent.team;
+        List<ParsedAsset> parsedInputAssets = parsedEvent.input;
+        if (parsedInputAssets == null || parsedInputAssets.size() == 0) {
             throw new ConnectorCheckedException(LineageEventSampleConnectorErrorCode.INVALID_EVENT_NO_INPUT.getMessageDefinition(connectorName,
-                    jsonString),
+                    eventText.get()),
                     this.getClass().getName(),
                     methodName);
         }
-        for (AssetBean inputAssetBean : inputAssetBeans) {
-            String qualifiedName = inputAssetBean.getQualifiedName();
+        for (ParsedAsset parsedInputAsset : parsedInputAssets) {
+            String qualifiedName = parsedInputAsset == null ? null : parsedInputAsset.qualifiedName;
             if (qualifiedName == null || qualifiedName.length() == 0) {
                 throw new ConnectorCheckedException(LineageEventSampleConnectorErrorCode.INVALID_EVENT_INPUT_ASSET_HAS_NO_ID.getMessageDefinition(connectorName,
-                        jsonString),
+                        eventText.get()),
                         this.getClass().getName(),
                         methodName);
             }
-            String displayName = inputAssetBean.getName();
+            String displayName = parsedInputAsset.name;
 
-            String type = inputAssetBean.getType();
-            String value = inputAssetBean.getValue();
+            String type = parsedInputAsset.type;
+            String value = parsedInputAsset.value;
             if (type != null && value != null) {
                 inputAssetFormulaMap.put(qualifiedName, type + " - " + value);
             }
@@ -96,39 +166,33 @@ public class LineageEventContentforSample {
             inputAssets.add(assetFromJSON);
         }
 
-        List<AssetBean> outputAssetBeans = eventBean.getOutput();
-        if (outputAssetBeans == null || outputAssetBeans.size() == 0) {
+        List<ParsedAsset> parsedOutputAssets = parsedEvent.output;
+        if (parsedOutputAssets == null || parsedOutputAssets.size() == 0) {
             throw new ConnectorCheckedException(LineageEventSampleConnectorErrorCode.INVALID_EVENT_NO_OUTPUT.getMessageDefinition(connectorName,
-                    jsonString),
+                    eventText.get()),
                     this.getClass().getName(),
                     methodName);
         }
-        for (AssetBean outputAssetBean : outputAssetBeans) {
-            String displayName = outputAssetBean.getQualifiedName();
+        for (ParsedAsset parsedOutputAsset : parsedOutputAssets) {
+            String displayName = parsedOutputAsset == null ? null : parsedOutputAsset.qualifiedName;
             if (displayName == null || displayName.length() == 0) {
                 throw new ConnectorCheckedException(LineageEventSampleConnectorErrorCode.INVALID_EVENT_INPUT_ASSET_HAS_NO_ID.getMessageDefinition(connectorName,
-                        jsonString),
+                        eventText.get()),
                         this.getClass().getName(),
                         methodName);
             }
             String qualifiedName;
             if (topicNamespace != null && topicNamespace.length() != 0) {
-                qualifiedName = topicNamespace.concat(TOPIC_SEPARATOR).concat(outputAssetBean.getQualifiedName());
+                qualifiedName = topicNamespace.concat(TOPIC_SEPARATOR).concat(displayName);
             } else {
-                qualifiedName = outputAssetBean.getQualifiedName();
+                qualifiedName = displayName;
             }
-            List<SchemaBean> schemaBeans = outputAssetBean.getSchemas();
 
             List<EventTypeFromJSON> eventTypesFromJSON = new ArrayList<>();
-            for (SchemaBean schemaBean : schemaBeans) {
-                String outputEventTypeDisplayName = schemaBean.getDisplayName();
-                String outputEventTypeQualifiedName;
-                if (qualifiedName == null) {
-                    outputEventTypeQualifiedName = outputEventTypeDisplayName;
-                } else {
-                    outputEventTypeQualifiedName = qualifiedName + SEPARATOR + outputEventTypeDisplayName;
-                }
-                List<Attribute> outputAttributes = getAttributes(schemaBean.getProperties(), null, outputEventTypeQualifiedName);
+            for (ParsedSchema parsedSchema : parsedOutputAsset.schemas) {
+                String outputEventTypeDisplayName = parsedSchema.displayName;
+                String outputEventTypeQualifiedName = qualifiedName + SEPARATOR + outputEventTypeDisplayName;
+                List<Attribute> outputAttributes = getAttributes(parsedSchema.properties, null, outputEventTypeQualifiedName);
                 EventTypeFromJSON eventTypeFromJSON = new EventTypeFromJSON(outputEventTypeDisplayName, outputEventTypeQualifiedName, outputAttributes);
                 eventTypesFromJSON.add(eventTypeFromJSON);
             }
@@ -139,43 +203,22 @@ public class LineageEventContentforSample {
         }
     }
 
-    private List<Attribute> getAttributes(JsonNode properties, String parentDisplayName, String outputEventTypeQualifiedName) {
-        List<Attribute> outputAttributes = new ArrayList<>();
-        Iterator<Map.Entry<String, JsonNode>> nodes = properties.fields();
-        while (nodes.hasNext()) {
-            Map.Entry<String, JsonNode> entry = nodes.next();
+    private List<Attribute> getAttributes(Map<String, ParsedAttribute> properties, String parentDisplayName, String outputEventTypeQualifiedName) {
+        List<Attribute> outputAttributes = new ArrayList<>(properties.size());
+        for (Map.Entry<String, ParsedAttribute> entry : properties.entrySet()) {
             String attributeDisplayName = entry.getKey();
-            JsonNode attributeNode = entry.getValue();
-            //assume key can't be null.
+            ParsedAttribute parsedAttribute = entry.getValue();
             String attributeQualifiedName;
             if (parentDisplayName == null) {
                 attributeQualifiedName = outputEventTypeQualifiedName + SEPARATOR + attributeDisplayName;
             } else {
                 attributeQualifiedName = outputEventTypeQualifiedName + SEPARATOR + parentDisplayName + SEPARATOR + attributeDisplayName;
             }
-            String attributeType = null;
             List<Attribute> nestedAttributes = null;
-            if (attributeNode.has("type")) {
-                JsonNode attributeTypeNode = attributeNode.get("type");
-                attributeType = attributeTypeNode.asText();
-                if (attributeType.equals("object") &&
-                        attributeNode.has("properties")) {
-                    nestedAttributes = getAttributes(attributeNode.get("properties"), attributeDisplayName, outputEventTypeQualifiedName);
-                }
-            }
-            String attributeDescription = null;
-            if (attributeNode.has("description")) {
-                JsonNode attributeDescriptionObject = attributeNode.get("description");
-                attributeDescription = attributeDescriptionObject.asText();
-
+            if ("object".equals(parsedAttribute.type) && parsedAttribute.properties != null) {
+                nestedAttributes = getAttributes(parsedAttribute.properties, attributeDisplayName, outputEventTypeQualifiedName);
             }
-            String attributeFormula = null;
-            if (attributeNode.has("formula")) {
-                JsonNode attributeFormulaObject = attributeNode.get("formula");
-                attributeFormula = attributeFormulaObject.asText();
-
-            }
-            Attribute outputAttribute = new Attribute(attributeDisplayName, attributeQualifiedName, attributeType, attributeDescription, attributeFormula);
+            Attribute outputAttribute = new Attribute(attributeDisplayName, attributeQualifiedName, parsedAttribute.type, parsedAttribute.description, parsedAttribute.formula);
             if (nestedAttributes != null) {
                 outputAttribute.setNestedAttributes(nestedAttributes);
             }
@@ -184,6 +227,278 @@ public class LineageEventContentforSample {
         return outputAttributes;
     }
 
+    /*
+     * The parse methods read the event in a single pass. The fields of an object can come in any order, for example
+     * the id of an asset after its schemas, so the values are collected in the small Parsed classes below and the
+     * qualified names are only built once the whole event has been read.
+     */
+
+    /**
+     * Read the event in the payload.
+     *
+     * @param payload              event payload
+     * @param connectorName        connector name, for error messages
+     * @param maxDecompressedBytes largest number of bytes a compressed payload may decompress to
+     * @return values read from the event
+     * @throws ConnectorCheckedException the payload is not a valid event
+     */
+    private static ParsedEvent parsePayload(LineageEventPayload payload, String connectorName, long maxDecompressedBytes) throws ConnectorCheckedException {
+        try (JsonParser parser = payload.createParser(maxDecompressedBytes)) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                throw MismatchedInputException.from(parser, LineageEventContentforSample.class, "No content to map due to end-of-input");
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw mismatchedInput(parser, LineageEventContentforSample.class);
+            }
+            return readEvent(parser);
+        } catch (IOException error) {
+            throw getParseError(error, connectorName, maxDecompressedBytes, () -> payload.getText(maxDecompressedBytes), payload::getDescription);
+        }
+    }
+
+    /**
+     * Return the error for an event that could not be read.
+     *
+     * @param error                error from the parser
+     * @param connectorName        connector name
+     * @param maxDecompressedBytes largest number of bytes a compressed payload may decompress to
+     * @param eventText            text of the event
+     * @param eventDescription     short description of the event, used when the event is too large to include
+     * @return error to report
+     */
+    static ConnectorCheckedException getParseError(IOException error,
+                                                   String connectorName,
+                                                   long maxDecompressedBytes,
+                                                   Supplier<String> eventText,
+                                                   Supplier<String> eventDescription) {
+        String methodName = "LineageEventContentforSample -constructor";
+        if (error instanceof LineageEventPayload.PayloadTooLargeException) {
+            return new ConnectorCheckedException(LineageEventSampleConnectorErrorCode.EVENT_PAYLOAD_TOO_LARGE.getMessageDefinition(connectorName,
+                    Long.toString(maxDecompressedBytes), eventDescription.get()),
+                    LineageEventContentforSample.class.getName(),
+                    methodName,
+                    error);
+        }
+        return new ConnectorCheckedException(LineageEventSampleConnectorErrorCode.INVALID_EVENT_JSON.getMessageDefinition(connectorName,
+                eventText.get()
+                , error.getClass().getName(), error.getMessage()),
+                LineageEventContentforSample.class.getName(),
+                methodName,
+                error);
+    }
+
+    /**
+     * Read an event object.
+     *
+     * @param parser parser positioned on the start of the event object
+     * @return values read from the event, the parser is left on the end of the event object
+     * @throws IOException the event is not valid json, or a value has the wrong shape
+     */
+    static ParsedEvent readEvent(JsonParser parser) throws IOException {
+        ParsedEvent parsedEvent = new ParsedEvent();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.currentName();
+            parser.nextToken();
+            switch (fieldName) {
+                case EventBean.ID -> parsedEvent.qualifiedName = readString(parser);
+                case EventBean.NAME -> parsedEvent.technicalName = readString(parser);
+                case EventBean.DESCRIPTION -> parsedEvent.description = readString(parser);
+                case EventBean.TEAM -> parsedEvent.team = readString(parser);
+                case EventBean.INPUT -> parsedEvent.input = readAssets(parser);
+                case EventBean.OUTPUT -> parsedEvent.output = readAssets(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        return parsedEvent;
+    }
+
+    private static List<ParsedAsset> readAssets(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw mismatchedInput(parser, List.class);
+        }
+        List<ParsedAsset> parsedAssets = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken() == JsonToken.VALUE_NULL) {
+                // a null asset is reported as an asset without an id
+                parsedAssets.add(null);
+            } else if (parser.currentToken() == JsonToken.START_OBJECT) {
+                parsedAssets.add(readAsset(parser));
+            } else {
+                throw mismatchedInput(parser, ParsedAsset.class);
+            }
+        }
+        return parsedAssets;
+    }
+
+    private static ParsedAsset readAsset(JsonParser parser) throws IOException {
+        ParsedAsset parsedAsset = new ParsedAsset();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.currentName();
+            parser.nextToken();
+            switch (fieldName) {
+                case AssetBean.ID -> parsedAsset.qualifiedName = readString(parser);
+                case AssetBean.NAME -> parsedAsset.name = readString(parser);
+                case AssetBean.TYPE -> parsedAsset.type = readString(parser);
+                case AssetBean.VALUE -> parsedAsset.value = readString(parser);
+                case AssetBean.SCHEMAS -> parsedAsset.schemas = readSchemas(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        return parsedAsset;
+    }
+
+    private static List<ParsedSchema> readSchemas(JsonParser parser) throws IOException {
+        List<ParsedSchema> parsedSchemas = new ArrayList<>();
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return parsedSchemas;
+        }
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw mismatchedInput(parser, List.class);
+        }
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken() == JsonToken.START_OBJECT) {
+                parsedSchemas.add(readSchema(parser));
+            } else if (parser.currentToken() != JsonToken.VALUE_NULL) {
+                throw mismatchedInput(parser, ParsedSchema.class);
+            }
+        }
+        return parsedSchemas;
+    }
+
+    private static ParsedSchema readSchema(JsonParser parser) throws IOException {
+        ParsedSchema parsedSchema = new ParsedSchema();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.currentName();
+            parser.nextToken();
+            switch (fieldName) {
+                case SchemaBean.ID -> parsedSchema.displayName = readString(parser);
+                case SchemaBean.TYPE -> readString(parser);
+                case SchemaBean.PROPERTIES -> parsedSchema.properties = readProperties(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        return parsedSchema;
+    }
+
+    /**
+     * Read the attributes of a schema or of an object attribute. A value that is not an object has no attributes.
+     *
+     * @param parser parser positioned on the properties value
+     * @return attributes by display name, in the order they first appear
+     * @throws IOException the json is not valid
+     */
+    private static Map<String, ParsedAttribute> readProperties(JsonParser parser) throws IOException {
+        Map<String, ParsedAttribute> properties = new LinkedHashMap<>();
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return properties;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String attributeDisplayName = parser.currentName();
+            parser.nextToken();
+            properties.put(attributeDisplayName, readAttribute(parser));
+        }
+        return properties;
+    }
+
+    private static ParsedAttribute readAttribute(JsonParser parser) throws IOException {
+        ParsedAttribute parsedAttribute = new ParsedAttribute();
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return parsedAttribute;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.currentName();
+            parser.nextToken();
+            switch (fieldName) {
+                case "type" -> parsedAttribute.type = readText(parser);
+                case "description" -> parsedAttribute.description = readText(parser);
+                case "formula" -> parsedAttribute.formula = readText(parser);
+                case "properties" -> parsedAttribute.properties = readProperties(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        return parsedAttribute;
+    }
+
+    /**
+     * Read a scalar value as a String field of a bean would be read: null stays null, and an object or array is
+     * not valid.
+     *
+     * @param parser parser positioned on the value
+     * @return value
+     * @throws IOException the value is not a scalar value
+     */
+    private static String readString(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (!token.isScalarValue()) {
+            throw mismatchedInput(parser, String.class);
+        }
+        return parser.getText();
+    }
+
+    /**
+     * Read a value as the text of a json node: null is "null", numbers are normalised and an object or array
+     * has an empty text.
+     *
+     * @param parser parser positioned on the value
+     * @return text of the value
+     * @throws IOException the json is not valid
+     */
+    private static String readText(JsonParser parser) throws IOException {
+        return switch (parser.currentToken()) {
+            case VALUE_NUMBER_INT -> parser.getNumberValue().toString();
+            case VALUE_NUMBER_FLOAT -> Double.toString(parser.getDoubleValue());
+            case VALUE_NULL -> "null";
+            case START_OBJECT, START_ARRAY -> {
+                parser.skipChildren();
+                yield "";
+            }
+            default -> parser.getText();
+        };
+    }
+
+    static MismatchedInputException mismatchedInput(JsonParser parser, Class<?> targetType) {
+        return MismatchedInputException.from(parser, targetType,
+                "Cannot deserialize value of type `" + targetType.getSimpleName() + "` from " + parser.currentToken());
+    }
+
+    static class ParsedEvent {
+        private String qualifiedName;
+        private String technicalName;
+        private String description;
+        private String team;
+        private List<ParsedAsset> input = new ArrayList<>();
+        private List<ParsedAsset> output = new ArrayList<>();
+    }
+
+    private static class ParsedAsset {
+        private String qualifiedName;
+        private String name;
+        private String type;
+        private String value;
+        private List<ParsedSchema> schemas = new ArrayList<>();
+    }
+
+    private static class ParsedSchema {
+        private String displayName;
+        private Map<String, ParsedAttribute> properties = new LinkedHashMap<>();
+    }
+
+    private static class ParsedAttribute {
+        private String type;
+        private String description;
+        private String formula;
+        private Map<String, ParsedAttribute> properties;
+    }
+
     //getters and setters
     public String getProcessTechnicalName() {
         return processTechnicalName;
@@ -213,12 +528,43 @@ public class LineageEventContentforSample {
         return inputAssetFormulaMap.get(qualifiedName);
     }
 
+    /**
+     * Record when the message holding the event was decoded. For a batch, this is the decode of the whole message.
+     *
+     * @param decodeStartNanos    start time from System.nanoTime()
+     * @param decodeDurationNanos duration in nanoseconds
+     */
+    void setDecodeTiming(long decodeStartNanos, long decodeDurationNanos) {
+        this.decodeStartNanos = decodeStartNanos;
+        this.decodeDurationNanos = decodeDurationNanos;
+    }
+
+    /**
+     * Return when the message holding the event was decoded.
+     *
+     * @return start time from System.nanoTime(), 0 if the decode was not timed
+     */
+    long getDecodeStartNanos() {
+        return decodeStartNanos;
+    }
+
+    /**
+     * Return how long the message holding the event took to decode.
+     *
+     * @return duration in nanoseconds
+     */
+    long getDecodeDurationNanos() {
+        return decodeDurationNanos;
+    }
+
     static class AssetFromJSON {
         private String displayName;
         private String qualifiedName;
         private String typeName;
 
         private List<EventTypeFromJSON> eventTypes;
+        private String schemaFingerprint = null;
+        private int attributeCount = -1;
 
         protected AssetFromJSON(String displayName, String qualifiedName, String typeName) {
             this.displayName = displayName;
@@ -247,6 +593,90 @@ public class LineageEventContentforSample {
         public List<EventTypeFromJSON> getEventTypes() {
             return eventTypes;
         }
+
+        /**
+         * Return a fingerprint of the schema of this asset: a SHA-256 digest of its EventTypes and their attributes,
+         * including the nested attributes. Two assets have the same fingerprint only if cataloguing their schemas
+         * would produce the same schema elements, so an unchanged schema can be recognised without any metadata calls.
+         *
+         * @return hex encoded fingerprint, null if the asset has no schema
+         */
+        public String getSchemaFingerprint() {
+            if (eventTypes == null) {
+                return null;
+            }
+            if (schemaFingerprint == null) {
+                MessageDigest digest;
+                try {
+                    digest = MessageDigest.getInstance("SHA-256");
+                } catch (NoSuchAlgorithmException error) {
+                    throw new IllegalStateException(error);
+                }
+                addToFingerprint(digest, typeName);
+                addToFingerprint(digest, qualifiedName);
+                for (EventTypeFromJSON eventType : eventTypes) {
+                    addToFingerprint(digest, eventType.getTechnicalName());
+                    addToFingerprint(digest, eventType.getQualifiedName());
+                    addToFingerprint(digest, eventType.getAttributes());
+                }
+                schemaFingerprint = HexFormat.of().formatHex(digest.digest());
+            }
+            return schemaFingerprint;
+        }
+
+        /**
+         * Return the number of attributes in the schema of this asset, including the nested attributes.
+         *
+         * @return attribute count, 0 if the asset has no schema
+         */
+        public int getAttributeCount() {
+            if (attributeCount < 0) {
+                int count = 0;
+                if (eventTypes != null) {
+                    for (EventTypeFromJSON eventType : eventTypes) {
+                        count = count + countAttributes(eventType.getAttributes());
+                    }
+                }
+                attributeCount = count;
+            }
+            return attributeCount;
+        }
+
+        private static int countAttributes(List<Attribute> attributes) {
+            int count = 0;
+            if (attributes != null) {
+                for (Attribute attribute : attributes) {
+                    count = count + 1 + countAttributes(attribute.getNestedAttributes());
+                }
+            }
+            return count;
+        }
+
+        private static void addToFingerprint(MessageDigest digest, List<Attribute> attributes) {
+            // the count separates the attributes of one level from those that follow it
+            addToFingerprint(digest, Integer.toString(attributes == null ? 0 : attributes.size()));
+            if (attributes != null) {
+                for (Attribute attribute : attributes) {
+                    addToFingerprint(digest, attribute.getDisplayName());
+                    addToFingerprint(digest, attribute.getQualifiedName());
+                    addToFingerprint(digest, attribute.getType());
+                    addToFingerprint(digest, attribute.getDescription());
+                    addToFingerprint(digest, attribute.getFormula());
+                    addToFingerprint(digest, attribute.getNestedAttributes());
+                }
+            }
+        }
+
+        private static void addToFingerprint(MessageDigest digest, String value) {
+            // each value is prefixed by its length so that neighbouring values cannot run into each other
+            if (value == null) {
+                digest.update(ByteBuffer.allocate(4).putInt(-1).array());
+            } else {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                digest.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+                digest.update(bytes);
+            }
+        }
     }
 
     static class Attribute {
@@ -0,0 +1,239 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import org.odpi.openmetadata.frameworks.connectors.ffdc.ConnectorCheckedException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * LineageEventEnvelope reads the events in a message. A message holds either one event, a json array of events, or a
+ * sequence of events one after the other, such as newline-delimited json. Each event is read and checked on its own,
+ * so an event that is not valid is reported without rejecting the other events in the message.
+ * <p>
+ * An event whose values have the wrong shape, or that is missing required elements, is skipped and reading carries on
+ * with the next event. If the message itself stops being valid json, nothing after that point can be read: the events
+ * before it are kept and the error is reported for the event being read.
+ */
+public class LineageEventEnvelope {
+
+    private final boolean batch;
+    private final List<Element> elements;
+
+    private LineageEventEnvelope(boolean batch, List<Element> elements) {
+        this.batch = batch;
+        this.elements = elements;
+    }
+
+    /**
+     * Read the events in a message.
+     *
+     * @param payload              message payload
+     * @param connectorName        connector name, for error messages
+     * @param topicNamespace       namespace prepended to the qualifiedName of the output assets
+     * @param maxDecompressedBytes largest number of bytes a compressed payload may decompress to
+     * @return events read from the message, with an error for each event that is not valid
+     */
+    public static LineageEventEnvelope read(LineageEventPayload payload, String connectorName, String topicNamespace, long maxDecompressedBytes) {
+        return read(payload, connectorName, topicNamespace, maxDecompressedBytes, 0);
+    }
+
+    /**
+     * Read the events in a message, putting no more than an excerpt of each event that is not valid in its error.
+     *
+     * @param payload              message payload
+     * @param connectorName        connector name, for error messages
+     * @param topicNamespace       namespace prepended to the qualifiedName of the output assets
+     * @param maxDecompressedBytes largest number of bytes a compressed payload may decompress to
+     * @param maxEventTextChars    most characters of an event to put in an error, 0 for the whole event
+     * @return events read from the message, with an error for each event that is not valid
+     */
+    public static LineageEventEnvelope read(LineageEventPayload payload,
+                                            String connectorName,
+                                            String topicNamespace,
+                                            long maxDecompressedBytes,
+                                            int maxEventTextChars) {
+        List<Element> elements = new ArrayList<>();
+        boolean batch = false;
+        try (JsonParser parser = payload.createParser(maxDecompressedBytes)) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                throw MismatchedInputException.from(parser, LineageEventContentforSample.class, "No content to map due to end-of-input");
+            }
+            if (token == JsonToken.START_ARRAY) {
+                batch = true;
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    elements.add(readElement(parser, elements.size(), true, payload, connectorName, topicNamespace, maxDecompressedBytes, maxEventTextChars));
+                }
+            } else {
+                while (token != null) {
+                    elements.add(readElement(parser, elements.size(), batch, payload, connectorName, topicNamespace, maxDecompressedBytes, maxEventTextChars));
+                    token = parser.nextToken();
+                    batch = batch || token != null;
+                }
+            }
+        } catch (IOException error) {
+            int index = elements.size();
+            Supplier<String> eventText = (batch || index > 0) ? () -> describeElement(index, payload) : () -> payload.getExcerpt(maxDecompressedBytes, maxEventTextChars);
+            elements.add(new Element(index, null,
+                    LineageEventContentforSample.getParseError(error, connectorName, maxDecompressedBytes, eventText, payload::getDescription)));
+        }
+        return new LineageEventEnvelope(batch || elements.size() > 1, elements);
+    }
+
+    /**
+     * Read the event the parser is positioned on.
+     *
+     * @param parser               parser positioned on the first token of the event
+     * @param index                position of the event in the message
+     * @param inBatch              whether the message is already known to hold more than one event
+     * @param payload              message payload
+     * @param connectorName        connector name
+     * @param topicNamespace       namespace prepended to the qualifiedName of the output assets
+     * @param maxDecompressedBytes largest number of bytes a compressed payload may decompress to
+     * @param maxEventTextChars    most characters of an event to put in an error, 0 for the whole event
+     * @return event, or the error for an event that is not valid
+     * @throws IOException the message is not valid json, so no more events can be read
+     */
+    private static Element readElement(JsonParser parser,
+                                       int index,
+                                       boolean inBatch,
+                                       LineageEventPayload payload,
+                                       String connectorName,
+                                       String topicNamespace,
+                                       long maxDecompressedBytes,
+                                       int maxEventTextChars) throws IOException {
+        long startOffset = getOffset(parser.currentTokenLocation());
+        LineageEventContentforSample.ParsedEvent parsedEvent = null;
+        MismatchedInputException mismatch = null;
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            mismatch = LineageEventContentforSample.mismatchedInput(parser, LineageEventContentforSample.class);
+            parser.skipChildren();
+        } else {
+            JsonStreamContext parentContext = parser.getParsingContext().getParent();
+            try {
+                parsedEvent = LineageEventContentforSample.readEvent(parser);
+            } catch (MismatchedInputException error) {
+                // the json is still valid, so skip to the end of this event and carry on with the next one
+                mismatch = error;
+                while (parser.getParsingContext() != parentContext) {
+                    if (parser.nextToken() == null) {
+                        throw error;
+                    }
+                }
+            }
+        }
+        long endOffset = getOffset(parser.currentLocation());
+        String partText = payload.getPartText(startOffset, endOffset);
+        Supplier<String> eventText;
+        if (partText != null) {
+            eventText = () -> LineageEventPayload.getExcerpt(partText, maxEventTextChars);
+        } else if (inBatch || index > 0) {
+            eventText = () -> describeElement(index, payload);
+        } else {
+            eventText = () -> payload.getExcerpt(maxDecompressedBytes, maxEventTextChars);
+        }
+
+        if (mismatch != null) {
+            return new Element(index, null,
+                    LineageEventContentforSample.getParseError(mismatch, connectorName, maxDecompressedBytes, eventText, payload::getDescription));
+        }
+        try {
+            return new Element(index, new LineageEventContentforSample(parsedEvent, eventText, connectorName, topicNamespace), null);
+        } catch (ConnectorCheckedException error) {
+            return new Element(index, null, error);
+        }
+    }
+
+    private static long getOffset(JsonLocation location) {
+        return location.getByteOffset() >= 0 ? location.getByteOffset() : location.getCharOffset();
+    }
+
+    private static String describeElement(int index, LineageEventPayload payload) {
+        return "event " + index + " of " + payload.getDescription();
+    }
+
+    /**
+     * Return true if the message held more than one event, or a json array of events.
+     *
+     * @return whether the message is a batch of events
+     */
+    public boolean isBatch() {
+        return batch;
+    }
+
+    /**
+     * Return the events read from the message, in the order they appear in it.
+     *
+     * @return events and errors
+     */
+    public List<Element> getElements() {
+        return elements;
+    }
+
+    /**
+     * Return the events that were read successfully.
+     *
+     * @return valid events, in the order they appear in the message
+     */
+    public List<LineageEventContentforSample> getEventContents() {
+        List<LineageEventContentforSample> eventContents = new ArrayList<>(elements.size());
+        for (Element element : elements) {
+            if (element.getEventContent() != null) {
+                eventContents.add(element.getEventContent());
+            }
+        }
+        return eventContents;
+    }
+
+    /**
+     * The outcome of reading one event of a message.
+     */
+    public static class Element {
+        private final int index;
+        private final LineageEventContentforSample eventContent;
+        private final ConnectorCheckedException error;
+
+        private Element(int index, LineageEventContentforSample eventContent, ConnectorCheckedException error) {
+            this.index = index;
+            this.eventContent = eventContent;
+            this.error = error;
+        }
+
+        /**
+         * Return the position of the event in the message, starting at 0.
+         *
+         * @return index
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Return the event, if it is valid.
+         *
+         * @return event or null
+         */
+        public LineageEventContentforSample getEventContent() {
+            return eventContent;
+        }
+
+        /**
+         * Return the reason the event is not valid.
+         *
+         * @return error or null
+         */
+        public ConnectorCheckedException getError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,630 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+import org.odpi.openmetadata.adapters.connectors.integration.lineage.sample.ffdc.LineageEventSampleEventConnectorAuditCode;
+import org.odpi.openmetadata.frameworks.auditlog.AuditLog;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * LineageEventIngestionQueue decouples the consumption of events from the topic from the metadata calls made for them.
+ * The topic listener adds each event to a bounded in-memory queue and returns; a dispatcher thread takes the events
+ * off the queue and hands them to the event handler.
+ * <p>
+ * When the queue is full, the overflow policy decides what happens to a new event:
+ * <ul>
+ *     <li>BLOCK - the topic listener waits until there is space in the queue.</li>
+ *     <li>DROP_OLDEST - the oldest waiting event is discarded to make room.</li>
+ *     <li>SPILL - the event is written to a file in the spill directory. Once events have been spilled, new events
+ *     are also spilled until the spill directory has been drained, so events are still dispatched in the order they
+ *     arrived. Each event is written to a temporary file and moved into place once it is complete, so a failed or
+ *     interrupted write never leaves a partial event to be picked up. An event that cannot be written keeps its place
+ *     in the spill order and is held in memory instead. Spilled events that are left over when the connector stops
+ *     are picked up when it next starts.</li>
+ * </ul>
+ * The queue keeps counts of the events that were dropped and spilled, and of the time events spent waiting in the
+ * queue, so the connector can report how far behind it is.
+ * <p>
+ * Once the queue has been shut down it no longer accepts events. A topic listener waiting for space is released and
+ * its event is rejected, and the events still in memory when the dispatcher does not finish in time are reported.
+ */
+public class LineageEventIngestionQueue {
+
+    /**
+     * What to do with a new event when the queue is full.
+     */
+    public enum OverflowPolicy {
+        BLOCK,
+        DROP_OLDEST,
+        SPILL;
+
+        /**
+         * Return the policy with the supplied name, ignoring case and allowing '-' in place of '_'.
+         *
+         * @param name         policy name from the configuration
+         * @param defaultValue policy to use when the name is null or not recognised
+         * @return overflow policy
+         */
+        public static OverflowPolicy fromName(String name, OverflowPolicy defaultValue) {
+            if (name != null) {
+                try {
+                    return OverflowPolicy.valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+                } catch (IllegalArgumentException error) {
+                    return defaultValue;
+                }
+            }
+            return defaultValue;
+        }
+    }
+
+    private static final String SPILL_FILE_SUFFIX = ".event";
+    private static final String SPILL_TEMP_SUFFIX = ".tmp";
+    private static final long POLL_INTERVAL_MILLIS = 500;
+
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final Path spillDirectory;
+    private final Consumer<LineageEventPayload> eventHandler;
+    private final AuditLog auditLog;
+    private final String connectorName;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Deque<QueuedEvent> queue = new ArrayDeque<>();
+    private final Deque<Path> spilledEvents = new ArrayDeque<>();
+    // spill files that have their place in spilledEvents but are still being written
+    private final Set<Path> spillsInProgress = new HashSet<>();
+    // events that could not be written, held in memory at their place in spilledEvents
+    private final Map<Path, QueuedEvent> unspilledEvents = new HashMap<>();
+    private long spillSequence = 0;
+
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong spilledCount = new AtomicLong();
+    private final AtomicLong dispatchedCount = new AtomicLong();
+    private final AtomicLong totalWaitMillis = new AtomicLong();
+    private final AtomicLong maxWaitMillis = new AtomicLong();
+
+    private volatile boolean running = false;
+    // set by shutdown, events are queued before start but not after shutdown
+    private volatile boolean stopped = false;
+    private Thread dispatcher = null;
+
+    /**
+     * Constructor for LineageEventIngestionQueue
+     *
+     * @param capacity       maximum number of events held in memory
+     * @param overflowPolicy what to do when the queue is full
+     * @param spillDirectory directory for spilled events, only used with the SPILL policy, which becomes BLOCK if it
+     *                       is null
+     * @param eventHandler   called on the dispatcher thread for each event
+     * @param auditLog       audit log, may be null
+     * @param connectorName  connector name
+     */
+    public LineageEventIngestionQueue(int capacity,
+                                      OverflowPolicy overflowPolicy,
+                                      Path spillDirectory,
+                                      Consumer<LineageEventPayload> eventHandler,
+                                      AuditLog auditLog,
+                                      String connectorName) {
+        this.capacity = Math.max(1, capacity);
+        this.overflowPolicy = (overflowPolicy == OverflowPolicy.SPILL && spillDirectory == null) ? OverflowPolicy.BLOCK : overflowPolicy;
+        this.spillDirectory = spillDirectory;
+        this.eventHandler = eventHandler;
+        this.auditLog = auditLog;
+        this.connectorName = connectorName;
+    }
+
+    /**
+     * Pick up any events spilled by a previous run and start the dispatcher thread.
+     *
+     * @param threadFactory factory for the dispatcher thread
+     * @param name          name of the dispatcher thread
+     */
+    public synchronized void start(ThreadFactory threadFactory, String name) {
+        if (!running) {
+            if (overflowPolicy == OverflowPolicy.SPILL) {
+                recoverSpilledEvents();
+            }
+            running = true;
+            stopped = false;
+            dispatcher = threadFactory.newThread(this::dispatchEvents);
+            dispatcher.setName(name);
+            dispatcher.start();
+        }
+    }
+
+    /**
+     * Add an event to the queue, applying the overflow policy if the queue is full.
+     *
+     * @param event event payload
+     * @return true if the event was queued or spilled, false if the queue has been shut down
+     * @throws InterruptedException the caller was interrupted while waiting for space in the queue
+     */
+    public boolean enqueue(String event) throws InterruptedException {
+        return enqueue(LineageEventPayload.of(event));
+    }
+
+    /**
+     * Add an event to the queue, applying the overflow policy if the queue is full. The payload is queued as it was
+     * received, so an event received as bytes stays as bytes. An event that arrives once the queue has been shut down,
+     * or while the caller is still waiting for space when it is shut down, is not accepted, and is logged.
+     *
+     * @param event event payload
+     * @return true if the event was queued or spilled, false if the queue has been shut down
+     * @throws InterruptedException the caller was interrupted while waiting for space in the queue
+     */
+    public boolean enqueue(LineageEventPayload event) throws InterruptedException {
+        QueuedEvent queuedEvent = new QueuedEvent(event, System.currentTimeMillis());
+        boolean accepted;
+        Path spillFile = null;
+        lock.lockInterruptibly();
+        try {
+            if (stopped) {
+                accepted = false;
+            } else if (overflowPolicy != OverflowPolicy.SPILL || (spilledEvents.isEmpty() && queue.size() < capacity)) {
+                accepted = addToQueue(queuedEvent);
+            } else {
+                // the event takes its place in the spill order now, and is written once the lock is released
+                spillFile = spillDirectory.resolve(String.format("%019d-%d%s", spillSequence++, queuedEvent.enqueueTime, SPILL_FILE_SUFFIX));
+                spilledEvents.addLast(spillFile);
+                spillsInProgress.add(spillFile);
+                accepted = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (spillFile != null) {
+            boolean spilled = spill(spillFile, queuedEvent);
+            lock.lock();
+            try {
+                spillsInProgress.remove(spillFile);
+                if (spilled) {
+                    spilledCount.incrementAndGet();
+                    notEmpty.signalAll();
+                } else {
+                    // keep the place of the event in the spill order, so it is still dispatched after the events spilled before it
+                    unspilledEvents.put(spillFile, queuedEvent);
+                    notEmpty.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (!accepted) {
+            logEventNotAccepted(event);
+        }
+        return accepted;
+    }
+
+    /**
+     * Add an event to the in-memory queue, waiting for space or dropping the oldest event if it is full. Called with
+     * the lock held.
+     *
+     * @param queuedEvent event to add
+     * @return false if the queue was shut down while waiting for space, so the event was not added
+     * @throws InterruptedException the caller was interrupted while waiting for space in the queue
+     */
+    private boolean addToQueue(QueuedEvent queuedEvent) throws InterruptedException {
+        while (queue.size() >= capacity) {
+            if (stopped) {
+                return false;
+            }
+            if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+                queue.pollFirst();
+                droppedCount.incrementAndGet();
+            } else {
+                notFull.await();
+            }
+        }
+        queue.addLast(queuedEvent);
+        notEmpty.signal();
+        return true;
+    }
+
+    /**
+     * Log an event that was not accepted because the queue has been shut down. Called without the lock.
+     *
+     * @param event event payload
+     */
+    private void logEventNotAccepted(LineageEventPayload event) {
+        final String methodName = "enqueue";
+        if (auditLog != null) {
+            auditLog.logMessage(methodName,
+                    LineageEventSampleEventConnectorAuditCode.EVENT_NOT_ACCEPTED.getMessageDefinition(connectorName,
+                            event.getDescription()));
+        }
+    }
+
+    /**
+     * Return the number of events waiting to be dispatched, including spilled events.
+     *
+     * @return queue depth
+     */
+    public int getDepth() {
+        lock.lock();
+        try {
+            return queue.size() + spilledEvents.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return the number of events waiting in the spill directory.
+     *
+     * @return spilled event count
+     */
+    public int getSpilledDepth() {
+        lock.lock();
+        try {
+            return spilledEvents.size() - unspilledEvents.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return the number of events discarded by the DROP_OLDEST policy since the queue was created.
+     *
+     * @return dropped event count
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Return the number of events written to the spill directory since the queue was created.
+     *
+     * @return spilled event count
+     */
+    public long getSpilledCount() {
+        return spilledCount.get();
+    }
+
+    /**
+     * Return the number of events dispatched since the wait statistics were last reset.
+     *
+     * @return dispatched event count
+     */
+    public long getDispatchedCount() {
+        return dispatchedCount.get();
+    }
+
+    /**
+     * Return the average time that the events dispatched since the wait statistics were last reset spent in the queue.
+     *
+     * @return average wait in milliseconds
+     */
+    public long getAverageWaitMillis() {
+        long dispatched = dispatchedCount.get();
+        return dispatched == 0 ? 0 : totalWaitMillis.get() / dispatched;
+    }
+
+    /**
+     * Return the longest time that an event dispatched since the wait statistics were last reset spent in the queue.
+     *
+     * @return maximum wait in milliseconds
+     */
+    public long getMaxWaitMillis() {
+        return maxWaitMillis.get();
+    }
+
+    /**
+     * Start a new interval for the wait statistics.
+     */
+    public void resetWaitStatistics() {
+        dispatchedCount.set(0);
+        totalWaitMillis.set(0);
+        maxWaitMillis.set(0);
+    }
+
+    /**
+     * Stop accepting events, and stop the dispatcher once the events held in memory have been dispatched. Topic
+     * listeners waiting for space in the queue are released and their events rejected. Spilled events stay in the
+     * spill directory for the next start. The events still in memory when the dispatcher has not finished within the
+     * timeout, and the events that could not be spilled, are discarded, and their number is logged.
+     *
+     * @param timeoutMillis how long to wait for the in-memory events to be dispatched
+     * @throws InterruptedException interrupted while waiting for the dispatcher
+     */
+    public synchronized void shutdown(long timeoutMillis) throws InterruptedException {
+        final String methodName = "shutdown";
+        lock.lock();
+        try {
+            stopped = true;
+            running = false;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (dispatcher != null) {
+            dispatcher.join(Math.max(1, timeoutMillis));
+            if (dispatcher.isAlive()) {
+                dispatcher.interrupt();
+            }
+            dispatcher = null;
+            int discardedEvents;
+            lock.lock();
+            try {
+                discardedEvents = queue.size() + unspilledEvents.size();
+                queue.clear();
+                spilledEvents.removeAll(unspilledEvents.keySet());
+                unspilledEvents.clear();
+            } finally {
+                lock.unlock();
+            }
+            if (discardedEvents > 0) {
+                droppedCount.addAndGet(discardedEvents);
+                if (auditLog != null) {
+                    auditLog.logMessage(methodName,
+                            LineageEventSampleEventConnectorAuditCode.INGESTION_EVENTS_DISCARDED.getMessageDefinition(connectorName,
+                                    Integer.toString(discardedEvents),
+                                    Long.toString(timeoutMillis)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Dispatcher thread loop. An exception from the event handler is logged and the dispatcher carries on, so the
+     * queue keeps draining.
+     */
+    private void dispatchEvents() {
+        final String methodName = "dispatchEvents";
+        try {
+            while (true) {
+                QueuedEvent queuedEvent = takeNextEvent();
+                if (queuedEvent == null) {
+                    if (!running) {
+                        return;
+                    }
+                } else {
+                    recordWait(System.currentTimeMillis() - queuedEvent.enqueueTime);
+                    try {
+                        eventHandler.accept(queuedEvent.payload);
+                    } catch (RuntimeException | Error error) {
+                        if (error instanceof VirtualMachineError) {
+                            throw (VirtualMachineError) error;
+                        }
+                        if (auditLog != null) {
+                            auditLog.logException(methodName,
+                                    LineageEventSampleEventConnectorAuditCode.EVENT_HANDLER_FAILED.getMessageDefinition(
+                                            error.getClass().getName(),
+                                            connectorName,
+                                            Thread.currentThread().getName(),
+                                            "1",
+                                            error.getMessage()),
+                                    error);
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException error) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Take the next event from memory, or from the spill directory when memory is empty.
+     *
+     * @return next event or null if there was none within the poll interval or the queue is stopping
+     * @throws InterruptedException interrupted while waiting
+     */
+    private QueuedEvent takeNextEvent() throws InterruptedException {
+        Path spilledEvent;
+        lock.lockInterruptibly();
+        try {
+            if (queue.isEmpty() && spilledEvents.isEmpty() && running) {
+                notEmpty.await(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            QueuedEvent queuedEvent = queue.pollFirst();
+            if (queuedEvent != null) {
+                notFull.signal();
+                return queuedEvent;
+            }
+            if (!running) {
+                // leave spilled events for the next start
+                return null;
+            }
+            spilledEvent = spilledEvents.peekFirst();
+            if (spilledEvent != null && spillsInProgress.contains(spilledEvent)) {
+                // the next event is still being written; the writer signals once it is done
+                notEmpty.await(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                return null;
+            }
+            if (spilledEvent != null && unspilledEvents.containsKey(spilledEvent)) {
+                spilledEvents.pollFirst();
+                return unspilledEvents.remove(spilledEvent);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (spilledEvent == null) {
+            return null;
+        }
+        /*
+         * Read the spilled event outside the lock so the topic listener is not held up by the file system.
+         * Only the dispatcher removes spilled events, so the head of the spill queue cannot change under us.
+         */
+        QueuedEvent queuedEvent = readSpilledEvent(spilledEvent);
+        lock.lock();
+        try {
+            spilledEvents.pollFirst();
+        } finally {
+            lock.unlock();
+        }
+        return queuedEvent;
+    }
+
+    /**
+     * Write an event to its file in the spill directory. The event is written to a temporary file that is moved to its
+     * final name once complete, so the spill directory only ever holds whole events. Called without the lock, so the
+     * topic listener and the dispatcher are not held up by the file system.
+     *
+     * @param spillFile   file reserved for the event
+     * @param queuedEvent event to spill
+     * @return false if the event could not be written
+     */
+    private boolean spill(Path spillFile, QueuedEvent queuedEvent) {
+        final String methodName = "spill";
+        Path tempFile = spillFile.resolveSibling(spillFile.getFileName() + SPILL_TEMP_SUFFIX);
+        try {
+            try (OutputStream outputStream = Files.newOutputStream(tempFile)) {
+                queuedEvent.payload.writeTo(outputStream);
+            }
+            Files.move(tempFile, spillFile, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException error) {
+            deleteQuietly(tempFile);
+            if (auditLog != null) {
+                auditLog.logException(methodName,
+                        LineageEventSampleEventConnectorAuditCode.INGESTION_SPILL_FAILED.getMessageDefinition(
+                                error.getClass().getName(),
+                                connectorName,
+                                spillFile.toString(),
+                                error.getMessage()), error);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Remove a file, ignoring any failure.
+     *
+     * @param file file to remove
+     */
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException error) {
+            // nothing more can be done; the file is not picked up because of its name
+        }
+    }
+
+    /**
+     * Read a spilled event and remove its file.
+     *
+     * @param spillFile file holding the event
+     * @return the event, or null if it could not be read
+     */
+    private QueuedEvent readSpilledEvent(Path spillFile) {
+        final String methodName = "readSpilledEvent";
+        try {
+            LineageEventPayload payload = LineageEventPayload.of(Files.readAllBytes(spillFile));
+            Files.deleteIfExists(spillFile);
+            return new QueuedEvent(payload, getSpillTime(spillFile));
+        } catch (IOException error) {
+            if (auditLog != null) {
+                auditLog.logException(methodName,
+                        LineageEventSampleEventConnectorAuditCode.INGESTION_SPILL_FAILED.getMessageDefinition(
+                                error.getClass().getName(),
+                                connectorName,
+                                spillFile.toString(),
+                                error.getMessage()), error);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Find the events spilled by a previous run, in the order they were spilled, and remove the temporary files of
+     * writes that did not complete. The events of the previous run go ahead of any spilled since this queue was
+     * created.
+     */
+    private void recoverSpilledEvents() {
+        final String methodName = "recoverSpilledEvents";
+        try {
+            Files.createDirectories(spillDirectory);
+            List<Path> spillFiles = new ArrayList<>();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(spillDirectory, "*" + SPILL_FILE_SUFFIX)) {
+                for (Path file : files) {
+                    spillFiles.add(file);
+                }
+            }
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(spillDirectory, "*" + SPILL_FILE_SUFFIX + SPILL_TEMP_SUFFIX)) {
+                for (Path file : files) {
+                    deleteQuietly(file);
+                }
+            }
+            Collections.sort(spillFiles);
+            lock.lock();
+            try {
+                spillFiles.removeAll(new HashSet<>(spilledEvents));
+                for (int i = spillFiles.size() - 1; i >= 0; i--) {
+                    spilledEvents.addFirst(spillFiles.get(i));
+                }
+                if (!spillFiles.isEmpty()) {
+                    String lastFileName = spillFiles.get(spillFiles.size() - 1).getFileName().toString();
+                    spillSequence = Math.max(spillSequence, Long.parseLong(lastFileName.substring(0, lastFileName.indexOf('-'))) + 1);
+                }
+            } finally {
+                lock.unlock();
+            }
+        } catch (IOException | RuntimeException error) {
+            if (auditLog != null) {
+                auditLog.logException(methodName,
+                        LineageEventSampleEventConnectorAuditCode.INGESTION_SPILL_FAILED.getMessageDefinition(
+                                error.getClass().getName(),
+                                connectorName,
+                                spillDirectory.toString(),
+                                error.getMessage()), error);
+            }
+        }
+    }
+
+    /**
+     * Return the time an event was spilled, which is recorded in its file name.
+     *
+     * @param spillFile spill file
+     * @return enqueue time in milliseconds
+     */
+    private long getSpillTime(Path spillFile) {
+        String fileName = spillFile.getFileName().toString();
+        try {
+            return Long.parseLong(fileName.substring(fileName.indexOf('-') + 1, fileName.length() - SPILL_FILE_SUFFIX.length()));
+        } catch (RuntimeException error) {
+            return System.currentTimeMillis();
+        }
+    }
+
+    private void recordWait(long waitMillis) {
+        dispatchedCount.incrementAndGet();
+        totalWaitMillis.addAndGet(waitMillis);
+        maxWaitMillis.accumulateAndGet(waitMillis, Math::max);
+    }
+
+    private static class QueuedEvent {
+        private final LineageEventPayload payload;
+        private final long enqueueTime;
+
+        private QueuedEvent(LineageEventPayload payload, long enqueueTime) {
+            this.payload = payload;
+            this.enqueueTime = enqueueTime;
+        }
+    }
+}
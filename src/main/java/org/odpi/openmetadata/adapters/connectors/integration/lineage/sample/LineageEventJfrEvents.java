@@ -0,0 +1,186 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.List;
+
+/**
+ * LineageEventJfrEvents holds the JDK Flight Recorder events for the stages of the processing of lineage events, so
+ * a recording shows which lineage event a thread was working on when it was held up by a GC pause or waiting for a
+ * lock. The events record no stack trace and their fields are only filled in when an event will be committed, so
+ * they cost next to nothing when no recording is running and can be left enabled in a recording permanently.
+ * <p>
+ * The round trips of a stage are the LineageIntegratorContext calls made for the event, or batch of events, while
+ * the stage ran. When the assets of an event are upserted concurrently, the round trips of one asset's schema
+ * include those made for the other assets at the same time. The assets of a batch are upserted once for all of its
+ * events, so the stages of the assets are recorded with the label of the trace of the batch rather than the
+ * qualifiedName of one process.
+ */
+public final class LineageEventJfrEvents {
+
+    static final String CATEGORY = "Egeria";
+    static final String SUBCATEGORY = "Lineage Event Sample";
+
+    private static final EventType DECODE_EVENT_TYPE = EventType.getEventType(DecodeEvent.class);
+
+    private LineageEventJfrEvents() {
+    }
+
+    /**
+     * Begin the event for the decode of a message, if a recording is taking decode events. Every message is decoded
+     * here, so no event is created when none is recorded.
+     *
+     * @return begun event, or null
+     */
+    static DecodeEvent beginDecode() {
+        if (!DECODE_EVENT_TYPE.isEnabled()) {
+            return null;
+        }
+        DecodeEvent decodeEvent = new DecodeEvent();
+        decodeEvent.begin();
+        return decodeEvent;
+    }
+
+    /**
+     * The decode of a message holding an event, or a batch of events.
+     */
+    @Name("org.odpi.openmetadata.lineage.sample.Decode")
+    @Label("Lineage Event Decode")
+    @Category({CATEGORY, SUBCATEGORY})
+    @Description("Decode of a message holding one or more lineage events")
+    @StackTrace(false)
+    public static class DecodeEvent extends Event {
+        @Label("Process Qualified Name")
+        @Description("qualifiedName of the process of the first valid event in the message")
+        String processQualifiedName;
+
+        @Label("Payload Size")
+        @Description("Size of the message as received, in characters for text and in bytes otherwise, before any decompression")
+        int payloadSize;
+
+        @Label("Event Count")
+        int eventCount;
+
+        @Label("Rejected Event Count")
+        int rejectedEventCount;
+
+        @Label("Asset Count")
+        @Description("Inputs and outputs of the valid events")
+        int assetCount;
+
+        @Label("Attribute Count")
+        @Description("Schema attributes of the valid events, including nested attributes")
+        int attributeCount;
+    }
+
+    /**
+     * The upsert of the assets of an event, or of a batch of events, including the catalogue of their schemas.
+     */
+    @Name("org.odpi.openmetadata.lineage.sample.UpsertAssets")
+    @Label("Lineage Asset Upsert")
+    @Category({CATEGORY, SUBCATEGORY})
+    @Description("Upsert of the input and output assets of a lineage event")
+    @StackTrace(false)
+    public static class UpsertAssetsEvent extends Event {
+        @Label("Event Label")
+        @Description("qualifiedName of the process of the event, or for a batch that of the first event followed by the number of other events")
+        String label;
+
+        @Label("Asset Count")
+        int assetCount;
+
+        @Label("Attribute Count")
+        int attributeCount;
+
+        @Label("Round Trips")
+        int roundTrips;
+    }
+
+    /**
+     * The catalogue of the schema of an asset.
+     */
+    @Name("org.odpi.openmetadata.lineage.sample.CatalogueSchema")
+    @Label("Lineage Schema Catalogue")
+    @Category({CATEGORY, SUBCATEGORY})
+    @Description("Catalogue of the changed schema of an asset of a lineage event")
+    @StackTrace(false)
+    public static class CatalogueSchemaEvent extends Event {
+        @Label("Event Label")
+        @Description("qualifiedName of the process of the event, or for a batch that of the first event followed by the number of other events")
+        String label;
+
+        @Label("Asset Qualified Name")
+        String assetQualifiedName;
+
+        @Label("Event Type Count")
+        int eventTypeCount;
+
+        @Label("Attribute Count")
+        int attributeCount;
+
+        @Label("Round Trips")
+        int roundTrips;
+    }
+
+    /**
+     * The save of the process and DataFlows of an event.
+     */
+    @Name("org.odpi.openmetadata.lineage.sample.SaveLineage")
+    @Label("Lineage Save")
+    @Category({CATEGORY, SUBCATEGORY})
+    @Description("Upsert of the process and the DataFlows of a lineage event")
+    @StackTrace(false)
+    public static class SaveLineageEvent extends Event {
+        @Label("Process Qualified Name")
+        String processQualifiedName;
+
+        @Label("Asset Count")
+        int assetCount;
+
+        @Label("Round Trips")
+        int roundTrips;
+    }
+
+    /**
+     * Return the number of inputs and outputs of an event.
+     *
+     * @param eventContent event
+     * @return asset count
+     */
+    static int getAssetCount(LineageEventContentforSample eventContent) {
+        return eventContent.getInputAssets().size() + eventContent.getOutputAssets().size();
+    }
+
+    /**
+     * Return the number of schema attributes of the assets, including nested attributes.
+     *
+     * @param jsonAssets assets
+     * @return attribute count
+     */
+    static int getAttributeCount(List<LineageEventContentforSample.AssetFromJSON> jsonAssets) {
+        int attributeCount = 0;
+        for (LineageEventContentforSample.AssetFromJSON jsonAsset : jsonAssets) {
+            attributeCount = attributeCount + jsonAsset.getAttributeCount();
+        }
+        return attributeCount;
+    }
+
+    /**
+     * Return the number of schema attributes of an event, including nested attributes.
+     *
+     * @param eventContent event
+     * @return attribute count
+     */
+    static int getAttributeCount(LineageEventContentforSample eventContent) {
+        return getAttributeCount(eventContent.getInputAssets()) + getAttributeCount(eventContent.getOutputAssets());
+    }
+}
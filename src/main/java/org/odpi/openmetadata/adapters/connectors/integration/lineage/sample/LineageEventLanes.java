@@ -0,0 +1,358 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+import org.odpi.openmetadata.adapters.connectors.integration.lineage.sample.ffdc.LineageEventSampleEventConnectorAuditCode;
+import org.odpi.openmetadata.frameworks.auditlog.AuditLog;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * LineageEventLanes spreads the processing of events over a fixed number of worker lanes. Each lane is a single thread
+ * with its own bounded queue. An event is assigned to a lane by the hash of its process qualifiedName (the Id in the
+ * event json), so events for the same process are always processed in the order they arrived, while events for
+ * unrelated processes are processed in parallel.
+ * <p>
+ * When the queue of a lane is full, submit blocks the caller until the lane has caught up. Once the lanes are shut
+ * down, submit does not accept any more events.
+ * <p>
+ * An exception from the handler is logged and the lane carries on with its next batch, so a lane thread never ends
+ * while its queue may still be filled.
+ * <p>
+ * A lane can collect events into micro-batches: once it has an event it keeps taking events from its queue until it
+ * has the maximum batch size or the maximum batch delay has passed, then passes the whole batch to the handler. This
+ * lets the handler share work, such as asset upserts, between the events of a burst.
+ * <p>
+ * A lane can also coalesce events: before it passes on its events, it takes every event waiting in its queue and
+ * keeps only the newest event for each process qualifiedName. The older events are counted as superseded. As each
+ * event carries the full lineage of its process, applying only the newest event gives the same end result.
+ * <p>
+ * The lane threads come from the supplied thread factory. With virtual threads, an idle lane costs little more than
+ * its queue, so a large number of lanes can be used to overlap the blocking metadata calls of many processes.
+ */
+public class LineageEventLanes {
+
+    private static final long POLL_INTERVAL_MILLIS = 500;
+
+    private final String name;
+    private final int laneCapacity;
+    private final ThreadFactory threadFactory;
+    private final int maxBatchSize;
+    private final long maxBatchDelayMillis;
+    private final boolean coalesceEvents;
+    private final Consumer<List<LineageEventContentforSample>> batchHandler;
+    private final List<Lane> lanes = new ArrayList<>();
+    private final AtomicLong supersededEventCount = new AtomicLong();
+    // submit holds the read lock while it queues an event, so shutdown cannot stop the lanes part way through
+    private final ReadWriteLock submitLock = new ReentrantReadWriteLock();
+    private volatile boolean running = false;
+    private AuditLog auditLog = null;
+
+    /**
+     * Constructor for LineageEventLanes
+     *
+     * @param name         name used for the lane threads
+     * @param laneCount    number of lanes, at least one lane is always created
+     * @param laneCapacity maximum number of events waiting in each lane
+     * @param eventHandler called on the lane thread for each event
+     */
+    public LineageEventLanes(String name, int laneCount, int laneCapacity, Consumer<LineageEventContentforSample> eventHandler) {
+        this(name, laneCount, laneCapacity, LineageEventThreads.daemonThreadFactory(), eventHandler);
+    }
+
+    /**
+     * Constructor for LineageEventLanes
+     *
+     * @param name          name used for the lane threads
+     * @param laneCount     number of lanes, at least one lane is always created
+     * @param laneCapacity  maximum number of events waiting in each lane
+     * @param threadFactory factory for the lane threads, for example a virtual thread factory
+     * @param eventHandler  called on the lane thread for each event
+     */
+    public LineageEventLanes(String name, int laneCount, int laneCapacity, ThreadFactory threadFactory, Consumer<LineageEventContentforSample> eventHandler) {
+        this(name, laneCount, laneCapacity, threadFactory, 1, 0, batch -> batch.forEach(eventHandler));
+    }
+
+    /**
+     * Constructor for LineageEventLanes that passes the events to the handler in micro-batches.
+     *
+     * @param name                name used for the lane threads
+     * @param laneCount           number of lanes, at least one lane is always created
+     * @param laneCapacity        maximum number of events waiting in each lane
+     * @param threadFactory       factory for the lane threads, for example a virtual thread factory
+     * @param maxBatchSize        maximum number of events in a batch
+     * @param maxBatchDelayMillis longest time to wait for more events once a batch has been started
+     * @param batchHandler        called on the lane thread for each batch, the events are in the order they arrived
+     */
+    public LineageEventLanes(String name,
+                             int laneCount,
+                             int laneCapacity,
+                             ThreadFactory threadFactory,
+                             int maxBatchSize,
+                             long maxBatchDelayMillis,
+                             Consumer<List<LineageEventContentforSample>> batchHandler) {
+        this(name, laneCount, laneCapacity, threadFactory, maxBatchSize, maxBatchDelayMillis, false, batchHandler);
+    }
+
+    /**
+     * Constructor for LineageEventLanes that passes the events to the handler in micro-batches, optionally keeping
+     * only the newest waiting event for each process.
+     *
+     * @param name                name used for the lane threads
+     * @param laneCount           number of lanes, at least one lane is always created
+     * @param laneCapacity        maximum number of events waiting in each lane
+     * @param threadFactory       factory for the lane threads, for example a virtual thread factory
+     * @param maxBatchSize        maximum number of events in a batch
+     * @param maxBatchDelayMillis longest time to wait for more events once a batch has been started
+     * @param coalesceEvents      only pass on the newest of the waiting events for each process
+     * @param batchHandler        called on the lane thread for each batch, the events are in the order they arrived
+     */
+    public LineageEventLanes(String name,
+                             int laneCount,
+                             int laneCapacity,
+                             ThreadFactory threadFactory,
+                             int maxBatchSize,
+                             long maxBatchDelayMillis,
+                             boolean coalesceEvents,
+                             Consumer<List<LineageEventContentforSample>> batchHandler) {
+        this.name = name;
+        this.laneCapacity = Math.max(1, laneCapacity);
+        this.threadFactory = threadFactory;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxBatchDelayMillis = Math.max(0, maxBatchDelayMillis);
+        this.coalesceEvents = coalesceEvents;
+        this.batchHandler = batchHandler;
+        for (int i = 0; i < Math.max(1, laneCount); i++) {
+            lanes.add(new Lane(i));
+        }
+    }
+
+    /**
+     * Set the audit log for the exceptions thrown by the handler and the events submitted after shutdown. This must be
+     * set before the lanes are started.
+     *
+     * @param auditLog audit log, may be null
+     */
+    public void setAuditLog(AuditLog auditLog) {
+        this.auditLog = auditLog;
+    }
+
+    /**
+     * Start a thread for each lane.
+     */
+    public synchronized void start() {
+        if (!running) {
+            running = true;
+            for (Lane lane : lanes) {
+                lane.thread = threadFactory.newThread(lane);
+                lane.thread.setName(name + "-lane-" + lane.index);
+                lane.thread.start();
+            }
+        }
+    }
+
+    /**
+     * Queue the event on the lane for its process. Blocks while that lane is full. An event submitted when the lanes
+     * are not running is not accepted, and is logged.
+     *
+     * @param eventContent event to process
+     * @return true if the event was queued
+     * @throws InterruptedException the caller was interrupted while waiting for space in the lane
+     */
+    public boolean submit(LineageEventContentforSample eventContent) throws InterruptedException {
+        final String methodName = "submit";
+        submitLock.readLock().lockInterruptibly();
+        try {
+            if (running) {
+                lanes.get(getLaneIndex(eventContent.getProcessQualifiedName())).queue.put(eventContent);
+                return true;
+            }
+        } finally {
+            submitLock.readLock().unlock();
+        }
+        if (auditLog != null) {
+            auditLog.logMessage(methodName,
+                    LineageEventSampleEventConnectorAuditCode.EVENT_NOT_ACCEPTED.getMessageDefinition(name,
+                            "process " + eventContent.getProcessQualifiedName()));
+        }
+        return false;
+    }
+
+    /**
+     * Return the lane that processes events for the supplied process qualifiedName.
+     *
+     * @param processQualifiedName process qualifiedName
+     * @return lane index
+     */
+    int getLaneIndex(String processQualifiedName) {
+        return processQualifiedName == null ? 0 : Math.floorMod(processQualifiedName.hashCode(), lanes.size());
+    }
+
+    /**
+     * Return the number of lanes.
+     *
+     * @return lane count
+     */
+    public int getLaneCount() {
+        return lanes.size();
+    }
+
+    /**
+     * Return the number of events waiting in all the lanes.
+     *
+     * @return number of events not yet picked up by a lane
+     */
+    public int getPendingEventCount() {
+        int pending = 0;
+        for (Lane lane : lanes) {
+            pending = pending + lane.queue.size();
+        }
+        return pending;
+    }
+
+    /**
+     * Return the number of events that were not processed because a newer event for the same process was waiting.
+     *
+     * @return number of superseded events since the lanes were created
+     */
+    public long getSupersededEventCount() {
+        return supersededEventCount.get();
+    }
+
+    /**
+     * Stop the lanes. Events that are already queued are processed before the lane threads end.
+     *
+     * @param timeoutMillis how long to wait for the lanes to drain
+     * @throws InterruptedException interrupted while waiting for the lanes to drain
+     */
+    public synchronized void shutdown(long timeoutMillis) throws InterruptedException {
+        submitLock.writeLock().lockInterruptibly();
+        try {
+            running = false;
+        } finally {
+            submitLock.writeLock().unlock();
+        }
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        for (Lane lane : lanes) {
+            if (lane.thread != null) {
+                lane.thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+                if (lane.thread.isAlive()) {
+                    lane.thread.interrupt();
+                }
+                lane.thread = null;
+            }
+        }
+    }
+
+    private class Lane implements Runnable {
+        private final int index;
+        private final BlockingQueue<LineageEventContentforSample> queue = new LinkedBlockingQueue<>(laneCapacity);
+        private Thread thread = null;
+
+        private Lane(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running || !queue.isEmpty()) {
+                    LineageEventContentforSample eventContent = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (eventContent != null) {
+                        List<LineageEventContentforSample> batch = new ArrayList<>();
+                        batch.add(eventContent);
+                        fillBatch(batch);
+                        if (coalesceEvents) {
+                            queue.drainTo(batch);
+                            batch = coalesce(batch);
+                        }
+                        for (int start = 0; start < batch.size(); start = start + maxBatchSize) {
+                            handleBatch(new ArrayList<>(batch.subList(start, Math.min(batch.size(), start + maxBatchSize))));
+                        }
+                    }
+                }
+            } catch (InterruptedException error) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Pass a batch to the handler, logging anything it throws so the lane keeps going.
+         *
+         * @param batch events to handle
+         */
+        private void handleBatch(List<LineageEventContentforSample> batch) {
+            final String methodName = "handleBatch";
+            try {
+                batchHandler.accept(batch);
+            } catch (RuntimeException | Error error) {
+                if (error instanceof VirtualMachineError) {
+                    throw (VirtualMachineError) error;
+                }
+                if (auditLog != null) {
+                    auditLog.logException(methodName,
+                            LineageEventSampleEventConnectorAuditCode.EVENT_HANDLER_FAILED.getMessageDefinition(
+                                    error.getClass().getName(),
+                                    name,
+                                    Thread.currentThread().getName(),
+                                    Integer.toString(batch.size()),
+                                    error.getMessage()),
+                            error);
+                }
+            }
+        }
+
+        /**
+         * Keep only the newest event for each process. An event takes the place of the newest event for its process,
+         * so the events stay in the order they arrived.
+         *
+         * @param events events taken from the lane
+         * @return newest event for each process
+         */
+        private List<LineageEventContentforSample> coalesce(List<LineageEventContentforSample> events) {
+            Map<String, LineageEventContentforSample> newestEvents = new LinkedHashMap<>();
+            for (LineageEventContentforSample eventContent : events) {
+                if (newestEvents.remove(eventContent.getProcessQualifiedName()) != null) {
+                    supersededEventCount.incrementAndGet();
+                }
+                newestEvents.put(eventContent.getProcessQualifiedName(), eventContent);
+            }
+            return new ArrayList<>(newestEvents.values());
+        }
+
+        /**
+         * Add waiting events to the batch until it is full or the batch delay has passed.
+         *
+         * @param batch batch holding its first event
+         * @throws InterruptedException interrupted while waiting for more events
+         */
+        private void fillBatch(List<LineageEventContentforSample> batch) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxBatchDelayMillis);
+            while (batch.size() < maxBatchSize) {
+                if (queue.drainTo(batch, maxBatchSize - batch.size()) == 0) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || !running) {
+                        return;
+                    }
+                    LineageEventContentforSample eventContent = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (eventContent == null) {
+                        return;
+                    }
+                    batch.add(eventContent);
+                }
+            }
+        }
+    }
+}
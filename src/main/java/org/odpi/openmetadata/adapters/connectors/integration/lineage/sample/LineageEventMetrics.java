@@ -0,0 +1,334 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+import org.odpi.openmetadata.frameworks.connectors.ffdc.OCFCheckedExceptionBase;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LineageEventMetrics counts the events a connector receives, saves and fails, and measures how long each stage of
+ * their processing takes and how long each call to the LineageIntegratorContext takes. The counts and latencies are
+ * kept in memory with atomic counters, and can be registered as MXBeans so they are visible over JMX:
+ * <ul>
+ *     <li>type=LineageEventMetrics - the event counters and throughput.</li>
+ *     <li>type=LineageEventLatency,stage=... - the latency of each processing stage.</li>
+ *     <li>type=MetadataCallLatency,method=... - the latency of each LineageIntegratorContext method that is called.</li>
+ * </ul>
+ * Each name also has a connector key, so the metrics of several connectors in one server are kept apart.
+ */
+public class LineageEventMetrics implements LineageEventMetricsMXBean {
+
+    /**
+     * The stages of the processing of an event that are measured.
+     */
+    public enum Stage {
+        DECODE("decode"),
+        UPSERT_ASSETS("upsertAssets"),
+        CATALOGUE_SCHEMA("ensureSchemaIsCatalogued"),
+        SAVE_LINEAGE("saveLineage");
+
+        private final String stageName;
+
+        Stage(String stageName) {
+            this.stageName = stageName;
+        }
+
+        /**
+         * Return the name of the stage, as used in the JMX name of its histogram.
+         *
+         * @return stage name
+         */
+        public String getStageName() {
+            return stageName;
+        }
+    }
+
+    public static final String JMX_DOMAIN = "org.odpi.openmetadata.adapters.connectors.integration.lineage.sample";
+
+    private final LongAdder receivedEvents = new LongAdder();
+    private final LongAdder succeededEvents = new LongAdder();
+    private final LongAdder failedEvents = new LongAdder();
+    private final Map<String, LongAdder> failedEventsByErrorCode = new ConcurrentHashMap<>();
+    private final EventRate receivedRate = new EventRate();
+    private final EventRate succeededRate = new EventRate();
+    private final Map<Stage, LatencyHistogram> stageLatencies = new EnumMap<>(Stage.class);
+    private final Map<String, LatencyHistogram> metadataCallLatencies = new ConcurrentHashMap<>();
+    private final LongAdder tracedEvents = new LongAdder();
+    private final LongAdder tracedRoundTrips = new LongAdder();
+    private final LongAccumulator maxRoundTrips = new LongAccumulator(Math::max, 0);
+
+    private MBeanServer mBeanServer = null;
+    private String quotedConnectorName = null;
+    private final List<ObjectName> registeredNames = new ArrayList<>();
+
+    /**
+     * Constructor for LineageEventMetrics
+     */
+    public LineageEventMetrics() {
+        for (Stage stage : Stage.values()) {
+            stageLatencies.put(stage, new LatencyHistogram(stage.getStageName()));
+        }
+    }
+
+    /**
+     * Count events received.
+     *
+     * @param eventCount number of events
+     */
+    public void recordReceived(int eventCount) {
+        receivedEvents.add(eventCount);
+        receivedRate.add(eventCount);
+    }
+
+    /**
+     * Count an event whose lineage was saved.
+     */
+    public void recordSucceeded() {
+        succeededEvents.increment();
+        succeededRate.add(1);
+    }
+
+    /**
+     * Count an event that was rejected or failed while being processed.
+     *
+     * @param error the reason the event failed
+     */
+    public void recordFailed(Throwable error) {
+        failedEvents.increment();
+        failedEventsByErrorCode.computeIfAbsent(getErrorCode(error), errorCode -> new LongAdder()).increment();
+    }
+
+    /**
+     * Count the round trips made for an event, or batch of events, from its trace.
+     *
+     * @param trace finished trace of the event
+     */
+    public void recordRoundTrips(LineageEventTrace trace) {
+        tracedEvents.increment();
+        tracedRoundTrips.add(trace.getRoundTrips());
+        maxRoundTrips.accumulate(trace.getRoundTrips());
+    }
+
+    /**
+     * Return the message id of an error, or the name of its class if it has none.
+     *
+     * @param error the error
+     * @return error code
+     */
+    static String getErrorCode(Throwable error) {
+        if (error instanceof OCFCheckedExceptionBase) {
+            String messageId = ((OCFCheckedExceptionBase) error).getReportedErrorMessageId();
+            if (messageId != null) {
+                return messageId;
+            }
+        }
+        return error.getClass().getSimpleName();
+    }
+
+    /**
+     * Return the latency histogram of a processing stage.
+     *
+     * @param stage processing stage
+     * @return histogram
+     */
+    public LatencyHistogram getStageLatency(Stage stage) {
+        return stageLatencies.get(stage);
+    }
+
+    /**
+     * Return the latency histogram of a LineageIntegratorContext method, creating it on the first call.
+     *
+     * @param methodName method name
+     * @return histogram
+     */
+    public LatencyHistogram getMetadataCallLatency(String methodName) {
+        LatencyHistogram histogram = metadataCallLatencies.get(methodName);
+        if (histogram == null) {
+            LatencyHistogram newHistogram = new LatencyHistogram(methodName);
+            histogram = metadataCallLatencies.putIfAbsent(methodName, newHistogram);
+            if (histogram == null) {
+                histogram = newHistogram;
+                registerQuietly(newHistogram, "MetadataCallLatency", "method", methodName);
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Return the latency histograms of the LineageIntegratorContext methods called so far.
+     *
+     * @return histograms by method name
+     */
+    public Map<String, LatencyHistogram> getMetadataCallLatencies() {
+        return Collections.unmodifiableMap(new TreeMap<>(metadataCallLatencies));
+    }
+
+    @Override
+    public long getReceivedEventCount() {
+        return receivedEvents.sum();
+    }
+
+    @Override
+    public long getSucceededEventCount() {
+        return succeededEvents.sum();
+    }
+
+    @Override
+    public long getFailedEventCount() {
+        return failedEvents.sum();
+    }
+
+    @Override
+    public Map<String, Long> getFailedEventCountsByErrorCode() {
+        Map<String, Long> counts = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : failedEventsByErrorCode.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().sum());
+        }
+        return counts;
+    }
+
+    @Override
+    public double getReceivedEventsPerSecond() {
+        return receivedRate.getPerSecond();
+    }
+
+    @Override
+    public double getSucceededEventsPerSecond() {
+        return succeededRate.getPerSecond();
+    }
+
+    @Override
+    public long getRoundTripCount() {
+        long roundTrips = 0;
+        for (LatencyHistogram histogram : metadataCallLatencies.values()) {
+            roundTrips = roundTrips + histogram.getCount();
+        }
+        return roundTrips;
+    }
+
+    @Override
+    public Map<String, Long> getRoundTripCountsByMethod() {
+        Map<String, Long> counts = new TreeMap<>();
+        for (Map.Entry<String, LatencyHistogram> entry : metadataCallLatencies.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().getCount());
+        }
+        return counts;
+    }
+
+    @Override
+    public double getRoundTripsPerEvent() {
+        long events = tracedEvents.sum();
+        return events == 0 ? 0 : (double) tracedRoundTrips.sum() / events;
+    }
+
+    @Override
+    public long getMaxRoundTripsPerEvent() {
+        return maxRoundTrips.get();
+    }
+
+    /**
+     * Register the metrics as MXBeans. Histograms of metadata calls first made later are registered as they are
+     * created.
+     *
+     * @param mBeanServer   MBean server, usually the platform MBean server
+     * @param connectorName connector name, used as a key in the JMX names
+     * @throws JMException the metrics could not be registered, for example because another connector has the same name
+     */
+    public synchronized void register(MBeanServer mBeanServer, String connectorName) throws JMException {
+        if (this.mBeanServer != null) {
+            return;
+        }
+        this.quotedConnectorName = ObjectName.quote(String.valueOf(connectorName));
+        ObjectName name = new ObjectName(JMX_DOMAIN + ":type=LineageEventMetrics,connector=" + quotedConnectorName);
+        mBeanServer.registerMBean(this, name);
+        this.mBeanServer = mBeanServer;
+        registeredNames.add(name);
+        for (LatencyHistogram histogram : stageLatencies.values()) {
+            registerQuietly(histogram, "LineageEventLatency", "stage", histogram.getName());
+        }
+        for (LatencyHistogram histogram : metadataCallLatencies.values()) {
+            registerQuietly(histogram, "MetadataCallLatency", "method", histogram.getName());
+        }
+    }
+
+    private synchronized void registerQuietly(LatencyHistogram histogram, String type, String key, String value) {
+        if (mBeanServer != null) {
+            try {
+                ObjectName name = new ObjectName(JMX_DOMAIN + ":type=" + type + ",connector=" + quotedConnectorName + "," + key + "=" + ObjectName.quote(value));
+                mBeanServer.registerMBean(histogram, name);
+                registeredNames.add(name);
+            } catch (JMException error) {
+                // the histogram is still recorded, it is just not visible over JMX
+            }
+        }
+    }
+
+    /**
+     * Unregister the MXBeans registered by {@link #register(MBeanServer, String)}.
+     */
+    public synchronized void unregister() {
+        if (mBeanServer != null) {
+            for (ObjectName name : registeredNames) {
+                try {
+                    mBeanServer.unregisterMBean(name);
+                } catch (JMException error) {
+                    // already gone
+                }
+            }
+            registeredNames.clear();
+            mBeanServer = null;
+        }
+    }
+
+    /**
+     * Counts of events in each of the last 60 seconds.
+     */
+    private static class EventRate {
+        private static final int SECONDS = 60;
+
+        private final AtomicLongArray counts = new AtomicLongArray(SECONDS);
+        private final AtomicLongArray seconds = new AtomicLongArray(SECONDS);
+
+        private void add(long eventCount) {
+            long second = currentSecond();
+            int index = (int) (second % SECONDS);
+            long slotSecond = seconds.get(index);
+            if (slotSecond != second && seconds.compareAndSet(index, slotSecond, second)) {
+                // the slot was last used a minute or more ago
+                counts.set(index, 0);
+            }
+            counts.addAndGet(index, eventCount);
+        }
+
+        private double getPerSecond() {
+            long second = currentSecond();
+            long total = 0;
+            for (int index = 0; index < SECONDS; index++) {
+                long slotSecond = seconds.get(index);
+                if (slotSecond > second - SECONDS && slotSecond <= second) {
+                    total = total + counts.get(index);
+                }
+            }
+            return (double) total / SECONDS;
+        }
+
+        private static long currentSecond() {
+            return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+        }
+    }
+}
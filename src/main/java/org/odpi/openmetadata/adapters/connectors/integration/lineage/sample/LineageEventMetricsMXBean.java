@@ -0,0 +1,84 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+import java.util.Map;
+
+/**
+ * JMX view of the event counters of a connector. The latencies of the processing stages and of the metadata calls
+ * are registered as separate LatencyHistogramMXBeans.
+ */
+public interface LineageEventMetricsMXBean {
+
+    /**
+     * Return the number of events received, counting each event of a batch.
+     *
+     * @return received events
+     */
+    long getReceivedEventCount();
+
+    /**
+     * Return the number of events whose lineage was saved.
+     *
+     * @return succeeded events
+     */
+    long getSucceededEventCount();
+
+    /**
+     * Return the number of events that were rejected or failed while being processed.
+     *
+     * @return failed events
+     */
+    long getFailedEventCount();
+
+    /**
+     * Return the number of failed events by the message id of the error, or the exception class for errors without
+     * a message id.
+     *
+     * @return failed events by error code
+     */
+    Map<String, Long> getFailedEventCountsByErrorCode();
+
+    /**
+     * Return the average number of events received per second over the last minute.
+     *
+     * @return received events per second
+     */
+    double getReceivedEventsPerSecond();
+
+    /**
+     * Return the average number of events whose lineage was saved per second over the last minute.
+     *
+     * @return succeeded events per second
+     */
+    double getSucceededEventsPerSecond();
+
+    /**
+     * Return the number of LineageIntegratorContext calls made, each one a round trip to the metadata server.
+     *
+     * @return round trips
+     */
+    long getRoundTripCount();
+
+    /**
+     * Return the number of LineageIntegratorContext calls made to each method.
+     *
+     * @return round trips by method name
+     */
+    Map<String, Long> getRoundTripCountsByMethod();
+
+    /**
+     * Return the average number of round trips made for each event, or batch of events, processed.
+     *
+     * @return round trips per event
+     */
+    double getRoundTripsPerEvent();
+
+    /**
+     * Return the largest number of round trips made for one event, or batch of events.
+     *
+     * @return most round trips of an event
+     */
+    long getMaxRoundTripsPerEvent();
+}
@@ -0,0 +1,677 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * LineageEventPayload is the payload of an event as it was received, either as text or as bytes.
+ * Bytes are parsed as they are, so an event that arrives as bytes is never decoded into a String to be parsed. The
+ * text of a byte payload is only decoded when it is asked for, for example to report an event that is not valid.
+ * <p>
+ * Bytes are usually UTF-8 encoded json, but the same event structure may also be encoded as Smile or CBOR. The
+ * format is recognised from the first bytes of the payload:
+ * <ul>
+ *     <li>Smile - the Smile header ":)\n".</li>
+ *     <li>CBOR - the CBOR self-describe tag 0xD9D9F7, or a first byte that starts a CBOR map or array. Such a byte
+ *     is never the first byte of json text.</li>
+ * </ul>
+ * Bytes may also be compressed, which is recognised from the gzip header (0x1F8B) or the zlib header of deflate
+ * data. A compressed payload is decompressed as it is parsed, so the decompressed event is never held in memory as
+ * a whole; its format is recognised from the first decompressed bytes. The parser fails with a
+ * PayloadTooLargeException once more than the maximum number of bytes has been decompressed, so a small payload
+ * cannot expand into an unbounded amount of work.
+ * <p>
+ * The payload keeps a reference to the bytes it was created with, so they must not be changed afterwards.
+ */
+public class LineageEventPayload {
+
+    /**
+     * Encoding of the event structure.
+     */
+    public enum Format {
+        JSON,
+        SMILE,
+        CBOR
+    }
+
+    /**
+     * Compression of the payload bytes.
+     */
+    public enum Compression {
+        NONE,
+        GZIP,
+        DEFLATE
+    }
+
+    /*
+     * The factories are thread safe and hold the shared name tables, so one factory of each format creates the
+     * parsers for all events.
+     */
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final SmileFactory SMILE_FACTORY = new SmileFactory();
+    private static final CBORFactory CBOR_FACTORY = new CBORFactory();
+
+    private static final int FORMAT_HEADER_LENGTH = 3;
+
+    private final String text;
+    private final ByteBuffer bytes;
+    private final Compression compression;
+    private volatile Format format = null;
+
+    private LineageEventPayload(String text, ByteBuffer bytes) {
+        this.text = text;
+        this.bytes = bytes;
+        if (bytes == null) {
+            this.compression = Compression.NONE;
+            this.format = Format.JSON;
+        } else {
+            this.compression = detectCompression(bytes);
+            if (compression == Compression.NONE) {
+                byte[] header = new byte[Math.min(FORMAT_HEADER_LENGTH, bytes.remaining())];
+                bytes.duplicate().get(header);
+                this.format = detectFormat(header, header.length);
+            }
+        }
+    }
+
+    /**
+     * Return the payload for an event received as text.
+     *
+     * @param text event json
+     * @return payload
+     */
+    public static LineageEventPayload of(String text) {
+        return new LineageEventPayload(text, null);
+    }
+
+    /**
+     * Return the payload for an event received as bytes.
+     *
+     * @param bytes encoded event
+     * @return payload
+     */
+    public static LineageEventPayload of(byte[] bytes) {
+        return new LineageEventPayload(null, ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Return the payload for an event received as bytes. The payload is the bytes between the position and the limit
+     * of the buffer, the position of the buffer is not changed.
+     *
+     * @param bytes encoded event
+     * @return payload
+     */
+    public static LineageEventPayload of(ByteBuffer bytes) {
+        return new LineageEventPayload(null, bytes.slice());
+    }
+
+    /**
+     * Return the compression of the payload from its first bytes.
+     *
+     * @param bytes payload
+     * @return compression
+     */
+    private static Compression detectCompression(ByteBuffer bytes) {
+        if (bytes.remaining() >= 2) {
+            int firstByte = bytes.get(bytes.position()) & 0xFF;
+            int secondByte = bytes.get(bytes.position() + 1) & 0xFF;
+            if (firstByte == 0x1F && secondByte == 0x8B) {
+                return Compression.GZIP;
+            }
+            // zlib header: compression method 8 (deflate), a window of at most 32K and a header checksum
+            if ((firstByte & 0x0F) == 8 && (firstByte >> 4) <= 7 && ((firstByte << 8) | secondByte) % 31 == 0) {
+                return Compression.DEFLATE;
+            }
+        }
+        return Compression.NONE;
+    }
+
+    /**
+     * Return the format of the payload from its first bytes. Anything that is not recognised as Smile or CBOR is
+     * parsed as json.
+     *
+     * @param header first bytes of the payload
+     * @param length number of bytes in the header
+     * @return format
+     */
+    private static Format detectFormat(byte[] header, int length) {
+        if (length >= 3 && header[0] == ':' && header[1] == ')' && header[2] == '\n') {
+            return Format.SMILE;
+        }
+        if (length >= 3 && (header[0] & 0xFF) == 0xD9 && (header[1] & 0xFF) == 0xD9 && (header[2] & 0xFF) == 0xF7) {
+            return Format.CBOR;
+        }
+        if (length >= 1) {
+            // CBOR major types 4 (array) and 5 (map)
+            int firstByte = header[0] & 0xFF;
+            if (firstByte >= 0x80 && firstByte <= 0xBF) {
+                return Format.CBOR;
+            }
+        }
+        return Format.JSON;
+    }
+
+    /**
+     * Create a parser that reads the payload in its format.
+     *
+     * @param maxDecompressedBytes largest number of bytes a compressed payload may decompress to
+     * @return parser, to be closed by the caller
+     * @throws IOException the parser could not be created
+     */
+    JsonParser createParser(long maxDecompressedBytes) throws IOException {
+        if (text != null) {
+            return JSON_FACTORY.createParser(text);
+        }
+        if (compression == Compression.NONE) {
+            JsonFactory factory = getFactory(format);
+            if (bytes.hasArray()) {
+                return factory.createParser(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+            }
+            return factory.createParser(new ByteBufferBackedInputStream(bytes.duplicate()));
+        }
+        InputStream decompressed = new BufferedInputStream(openDecompressedStream(maxDecompressedBytes));
+        try {
+            return getFactory(readFormat(decompressed)).createParser(decompressed);
+        } catch (IOException error) {
+            decompressed.close();
+            throw error;
+        }
+    }
+
+    private static JsonFactory getFactory(Format format) {
+        return switch (format) {
+            case SMILE -> SMILE_FACTORY;
+            case CBOR -> CBOR_FACTORY;
+            default -> JSON_FACTORY;
+        };
+    }
+
+    /**
+     * Open a stream of the decompressed payload, which fails once more than the maximum number of bytes has been
+     * decompressed.
+     *
+     * @param maxDecompressedBytes largest number of bytes to decompress
+     * @return decompressed payload
+     * @throws IOException the compression header is not valid
+     */
+    private InputStream openDecompressedStream(long maxDecompressedBytes) throws IOException {
+        InputStream compressed = new ByteBufferBackedInputStream(bytes.duplicate());
+        InputStream decompressed = compression == Compression.GZIP ? new GZIPInputStream(compressed) : new InflaterInputStream(compressed);
+        return new SizeLimitedInputStream(decompressed, maxDecompressedBytes);
+    }
+
+    /**
+     * Recognise the format from the first bytes of a stream, leaving the stream where it was.
+     *
+     * @param input stream supporting mark and reset
+     * @return format
+     * @throws IOException the stream could not be read
+     */
+    private Format readFormat(InputStream input) throws IOException {
+        input.mark(FORMAT_HEADER_LENGTH);
+        byte[] header = new byte[FORMAT_HEADER_LENGTH];
+        int length = input.readNBytes(header, 0, FORMAT_HEADER_LENGTH);
+        input.reset();
+        Format detectedFormat = detectFormat(header, length);
+        format = detectedFormat;
+        return detectedFormat;
+    }
+
+    /**
+     * Return the format of the payload. The format of a compressed payload is only known once the start of it has
+     * been decompressed, and is null if it could not be.
+     *
+     * @return format
+     */
+    public Format getFormat() {
+        if (format == null) {
+            try (InputStream decompressed = new BufferedInputStream(openDecompressedStream(Long.MAX_VALUE))) {
+                readFormat(decompressed);
+            } catch (IOException error) {
+                return null;
+            }
+        }
+        return format;
+    }
+
+    /**
+     * Return the compression of the payload.
+     *
+     * @return compression
+     */
+    public Compression getCompression() {
+        return compression;
+    }
+
+    /**
+     * Return true if the payload was received as bytes.
+     *
+     * @return whether the payload is bytes
+     */
+    public boolean isBytes() {
+        return bytes != null;
+    }
+
+    /**
+     * Return the size of the payload as received, in characters for text and in bytes for bytes.
+     *
+     * @return payload size
+     */
+    public int getSize() {
+        return text != null ? text.length() : bytes.remaining();
+    }
+
+    /**
+     * Return a short description of the payload, for messages that should not hold the whole payload.
+     *
+     * @return size, compression and format of the payload
+     */
+    public String getDescription() {
+        if (text != null) {
+            return getSize() + " characters of " + format;
+        }
+        if (compression != Compression.NONE) {
+            return getSize() + " bytes of " + compression + " compressed " + getFormat();
+        }
+        return getSize() + " bytes of " + format;
+    }
+
+    /**
+     * Return the payload as text, decoding json bytes as UTF-8. Smile and CBOR payloads are converted to json
+     * text, and compressed payloads are decompressed up to the supplied limit. If the payload cannot be read, its
+     * description is returned instead.
+     *
+     * @param maxDecompressedBytes largest number of bytes a compressed payload may decompress to
+     * @return event json
+     */
+    public String getText(long maxDecompressedBytes) {
+        if (text != null) {
+            return text;
+        }
+        if (compression != Compression.NONE || format != Format.JSON) {
+            return getPayloadAsJson(maxDecompressedBytes);
+        }
+        if (bytes.hasArray()) {
+            return new String(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining(), StandardCharsets.UTF_8);
+        }
+        return StandardCharsets.UTF_8.decode(bytes.duplicate()).toString();
+    }
+
+    /**
+     * Return the payload as text, decompressing up to the default limit.
+     *
+     * @return event json
+     */
+    public String getText() {
+        return getText(SampleLineageEventReceiverIntegrationProvider.DEFAULT_MAX_DECOMPRESSED_EVENT_BYTES);
+    }
+
+    /**
+     * Return part of a json payload as text, for example one event of a batch. The offsets are those reported by
+     * the parser: characters for text and bytes for bytes.
+     *
+     * @param startOffset offset of the start of the part
+     * @param endOffset   offset just past the end of the part
+     * @return text of the part, or null if the payload is compressed or not json, or the offsets are not known
+     */
+    String getPartText(long startOffset, long endOffset) {
+        if (startOffset < 0 || endOffset < startOffset || endOffset > getSize()) {
+            return null;
+        }
+        if (text != null) {
+            return text.substring((int) startOffset, (int) endOffset);
+        }
+        if (compression != Compression.NONE || format != Format.JSON) {
+            return null;
+        }
+        ByteBuffer part = bytes.duplicate().position((int) startOffset).limit((int) endOffset);
+        return StandardCharsets.UTF_8.decode(part).toString();
+    }
+
+    /**
+     * Return the start of the payload as text, for messages that must stay small. A payload that is longer than the
+     * excerpt is cut short and followed by its size and SHA-256 digest, so the whole payload can still be recognised,
+     * for example in the spill directory or in the producer's logs. The size and digest of a compressed payload are
+     * those of the decompressed bytes, and only the start of a Smile, CBOR or compressed payload is converted to json;
+     * the rest is only decompressed to complete the digest.
+     *
+     * @param maxDecompressedBytes largest number of bytes a compressed payload may decompress to
+     * @param maxChars             largest number of characters of the payload to return, 0 for the whole payload
+     * @return excerpt of the event json
+     */
+    public String getExcerpt(long maxDecompressedBytes, int maxChars) {
+        if (maxChars <= 0) {
+            return getText(maxDecompressedBytes);
+        }
+        if (text != null) {
+            return getExcerpt(text, maxChars);
+        }
+        if (compression != Compression.NONE || format != Format.JSON) {
+            return getExcerptAsJson(maxDecompressedBytes, maxChars);
+        }
+        if (bytes.remaining() <= maxChars) {
+            return getText(maxDecompressedBytes);
+        }
+        // no more characters than bytes, so only the start of the bytes needs decoding
+        String start = StandardCharsets.UTF_8.decode(bytes.duplicate().limit(bytes.position() + maxChars)).toString();
+        return cut(start, maxChars) + describeDigest(bytes.remaining(), bytes.duplicate());
+    }
+
+    /**
+     * Return the start of a Smile, CBOR or compressed payload converted to json text. The conversion stops once the
+     * excerpt is full, and the rest of the payload is only read to count and digest its decompressed bytes.
+     *
+     * @param maxDecompressedBytes largest number of bytes a compressed payload may decompress to
+     * @param maxChars             largest number of characters of the payload to return
+     * @return excerpt of the event json, or the description of the payload if it cannot be read
+     */
+    private String getExcerptAsJson(long maxDecompressedBytes, int maxChars) {
+        MessageDigest digest = createDigest();
+        ExcerptWriter excerpt = new ExcerptWriter(maxChars);
+        InputStream content = compression == Compression.NONE ? new ByteBufferBackedInputStream(bytes.duplicate()) : null;
+        try (DigestingInputStream digested = new DigestingInputStream(content != null ? content : openDecompressedStream(maxDecompressedBytes), digest)) {
+            InputStream input = new BufferedInputStream(digested);
+            try (JsonParser parser = getFactory(readFormat(input)).createParser(input);
+                 JsonGenerator generator = JSON_FACTORY.createGenerator(excerpt)) {
+                // the stream is still needed for the digest once the excerpt is full
+                parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+                // flushed token by token, so the conversion stops as soon as the excerpt is full
+                while (parser.nextToken() != null) {
+                    generator.copyCurrentEvent(parser);
+                    generator.flush();
+                }
+            } catch (ExcerptFullException full) {
+                // the rest of the payload is not converted
+            }
+            if (!excerpt.isFull()) {
+                return excerpt.toString();
+            }
+            String start = cut(excerpt.toString(), maxChars);
+            try {
+                digested.skipToEnd();
+            } catch (PayloadTooLargeException tooLarge) {
+                return start + "... [more than " + tooLarge.getMaxDecompressedBytes() + " bytes]";
+            }
+            return start + describeDigest(digested.getBytesRead(), digest);
+        } catch (IOException error) {
+            return getDescription();
+        }
+    }
+
+    /**
+     * Return the start of a text, followed by the size and SHA-256 digest of its UTF-8 encoding if it is longer than
+     * the excerpt.
+     *
+     * @param text     text, such as one event of a batch
+     * @param maxChars largest number of characters of the text to return, 0 for the whole text
+     * @return excerpt of the text
+     */
+    public static String getExcerpt(String text, int maxChars) {
+        if (maxChars <= 0 || text.length() <= maxChars) {
+            return text;
+        }
+        byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+        return cut(text, maxChars) + describeDigest(encoded.length, ByteBuffer.wrap(encoded));
+    }
+
+    private static String cut(String text, int maxChars) {
+        int end = Math.min(maxChars, text.length());
+        if (end > 0 && end < text.length() && Character.isHighSurrogate(text.charAt(end - 1))) {
+            end--;
+        }
+        return text.substring(0, end);
+    }
+
+    private static String describeDigest(int size, ByteBuffer content) {
+        MessageDigest digest = createDigest();
+        if (digest != null) {
+            digest.update(content);
+        }
+        return describeDigest(size, digest);
+    }
+
+    private static String describeDigest(long size, MessageDigest digest) {
+        if (digest == null) {
+            return "... [" + size + " bytes]";
+        }
+        return "... [" + size + " bytes, SHA-256 " + HexFormat.of().formatHex(digest.digest()) + "]";
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException error) {
+            // every Java platform supports SHA-256
+            return null;
+        }
+    }
+
+    private String getPayloadAsJson(long maxDecompressedBytes) {
+        StringWriter writer = new StringWriter();
+        try (JsonParser parser = createParser(maxDecompressedBytes); JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+            if (parser.nextToken() != null) {
+                generator.copyCurrentStructure(parser);
+            }
+        } catch (IOException error) {
+            return getDescription();
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Write the payload as it was received, text is written as UTF-8 encoded bytes.
+     *
+     * @param outputStream stream to write to
+     * @throws IOException the payload could not be written
+     */
+    void writeTo(OutputStream outputStream) throws IOException {
+        if (text != null) {
+            outputStream.write(text.getBytes(StandardCharsets.UTF_8));
+        } else if (bytes.hasArray()) {
+            outputStream.write(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+        } else {
+            byte[] copy = new byte[bytes.remaining()];
+            bytes.duplicate().get(copy);
+            outputStream.write(copy);
+        }
+    }
+
+    /**
+     * Thrown while parsing a compressed payload that decompresses to more than the maximum number of bytes.
+     */
+    public static class PayloadTooLargeException extends IOException {
+        private final long maxDecompressedBytes;
+
+        PayloadTooLargeException(long maxDecompressedBytes) {
+            super("The decompressed event is larger than " + maxDecompressedBytes + " bytes");
+            this.maxDecompressedBytes = maxDecompressedBytes;
+        }
+
+        public long getMaxDecompressedBytes() {
+            return maxDecompressedBytes;
+        }
+    }
+
+    /**
+     * Writer that keeps the first characters written to it, and fails once it has one character more than the
+     * excerpt, so the conversion that writes to it stops there.
+     */
+    private static class ExcerptWriter extends Writer {
+        private final StringBuilder excerpt;
+        private final int maxChars;
+
+        private ExcerptWriter(int maxChars) {
+            this.excerpt = new StringBuilder(maxChars + 1);
+            this.maxChars = maxChars;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws ExcerptFullException {
+            // one character past the excerpt shows it has been cut, and whether it ends within a surrogate pair
+            int count = Math.min(length, maxChars + 1 - excerpt.length());
+            excerpt.append(buffer, offset, count);
+            if (isFull()) {
+                throw new ExcerptFullException();
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        private boolean isFull() {
+            return excerpt.length() > maxChars;
+        }
+
+        @Override
+        public String toString() {
+            return excerpt.toString();
+        }
+    }
+
+    /**
+     * Thrown by the ExcerptWriter once the excerpt is full.
+     */
+    private static class ExcerptFullException extends IOException {
+        private ExcerptFullException() {
+            super("The excerpt is full", null);
+        }
+    }
+
+    /**
+     * Stream that counts and digests the bytes read through it.
+     */
+    private static class DigestingInputStream extends FilterInputStream {
+        private final MessageDigest digest;
+        private long bytesRead = 0;
+
+        private DigestingInputStream(InputStream input, MessageDigest digest) {
+            super(input);
+            this.digest = digest;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                bytesRead++;
+                if (digest != null) {
+                    digest.update((byte) value);
+                }
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int count = super.read(buffer, offset, length);
+            if (count > 0) {
+                bytesRead = bytesRead + count;
+                if (digest != null) {
+                    digest.update(buffer, offset, count);
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+            // skipped bytes must still be digested
+            byte[] buffer = new byte[(int) Math.min(count, 8192)];
+            int skipped = read(buffer, 0, buffer.length);
+            return Math.max(skipped, 0);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        /**
+         * Read the rest of the stream, so the count and digest cover all of it.
+         *
+         * @throws IOException the stream could not be read
+         */
+        private void skipToEnd() throws IOException {
+            byte[] buffer = new byte[8192];
+            while (read(buffer, 0, buffer.length) >= 0) {
+                // counted and digested by read
+            }
+        }
+
+        private long getBytesRead() {
+            return bytesRead;
+        }
+    }
+
+    /**
+     * Stream that fails once more than the maximum number of bytes has been read from it.
+     */
+    private static class SizeLimitedInputStream extends FilterInputStream {
+        private final long maxBytes;
+        private long bytesRead = 0;
+
+        private SizeLimitedInputStream(InputStream input, long maxBytes) {
+            super(input);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                count(1);
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            // never read more than one byte past the limit, which is enough to know it has been exceeded
+            long remaining = maxBytes - bytesRead;
+            int count = super.read(buffer, offset, remaining >= length ? length : (int) remaining + 1);
+            if (count > 0) {
+                count(count);
+            }
+            return count;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void count(int count) throws PayloadTooLargeException {
+            bytesRead = bytesRead + count;
+            if (bytesRead > maxBytes) {
+                throw new PayloadTooLargeException(maxBytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.odpi.openmetadata.adapters.connectors.integration.lineage.sample.beans.AssetBean;
+import org.odpi.openmetadata.adapters.connectors.integration.lineage.sample.beans.EventBean;
+import org.odpi.openmetadata.adapters.connectors.integration.lineage.sample.ffdc.LineageEventSampleConnectorErrorCode;
+import org.odpi.openmetadata.frameworks.auditlog.messagesets.ExceptionMessageDefinition;
+import org.odpi.openmetadata.frameworks.connectors.ffdc.ConnectorCheckedException;
+
+import java.io.IOException;
+
+/**
+ * LineageEventPreValidator checks the structure an event needs before the event is decoded: a top level Id, at least
+ * one Input and one Output, and an id for each of them. It is a single scan over the tokens of the event that skips
+ * the schemas without looking into them and keeps nothing but a few flags, so an event that is missing one of these
+ * is rejected for very little work.
+ * <p>
+ * An event that passes is decoded as usual. The pre-validator only rejects events that it has scanned completely as
+ * a single well formed event object; anything else, such as a batch of events or json that is not valid, is left for
+ * the decoder to report. A rejected event gets the same error the decoder would give it, although an event with
+ * several faults may be reported for a different one of them.
+ */
+public class LineageEventPreValidator {
+
+    private LineageEventPreValidator() {
+    }
+
+    /**
+     * Check the structure of the event in a message.
+     *
+     * @param payload              message payload
+     * @param connectorName        connector name, for error messages
+     * @param maxDecompressedBytes largest number of bytes a compressed payload may decompress to
+     * @return error for an event that is missing a required element, or null if the message should be decoded
+     */
+    public static ConnectorCheckedException validate(LineageEventPayload payload, String connectorName, long maxDecompressedBytes) {
+        return validate(payload, connectorName, maxDecompressedBytes, 0);
+    }
+
+    /**
+     * Check the structure of the event in a message, putting no more than an excerpt of the event in the error.
+     *
+     * @param payload              message payload
+     * @param connectorName        connector name, for error messages
+     * @param maxDecompressedBytes largest number of bytes a compressed payload may decompress to
+     * @param maxEventTextChars    most characters of the event to put in the error, 0 for the whole event
+     * @return error for an event that is missing a required element, or null if the message should be decoded
+     */
+    public static ConnectorCheckedException validate(LineageEventPayload payload, String connectorName, long maxDecompressedBytes, int maxEventTextChars) {
+        final String methodName = "validate";
+        LineageEventSampleConnectorErrorCode errorCode;
+        try (JsonParser parser = payload.createParser(maxDecompressedBytes)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            errorCode = scanEvent(parser);
+            if (errorCode == null || parser.nextToken() != null) {
+                // valid, or followed by more events
+                return null;
+            }
+        } catch (IOException | RuntimeException error) {
+            return null;
+        }
+        ExceptionMessageDefinition messageDefinition = errorCode.getMessageDefinition(connectorName, payload.getExcerpt(maxDecompressedBytes, maxEventTextChars));
+        return new ConnectorCheckedException(messageDefinition, LineageEventPreValidator.class.getName(), methodName);
+    }
+
+    /**
+     * Scan an event object, checking the elements in the order the decoder checks them.
+     *
+     * @param parser parser positioned on the start of the event object
+     * @return error code for the first missing element, or null if the structure is complete
+     * @throws IOException the event is not well formed, or has a value of the wrong shape
+     */
+    private static LineageEventSampleConnectorErrorCode scanEvent(JsonParser parser) throws IOException {
+        boolean hasId = false;
+        AssetsState inputState = AssetsState.EMPTY;
+        AssetsState outputState = AssetsState.EMPTY;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.currentName();
+            parser.nextToken();
+            switch (fieldName) {
+                case EventBean.ID -> hasId = hasText(parser);
+                case EventBean.INPUT -> inputState = scanAssets(parser);
+                case EventBean.OUTPUT -> outputState = scanAssets(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        if (!hasId) {
+            return LineageEventSampleConnectorErrorCode.INVALID_EVENT_NO_PROCESS_ID;
+        }
+        if (inputState == AssetsState.EMPTY) {
+            return LineageEventSampleConnectorErrorCode.INVALID_EVENT_NO_INPUT;
+        }
+        if (inputState == AssetsState.ASSET_WITHOUT_ID) {
+            return LineageEventSampleConnectorErrorCode.INVALID_EVENT_INPUT_ASSET_HAS_NO_ID;
+        }
+        if (outputState == AssetsState.EMPTY) {
+            return LineageEventSampleConnectorErrorCode.INVALID_EVENT_NO_OUTPUT;
+        }
+        if (outputState == AssetsState.ASSET_WITHOUT_ID) {
+            return LineageEventSampleConnectorErrorCode.INVALID_EVENT_INPUT_ASSET_HAS_NO_ID;
+        }
+        return null;
+    }
+
+    /**
+     * Scan a list of assets, skipping everything but their ids.
+     *
+     * @param parser parser positioned on the list
+     * @return whether the list is empty, complete, or has an asset without an id
+     * @throws IOException the list is not well formed, or is not a list of objects
+     */
+    private static AssetsState scanAssets(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return AssetsState.EMPTY;
+        }
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw LineageEventContentforSample.mismatchedInput(parser, LineageEventContentforSample.class);
+        }
+        AssetsState state = AssetsState.EMPTY;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            boolean hasId = false;
+            if (parser.currentToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String fieldName = parser.currentName();
+                    parser.nextToken();
+                    if (fieldName.equals(AssetBean.ID)) {
+                        hasId = hasText(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else if (parser.currentToken() != JsonToken.VALUE_NULL) {
+                throw LineageEventContentforSample.mismatchedInput(parser, LineageEventContentforSample.class);
+            }
+            if (state != AssetsState.ASSET_WITHOUT_ID) {
+                state = hasId ? AssetsState.COMPLETE : AssetsState.ASSET_WITHOUT_ID;
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Return true if the value would be read as a non-empty String.
+     *
+     * @param parser parser positioned on the value
+     * @return whether the value has text
+     * @throws IOException the value is an object or a list
+     */
+    private static boolean hasText(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return false;
+        }
+        if (!token.isScalarValue()) {
+            throw LineageEventContentforSample.mismatchedInput(parser, String.class);
+        }
+        return token != JsonToken.VALUE_STRING || parser.getTextLength() > 0;
+    }
+
+    private enum AssetsState {
+        EMPTY,
+        COMPLETE,
+        ASSET_WITHOUT_ID
+    }
+}
@@ -0,0 +1,96 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * LineageEventThreads creates the threads of the connector. The connector is built for Java 17, the runtime of the
+ * Egeria platform images, so virtual threads are looked up by reflection and are only used when the platform runs
+ * on Java 21 or later. On an older runtime the connector carries on with platform threads.
+ */
+public final class LineageEventThreads {
+
+    private static final Method OF_VIRTUAL = findMethod(Thread.class, "ofVirtual");
+    private static final Method BUILDER_FACTORY = findMethod(findClass("java.lang.Thread$Builder"), "factory");
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findMethod(Executors.class, "newVirtualThreadPerTaskExecutor");
+
+    private LineageEventThreads() {
+    }
+
+    /**
+     * Return whether the runtime supports virtual threads.
+     *
+     * @return true on Java 21 or later
+     */
+    public static boolean isVirtualThreadSupported() {
+        return OF_VIRTUAL != null && BUILDER_FACTORY != null && NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Return a factory for daemon platform threads, so the threads of the connector do not keep the platform running.
+     *
+     * @return thread factory
+     */
+    public static ThreadFactory daemonThreadFactory() {
+        return runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Return a factory for virtual threads.
+     *
+     * @return thread factory
+     * @throws UnsupportedOperationException the runtime does not support virtual threads
+     */
+    public static ThreadFactory virtualThreadFactory() {
+        return (ThreadFactory) invoke(BUILDER_FACTORY, invoke(OF_VIRTUAL, null));
+    }
+
+    /**
+     * Return an executor that runs each task on its own virtual thread.
+     *
+     * @return executor service
+     * @throws UnsupportedOperationException the runtime does not support virtual threads
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        return (ExecutorService) invoke(NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR, null);
+    }
+
+    private static Object invoke(Method method, Object target) {
+        if (!isVirtualThreadSupported()) {
+            throw new UnsupportedOperationException("Virtual threads need Java 21 or later, this is Java " + Runtime.version().feature());
+        }
+        try {
+            return method.invoke(target);
+        } catch (ReflectiveOperationException error) {
+            throw new UnsupportedOperationException("Virtual threads are not available", error);
+        }
+    }
+
+    private static Class<?> findClass(String className) {
+        try {
+            return Class.forName(className);
+        } catch (ClassNotFoundException error) {
+            return null;
+        }
+    }
+
+    private static Method findMethod(Class<?> type, String methodName) {
+        if (type == null) {
+            return null;
+        }
+        try {
+            return type.getMethod(methodName);
+        } catch (NoSuchMethodException error) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LineageEventTrace records where the time went while an event, or a batch of events, was processed: each stage and
+ * each LineageIntegratorContext call, with its start time and duration. The spans are held in arrays of a fixed size
+ * that are allocated once, so a trace can be reused for one event after another. Spans beyond the size of the arrays
+ * are counted but not recorded. Every LineageIntegratorContext call is counted as a round trip, by method, whether
+ * or not its span fits.
+ * <p>
+ * Spans may be added by the metadata call threads of the event while it is being processed. The trace must not be
+ * read until the processing of the event has finished. A metadata call joins the trace when it starts and leaves it
+ * when it completes, so the trace only ends once the calls of the event have completed, even if the event stopped
+ * waiting for them. A call that starts after the trace has ended, or after it has been reset for another event, does
+ * not join it.
+ */
+public class LineageEventTrace {
+
+    static final int MAX_SPANS = 128;
+
+    private static final long ENDED = 1L << 31;
+    private static final long RUNNING_CALLS = ENDED - 1;
+
+    private String label = null;
+    private long startNanos = 0;
+    private long startMillis = 0;
+    private long durationNanos = 0;
+    /*
+     * The generation of the trace, which changes each time it is reset, in the high 32 bits, whether it has ended,
+     * and the number of metadata calls running in it in the low bits.
+     */
+    private final AtomicLong callState = new AtomicLong();
+    private final AtomicInteger spanCount = new AtomicInteger();
+    private final AtomicInteger roundTrips = new AtomicInteger();
+    private final AtomicIntegerArray roundTripsByCall = new AtomicIntegerArray(LineageContextCall.values().length);
+    private final String[] spanNames = new String[MAX_SPANS];
+    private final long[] spanStartNanos = new long[MAX_SPANS];
+    private final long[] spanDurationNanos = new long[MAX_SPANS];
+
+    /**
+     * Start the trace again for another event.
+     *
+     * @param label      what is being traced, for example the Id of the event
+     * @param startNanos start time from System.nanoTime()
+     */
+    void reset(String label, long startNanos) {
+        this.label = label;
+        this.startNanos = startNanos;
+        this.startMillis = System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        this.durationNanos = 0;
+        this.spanCount.set(0);
+        this.roundTrips.set(0);
+        for (int call = 0; call < roundTripsByCall.length(); call++) {
+            this.roundTripsByCall.set(call, 0);
+        }
+        this.callState.set((long) (getGeneration() + 1) << 32);
+    }
+
+    /**
+     * Return the generation of the trace, which identifies the event it is being filled in for.
+     *
+     * @return generation
+     */
+    int getGeneration() {
+        return (int) (callState.get() >>> 32);
+    }
+
+    /**
+     * Join a metadata call to the trace, unless the trace has ended or moved on to another event.
+     *
+     * @param generation generation of the trace when the call was issued
+     * @return true if the call joined the trace and must leave it when it completes
+     */
+    boolean joinCall(int generation) {
+        long state = callState.get();
+        while ((int) (state >>> 32) == generation && (state & ENDED) == 0) {
+            if (callState.compareAndSet(state, state + 1)) {
+                return true;
+            }
+            state = callState.get();
+        }
+        return false;
+    }
+
+    /**
+     * Record that a metadata call that joined the trace has completed.
+     *
+     * @return true if it was the last call of a trace that has ended, so the end of the trace is now complete
+     */
+    boolean leaveCall() {
+        long state = callState.decrementAndGet();
+        return (state & ENDED) != 0 && (state & RUNNING_CALLS) == 0;
+    }
+
+    /**
+     * Record that the processing of the event has ended.
+     *
+     * @return true if no metadata calls are running in the trace, so its end is complete
+     */
+    boolean markEnded() {
+        long state = callState.getAndUpdate(current -> current | ENDED);
+        return (state & RUNNING_CALLS) == 0;
+    }
+
+    /**
+     * Return true if the processing of the event has ended but metadata calls are still running in the trace.
+     *
+     * @return whether the end of the trace is waiting for its calls
+     */
+    boolean isEnding() {
+        long state = callState.get();
+        return (state & ENDED) != 0 && (state & RUNNING_CALLS) != 0;
+    }
+
+    /**
+     * Record a span. This may be called by several threads at once.
+     *
+     * @param name          stage or method name
+     * @param startNanos    start time from System.nanoTime()
+     * @param durationNanos duration in nanoseconds
+     */
+    void addSpan(String name, long startNanos, long durationNanos) {
+        int span = spanCount.getAndIncrement();
+        if (span < MAX_SPANS) {
+            spanNames[span] = name;
+            spanStartNanos[span] = startNanos;
+            spanDurationNanos[span] = durationNanos;
+        }
+    }
+
+    /**
+     * Count a LineageIntegratorContext call. This may be called by several threads at once.
+     *
+     * @param contextCall method called
+     */
+    void addRoundTrip(LineageContextCall contextCall) {
+        roundTrips.incrementAndGet();
+        roundTripsByCall.incrementAndGet(contextCall.ordinal());
+    }
+
+    /**
+     * Record that the traced processing has finished.
+     *
+     * @param endNanos end time from System.nanoTime()
+     */
+    void finish(long endNanos) {
+        durationNanos = endNanos - startNanos;
+    }
+
+    /**
+     * Copy another trace into this one, reusing this trace's arrays.
+     *
+     * @param trace finished trace
+     */
+    void copyFrom(LineageEventTrace trace) {
+        label = trace.label;
+        startNanos = trace.startNanos;
+        startMillis = trace.startMillis;
+        durationNanos = trace.durationNanos;
+        int spans = Math.min(MAX_SPANS, trace.spanCount.get());
+        System.arraycopy(trace.spanNames, 0, spanNames, 0, spans);
+        System.arraycopy(trace.spanStartNanos, 0, spanStartNanos, 0, spans);
+        System.arraycopy(trace.spanDurationNanos, 0, spanDurationNanos, 0, spans);
+        spanCount.set(trace.spanCount.get());
+        roundTrips.set(trace.roundTrips.get());
+        for (int call = 0; call < roundTripsByCall.length(); call++) {
+            roundTripsByCall.set(call, trace.roundTripsByCall.get(call));
+        }
+    }
+
+    /**
+     * Return what was traced.
+     *
+     * @return label, null for a trace that has not been used
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Return how long the processing took.
+     *
+     * @return duration in nanoseconds
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * Return the number of LineageIntegratorContext calls made so far.
+     *
+     * @return round trips
+     */
+    public int getRoundTrips() {
+        return roundTrips.get();
+    }
+
+    /**
+     * Return the number of calls made so far to one LineageIntegratorContext method.
+     *
+     * @param contextCall method
+     * @return round trips
+     */
+    public int getRoundTrips(LineageContextCall contextCall) {
+        return roundTripsByCall.get(contextCall.ordinal());
+    }
+
+    /**
+     * Return the number of calls made so far to each LineageIntegratorContext method that was called.
+     *
+     * @return round trips by method name, in the order of {@link LineageContextCall}
+     */
+    public Map<String, Integer> getRoundTripsByMethod() {
+        Map<String, Integer> roundTripsByMethod = new LinkedHashMap<>();
+        for (LineageContextCall contextCall : LineageContextCall.values()) {
+            int calls = roundTripsByCall.get(contextCall.ordinal());
+            if (calls > 0) {
+                roundTripsByMethod.put(contextCall.getMethodName(), calls);
+            }
+        }
+        return roundTripsByMethod;
+    }
+
+    /**
+     * Return the number of spans, including those that did not fit in the trace.
+     *
+     * @return span count
+     */
+    public int getSpanCount() {
+        return spanCount.get();
+    }
+
+    /**
+     * Return the breakdown of the trace, one span per line in the order they started. The start of each span is
+     * shown as the time since the start of the trace, so a gap between spans is time spent waiting, for example in a
+     * lane between the decode of an event and the upsert of its assets.
+     *
+     * @return formatted trace
+     */
+    public String format() {
+        int spans = Math.min(MAX_SPANS, spanCount.get());
+        Integer[] order = new Integer[spans];
+        for (int span = 0; span < spans; span++) {
+            order[span] = span;
+        }
+        Arrays.sort(order, Comparator.comparingLong(span -> spanStartNanos[span]));
+        StringBuilder text = new StringBuilder();
+        text.append(label).append(" started ").append(Instant.ofEpochMilli(startMillis))
+            .append(" took ").append(formatMillis(durationNanos)).append(" ms")
+            .append(" in ").append(roundTrips.get()).append(" round trips");
+        String separator = " (";
+        for (Map.Entry<String, Integer> calls : getRoundTripsByMethod().entrySet()) {
+            text.append(separator).append(calls.getKey()).append(" x").append(calls.getValue());
+            separator = ", ";
+        }
+        if (!separator.equals(" (")) {
+            text.append(')');
+        }
+        if (spanCount.get() > spans) {
+            text.append(" (").append(spanCount.get() - spans).append(" spans not recorded)");
+        }
+        for (int span : order) {
+            text.append(System.lineSeparator())
+                .append("  ").append(String.format("%+.3f", (spanStartNanos[span] - startNanos) / 1_000_000.0)).append(" ms ")
+                .append(spanNames[span]).append(' ')
+                .append(formatMillis(spanDurationNanos[span])).append(" ms");
+        }
+        return text.toString();
+    }
+
+    private static String formatMillis(long nanos) {
+        return String.format("%.3f", nanos / 1_000_000.0);
+    }
+}
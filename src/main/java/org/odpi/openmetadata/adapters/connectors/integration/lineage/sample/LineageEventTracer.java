@@ -0,0 +1,327 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+import org.odpi.openmetadata.adapters.connectors.integration.lineage.sample.ffdc.LineageEventSampleEventConnectorAuditCode;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * LineageEventTracer traces the processing of each event, and keeps the most recent traces in a ring of a fixed size.
+ * The traces in the ring, and the one trace each processing thread fills in, are allocated once and reused, so the
+ * memory used for tracing does not grow with the number of events.
+ * <p>
+ * The trace of an event that takes longer than the slow event threshold is written to the audit log with its full
+ * breakdown. The recent traces can be dumped on demand, over JMX or from the connector.
+ * <p>
+ * The trace being filled in is held for the thread processing the event. Metadata calls that the processor issues on
+ * other threads are wrapped with {@link #inActiveTrace(Callable)} so their spans are added to the same trace. A trace
+ * only ends once those calls have completed, so a call that is still running after its event has stopped waiting for
+ * it never adds its spans to the trace of a later event. The trace of the event being processed is filled in even when
+ * no traces are kept, because it also counts the round trips of the event for the JDK Flight Recorder events. A trace
+ * listener is given each trace as it ends, with the round trips of the event by method.
+ */
+public class LineageEventTracer implements LineageEventTracerMXBean {
+
+    private static final String ACTION = "processEvent";
+
+    private final boolean enabled;
+    private final LineageEventTrace[] recentTraces;
+    private final long slowEventThresholdNanos;
+    private final LineageEventAuditLog auditLog;
+    private final String connectorName;
+    private final ThreadLocal<LineageEventTrace> workingTraces = ThreadLocal.withInitial(LineageEventTrace::new);
+    private final ThreadLocal<LineageEventTrace> activeTrace = new ThreadLocal<>();
+    private final AtomicLong tracedEvents = new AtomicLong();
+    private final LongAdder slowEvents = new LongAdder();
+
+    private volatile Consumer<LineageEventTrace> traceListener = null;
+    private MBeanServer mBeanServer = null;
+    private ObjectName registeredName = null;
+
+    /**
+     * Constructor for LineageEventTracer
+     *
+     * @param capacity                 number of recent traces to keep, 0 to keep none
+     * @param slowEventThresholdMillis processing time above which a trace is written to the audit log, 0 to write none
+     * @param auditLog                 audit log for the traces of slow events
+     * @param connectorName            connector name
+     */
+    public LineageEventTracer(int capacity, long slowEventThresholdMillis, LineageEventAuditLog auditLog, String connectorName) {
+        this(true, capacity, slowEventThresholdMillis, auditLog, connectorName);
+    }
+
+    private LineageEventTracer(boolean enabled, int capacity, long slowEventThresholdMillis, LineageEventAuditLog auditLog, String connectorName) {
+        this.recentTraces = new LineageEventTrace[Math.max(0, capacity)];
+        for (int trace = 0; trace < recentTraces.length; trace++) {
+            recentTraces[trace] = new LineageEventTrace();
+        }
+        this.slowEventThresholdNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, slowEventThresholdMillis));
+        this.enabled = enabled;
+        this.auditLog = auditLog;
+        this.connectorName = connectorName;
+    }
+
+    /**
+     * Return a tracer that traces nothing.
+     *
+     * @return disabled tracer
+     */
+    public static LineageEventTracer disabled() {
+        return new LineageEventTracer(false, 0, 0, null, null);
+    }
+
+    /**
+     * Start tracing on this thread. Nothing is traced if this thread is already tracing, so when a batch is processed
+     * an event at a time, the events stay in the trace of the batch.
+     *
+     * @param label      what is being traced, for example the Id of the event
+     * @param startNanos start time from System.nanoTime(), which may be before the call, for example when the event
+     *                   was decoded
+     * @return the trace to pass to {@link #end(LineageEventTrace)}, or null if nothing is traced
+     */
+    public LineageEventTrace begin(String label, long startNanos) {
+        if (!enabled || activeTrace.get() != null) {
+            return null;
+        }
+        LineageEventTrace trace = workingTraces.get();
+        if (trace.isEnding()) {
+            // the calls of the last event are still running in its trace, so this event needs a trace of its own
+            trace = new LineageEventTrace();
+            workingTraces.set(trace);
+        }
+        trace.reset(label, startNanos);
+        activeTrace.set(trace);
+        return trace;
+    }
+
+    /**
+     * Return the trace this thread is filling in.
+     *
+     * @return trace or null
+     */
+    public LineageEventTrace getActiveTrace() {
+        return enabled ? activeTrace.get() : null;
+    }
+
+    /**
+     * Record a span in the trace this thread is filling in, if there is one.
+     *
+     * @param name          stage or method name
+     * @param startNanos    start time from System.nanoTime()
+     * @param durationNanos duration in nanoseconds
+     */
+    public void recordSpan(String name, long startNanos, long durationNanos) {
+        if (enabled) {
+            LineageEventTrace trace = activeTrace.get();
+            if (trace != null) {
+                trace.addSpan(name, startNanos, durationNanos);
+            }
+        }
+    }
+
+    /**
+     * Record a LineageIntegratorContext call in the trace this thread is filling in, if there is one, and count it as
+     * a round trip.
+     *
+     * @param contextCall   method called
+     * @param startNanos    start time from System.nanoTime()
+     * @param durationNanos duration in nanoseconds
+     */
+    public void recordRoundTrip(LineageContextCall contextCall, long startNanos, long durationNanos) {
+        if (enabled) {
+            LineageEventTrace trace = activeTrace.get();
+            if (trace != null) {
+                trace.addSpan(contextCall.getMethodName(), startNanos, durationNanos);
+                trace.addRoundTrip(contextCall);
+            }
+        }
+    }
+
+    /**
+     * Return the number of round trips made so far for the event this thread is processing.
+     *
+     * @return round trips, 0 if this thread is not processing an event
+     */
+    public int getRoundTrips() {
+        LineageEventTrace trace = getActiveTrace();
+        return trace == null ? 0 : trace.getRoundTrips();
+    }
+
+    /**
+     * Return the label of the trace this thread is filling in.
+     *
+     * @return label, for example the Id of the event, or null
+     */
+    public String getActiveLabel() {
+        LineageEventTrace trace = getActiveTrace();
+        return trace == null ? null : trace.getLabel();
+    }
+
+    /**
+     * Wrap a call, to be run on another thread, so it is part of the trace this thread is filling in. The trace does
+     * not end until the call has completed. If the call only starts once the trace has ended, for example because the
+     * event stopped waiting for it, it is not traced.
+     *
+     * @param call the call
+     * @param <T>  type returned by the call
+     * @return the call to run on the other thread
+     */
+    public <T> Callable<T> inActiveTrace(Callable<T> call) {
+        LineageEventTrace trace = getActiveTrace();
+        if (trace == null) {
+            return call;
+        }
+        int generation = trace.getGeneration();
+        return () -> callWith(trace, generation, call);
+    }
+
+    private <T> T callWith(LineageEventTrace trace, int generation, Callable<T> call) throws Exception {
+        if (!trace.joinCall(generation)) {
+            return call.call();
+        }
+        LineageEventTrace previousTrace = activeTrace.get();
+        activeTrace.set(trace);
+        try {
+            return call.call();
+        } finally {
+            if (previousTrace == null) {
+                activeTrace.remove();
+            } else {
+                activeTrace.set(previousTrace);
+            }
+            if (trace.leaveCall()) {
+                complete(trace);
+            }
+        }
+    }
+
+    /**
+     * Set the listener that is given each trace as it ends. The listener is called on the thread that processed the
+     * event, or on the thread of its last metadata call if that was still running when the event ended. The trace is
+     * reused for the next event once the listener returns, so the listener must copy anything it keeps.
+     *
+     * @param traceListener listener, or null for none
+     */
+    public void setTraceListener(Consumer<LineageEventTrace> traceListener) {
+        this.traceListener = traceListener;
+    }
+
+    /**
+     * Finish a trace, keep it among the recent traces and write it to the audit log if the processing was slow. If
+     * metadata calls of the event are still running, this is done when the last of them completes; the duration of
+     * the trace is still the processing time of the event.
+     *
+     * @param trace trace from {@link #begin(String, long)}, may be null
+     */
+    public void end(LineageEventTrace trace) {
+        if (trace == null) {
+            return;
+        }
+        trace.finish(System.nanoTime());
+        activeTrace.remove();
+        if (trace.markEnded()) {
+            complete(trace);
+        }
+    }
+
+    /**
+     * Keep a finished trace, once no metadata calls are running in it.
+     *
+     * @param trace finished trace
+     */
+    private void complete(LineageEventTrace trace) {
+        long tracedEvent = tracedEvents.getAndIncrement();
+        if (recentTraces.length > 0) {
+            LineageEventTrace recentTrace = recentTraces[(int) (tracedEvent % recentTraces.length)];
+            synchronized (recentTrace) {
+                recentTrace.copyFrom(trace);
+            }
+        }
+        if (slowEventThresholdNanos > 0 && trace.getDurationNanos() >= slowEventThresholdNanos) {
+            slowEvents.increment();
+            if (auditLog != null) {
+                auditLog.logMessage(ACTION,
+                        LineageEventSampleEventConnectorAuditCode.SLOW_EVENT,
+                        connectorName,
+                        trace.getLabel(),
+                        Long.toString(TimeUnit.NANOSECONDS.toMillis(trace.getDurationNanos())),
+                        trace.format());
+            }
+        }
+        Consumer<LineageEventTrace> listener = traceListener;
+        if (listener != null) {
+            listener.accept(trace);
+        }
+    }
+
+    @Override
+    public long getTracedEventCount() {
+        return tracedEvents.get();
+    }
+
+    @Override
+    public long getSlowEventCount() {
+        return slowEvents.sum();
+    }
+
+    @Override
+    public long getSlowEventThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(slowEventThresholdNanos);
+    }
+
+    @Override
+    public String dumpRecentTraces() {
+        StringBuilder text = new StringBuilder();
+        long traced = tracedEvents.get();
+        long oldest = Math.max(0, traced - recentTraces.length);
+        for (long tracedEvent = oldest; tracedEvent < traced; tracedEvent++) {
+            LineageEventTrace recentTrace = recentTraces[(int) (tracedEvent % recentTraces.length)];
+            synchronized (recentTrace) {
+                if (recentTrace.getLabel() != null) {
+                    text.append(recentTrace.format()).append(System.lineSeparator());
+                }
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Register the tracer as an MXBean, so the recent traces can be dumped over JMX.
+     *
+     * @param mBeanServer   MBean server, usually the platform MBean server
+     * @param connectorName connector name, used as a key in the JMX name
+     * @throws JMException the tracer could not be registered
+     */
+    public synchronized void register(MBeanServer mBeanServer, String connectorName) throws JMException {
+        if (this.mBeanServer == null) {
+            ObjectName name = new ObjectName(LineageEventMetrics.JMX_DOMAIN + ":type=LineageEventTraces,connector=" + ObjectName.quote(String.valueOf(connectorName)));
+            mBeanServer.registerMBean(this, name);
+            this.mBeanServer = mBeanServer;
+            this.registeredName = name;
+        }
+    }
+
+    /**
+     * Unregister the MXBean registered by {@link #register(MBeanServer, String)}.
+     */
+    public synchronized void unregister() {
+        if (mBeanServer != null) {
+            try {
+                mBeanServer.unregisterMBean(registeredName);
+            } catch (JMException error) {
+                // already gone
+            }
+            mBeanServer = null;
+            registeredName = null;
+        }
+    }
+}
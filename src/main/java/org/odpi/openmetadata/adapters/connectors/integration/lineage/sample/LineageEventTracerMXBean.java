@@ -0,0 +1,38 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+/**
+ * JMX view of the traces of the events a connector has processed.
+ */
+public interface LineageEventTracerMXBean {
+
+    /**
+     * Return the number of events, or batches of events, traced.
+     *
+     * @return traced events
+     */
+    long getTracedEventCount();
+
+    /**
+     * Return the number of traced events that took longer than the slow event threshold.
+     *
+     * @return slow events
+     */
+    long getSlowEventCount();
+
+    /**
+     * Return the processing time above which the trace of an event is written to the audit log.
+     *
+     * @return threshold in milliseconds, 0 if slow events are not captured
+     */
+    long getSlowEventThresholdMillis();
+
+    /**
+     * Return the most recent traces, oldest first.
+     *
+     * @return formatted traces
+     */
+    String dumpRecentTraces();
+}
@@ -0,0 +1,216 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+import org.odpi.openmetadata.accessservices.assetmanager.metadataelements.DataAssetElement;
+import org.odpi.openmetadata.accessservices.assetmanager.metadataelements.DataFlowElement;
+import org.odpi.openmetadata.accessservices.assetmanager.metadataelements.ProcessElement;
+import org.odpi.openmetadata.accessservices.assetmanager.metadataelements.SchemaAttributeElement;
+import org.odpi.openmetadata.accessservices.assetmanager.metadataelements.SchemaTypeElement;
+import org.odpi.openmetadata.accessservices.assetmanager.properties.*;
+import org.odpi.openmetadata.frameworks.connectors.ffdc.InvalidParameterException;
+import org.odpi.openmetadata.frameworks.connectors.ffdc.PropertyServerException;
+import org.odpi.openmetadata.frameworks.connectors.ffdc.UserNotAuthorizedException;
+import org.odpi.openmetadata.integrationservices.lineage.connector.LineageIntegratorContext;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * LineageIntegratorMetadataContext passes each call of the event processor on to the connector's
+ * LineageIntegratorContext.
+ */
+class LineageIntegratorMetadataContext implements LineageMetadataContext {
+
+    private final LineageIntegratorContext context;
+
+    /**
+     * Constructor for LineageIntegratorMetadataContext
+     *
+     * @param context the context that issues the calls
+     */
+    LineageIntegratorMetadataContext(LineageIntegratorContext context) {
+        this.context = context;
+    }
+
+    @Override
+    public List<DataAssetElement> getDataAssetsByName(String name,
+                                                      int startFrom,
+                                                      int pageSize,
+                                                      Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        return context.getDataAssetsByName(name, startFrom, pageSize, effectiveTime);
+    }
+
+    @Override
+    public String createDataAsset(boolean assetManagerIsHome,
+                                  DataAssetProperties assetProperties) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        return context.createDataAsset(assetManagerIsHome, assetProperties);
+    }
+
+    @Override
+    public void updateDataAsset(String assetGUID,
+                                boolean isMergeUpdate,
+                                DataAssetProperties assetProperties,
+                                Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        context.updateDataAsset(assetGUID, isMergeUpdate, assetProperties, effectiveTime);
+    }
+
+    @Override
+    public DataAssetElement getDataAssetByGUID(String openMetadataGUID,
+                                               Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        return context.getDataAssetByGUID(openMetadataGUID, effectiveTime);
+    }
+
+    @Override
+    public SchemaTypeElement getSchemaTypeForElement(String parentElementGUID,
+                                                     String parentElementTypeName,
+                                                     Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        return context.getSchemaTypeForElement(parentElementGUID, parentElementTypeName, effectiveTime);
+    }
+
+    @Override
+    public void updateSchemaType(String schemaTypeGUID,
+                                 boolean isMergeUpdate,
+                                 SchemaTypeProperties schemaTypeProperties,
+                                 Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        context.updateSchemaType(schemaTypeGUID, isMergeUpdate, schemaTypeProperties, effectiveTime);
+    }
+
+    @Override
+    public String createSchemaType(boolean assetManagerIsHome,
+                                   SchemaTypeProperties schemaTypeProperties) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        return context.createSchemaType(assetManagerIsHome, schemaTypeProperties);
+    }
+
+    @Override
+    public void setupSchemaTypeParent(boolean assetManagerIsHome,
+                                      String schemaTypeGUID,
+                                      String parentElementGUID,
+                                      String parentElementTypeName,
+                                      RelationshipProperties properties,
+                                      Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        context.setupSchemaTypeParent(assetManagerIsHome, schemaTypeGUID, parentElementGUID, parentElementTypeName, properties, effectiveTime);
+    }
+
+    @Override
+    public SchemaTypeElement getSchemaTypeByGUID(String schemaTypeGUID,
+                                                 Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        return context.getSchemaTypeByGUID(schemaTypeGUID, effectiveTime);
+    }
+
+    @Override
+    public List<SchemaTypeElement> getSchemaTypeByName(String name,
+                                                       int startFrom,
+                                                       int pageSize,
+                                                       Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        return context.getSchemaTypeByName(name, startFrom, pageSize, effectiveTime);
+    }
+
+    @Override
+    public List<SchemaAttributeElement> getNestedSchemaAttributes(String parentSchemaElementGUID,
+                                                                  int startFrom,
+                                                                  int pageSize,
+                                                                  Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        return context.getNestedSchemaAttributes(parentSchemaElementGUID, startFrom, pageSize, effectiveTime);
+    }
+
+    @Override
+    public String createSchemaAttribute(boolean assetManagerIsHome,
+                                        String schemaElementGUID,
+                                        SchemaAttributeProperties schemaAttributeProperties,
+                                        Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        return context.createSchemaAttribute(assetManagerIsHome, schemaElementGUID, schemaAttributeProperties, effectiveTime);
+    }
+
+    @Override
+    public void updateSchemaAttribute(String schemaAttributeGUID,
+                                      boolean isMergeUpdate,
+                                      SchemaAttributeProperties schemaAttributeProperties,
+                                      Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        context.updateSchemaAttribute(schemaAttributeGUID, isMergeUpdate, schemaAttributeProperties, effectiveTime);
+    }
+
+    @Override
+    public void removeSchemaType(String schemaTypeGUID,
+                                 Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        context.removeSchemaType(schemaTypeGUID, effectiveTime);
+    }
+
+    @Override
+    public void removeSchemaAttribute(String schemaAttributeGUID,
+                                      Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        context.removeSchemaAttribute(schemaAttributeGUID, effectiveTime);
+    }
+
+    @Override
+    public void updateProcess(String processGUID,
+                              boolean isMergeUpdate,
+                              ProcessProperties processProperties,
+                              Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        context.updateProcess(processGUID, isMergeUpdate, processProperties, effectiveTime);
+    }
+
+    @Override
+    public String createProcess(boolean assetManagerIsHome,
+                                ProcessStatus processStatus,
+                                ProcessProperties processProperties) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        return context.createProcess(assetManagerIsHome, processStatus, processProperties);
+    }
+
+    @Override
+    public List<ProcessElement> getProcessesByName(String name,
+                                                   int startFrom,
+                                                   int pageSize,
+                                                   Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        return context.getProcessesByName(name, startFrom, pageSize, effectiveTime);
+    }
+
+    @Override
+    public String setupDataFlow(boolean assetManagerIsHome,
+                                String dataSupplierGUID,
+                                String dataConsumerGUID,
+                                DataFlowProperties properties,
+                                Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        return context.setupDataFlow(assetManagerIsHome, dataSupplierGUID, dataConsumerGUID, properties, effectiveTime);
+    }
+
+    @Override
+    public void updateDataFlow(String dataFlowGUID,
+                               DataFlowProperties properties,
+                               Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        context.updateDataFlow(dataFlowGUID, properties, effectiveTime);
+    }
+
+    @Override
+    public void clearDataFlow(String dataFlowGUID,
+                              Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        context.clearDataFlow(dataFlowGUID, effectiveTime);
+    }
+
+    @Override
+    public DataFlowElement getDataFlow(String dataSupplierGUID,
+                                       String dataConsumerGUID,
+                                       String qualifiedName,
+                                       Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        return context.getDataFlow(dataSupplierGUID, dataConsumerGUID, qualifiedName, effectiveTime);
+    }
+
+    @Override
+    public void setupSchemaElementRelationship(boolean assetManagerIsHome,
+                                               String endOneGUID,
+                                               String endTwoGUID,
+                                               String relationshipName,
+                                               Date effectiveTime,
+                                               RelationshipProperties properties) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        context.setupSchemaElementRelationship(assetManagerIsHome, endOneGUID, endTwoGUID, relationshipName, effectiveTime, properties);
+    }
+
+    @Override
+    public String createAnchoredSchemaType(boolean assetManagerIsHome,
+                                           String anchorGUID,
+                                           ExternalIdentifierProperties externalIdentifierProperties,
+                                           SchemaTypeProperties schemaTypeProperties) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        return context.createAnchoredSchemaType(assetManagerIsHome, anchorGUID, externalIdentifierProperties, schemaTypeProperties);
+    }
+}
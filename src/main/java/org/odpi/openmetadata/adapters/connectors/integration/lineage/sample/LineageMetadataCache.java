@@ -0,0 +1,164 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * LineageMetadataCache is a bounded cache of values looked up from, or created in, the metadata server. When the cache
+ * is full, the least recently used entry is evicted to make room for a new one. An entry also expires once it is
+ * older than the time to live, so changes made to the metadata by other tools are picked up again in time.
+ * <p>
+ * The cache is only a short cut: a caller that finds a value must still cope with the metadata having gone away, and
+ * invalidates the entry when it finds that it has.
+ * <p>
+ * The cache is safe to use from several threads. It counts the hits, misses and evictions so the connector can report
+ * how effective it is.
+ *
+ * @param <K> key type, for example a qualifiedName
+ * @param <V> cached value type, for example a GUID
+ */
+public class LineageMetadataCache<K, V> {
+
+    private final int capacity;
+    private final long timeToLiveMillis;
+    private final LongSupplier clock;
+    private final LinkedHashMap<K, CacheEntry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+
+    /**
+     * Constructor for LineageMetadataCache
+     *
+     * @param capacity         maximum number of entries, 0 or less disables the cache
+     * @param timeToLiveMillis how long an entry is used for after it was added, 0 or less keeps entries until they are evicted
+     */
+    public LineageMetadataCache(int capacity, long timeToLiveMillis) {
+        this(capacity, timeToLiveMillis, System::currentTimeMillis);
+    }
+
+    /**
+     * Constructor for LineageMetadataCache with the clock used to expire entries.
+     *
+     * @param capacity         maximum number of entries, 0 or less disables the cache
+     * @param timeToLiveMillis how long an entry is used for after it was added, 0 or less keeps entries until they are evicted
+     * @param clock            current time in milliseconds
+     */
+    LineageMetadataCache(int capacity, long timeToLiveMillis, LongSupplier clock) {
+        this.capacity = Math.max(0, capacity);
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Return the cached value for the key.
+     *
+     * @param key key
+     * @return cached value, or null if there is no entry or the entry has expired
+     */
+    public synchronized V get(K key) {
+        CacheEntry<V> entry = entries.get(key);
+        if (entry == null) {
+            missCount++;
+            return null;
+        }
+        if (isExpired(entry)) {
+            entries.remove(key);
+            evictionCount++;
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return entry.value;
+    }
+
+    /**
+     * Add or replace the value for the key. The least recently used entries are evicted if the cache is over capacity.
+     *
+     * @param key   key
+     * @param value value, null values are not cached
+     */
+    public synchronized void put(K key, V value) {
+        if (capacity == 0 || key == null || value == null) {
+            return;
+        }
+        entries.put(key, new CacheEntry<>(value, clock.getAsLong()));
+        Iterator<Map.Entry<K, CacheEntry<V>>> eldest = entries.entrySet().iterator();
+        while (entries.size() > capacity && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Remove the entry for the key, because the metadata it refers to is no longer valid.
+     *
+     * @param key key
+     */
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Remove all the entries.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Return the number of entries, including any that have expired but have not been looked up since.
+     *
+     * @return number of entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Return the number of lookups that found a value.
+     *
+     * @return hit count
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Return the number of lookups that did not find a value.
+     *
+     * @return miss count
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Return the number of entries removed because the cache was full or the entry had expired.
+     *
+     * @return eviction count
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    private boolean isExpired(CacheEntry<V> entry) {
+        return timeToLiveMillis > 0 && clock.getAsLong() - entry.addedMillis >= timeToLiveMillis;
+    }
+
+    private static class CacheEntry<V> {
+        private final V value;
+        private final long addedMillis;
+
+        private CacheEntry(V value, long addedMillis) {
+            this.value = value;
+            this.addedMillis = addedMillis;
+        }
+    }
+}
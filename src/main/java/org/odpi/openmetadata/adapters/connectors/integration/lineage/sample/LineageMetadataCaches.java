@@ -0,0 +1,141 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LineageMetadataCaches holds the caches the event processor uses to avoid looking up metadata that it has already
+ * seen. The caches belong to the connector, so they are shared by all the lanes and survive from one event to the
+ * next.
+ * <p>
+ * The schema fingerprints have a capacity of their own. They only record the schemas the connector has catalogued
+ * itself, so they can be kept when the caches of GUIDs from the metadata server are switched off.
+ */
+public class LineageMetadataCaches {
+
+    private final LineageMetadataCache<String, CachedDataAsset> dataAssets;
+    private final LineageMetadataCache<String, String> processes;
+    private final LineageMetadataCache<String, String> dataFlows;
+    private final LineageMetadataCache<String, String> schemaFingerprints;
+
+    /**
+     * Constructor for LineageMetadataCaches
+     *
+     * @param capacity         maximum number of entries in each cache, 0 or less disables the caches
+     * @param timeToLiveMillis how long an entry is used for after it was added, 0 or less keeps entries until they are evicted
+     */
+    public LineageMetadataCaches(int capacity, long timeToLiveMillis) {
+        this(capacity, timeToLiveMillis, capacity);
+    }
+
+    /**
+     * Constructor for LineageMetadataCaches with a separate capacity for the schema fingerprints.
+     *
+     * @param capacity                  maximum number of entries in each cache of metadata GUIDs, 0 or less disables
+     *                                  them
+     * @param timeToLiveMillis          how long an entry is used for after it was added, 0 or less keeps entries until
+     *                                  they are evicted
+     * @param schemaFingerprintCapacity maximum number of schema fingerprints, 0 or less disables them
+     */
+    public LineageMetadataCaches(int capacity, long timeToLiveMillis, int schemaFingerprintCapacity) {
+        dataAssets = new LineageMetadataCache<>(capacity, timeToLiveMillis);
+        processes = new LineageMetadataCache<>(capacity, timeToLiveMillis);
+        dataFlows = new LineageMetadataCache<>(capacity, timeToLiveMillis);
+        schemaFingerprints = new LineageMetadataCache<>(schemaFingerprintCapacity, timeToLiveMillis);
+    }
+
+    /**
+     * Return caches that never hold anything, for a processor that should always look the metadata up.
+     *
+     * @return disabled caches
+     */
+    public static LineageMetadataCaches disabled() {
+        return new LineageMetadataCaches(0, 0, 0);
+    }
+
+    /**
+     * Return the cache of data assets by qualifiedName.
+     *
+     * @return data asset cache
+     */
+    public LineageMetadataCache<String, CachedDataAsset> getDataAssets() {
+        return dataAssets;
+    }
+
+    /**
+     * Return the cache of process GUIDs by qualifiedName.
+     *
+     * @return process cache
+     */
+    public LineageMetadataCache<String, String> getProcesses() {
+        return processes;
+    }
+
+    /**
+     * Return the cache of DataFlow relationship GUIDs by the GUIDs of their ends.
+     *
+     * @return DataFlow cache, see getDataFlowKey for the keys
+     */
+    public LineageMetadataCache<String, String> getDataFlows() {
+        return dataFlows;
+    }
+
+    /**
+     * Return the cache of the fingerprints of the schemas last catalogued, by asset GUID. An entry is only added once
+     * the schema has been catalogued successfully.
+     *
+     * @return schema fingerprint cache
+     */
+    public LineageMetadataCache<String, String> getSchemaFingerprints() {
+        return schemaFingerprints;
+    }
+
+    /**
+     * Return the key of the DataFlow between the supplied elements in the DataFlow cache.
+     *
+     * @param fromGUID GUID of the data supplier
+     * @param toGUID   GUID of the data consumer
+     * @return DataFlow cache key
+     */
+    public static String getDataFlowKey(String fromGUID, String toGUID) {
+        return fromGUID + "|" + toGUID;
+    }
+
+    /**
+     * Return the caches by name, for reporting.
+     *
+     * @return caches in a fixed order
+     */
+    public Map<String, LineageMetadataCache<?, ?>> getCachesByName() {
+        Map<String, LineageMetadataCache<?, ?>> caches = new LinkedHashMap<>();
+        caches.put("dataAssets", dataAssets);
+        caches.put("processes", processes);
+        caches.put("dataFlows", dataFlows);
+        caches.put("schemaFingerprints", schemaFingerprints);
+        return caches;
+    }
+
+    /**
+     * A data asset that is known to exist in the metadata server.
+     */
+    public static class CachedDataAsset {
+        private final String guid;
+        private final String typeName;
+
+        public CachedDataAsset(String guid, String typeName) {
+            this.guid = guid;
+            this.typeName = typeName;
+        }
+
+        public String getGUID() {
+            return guid;
+        }
+
+        public String getTypeName() {
+            return typeName;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+import org.odpi.openmetadata.accessservices.assetmanager.metadataelements.DataAssetElement;
+import org.odpi.openmetadata.accessservices.assetmanager.metadataelements.DataFlowElement;
+import org.odpi.openmetadata.accessservices.assetmanager.metadataelements.ProcessElement;
+import org.odpi.openmetadata.accessservices.assetmanager.metadataelements.SchemaAttributeElement;
+import org.odpi.openmetadata.accessservices.assetmanager.metadataelements.SchemaTypeElement;
+import org.odpi.openmetadata.accessservices.assetmanager.properties.*;
+import org.odpi.openmetadata.frameworks.connectors.ffdc.InvalidParameterException;
+import org.odpi.openmetadata.frameworks.connectors.ffdc.PropertyServerException;
+import org.odpi.openmetadata.frameworks.connectors.ffdc.UserNotAuthorizedException;
+import org.odpi.openmetadata.integrationservices.lineage.connector.LineageIntegratorContext;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * LineageMetadataContext holds the LineageIntegratorContext methods the event processor calls, one for each
+ * LineageContextCall. The processor only talks to the metadata server through this interface, so a wrapper such as
+ * MeasuredLineageIntegratorContext can time every call the processor makes without having to stand in for the whole
+ * LineageIntegratorContext. Each method behaves as the LineageIntegratorContext method of the same name.
+ */
+public interface LineageMetadataContext {
+
+    /**
+     * Return a LineageMetadataContext that passes each call on to the supplied LineageIntegratorContext.
+     *
+     * @param context the context that issues the calls
+     * @return metadata context, or null if the context is null
+     */
+    static LineageMetadataContext of(LineageIntegratorContext context) {
+        return context == null ? null : new LineageIntegratorMetadataContext(context);
+    }
+
+    List<DataAssetElement> getDataAssetsByName(String name,
+                                               int startFrom,
+                                               int pageSize,
+                                               Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException;
+
+    String createDataAsset(boolean assetManagerIsHome,
+                           DataAssetProperties assetProperties) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException;
+
+    void updateDataAsset(String assetGUID,
+                         boolean isMergeUpdate,
+                         DataAssetProperties assetProperties,
+                         Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException;
+
+    DataAssetElement getDataAssetByGUID(String openMetadataGUID,
+                                        Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException;
+
+    SchemaTypeElement getSchemaTypeForElement(String parentElementGUID,
+                                              String parentElementTypeName,
+                                              Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException;
+
+    void updateSchemaType(String schemaTypeGUID,
+                          boolean isMergeUpdate,
+                          SchemaTypeProperties schemaTypeProperties,
+                          Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException;
+
+    String createSchemaType(boolean assetManagerIsHome,
+                            SchemaTypeProperties schemaTypeProperties) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException;
+
+    void setupSchemaTypeParent(boolean assetManagerIsHome,
+                               String schemaTypeGUID,
+                               String parentElementGUID,
+                               String parentElementTypeName,
+                               RelationshipProperties properties,
+                               Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException;
+
+    SchemaTypeElement getSchemaTypeByGUID(String schemaTypeGUID,
+                                          Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException;
+
+    List<SchemaTypeElement> getSchemaTypeByName(String name,
+                                                int startFrom,
+                                                int pageSize,
+                                                Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException;
+
+    List<SchemaAttributeElement> getNestedSchemaAttributes(String parentSchemaElementGUID,
+                                                           int startFrom,
+                                                           int pageSize,
+                                                           Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException;
+
+    String createSchemaAttribute(boolean assetManagerIsHome,
+                                 String schemaElementGUID,
+                                 SchemaAttributeProperties schemaAttributeProperties,
+                                 Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException;
+
+    void updateSchemaAttribute(String schemaAttributeGUID,
+                               boolean isMergeUpdate,
+                               SchemaAttributeProperties schemaAttributeProperties,
+                               Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException;
+
+    void removeSchemaType(String schemaTypeGUID,
+                          Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException;
+
+    void removeSchemaAttribute(String schemaAttributeGUID,
+                               Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException;
+
+    void updateProcess(String processGUID,
+                       boolean isMergeUpdate,
+                       ProcessProperties processProperties,
+                       Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException;
+
+    String createProcess(boolean assetManagerIsHome,
+                         ProcessStatus processStatus,
+                         ProcessProperties processProperties) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException;
+
+    List<ProcessElement> getProcessesByName(String name,
+                                            int startFrom,
+                                            int pageSize,
+                                            Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException;
+
+    String setupDataFlow(boolean assetManagerIsHome,
+                         String dataSupplierGUID,
+                         String dataConsumerGUID,
+                         DataFlowProperties properties,
+                         Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException;
+
+    void updateDataFlow(String dataFlowGUID,
+                        DataFlowProperties properties,
+                        Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException;
+
+    void clearDataFlow(String dataFlowGUID,
+                       Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException;
+
+    DataFlowElement getDataFlow(String dataSupplierGUID,
+                                String dataConsumerGUID,
+                                String qualifiedName,
+                                Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException;
+
+    void setupSchemaElementRelationship(boolean assetManagerIsHome,
+                                        String endOneGUID,
+                                        String endTwoGUID,
+                                        String relationshipName,
+                                        Date effectiveTime,
+                                        RelationshipProperties properties) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException;
+
+    String createAnchoredSchemaType(boolean assetManagerIsHome,
+                                    String anchorGUID,
+                                    ExternalIdentifierProperties externalIdentifierProperties,
+                                    SchemaTypeProperties schemaTypeProperties) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException;
+}
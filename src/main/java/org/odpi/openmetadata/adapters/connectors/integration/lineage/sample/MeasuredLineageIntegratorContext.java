@@ -0,0 +1,286 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+import org.odpi.openmetadata.accessservices.assetmanager.metadataelements.DataAssetElement;
+import org.odpi.openmetadata.accessservices.assetmanager.metadataelements.DataFlowElement;
+import org.odpi.openmetadata.accessservices.assetmanager.metadataelements.ProcessElement;
+import org.odpi.openmetadata.accessservices.assetmanager.metadataelements.SchemaAttributeElement;
+import org.odpi.openmetadata.accessservices.assetmanager.metadataelements.SchemaTypeElement;
+import org.odpi.openmetadata.accessservices.assetmanager.properties.*;
+import org.odpi.openmetadata.frameworks.connectors.ffdc.InvalidParameterException;
+import org.odpi.openmetadata.frameworks.connectors.ffdc.PropertyServerException;
+import org.odpi.openmetadata.frameworks.connectors.ffdc.UserNotAuthorizedException;
+import org.odpi.openmetadata.integrationservices.lineage.connector.LineageIntegratorContext;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * MeasuredLineageIntegratorContext passes each call the processor makes on to the connector's LineageIntegratorContext,
+ * and records how long the call took in the latency histogram for its method and in the trace of the event being
+ * processed, where it is counted as a round trip of the event. The processor makes all its calls through the
+ * LineageMetadataContext interface, so every one of them is measured. Calls made on the LineageIntegratorContext
+ * directly, outside the processor, are not.
+ */
+public class MeasuredLineageIntegratorContext implements LineageMetadataContext {
+
+    private final LineageMetadataContext delegate;
+    private final LineageEventMetrics metrics;
+    private final LineageEventTracer tracer;
+
+    /**
+     * Constructor for MeasuredLineageIntegratorContext
+     *
+     * @param delegate the context that issues the calls
+     * @param metrics  metrics to record the latency of each call in
+     */
+    public MeasuredLineageIntegratorContext(LineageIntegratorContext delegate, LineageEventMetrics metrics) {
+        this(delegate, metrics, LineageEventTracer.disabled());
+    }
+
+    /**
+     * Constructor for MeasuredLineageIntegratorContext
+     *
+     * @param delegate the context that issues the calls
+     * @param metrics  metrics to record the latency of each call in
+     * @param tracer   tracer to record each call in the trace of its event
+     */
+    public MeasuredLineageIntegratorContext(LineageIntegratorContext delegate, LineageEventMetrics metrics, LineageEventTracer tracer) {
+        this.delegate = LineageMetadataContext.of(delegate);
+        this.metrics = metrics;
+        this.tracer = tracer;
+    }
+
+    /**
+     * A call on the delegate context.
+     *
+     * @param <T> the type returned by the call
+     */
+    @FunctionalInterface
+    private interface ContextCall<T> {
+        T call() throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException;
+    }
+
+    private <T> T measure(LineageContextCall contextMethod, ContextCall<T> contextCall) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        long startNanos = System.nanoTime();
+        try {
+            return contextCall.call();
+        } finally {
+            long durationNanos = System.nanoTime() - startNanos;
+            metrics.getMetadataCallLatency(contextMethod.getMethodName()).record(durationNanos);
+            tracer.recordRoundTrip(contextMethod, startNanos, durationNanos);
+        }
+    }
+
+    @Override
+    public List<DataAssetElement> getDataAssetsByName(String name,
+                                                      int startFrom,
+                                                      int pageSize,
+                                                      Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        return measure(LineageContextCall.GET_DATA_ASSETS_BY_NAME, () -> delegate.getDataAssetsByName(name, startFrom, pageSize, effectiveTime));
+    }
+
+    @Override
+    public String createDataAsset(boolean assetManagerIsHome,
+                                  DataAssetProperties assetProperties) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        return measure(LineageContextCall.CREATE_DATA_ASSET, () -> delegate.createDataAsset(assetManagerIsHome, assetProperties));
+    }
+
+    @Override
+    public void updateDataAsset(String assetGUID,
+                                boolean isMergeUpdate,
+                                DataAssetProperties assetProperties,
+                                Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        measure(LineageContextCall.UPDATE_DATA_ASSET, () -> {
+            delegate.updateDataAsset(assetGUID, isMergeUpdate, assetProperties, effectiveTime);
+            return null;
+        });
+    }
+
+    @Override
+    public DataAssetElement getDataAssetByGUID(String openMetadataGUID,
+                                               Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        return measure(LineageContextCall.GET_DATA_ASSET_BY_GUID, () -> delegate.getDataAssetByGUID(openMetadataGUID, effectiveTime));
+    }
+
+    @Override
+    public SchemaTypeElement getSchemaTypeForElement(String parentElementGUID,
+                                                     String parentElementTypeName,
+                                                     Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        return measure(LineageContextCall.GET_SCHEMA_TYPE_FOR_ELEMENT, () -> delegate.getSchemaTypeForElement(parentElementGUID, parentElementTypeName, effectiveTime));
+    }
+
+    @Override
+    public void updateSchemaType(String schemaTypeGUID,
+                                 boolean isMergeUpdate,
+                                 SchemaTypeProperties schemaTypeProperties,
+                                 Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        measure(LineageContextCall.UPDATE_SCHEMA_TYPE, () -> {
+            delegate.updateSchemaType(schemaTypeGUID, isMergeUpdate, schemaTypeProperties, effectiveTime);
+            return null;
+        });
+    }
+
+    @Override
+    public String createSchemaType(boolean assetManagerIsHome,
+                                   SchemaTypeProperties schemaTypeProperties) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        return measure(LineageContextCall.CREATE_SCHEMA_TYPE, () -> delegate.createSchemaType(assetManagerIsHome, schemaTypeProperties));
+    }
+
+    @Override
+    public void setupSchemaTypeParent(boolean assetManagerIsHome,
+                                      String schemaTypeGUID,
+                                      String parentElementGUID,
+                                      String parentElementTypeName,
+                                      RelationshipProperties properties,
+                                      Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        measure(LineageContextCall.SETUP_SCHEMA_TYPE_PARENT, () -> {
+            delegate.setupSchemaTypeParent(assetManagerIsHome, schemaTypeGUID, parentElementGUID, parentElementTypeName, properties, effectiveTime);
+            return null;
+        });
+    }
+
+    @Override
+    public SchemaTypeElement getSchemaTypeByGUID(String schemaTypeGUID,
+                                                 Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        return measure(LineageContextCall.GET_SCHEMA_TYPE_BY_GUID, () -> delegate.getSchemaTypeByGUID(schemaTypeGUID, effectiveTime));
+    }
+
+    @Override
+    public List<SchemaTypeElement> getSchemaTypeByName(String name,
+                                                       int startFrom,
+                                                       int pageSize,
+                                                       Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        return measure(LineageContextCall.GET_SCHEMA_TYPE_BY_NAME, () -> delegate.getSchemaTypeByName(name, startFrom, pageSize, effectiveTime));
+    }
+
+    @Override
+    public List<SchemaAttributeElement> getNestedSchemaAttributes(String parentSchemaElementGUID,
+                                                                  int startFrom,
+                                                                  int pageSize,
+                                                                  Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        return measure(LineageContextCall.GET_NESTED_SCHEMA_ATTRIBUTES, () -> delegate.getNestedSchemaAttributes(parentSchemaElementGUID, startFrom, pageSize, effectiveTime));
+    }
+
+    @Override
+    public String createSchemaAttribute(boolean assetManagerIsHome,
+                                        String schemaElementGUID,
+                                        SchemaAttributeProperties schemaAttributeProperties,
+                                        Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        return measure(LineageContextCall.CREATE_SCHEMA_ATTRIBUTE, () -> delegate.createSchemaAttribute(assetManagerIsHome, schemaElementGUID, schemaAttributeProperties, effectiveTime));
+    }
+
+    @Override
+    public void updateSchemaAttribute(String schemaAttributeGUID,
+                                      boolean isMergeUpdate,
+                                      SchemaAttributeProperties schemaAttributeProperties,
+                                      Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        measure(LineageContextCall.UPDATE_SCHEMA_ATTRIBUTE, () -> {
+            delegate.updateSchemaAttribute(schemaAttributeGUID, isMergeUpdate, schemaAttributeProperties, effectiveTime);
+            return null;
+        });
+    }
+
+    @Override
+    public void removeSchemaType(String schemaTypeGUID,
+                                 Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        measure(LineageContextCall.REMOVE_SCHEMA_TYPE, () -> {
+            delegate.removeSchemaType(schemaTypeGUID, effectiveTime);
+            return null;
+        });
+    }
+
+    @Override
+    public void removeSchemaAttribute(String schemaAttributeGUID,
+                                      Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        measure(LineageContextCall.REMOVE_SCHEMA_ATTRIBUTE, () -> {
+            delegate.removeSchemaAttribute(schemaAttributeGUID, effectiveTime);
+            return null;
+        });
+    }
+
+    @Override
+    public void updateProcess(String processGUID,
+                              boolean isMergeUpdate,
+                              ProcessProperties processProperties,
+                              Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        measure(LineageContextCall.UPDATE_PROCESS, () -> {
+            delegate.updateProcess(processGUID, isMergeUpdate, processProperties, effectiveTime);
+            return null;
+        });
+    }
+
+    @Override
+    public String createProcess(boolean assetManagerIsHome,
+                                ProcessStatus processStatus,
+                                ProcessProperties processProperties) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        return measure(LineageContextCall.CREATE_PROCESS, () -> delegate.createProcess(assetManagerIsHome, processStatus, processProperties));
+    }
+
+    @Override
+    public List<ProcessElement> getProcessesByName(String name,
+                                                   int startFrom,
+                                                   int pageSize,
+                                                   Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        return measure(LineageContextCall.GET_PROCESSES_BY_NAME, () -> delegate.getProcessesByName(name, startFrom, pageSize, effectiveTime));
+    }
+
+    @Override
+    public String setupDataFlow(boolean assetManagerIsHome,
+                                String dataSupplierGUID,
+                                String dataConsumerGUID,
+                                DataFlowProperties properties,
+                                Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        return measure(LineageContextCall.SETUP_DATA_FLOW, () -> delegate.setupDataFlow(assetManagerIsHome, dataSupplierGUID, dataConsumerGUID, properties, effectiveTime));
+    }
+
+    @Override
+    public void updateDataFlow(String dataFlowGUID,
+                               DataFlowProperties properties,
+                               Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        measure(LineageContextCall.UPDATE_DATA_FLOW, () -> {
+            delegate.updateDataFlow(dataFlowGUID, properties, effectiveTime);
+            return null;
+        });
+    }
+
+    @Override
+    public void clearDataFlow(String dataFlowGUID,
+                              Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        measure(LineageContextCall.CLEAR_DATA_FLOW, () -> {
+            delegate.clearDataFlow(dataFlowGUID, effectiveTime);
+            return null;
+        });
+    }
+
+    @Override
+    public DataFlowElement getDataFlow(String dataSupplierGUID,
+                                       String dataConsumerGUID,
+                                       String qualifiedName,
+                                       Date effectiveTime) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        return measure(LineageContextCall.GET_DATA_FLOW, () -> delegate.getDataFlow(dataSupplierGUID, dataConsumerGUID, qualifiedName, effectiveTime));
+    }
+
+    @Override
+    public void setupSchemaElementRelationship(boolean assetManagerIsHome,
+                                               String endOneGUID,
+                                               String endTwoGUID,
+                                               String relationshipName,
+                                               Date effectiveTime,
+                                               RelationshipProperties properties) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        measure(LineageContextCall.SETUP_SCHEMA_ELEMENT_RELATIONSHIP, () -> {
+            delegate.setupSchemaElementRelationship(assetManagerIsHome, endOneGUID, endTwoGUID, relationshipName, effectiveTime, properties);
+            return null;
+        });
+    }
+
+    @Override
+    public String createAnchoredSchemaType(boolean assetManagerIsHome,
+                                           String anchorGUID,
+                                           ExternalIdentifierProperties externalIdentifierProperties,
+                                           SchemaTypeProperties schemaTypeProperties) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        return measure(LineageContextCall.CREATE_ANCHORED_SCHEMA_TYPE, () -> delegate.createAnchoredSchemaType(assetManagerIsHome, anchorGUID, externalIdentifierProperties, schemaTypeProperties));
+    }
+}
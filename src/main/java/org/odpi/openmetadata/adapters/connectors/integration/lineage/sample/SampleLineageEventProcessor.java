@@ -6,36 +6,70 @@ package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
 import org.odpi.openmetadata.accessservices.assetmanager.metadataelements.DataAssetElement;
 import org.odpi.openmetadata.accessservices.assetmanager.metadataelements.DataFlowElement;
 import org.odpi.openmetadata.accessservices.assetmanager.metadataelements.ProcessElement;
+import org.odpi.openmetadata.accessservices.assetmanager.metadataelements.SchemaAttributeElement;
 import org.odpi.openmetadata.accessservices.assetmanager.metadataelements.SchemaTypeElement;
 import org.odpi.openmetadata.accessservices.assetmanager.properties.*;
 import org.odpi.openmetadata.adapters.connectors.integration.lineage.sample.ffdc.LineageEventSampleEventConnectorAuditCode;
 import org.odpi.openmetadata.frameworks.auditlog.AuditLog;
 import org.odpi.openmetadata.frameworks.connectors.ffdc.InvalidParameterException;
+import org.odpi.openmetadata.frameworks.connectors.ffdc.OCFCheckedExceptionBase;
 import org.odpi.openmetadata.frameworks.connectors.ffdc.PropertyServerException;
 import org.odpi.openmetadata.frameworks.connectors.ffdc.UserNotAuthorizedException;
 import org.odpi.openmetadata.integrationservices.lineage.connector.LineageIntegratorContext;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * This class processes an event. The code here has been extracted from the integration connector, so it is easier to unit test.
  * The event payload is a proprietary format. This sample shows that it is possible to process events containing lineage information
  * that are not the open lineage format.
+ * <p>
+ * The processor holds no state for the event being processed, so one processor can be shared by several threads.
+ * When a metadata call executor is supplied, the independent metadata calls of an event (the upsert of each asset and
+ * the upsert of each DataFlow) are issued concurrently on that executor, which is intended to be a virtual thread per
+ * task executor.
+ * <p>
+ * The metadata caches remember the GUIDs of the assets, processes and DataFlows already seen, so they can be updated
+ * without searching for them first, and the fingerprint of the schema last catalogued for each asset, so an unchanged
+ * schema is not catalogued again.
+ * <p>
+ * Events for different processes may be processed at the same time and often share input and output assets, so the
+ * upsert of an asset, and the cataloguing of its schema, hold a lock for the asset's qualifiedName. Otherwise two
+ * events could both miss the asset and create it twice, or remove and create its EventTypeList at the same time.
  */
 
 public class SampleLineageEventProcessor {
 
     public static final String EVENT_SCHEMA_ATTRIBUTE = "EventSchemaAttribute";
     public static final String PRIMITIVE_SCHEMA_TYPE = "PrimitiveSchemaType";
-    private final AuditLog auditLog;
+    private static final int PAGE_SIZE = 1000;
+    private static final int ASSET_LOCK_STRIPES = 64;
+    // reported by the repository handler when no element has the GUID
+    private static final String UNKNOWN_GUID_MESSAGE_ID = "OMAG-REPOSITORY-HANDLER-404-001";
+    private LineageEventAuditLog auditLog;
     private final String connectorName;
     private final boolean assetManagerIsHome = true;
-    private LineageIntegratorContext myContext;
-    private List<String> inAssetGUIDs = null;
-    private List<String> outAssetGUIDs = null;
+    private LineageMetadataContext myContext;
+    private final ExecutorService metadataCallExecutor;
+    private final LineageMetadataCaches metadataCaches;
+    // the upserts of assets that share a stripe are serialized
+    private final ReentrantLock[] assetLocks = new ReentrantLock[ASSET_LOCK_STRIPES];
+    private boolean reconcileSchemas = false;
+    private LineageEventMetrics metrics = new LineageEventMetrics();
+    private LineageEventTracer tracer = new LineageEventTracer(0, 0, null, null);
 
 
     /**
@@ -46,9 +80,159 @@ public class SampleLineageEventProcessor {
      * @param connectorName connector name
      */
     public SampleLineageEventProcessor(LineageIntegratorContext myContext, AuditLog auditLog, String connectorName) {
+        this(myContext, auditLog, connectorName, null);
+    }
+
+    /**
+     * Constructor for SampleLineageEventProcessor
+     *
+     * @param myContext            LineageIntegratorContext on which we communicate with the Egeria eco-system.
+     * @param auditLog             audit log
+     * @param connectorName        connector name
+     * @param metadataCallExecutor executor for the independent metadata calls of an event, null to issue them in turn
+     */
+    public SampleLineageEventProcessor(LineageIntegratorContext myContext, AuditLog auditLog, String connectorName, ExecutorService metadataCallExecutor) {
+        this(myContext, auditLog, connectorName, metadataCallExecutor, LineageMetadataCaches.disabled());
+    }
+
+    /**
+     * Constructor for SampleLineageEventProcessor
+     *
+     * @param myContext            LineageIntegratorContext on which we communicate with the Egeria eco-system.
+     * @param auditLog             audit log
+     * @param connectorName        connector name
+     * @param metadataCallExecutor executor for the independent metadata calls of an event, null to issue them in turn
+     * @param metadataCaches       caches of metadata already seen, shared with the other processors of the connector
+     */
+    public SampleLineageEventProcessor(LineageIntegratorContext myContext,
+                                       AuditLog auditLog,
+                                       String connectorName,
+                                       ExecutorService metadataCallExecutor,
+                                       LineageMetadataCaches metadataCaches) {
+        this(LineageMetadataContext.of(myContext), auditLog, connectorName, metadataCallExecutor, metadataCaches);
+    }
+
+    /**
+     * Constructor for SampleLineageEventProcessor
+     *
+     * @param myContext     context through which the processor makes its metadata calls, for example a
+     *                      MeasuredLineageIntegratorContext
+     * @param auditLog      audit log
+     * @param connectorName connector name
+     */
+    public SampleLineageEventProcessor(LineageMetadataContext myContext, AuditLog auditLog, String connectorName) {
+        this(myContext, auditLog, connectorName, null);
+    }
+
+    /**
+     * Constructor for SampleLineageEventProcessor
+     *
+     * @param myContext            context through which the processor makes its metadata calls, for example a
+     *                             MeasuredLineageIntegratorContext
+     * @param auditLog             audit log
+     * @param connectorName        connector name
+     * @param metadataCallExecutor executor for the independent metadata calls of an event, null to issue them in turn
+     */
+    public SampleLineageEventProcessor(LineageMetadataContext myContext, AuditLog auditLog, String connectorName, ExecutorService metadataCallExecutor) {
+        this(myContext, auditLog, connectorName, metadataCallExecutor, LineageMetadataCaches.disabled());
+    }
+
+    /**
+     * Constructor for SampleLineageEventProcessor
+     *
+     * @param myContext            context through which the processor makes its metadata calls, for example a
+     *                             MeasuredLineageIntegratorContext
+     * @param auditLog             audit log
+     * @param connectorName        connector name
+     * @param metadataCallExecutor executor for the independent metadata calls of an event, null to issue them in turn
+     * @param metadataCaches       caches of metadata already seen, shared with the other processors of the connector
+     */
+    public SampleLineageEventProcessor(LineageMetadataContext myContext,
+                                       AuditLog auditLog,
+                                       String connectorName,
+                                       ExecutorService metadataCallExecutor,
+                                       LineageMetadataCaches metadataCaches) {
         this.myContext = myContext;
-        this.auditLog = auditLog;
+        this.auditLog = new LineageEventAuditLog(auditLog);
         this.connectorName = connectorName;
+        this.metadataCallExecutor = metadataCallExecutor;
+        this.metadataCaches = metadataCaches;
+        for (int i = 0; i < assetLocks.length; i++) {
+            assetLocks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Choose how a changed schema is catalogued. By default the existing schema type is removed and the whole schema
+     * is created again. When reconciling, the existing EventTypes and attributes are compared with the json by
+     * qualifiedName and only the differences are created, updated or removed, so existing elements keep their GUIDs.
+     * This must be set before the processor is used.
+     *
+     * @param reconcileSchemas true to reconcile changed schemas
+     */
+    public void setReconcileSchemas(boolean reconcileSchemas) {
+        this.reconcileSchemas = reconcileSchemas;
+    }
+
+    /**
+     * Log through an audit log that samples and rate limits the messages, shared with the connector. By default every
+     * message is logged to the audit log passed to the constructor. This must be set before the processor is used.
+     *
+     * @param auditLog audit log with the connector's audit policy
+     */
+    public void setAuditLog(LineageEventAuditLog auditLog) {
+        this.auditLog = auditLog;
+    }
+
+    /**
+     * Record the outcome of each event and the time taken by each stage in the connector's metrics. By default they
+     * are recorded in metrics of the processor's own. This must be set before the processor is used.
+     *
+     * @param metrics metrics shared with the connector
+     */
+    public void setMetrics(LineageEventMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Trace the stages of each event, or batch of events, with the connector's tracer. By default the trace of each
+     * event is only used to count its round trips for the JDK Flight Recorder events, and is not kept. This must be
+     * set before the processor is used.
+     *
+     * @param tracer tracer shared with the connector
+     */
+    public void setTracer(LineageEventTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    /**
+     * Record the time taken by a stage in the metrics and in the trace of the event.
+     *
+     * @param stage      processing stage
+     * @param startNanos start time from System.nanoTime()
+     */
+    private void recordStage(LineageEventMetrics.Stage stage, long startNanos) {
+        long durationNanos = System.nanoTime() - startNanos;
+        metrics.getStageLatency(stage).record(durationNanos);
+        tracer.recordSpan(stage.getStageName(), startNanos, durationNanos);
+    }
+
+    /**
+     * Start the trace of an event, or of a batch of events, from the decode of the message holding the first event.
+     *
+     * @param eventContent first event
+     * @param eventCount   number of events
+     * @return trace, or null if nothing is traced
+     */
+    private LineageEventTrace beginTrace(LineageEventContentforSample eventContent, int eventCount) {
+        long decodeStartNanos = eventContent.getDecodeStartNanos();
+        String label = eventCount == 1 ? eventContent.getProcessQualifiedName()
+                                       : eventContent.getProcessQualifiedName() + " and " + (eventCount - 1) + " more events";
+        LineageEventTrace trace = tracer.begin(label, decodeStartNanos == 0 ? System.nanoTime() : decodeStartNanos);
+        if (trace != null && decodeStartNanos != 0) {
+            trace.addSpan(LineageEventMetrics.Stage.DECODE.getStageName(), decodeStartNanos, eventContent.getDecodeDurationNanos());
+        }
+        return trace;
     }
 
     private static SchemaAttributeProperties getSchemaAttributeProperties(LineageEventContentforSample.Attribute attribute) {
@@ -72,48 +256,155 @@ public class SampleLineageEventProcessor {
      * Process the event.
      *
      * @param eventContent event content to process
+     * @return true if the event was processed, false if the error that stopped it has been logged
      */
-    public void processEvent(LineageEventContentforSample eventContent) {
-        String methodName = "processEvent";
+    public boolean processEvent(LineageEventContentforSample eventContent) {
+        LineageEventTrace trace = beginTrace(eventContent, 1);
         try {
             // upsert in assets
-            inAssetGUIDs = upsertAssets(eventContent.getInputAssets());
+            List<String> inAssetGUIDs = upsertAssets(eventContent.getInputAssets());
             // upsert out assets
-            outAssetGUIDs = upsertAssets(eventContent.getOutputAssets());
-            saveLineage(eventContent);
+            List<String> outAssetGUIDs = upsertAssets(eventContent.getOutputAssets());
+            saveLineage(eventContent, inAssetGUIDs, outAssetGUIDs);
+            metrics.recordSucceeded();
+            return true;
 
-        } catch (InvalidParameterException error) {
-            if (auditLog != null) {
-                auditLog.logMessage(methodName,
-                        LineageEventSampleEventConnectorAuditCode.INVALID_PARAMETER_EXCEPTION.getMessageDefinition(
-                                error.getClass().getName(),
-                                connectorName,
-                                error.getMessage()));
-            }
-        } catch (PropertyServerException error) {
-            if (auditLog != null) {
-                auditLog.logMessage(methodName,
-                        LineageEventSampleEventConnectorAuditCode.PROPERTY_SERVER_EXCEPTION.getMessageDefinition(
-                                error.getClass().getName(),
-                                connectorName,
-                                error.getMessage()));
+        } catch (Exception error) {
+            logProcessingError(error);
+            return false;
+        } finally {
+            tracer.end(trace);
+        }
+    }
+
+    /**
+     * Process a batch of events. Each distinct asset of the batch, by qualifiedName, is upserted once with the values
+     * from the latest event that mentions it. Then the process and DataFlow lineage of each event is saved in turn.
+     * <p>
+     * An asset that cannot be upserted is tried again for each event that mentions it, when that event's turn comes,
+     * so a bad asset only stops the events that mention it. The assets that were upserted are not upserted again.
+     *
+     * @param eventContents events to process, in the order they arrived
+     * @return number of events that were processed; the errors that stopped the others have been logged
+     */
+    public int processEvents(List<LineageEventContentforSample> eventContents) {
+        if (eventContents.size() == 1) {
+            return processEvent(eventContents.get(0)) ? 1 : 0;
+        }
+        LineageEventTrace trace = beginTrace(eventContents.get(0), eventContents.size());
+        try {
+            return processBatch(eventContents);
+        } finally {
+            tracer.end(trace);
+        }
+    }
+
+    /**
+     * Process a batch of more than one event, see processEvents.
+     *
+     * @param eventContents events to process, in the order they arrived
+     * @return number of events that were processed
+     */
+    private int processBatch(List<LineageEventContentforSample> eventContents) {
+        Map<String, LineageEventContentforSample.AssetFromJSON> distinctAssets = new LinkedHashMap<>();
+        for (LineageEventContentforSample eventContent : eventContents) {
+            for (LineageEventContentforSample.AssetFromJSON jsonAsset : eventContent.getInputAssets()) {
+                distinctAssets.put(jsonAsset.getQualifiedName(), jsonAsset);
             }
-        } catch (UserNotAuthorizedException error) {
-            if (auditLog != null) {
-                auditLog.logMessage(methodName,
-                        LineageEventSampleEventConnectorAuditCode.USER_NOT_AUTHORISED_EXCEPTION.getMessageDefinition(
-                                error.getClass().getName(),
-                                connectorName,
-                                error.getMessage()));
+            for (LineageEventContentforSample.AssetFromJSON jsonAsset : eventContent.getOutputAssets()) {
+                distinctAssets.put(jsonAsset.getQualifiedName(), jsonAsset);
             }
+        }
+        Map<String, Exception> failedAssets = new HashMap<>();
+        Map<String, String> assetGUIDs;
+        try {
+            assetGUIDs = new HashMap<>(upsertAssets(new ArrayList<>(distinctAssets.values()), failedAssets));
         } catch (Exception error) {
-            if (auditLog != null) {
-                auditLog.logException(methodName,
-                        LineageEventSampleEventConnectorAuditCode.UNEXPECTED_EXCEPTION.getMessageDefinition(
-                                error.getClass().getName(),
-                                connectorName,
-                                error.getMessage()), error);
+            // each failure is kept against its asset, so this is a bug: report it and fail the whole batch
+            logProcessingError(error);
+            for (int i = 1; i < eventContents.size(); i++) {
+                metrics.recordFailed(error);
             }
+            return 0;
+        }
+        int processedEvents = 0;
+        for (LineageEventContentforSample eventContent : eventContents) {
+            try {
+                List<LineageEventContentforSample.AssetFromJSON> retriedAssets = new ArrayList<>();
+                for (LineageEventContentforSample.AssetFromJSON jsonAsset : eventContent.getInputAssets()) {
+                    if (failedAssets.containsKey(jsonAsset.getQualifiedName())) {
+                        retriedAssets.add(distinctAssets.get(jsonAsset.getQualifiedName()));
+                    }
+                }
+                for (LineageEventContentforSample.AssetFromJSON jsonAsset : eventContent.getOutputAssets()) {
+                    if (failedAssets.containsKey(jsonAsset.getQualifiedName())) {
+                        retriedAssets.add(distinctAssets.get(jsonAsset.getQualifiedName()));
+                    }
+                }
+                if (!retriedAssets.isEmpty()) {
+                    // only the assets that failed are tried again, with the values from the latest event
+                    Map<String, String> retriedAssetGUIDs = upsertAssets(retriedAssets, null);
+                    assetGUIDs.putAll(retriedAssetGUIDs);
+                    failedAssets.keySet().removeAll(retriedAssetGUIDs.keySet());
+                }
+                saveLineage(eventContent, getAssetGUIDs(eventContent.getInputAssets(), assetGUIDs), getAssetGUIDs(eventContent.getOutputAssets(), assetGUIDs));
+                metrics.recordSucceeded();
+                processedEvents++;
+            } catch (Exception error) {
+                logProcessingError(error);
+            }
+        }
+        return processedEvents;
+    }
+
+    /**
+     * Look up the GUIDs of the supplied assets from the assets upserted for a batch.
+     *
+     * @param jsonAssets json assets
+     * @param assetGUIDs asset GUIDs by qualifiedName
+     * @return asset GUIDs in the same order as the assets
+     */
+    private List<String> getAssetGUIDs(List<LineageEventContentforSample.AssetFromJSON> jsonAssets, Map<String, String> assetGUIDs) {
+        List<String> guids = new ArrayList<>();
+        for (LineageEventContentforSample.AssetFromJSON jsonAsset : jsonAssets) {
+            guids.add(assetGUIDs.get(jsonAsset.getQualifiedName()));
+        }
+        return guids;
+    }
+
+    /**
+     * Log an error that stopped the processing of an event, and count the event as failed.
+     *
+     * @param error the error
+     */
+    private void logProcessingError(Exception error) {
+        String methodName = "processEvent";
+        metrics.recordFailed(error);
+        if (error instanceof InvalidParameterException) {
+            auditLog.logMessage(methodName,
+                    LineageEventSampleEventConnectorAuditCode.INVALID_PARAMETER_EXCEPTION,
+                    error.getClass().getName(),
+                    connectorName,
+                    error.getMessage());
+        } else if (error instanceof PropertyServerException) {
+            auditLog.logMessage(methodName,
+                    LineageEventSampleEventConnectorAuditCode.PROPERTY_SERVER_EXCEPTION,
+                    error.getClass().getName(),
+                    connectorName,
+                    error.getMessage());
+        } else if (error instanceof UserNotAuthorizedException) {
+            auditLog.logMessage(methodName,
+                    LineageEventSampleEventConnectorAuditCode.USER_NOT_AUTHORISED_EXCEPTION,
+                    error.getClass().getName(),
+                    connectorName,
+                    error.getMessage());
+        } else {
+            auditLog.logException(methodName,
+                    LineageEventSampleEventConnectorAuditCode.UNEXPECTED_EXCEPTION,
+                    error,
+                    error.getClass().getName(),
+                    connectorName,
+                    error.getMessage());
         }
     }
 
@@ -130,18 +421,126 @@ public class SampleLineageEventProcessor {
      * @throws UserNotAuthorizedException user is not authorised
      * @throws PropertyServerException    property server Exception
      */
-    @SuppressWarnings("JavaUtilDate")
     public List<String> upsertAssets(List<LineageEventContentforSample.AssetFromJSON> jsonAssets) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        return getAssetGUIDs(jsonAssets, upsertAssets(jsonAssets, null));
+    }
+
+    /**
+     * Upsert each distinct asset once, concurrently with the other assets when there is a metadata call executor.
+     *
+     * @param jsonAssets   json assets
+     * @param failedAssets null to stop at the first asset that fails, rethrowing its error once the other upserts have
+     *                     finished; otherwise the error of each asset that fails is put in here by qualifiedName and
+     *                     the other assets are still upserted
+     * @return GUIDs of the upserted assets by qualifiedName
+     * @throws InvalidParameterException  invalid parameter exception
+     * @throws UserNotAuthorizedException user is not authorised
+     * @throws PropertyServerException    property server Exception
+     */
+    private Map<String, String> upsertAssets(List<LineageEventContentforSample.AssetFromJSON> jsonAssets,
+                                             Map<String, Exception> failedAssets) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        long startNanos = System.nanoTime();
+        int roundTripsAtStart = tracer.getRoundTrips();
+        LineageEventJfrEvents.UpsertAssetsEvent jfrEvent = new LineageEventJfrEvents.UpsertAssetsEvent();
+        jfrEvent.begin();
+        try {
+            Map<String, Future<String>> pendingUpserts = new LinkedHashMap<>();
+            try {
+                for (LineageEventContentforSample.AssetFromJSON jsonAsset : jsonAssets) {
+                    String assetQualifiedName = jsonAsset.getQualifiedName();
+                    if (!pendingUpserts.containsKey(assetQualifiedName)) {
+                        try {
+                            pendingUpserts.put(assetQualifiedName, issueMetadataCall(() -> upsertAsset(jsonAsset)));
+                        } catch (InvalidParameterException | UserNotAuthorizedException | PropertyServerException | RuntimeException error) {
+                            if (failedAssets == null) {
+                                throw error;
+                            }
+                            failedAssets.put(assetQualifiedName, error);
+                        }
+                    }
+                }
+                Map<String, String> assetGUIDs = new HashMap<>();
+                for (Map.Entry<String, Future<String>> pendingUpsert : pendingUpserts.entrySet()) {
+                    try {
+                        assetGUIDs.put(pendingUpsert.getKey(), waitForMetadataCall(pendingUpsert.getValue()));
+                    } catch (InvalidParameterException | UserNotAuthorizedException | PropertyServerException | RuntimeException error) {
+                        if (failedAssets == null) {
+                            throw error;
+                        }
+                        failedAssets.put(pendingUpsert.getKey(), error);
+                    }
+                }
+                return assetGUIDs;
+            } catch (InvalidParameterException | UserNotAuthorizedException | PropertyServerException | RuntimeException error) {
+                awaitMetadataCalls(pendingUpserts.values());
+                throw error;
+            }
+        } finally {
+            recordStage(LineageEventMetrics.Stage.UPSERT_ASSETS, startNanos);
+            if (jfrEvent.shouldCommit()) {
+                jfrEvent.label = tracer.getActiveLabel();
+                jfrEvent.assetCount = jsonAssets.size();
+                jfrEvent.attributeCount = LineageEventJfrEvents.getAttributeCount(jsonAssets);
+                jfrEvent.roundTrips = tracer.getRoundTrips() - roundTripsAtStart;
+                jfrEvent.commit();
+            }
+        }
+    }
+
+    /**
+     * Upsert a single asset, and catalogue its schema if it has one, while holding the lock for its qualifiedName.
+     * The lock is held on its own, so two upserts can never wait for each other's locks.
+     *
+     * @param jsonAsset json asset
+     * @return the GUID of the asset
+     * @throws InvalidParameterException  invalid parameter exception
+     * @throws UserNotAuthorizedException user is not authorised
+     * @throws PropertyServerException    property server Exception
+     */
+    private String upsertAsset(LineageEventContentforSample.AssetFromJSON jsonAsset) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        ReentrantLock assetLock = assetLocks[Math.floorMod(Objects.hashCode(jsonAsset.getQualifiedName()), assetLocks.length)];
+        assetLock.lock();
+        try {
+            return upsertLockedAsset(jsonAsset);
+        } finally {
+            assetLock.unlock();
+        }
+    }
+
+    /**
+     * Upsert a single asset, and catalogue its schema if it has one. The caller holds the lock for the asset.
+     *
+     * @param jsonAsset json asset
+     * @return the GUID of the asset
+     * @throws InvalidParameterException  invalid parameter exception
+     * @throws UserNotAuthorizedException user is not authorised
+     * @throws PropertyServerException    property server Exception
+     */
+    @SuppressWarnings("JavaUtilDate")
+    private String upsertLockedAsset(LineageEventContentforSample.AssetFromJSON jsonAsset) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
         String methodName = "upsertAssets";
-        List<String> assetGUIDs = new ArrayList<>();
-        for (LineageEventContentforSample.AssetFromJSON jsonAsset : jsonAssets) {
-            String assetQualifiedName = jsonAsset.getQualifiedName();
-            String assetGUID = null;
+        String assetQualifiedName = jsonAsset.getQualifiedName();
+        String assetGUID = null;
+        DataAssetProperties assetProperties = new DataAssetProperties();
+        assetProperties.setTypeName(jsonAsset.getTypeName());
+        assetProperties.setQualifiedName(assetQualifiedName);
+        assetProperties.setTechnicalName(jsonAsset.getDisplayName());
+        LineageMetadataCaches.CachedDataAsset cachedAsset = metadataCaches.getDataAssets().get(assetQualifiedName);
+        if (cachedAsset != null && Objects.equals(cachedAsset.getTypeName(), jsonAsset.getTypeName())) {
+            // asset seen before - update it without searching for it
+            try {
+                updateDataAsset(cachedAsset.getGUID(), assetProperties);
+                assetGUID = cachedAsset.getGUID();
+            } catch (InvalidParameterException | PropertyServerException error) {
+                if (!isUnknownElementError(error)) {
+                    throw error;
+                }
+                // the cached asset is no longer there, so look it up again
+                metadataCaches.getDataAssets().invalidate(assetQualifiedName);
+            }
+        }
+        if (assetGUID == null) {
             List<DataAssetElement> dataAssetElements = myContext.getDataAssetsByName(assetQualifiedName, 0, 1000, null);
-            DataAssetProperties assetProperties = new DataAssetProperties();
-            assetProperties.setTypeName(jsonAsset.getTypeName());
-            assetProperties.setQualifiedName(assetQualifiedName);
-            assetProperties.setTechnicalName(jsonAsset.getDisplayName());
             if (dataAssetElements == null || dataAssetElements.isEmpty()) {
                 // create asset
                 try {
@@ -152,9 +551,7 @@ public class SampleLineageEventProcessor {
                             error.getReportedErrorMessageId().equals("OMAG-COMMON-409-001")
                     ) {
                         // qualifiedName already exists and is not a Data Asset.
-                        if (auditLog != null) {
-                            auditLog.logMessage(methodName, LineageEventSampleEventConnectorAuditCode.CREATE_ASSET_ATTEMPTED_WITH_EXISTING_QUALIFIEDNAME.getMessageDefinition(assetQualifiedName));
-                        }
+                        auditLog.logMessage(methodName, LineageEventSampleEventConnectorAuditCode.CREATE_ASSET_ATTEMPTED_WITH_EXISTING_QUALIFIEDNAME, assetQualifiedName);
                         throw error;
                     }
                 }
@@ -163,38 +560,112 @@ public class SampleLineageEventProcessor {
                 DataAssetElement dataAssetElement = dataAssetElements.get(0);
                 if (dataAssetElement.getElementHeader() != null) {
                     assetGUID = dataAssetElement.getElementHeader().getGUID();
-                    try {
-                        myContext.updateDataAsset(assetGUID, assetManagerIsHome, assetProperties, new Date());
-                    } catch (UserNotAuthorizedException error) {
-                        if (error.getReportedErrorMessageId().equals("OMAG-REPOSITORY-HANDLER-400-007")) {
-                            // cannot update this asset as it is already owned by another metadata collection
-                            // log and carry on processing
-                            if (auditLog != null) {
-                                String[] msgParams = error.getReportedErrorMessageParameters();
-                                auditLog.logMessage(methodName,
-                                        LineageEventSampleEventConnectorAuditCode.UPDATE_ASSET_FAILED_OWNED_BY_DIFFERENT_EXTERNAL_SOURCE.getMessageDefinition(
-                                                methodName,
-                                                msgParams[1],
-                                                msgParams[2],
-                                                msgParams[3],
-                                                msgParams[4],
-                                                msgParams[5],
-                                                msgParams[6],
-                                                msgParams[7]
-                                        ));
-                            }
-                        }
-                    }
+                    updateDataAsset(assetGUID, assetProperties);
                 }
             }
-            assetGUIDs.add(assetGUID);
-            List<LineageEventContentforSample.EventTypeFromJSON> eventTypes = jsonAsset.getEventTypes();
-            if (eventTypes != null && eventTypes.size() > 0) {
+            if (assetGUID != null) {
+                metadataCaches.getDataAssets().put(assetQualifiedName, new LineageMetadataCaches.CachedDataAsset(assetGUID, jsonAsset.getTypeName()));
+            }
+        }
+        List<LineageEventContentforSample.EventTypeFromJSON> eventTypes = jsonAsset.getEventTypes();
+        if (assetGUID != null && eventTypes != null && eventTypes.size() > 0) {
+            // only catalogue the schema if it has changed since it was last catalogued for this asset
+            String schemaFingerprint = jsonAsset.getSchemaFingerprint();
+            if (!schemaFingerprint.equals(metadataCaches.getSchemaFingerprints().get(assetGUID))) {
                 ensureSchemaIsCatalogued(jsonAsset, assetGUID);
+                metadataCaches.getSchemaFingerprints().put(assetGUID, schemaFingerprint);
             }
+        }
+        return assetGUID;
+    }
 
+    /**
+     * Update an existing asset. An asset owned by another metadata collection cannot be updated, this is logged and
+     * the processing carries on.
+     *
+     * @param assetGUID       asset GUID
+     * @param assetProperties asset properties from the json
+     * @throws InvalidParameterException  invalid parameter exception, for example the asset no longer exists
+     * @throws UserNotAuthorizedException user is not authorised
+     * @throws PropertyServerException    property server Exception
+     */
+    @SuppressWarnings("JavaUtilDate")
+    private void updateDataAsset(String assetGUID, DataAssetProperties assetProperties) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        String methodName = "upsertAssets";
+        try {
+            myContext.updateDataAsset(assetGUID, assetManagerIsHome, assetProperties, new Date());
+        } catch (UserNotAuthorizedException error) {
+            if (error.getReportedErrorMessageId().equals("OMAG-REPOSITORY-HANDLER-400-007")) {
+                // cannot update this asset as it is already owned by another metadata collection
+                // log and carry on processing
+                String[] msgParams = error.getReportedErrorMessageParameters();
+                auditLog.logMessage(methodName,
+                        LineageEventSampleEventConnectorAuditCode.UPDATE_ASSET_FAILED_OWNED_BY_DIFFERENT_EXTERNAL_SOURCE,
+                        methodName,
+                        msgParams[1],
+                        msgParams[2],
+                        msgParams[3],
+                        msgParams[4],
+                        msgParams[5],
+                        msgParams[6],
+                        msgParams[7]);
+            }
+        }
+    }
+
+    /**
+     * Wait for a metadata call issued on the metadata call executor, rethrowing the exception it failed with.
+     *
+     * @param pendingCall the submitted call
+     * @param <T>         result type of the call
+     * @return the result of the call
+     * @throws InvalidParameterException  invalid parameter exception
+     * @throws UserNotAuthorizedException user is not authorised
+     * @throws PropertyServerException    property server Exception
+     */
+    private <T> T waitForMetadataCall(Future<T> pendingCall) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+        try {
+            return pendingCall.get();
+        } catch (InterruptedException error) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a metadata call", error);
+        } catch (ExecutionException error) {
+            Throwable cause = error.getCause();
+            if (cause instanceof InvalidParameterException invalidParameterException) {
+                throw invalidParameterException;
+            } else if (cause instanceof UserNotAuthorizedException userNotAuthorizedException) {
+                throw userNotAuthorizedException;
+            } else if (cause instanceof PropertyServerException propertyServerException) {
+                throw propertyServerException;
+            } else if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Wait for every call that is still pending once one of its siblings has failed, so no call of the event is left
+     * running after the event has finished. The outcome of these calls is not needed; the error of the sibling is the
+     * one reported. If the thread is interrupted, the calls that have not started yet are cancelled instead; the
+     * calls already running carry on, and the trace of the event only ends once they complete.
+     *
+     * @param pendingCalls calls issued for the same step of the event
+     */
+    private static void awaitMetadataCalls(Collection<? extends Future<?>> pendingCalls) {
+        for (Future<?> pendingCall : pendingCalls) {
+            try {
+                pendingCall.get();
+            } catch (ExecutionException | CancellationException error) {
+                // already failed or cancelled, so it is no longer running
+            } catch (InterruptedException error) {
+                Thread.currentThread().interrupt();
+                for (Future<?> call : pendingCalls) {
+                    call.cancel(false);
+                }
+                return;
+            }
         }
-        return assetGUIDs;
     }
 
     /**
@@ -204,6 +675,8 @@ public class SampleLineageEventProcessor {
      * <p>
      * This method does create, update delete on EventType (the schema type) and its schema attributes.
      * Deletion of the Event type is assumed to take out any schema attributes under it.
+     * <p>
+     * When reconciling schemas, an existing schema is updated in place instead of being removed and created again.
      *
      * @param assetFromJSON - the asset from the json
      * @param assetGUID     - asset GUID
@@ -213,27 +686,205 @@ public class SampleLineageEventProcessor {
      */
 
     private void ensureSchemaIsCatalogued(LineageEventContentforSample.AssetFromJSON assetFromJSON, String assetGUID) throws InvalidParameterException, PropertyServerException, UserNotAuthorizedException {
-        SchemaTypeElement schemaTypeForElement = myContext.getSchemaTypeForElement(assetGUID, assetFromJSON.getTypeName(), null);
-        if (schemaTypeForElement != null) {
-            myContext.removeSchemaType(schemaTypeForElement.getElementHeader().getGUID(), null);
-        }
-        SchemaTypeProperties typeProperties = new SchemaTypeProperties();
-        typeProperties.setQualifiedName(assetFromJSON.getQualifiedName() + "-EventTypes");
-        typeProperties.setDisplayName(assetFromJSON.getQualifiedName() + "-EventTypes");
-        typeProperties.setTypeName("EventTypeList");
-        String schemaTypeChoiceGUID = myContext.createAnchoredSchemaType(assetManagerIsHome, assetGUID, null, typeProperties);
-        for (LineageEventContentforSample.EventTypeFromJSON eventTypeFromJSON : assetFromJSON.getEventTypes()) {
-            SchemaTypeProperties schemaTypeProperties = new SchemaTypeProperties();
-            schemaTypeProperties.setTypeName("EventType");
-            schemaTypeProperties.setQualifiedName(eventTypeFromJSON.getQualifiedName());
-            schemaTypeProperties.setDisplayName(eventTypeFromJSON.getTechnicalName());
-            String schemaTypeGUID = myContext.createAnchoredSchemaType(assetManagerIsHome, schemaTypeChoiceGUID, null, schemaTypeProperties);
-            myContext.setupSchemaElementRelationship(assetManagerIsHome, schemaTypeChoiceGUID, schemaTypeGUID, "SchemaTypeOption", null, null);
-            for (LineageEventContentforSample.Attribute attribute : eventTypeFromJSON.getAttributes()) {
-                createPrimitiveSchemaAttribute(schemaTypeGUID, attribute);
+        long startNanos = System.nanoTime();
+        int roundTripsAtStart = tracer.getRoundTrips();
+        LineageEventJfrEvents.CatalogueSchemaEvent jfrEvent = new LineageEventJfrEvents.CatalogueSchemaEvent();
+        jfrEvent.begin();
+        try {
+            SchemaTypeElement schemaTypeForElement = myContext.getSchemaTypeForElement(assetGUID, assetFromJSON.getTypeName(), null);
+            if (schemaTypeForElement != null) {
+                if (reconcileSchemas) {
+                    reconcileEventTypes(schemaTypeForElement, assetFromJSON.getEventTypes());
+                    return;
+                }
+                myContext.removeSchemaType(schemaTypeForElement.getElementHeader().getGUID(), null);
+            }
+            SchemaTypeProperties typeProperties = new SchemaTypeProperties();
+            typeProperties.setQualifiedName(assetFromJSON.getQualifiedName() + "-EventTypes");
+            typeProperties.setDisplayName(assetFromJSON.getQualifiedName() + "-EventTypes");
+            typeProperties.setTypeName("EventTypeList");
+            String schemaTypeChoiceGUID = myContext.createAnchoredSchemaType(assetManagerIsHome, assetGUID, null, typeProperties);
+            for (LineageEventContentforSample.EventTypeFromJSON eventTypeFromJSON : assetFromJSON.getEventTypes()) {
+                createEventType(schemaTypeChoiceGUID, eventTypeFromJSON);
+            }
+            myContext.setupSchemaTypeParent(assetManagerIsHome, schemaTypeChoiceGUID, assetGUID, "KafkaTopic", null, null);
+        } finally {
+            recordStage(LineageEventMetrics.Stage.CATALOGUE_SCHEMA, startNanos);
+            if (jfrEvent.shouldCommit()) {
+                jfrEvent.label = tracer.getActiveLabel();
+                jfrEvent.assetQualifiedName = assetFromJSON.getQualifiedName();
+                jfrEvent.eventTypeCount = assetFromJSON.getEventTypes().size();
+                jfrEvent.attributeCount = assetFromJSON.getAttributeCount();
+                jfrEvent.roundTrips = tracer.getRoundTrips() - roundTripsAtStart;
+                jfrEvent.commit();
+            }
+        }
+    }
+
+    /**
+     * Create an EventType, with its attributes, as an option of the EventTypeList.
+     *
+     * @param schemaTypeChoiceGUID EventTypeList GUID
+     * @param eventTypeFromJSON    EventType from the json
+     * @throws InvalidParameterException  invalid parameter exception
+     * @throws UserNotAuthorizedException user is not authorised
+     * @throws PropertyServerException    property server Exception
+     */
+    private void createEventType(String schemaTypeChoiceGUID, LineageEventContentforSample.EventTypeFromJSON eventTypeFromJSON) throws InvalidParameterException, PropertyServerException, UserNotAuthorizedException {
+        String schemaTypeGUID = myContext.createAnchoredSchemaType(assetManagerIsHome, schemaTypeChoiceGUID, null, getEventTypeProperties(eventTypeFromJSON));
+        myContext.setupSchemaElementRelationship(assetManagerIsHome, schemaTypeChoiceGUID, schemaTypeGUID, "SchemaTypeOption", null, null);
+        for (LineageEventContentforSample.Attribute attribute : eventTypeFromJSON.getAttributes()) {
+            createPrimitiveSchemaAttribute(schemaTypeGUID, attribute);
+        }
+    }
+
+    private static SchemaTypeProperties getEventTypeProperties(LineageEventContentforSample.EventTypeFromJSON eventTypeFromJSON) {
+        SchemaTypeProperties schemaTypeProperties = new SchemaTypeProperties();
+        schemaTypeProperties.setTypeName("EventType");
+        schemaTypeProperties.setQualifiedName(eventTypeFromJSON.getQualifiedName());
+        schemaTypeProperties.setDisplayName(eventTypeFromJSON.getTechnicalName());
+        return schemaTypeProperties;
+    }
+
+    /**
+     * Bring the EventTypes of an existing EventTypeList in line with the EventTypes in the json. EventTypes are
+     * matched by qualifiedName; matching EventTypes are kept and their attributes reconciled, new ones are created and
+     * ones that are no longer in the json are removed.
+     *
+     * @param schemaTypeChoice   existing EventTypeList
+     * @param eventTypesFromJSON EventTypes from the json
+     * @throws InvalidParameterException  invalid parameter exception
+     * @throws UserNotAuthorizedException user is not authorised
+     * @throws PropertyServerException    property server Exception
+     */
+    private void reconcileEventTypes(SchemaTypeElement schemaTypeChoice, List<LineageEventContentforSample.EventTypeFromJSON> eventTypesFromJSON) throws InvalidParameterException, PropertyServerException, UserNotAuthorizedException {
+        String schemaTypeChoiceGUID = schemaTypeChoice.getElementHeader().getGUID();
+        Map<String, SchemaTypeElement> existingEventTypes = new LinkedHashMap<>();
+        for (SchemaTypeElement existingEventType : getExistingEventTypes(schemaTypeChoice, eventTypesFromJSON)) {
+            existingEventTypes.put(existingEventType.getSchemaTypeProperties().getQualifiedName(), existingEventType);
+        }
+        for (LineageEventContentforSample.EventTypeFromJSON eventTypeFromJSON : eventTypesFromJSON) {
+            SchemaTypeElement existingEventType = existingEventTypes.remove(eventTypeFromJSON.getQualifiedName());
+            if (existingEventType == null) {
+                createEventType(schemaTypeChoiceGUID, eventTypeFromJSON);
+            } else {
+                String schemaTypeGUID = existingEventType.getElementHeader().getGUID();
+                if (!Objects.equals(existingEventType.getSchemaTypeProperties().getDisplayName(), eventTypeFromJSON.getTechnicalName())) {
+                    myContext.updateSchemaType(schemaTypeGUID, false, getEventTypeProperties(eventTypeFromJSON), null);
+                }
+                reconcileSchemaAttributes(schemaTypeGUID, eventTypeFromJSON.getAttributes());
+            }
+        }
+        for (SchemaTypeElement removedEventType : existingEventTypes.values()) {
+            myContext.removeSchemaType(removedEventType.getElementHeader().getGUID(), null);
+        }
+    }
+
+    /**
+     * Return the EventTypes of an existing EventTypeList. The options are not always filled in on the element returned
+     * for the asset, so when they are missing the EventTypeList is retrieved by its GUID, and if its options are still
+     * missing, each EventType in the json is looked up by its qualifiedName. In that last case an EventType that is no
+     * longer in the json cannot be found, so it is left in place rather than removed.
+     *
+     * @param schemaTypeChoice   existing EventTypeList
+     * @param eventTypesFromJSON EventTypes from the json
+     * @return existing EventTypes
+     * @throws InvalidParameterException  invalid parameter exception
+     * @throws UserNotAuthorizedException user is not authorised
+     * @throws PropertyServerException    property server Exception
+     */
+    private List<SchemaTypeElement> getExistingEventTypes(SchemaTypeElement schemaTypeChoice, List<LineageEventContentforSample.EventTypeFromJSON> eventTypesFromJSON) throws InvalidParameterException, PropertyServerException, UserNotAuthorizedException {
+        if (schemaTypeChoice.getSchemaOptions() != null) {
+            return schemaTypeChoice.getSchemaOptions();
+        }
+        SchemaTypeElement retrievedSchemaTypeChoice = myContext.getSchemaTypeByGUID(schemaTypeChoice.getElementHeader().getGUID(), null);
+        if (retrievedSchemaTypeChoice != null && retrievedSchemaTypeChoice.getSchemaOptions() != null) {
+            return retrievedSchemaTypeChoice.getSchemaOptions();
+        }
+        List<SchemaTypeElement> existingEventTypes = new ArrayList<>();
+        for (LineageEventContentforSample.EventTypeFromJSON eventTypeFromJSON : eventTypesFromJSON) {
+            List<SchemaTypeElement> schemaTypes = myContext.getSchemaTypeByName(eventTypeFromJSON.getQualifiedName(), 0, PAGE_SIZE, null);
+            if (schemaTypes != null) {
+                for (SchemaTypeElement schemaType : schemaTypes) {
+                    if (schemaType.getSchemaTypeProperties() != null &&
+                            eventTypeFromJSON.getQualifiedName().equals(schemaType.getSchemaTypeProperties().getQualifiedName())) {
+                        existingEventTypes.add(schemaType);
+                        break;
+                    }
+                }
+            }
+        }
+        return existingEventTypes;
+    }
+
+    /**
+     * Return all the schema attributes nested under a schema element, a page at a time.
+     *
+     * @param parentGUID GUID of the EventType or of the parent attribute
+     * @return nested schema attributes
+     * @throws InvalidParameterException  invalid parameter exception
+     * @throws UserNotAuthorizedException user is not authorised
+     * @throws PropertyServerException    property server Exception
+     */
+    private List<SchemaAttributeElement> getNestedSchemaAttributes(String parentGUID) throws InvalidParameterException, PropertyServerException, UserNotAuthorizedException {
+        List<SchemaAttributeElement> nestedSchemaAttributes = new ArrayList<>();
+        while (true) {
+            List<SchemaAttributeElement> page = myContext.getNestedSchemaAttributes(parentGUID, nestedSchemaAttributes.size(), PAGE_SIZE, null);
+            if (page == null || page.isEmpty()) {
+                return nestedSchemaAttributes;
+            }
+            nestedSchemaAttributes.addAll(page);
+            if (page.size() < PAGE_SIZE) {
+                return nestedSchemaAttributes;
             }
         }
-        myContext.setupSchemaTypeParent(assetManagerIsHome, schemaTypeChoiceGUID, assetGUID, "KafkaTopic", null, null);
+    }
+
+    /**
+     * Bring the schema attributes nested under a schema element in line with the attributes in the json. Attributes
+     * are matched by qualifiedName; an attribute is only updated if its properties have changed, new attributes are
+     * created and attributes that are no longer in the json are removed along with their nested attributes.
+     *
+     * @param parentGUID GUID of the EventType or of the parent attribute
+     * @param attributes attributes from the json
+     * @throws InvalidParameterException  invalid parameter exception
+     * @throws UserNotAuthorizedException user is not authorised
+     * @throws PropertyServerException    property server Exception
+     */
+    private void reconcileSchemaAttributes(String parentGUID, List<LineageEventContentforSample.Attribute> attributes) throws InvalidParameterException, PropertyServerException, UserNotAuthorizedException {
+        Map<String, SchemaAttributeElement> existingAttributes = new LinkedHashMap<>();
+        for (SchemaAttributeElement existingAttribute : getNestedSchemaAttributes(parentGUID)) {
+            existingAttributes.put(existingAttribute.getSchemaAttributeProperties().getQualifiedName(), existingAttribute);
+        }
+        for (LineageEventContentforSample.Attribute attribute : attributes) {
+            SchemaAttributeElement existingAttribute = existingAttributes.remove(attribute.getQualifiedName());
+            if (existingAttribute == null) {
+                createPrimitiveSchemaAttribute(parentGUID, attribute);
+            } else {
+                String schemaAttributeGUID = existingAttribute.getElementHeader().getGUID();
+                SchemaAttributeProperties schemaAttributeProperties = getSchemaAttributeProperties(attribute);
+                if (!isSchemaAttributeUnchanged(existingAttribute.getSchemaAttributeProperties(), schemaAttributeProperties)) {
+                    myContext.updateSchemaAttribute(schemaAttributeGUID, false, schemaAttributeProperties, null);
+                }
+                reconcileSchemaAttributes(schemaAttributeGUID, isObjectTypeWithNestedAttributes(attribute) ? attribute.getNestedAttributes() : List.of());
+            }
+        }
+        for (SchemaAttributeElement removedAttribute : existingAttributes.values()) {
+            String schemaAttributeGUID = removedAttribute.getElementHeader().getGUID();
+            reconcileSchemaAttributes(schemaAttributeGUID, List.of());
+            myContext.removeSchemaAttribute(schemaAttributeGUID, null);
+        }
+    }
+
+    private static boolean isSchemaAttributeUnchanged(SchemaAttributeProperties existingProperties, SchemaAttributeProperties newProperties) {
+        if (existingProperties.getSchemaType() == null) {
+            // the formula cannot be compared, so update the attribute to be sure
+            return false;
+        }
+        return Objects.equals(existingProperties.getDisplayName(), newProperties.getDisplayName()) &&
+                Objects.equals(existingProperties.getDescription(), newProperties.getDescription()) &&
+                Objects.equals(existingProperties.getTypeName(), newProperties.getTypeName()) &&
+                Objects.equals(existingProperties.getSchemaType().getFormula(), newProperties.getSchemaType().getFormula());
     }
 
     /**
@@ -269,56 +920,196 @@ public class SampleLineageEventProcessor {
      * The relationship between the input asset and the process is a DataFlow relationship which contains
      * the formula, which is the SQL.
      *
+     * @param eventContent  - representation of the event as a java object.
+     * @param inAssetGUIDs  - GUIDs of the input assets
+     * @param outAssetGUIDs - GUIDs of the output assets
+     * @throws InvalidParameterException  invalid parameter exception
+     * @throws UserNotAuthorizedException user is not authorised
+     * @throws PropertyServerException    property server Exception
+     */
+    private void saveLineage(LineageEventContentforSample eventContent, List<String> inAssetGUIDs, List<String> outAssetGUIDs) throws InvalidParameterException, PropertyServerException, UserNotAuthorizedException {
+        long startNanos = System.nanoTime();
+        int roundTripsAtStart = tracer.getRoundTrips();
+        LineageEventJfrEvents.SaveLineageEvent jfrEvent = new LineageEventJfrEvents.SaveLineageEvent();
+        jfrEvent.begin();
+        try {
+            String processGUID = upsertProcess(eventContent);
+            List<Future<Void>> pendingDataFlows = new ArrayList<>();
+            try {
+                List<LineageEventContentforSample.AssetFromJSON> inputAssets = eventContent.getInputAssets();
+                for (int i = 0; i < inAssetGUIDs.size(); i++) {
+                    String assetGUID = inAssetGUIDs.get(i);
+                    String assetQualifiedName = inputAssets.get(i).getQualifiedName();
+                    pendingDataFlows.add(issueMetadataCall(() -> upsertInputDataFlow(eventContent, assetQualifiedName, assetGUID, processGUID)));
+                }
+                for (String assetGUID : outAssetGUIDs) {
+                    pendingDataFlows.add(issueMetadataCall(() -> upsertDataFlow(processGUID, assetGUID, new DataFlowProperties())));
+                }
+                for (Future<Void> pendingDataFlow : pendingDataFlows) {
+                    waitForMetadataCall(pendingDataFlow);
+                }
+            } catch (InvalidParameterException | UserNotAuthorizedException | PropertyServerException | RuntimeException error) {
+                awaitMetadataCalls(pendingDataFlows);
+                throw error;
+            }
+        } finally {
+            recordStage(LineageEventMetrics.Stage.SAVE_LINEAGE, startNanos);
+            if (jfrEvent.shouldCommit()) {
+                jfrEvent.processQualifiedName = eventContent.getProcessQualifiedName();
+                jfrEvent.assetCount = LineageEventJfrEvents.getAssetCount(eventContent);
+                jfrEvent.roundTrips = tracer.getRoundTrips() - roundTripsAtStart;
+                jfrEvent.commit();
+            }
+        }
+    }
+
+    /**
+     * Create the process for the event, or update it if it already exists. A process in the process cache is updated
+     * by its GUID without searching for it by name.
+     *
      * @param eventContent - representation of the event as a java object.
+     * @return process GUID
      * @throws InvalidParameterException  invalid parameter exception
      * @throws UserNotAuthorizedException user is not authorised
      * @throws PropertyServerException    property server Exception
      */
-    private void saveLineage(LineageEventContentforSample eventContent) throws InvalidParameterException, PropertyServerException, UserNotAuthorizedException {
+    private String upsertProcess(LineageEventContentforSample eventContent) throws InvalidParameterException, PropertyServerException, UserNotAuthorizedException {
         String processQualifiedName = eventContent.getProcessQualifiedName();
-        String processGUID;
-        List<ProcessElement> processes = myContext.getProcessesByName(processQualifiedName, 0, 0, null);
         ProcessProperties processProperties = new ProcessProperties();
         processProperties.setQualifiedName(processQualifiedName);
         processProperties.setTechnicalName(eventContent.getProcessTechnicalName());
         processProperties.setTechnicalDescription(eventContent.getProcessDescription());
-        // does this process already exist?
-        if (processes == null || processes.isEmpty()) {
-            // process does not exist
-            processGUID = myContext.createProcess(assetManagerIsHome, ProcessStatus.ACTIVE, processProperties);
-        } else {
-            // process exists update it
-            ProcessElement processElement = processes.get(0);
-            processGUID = processElement.getElementHeader().getGUID();
-            myContext.updateProcess(processGUID, false, processProperties, null);
-        }
-        for (String assetGUID : inAssetGUIDs) {
-            DataFlowProperties properties = new DataFlowProperties();
-            DataAssetElement dataAssetElement = myContext.getDataAssetByGUID(assetGUID, null);
-            String typeValue = eventContent.getFormulaForInputAsset(dataAssetElement.getDataAssetProperties().getQualifiedName());
-            if (typeValue != null) {
-                properties.setFormula(typeValue);
-            }
-            if (dataAssetElement.getDataAssetProperties().getQualifiedName() != null) {
-                properties.setQualifiedName(dataAssetElement.getDataAssetProperties().getQualifiedName());
+        String processGUID = metadataCaches.getProcesses().get(processQualifiedName);
+        if (processGUID != null) {
+            // process seen before - update it without searching for it
+            try {
+                myContext.updateProcess(processGUID, false, processProperties, null);
+            } catch (InvalidParameterException | PropertyServerException error) {
+                if (!isUnknownElementError(error)) {
+                    throw error;
+                }
+                // the cached process is no longer there, so look it up again
+                metadataCaches.getProcesses().invalidate(processQualifiedName);
+                processGUID = null;
             }
-            // if there is already a dataflow - update it, if not create it
-            DataFlowElement existingDataflow = myContext.getDataFlow(assetGUID, processGUID, null, null);
-            if (existingDataflow == null) {
-                myContext.setupDataFlow(assetManagerIsHome, assetGUID, processGUID, properties, null);
-
+        }
+        if (processGUID == null) {
+            List<ProcessElement> processes = myContext.getProcessesByName(processQualifiedName, 0, 0, null);
+            // does this process already exist?
+            if (processes == null || processes.isEmpty()) {
+                // process does not exist
+                processGUID = myContext.createProcess(assetManagerIsHome, ProcessStatus.ACTIVE, processProperties);
             } else {
-                myContext.updateDataFlow(existingDataflow.getDataFlowHeader().getGUID(), properties, null);
+                // process exists update it
+                ProcessElement processElement = processes.get(0);
+                processGUID = processElement.getElementHeader().getGUID();
+                myContext.updateProcess(processGUID, false, processProperties, null);
             }
+            metadataCaches.getProcesses().put(processQualifiedName, processGUID);
         }
-        for (String assetGUID : outAssetGUIDs) {
-            DataFlowProperties properties = new DataFlowProperties();
-            DataFlowElement existingDataflow = myContext.getDataFlow(processGUID, assetGUID, null, null);
-            if (existingDataflow == null) {
-                myContext.setupDataFlow(assetManagerIsHome, processGUID, assetGUID, properties, null);
-            } else {
-                myContext.updateDataFlow(existingDataflow.getDataFlowHeader().getGUID(), properties, null);
+        return processGUID;
+    }
+
+    /**
+     * Create or update the DataFlow from an input asset to the process. The DataFlow carries the formula (the SQL)
+     * of the input.
+     *
+     * @param eventContent       - representation of the event as a java object.
+     * @param assetQualifiedName - input asset qualifiedName
+     * @param assetGUID          - input asset GUID
+     * @param processGUID        - process GUID
+     * @return null
+     * @throws InvalidParameterException  invalid parameter exception
+     * @throws UserNotAuthorizedException user is not authorised
+     * @throws PropertyServerException    property server Exception
+     */
+    private Void upsertInputDataFlow(LineageEventContentforSample eventContent, String assetQualifiedName, String assetGUID, String processGUID) throws InvalidParameterException, PropertyServerException, UserNotAuthorizedException {
+        DataFlowProperties properties = new DataFlowProperties();
+        String typeValue = eventContent.getFormulaForInputAsset(assetQualifiedName);
+        if (typeValue != null) {
+            properties.setFormula(typeValue);
+        }
+        properties.setQualifiedName(assetQualifiedName);
+        return upsertDataFlow(assetGUID, processGUID, properties);
+    }
+
+    /**
+     * Create the DataFlow between the supplied elements, or update it if there is already one. A DataFlow in the
+     * DataFlow cache is updated by its GUID without looking it up.
+     *
+     * @param fromGUID   - GUID of the data supplier
+     * @param toGUID     - GUID of the data consumer
+     * @param properties - DataFlow properties
+     * @return null
+     * @throws InvalidParameterException  invalid parameter exception
+     * @throws UserNotAuthorizedException user is not authorised
+     * @throws PropertyServerException    property server Exception
+     */
+    private Void upsertDataFlow(String fromGUID, String toGUID, DataFlowProperties properties) throws InvalidParameterException, PropertyServerException, UserNotAuthorizedException {
+        String dataFlowKey = LineageMetadataCaches.getDataFlowKey(fromGUID, toGUID);
+        String dataFlowGUID = metadataCaches.getDataFlows().get(dataFlowKey);
+        if (dataFlowGUID != null) {
+            try {
+                myContext.updateDataFlow(dataFlowGUID, properties, null);
+                return null;
+            } catch (InvalidParameterException | PropertyServerException error) {
+                if (!isUnknownElementError(error)) {
+                    throw error;
+                }
+                // the cached DataFlow is no longer there, so look it up again
+                metadataCaches.getDataFlows().invalidate(dataFlowKey);
             }
         }
+        // if there is already a dataflow - update it, if not create it
+        DataFlowElement existingDataflow = myContext.getDataFlow(fromGUID, toGUID, null, null);
+        if (existingDataflow == null) {
+            dataFlowGUID = myContext.setupDataFlow(assetManagerIsHome, fromGUID, toGUID, properties, null);
+        } else {
+            dataFlowGUID = existingDataflow.getDataFlowHeader().getGUID();
+            myContext.updateDataFlow(dataFlowGUID, properties, null);
+        }
+        metadataCaches.getDataFlows().put(dataFlowKey, dataFlowGUID);
+        return null;
+    }
+
+    /**
+     * Return whether an error from an update by GUID means that the element no longer exists, so a cached GUID for it
+     * must not be used again. The metadata server reports an unknown GUID as an invalid parameter with a not found
+     * HTTP code, which may also come back as a property server error. Any other invalid parameter, for example
+     * invalid properties, would fail again after a lookup, so it is not treated as an unknown element.
+     *
+     * @param error error from the update
+     * @return true if the element was not found
+     */
+    private static boolean isUnknownElementError(OCFCheckedExceptionBase error) {
+        return error.getReportedHTTPCode() == 404 || UNKNOWN_GUID_MESSAGE_ID.equals(error.getReportedErrorMessageId());
+    }
+
+    /**
+     * Issue a metadata call on the metadata call executor, or straight away on this thread when there is no executor.
+     *
+     * @param metadataCall the call to issue
+     * @param <T>          result type of the call
+     * @return the pending or completed call
+     * @throws InvalidParameterException  invalid parameter exception
+     * @throws UserNotAuthorizedException user is not authorised
+     * @throws PropertyServerException    property server Exception
+     */
+    private <T> Future<T> issueMetadataCall(MetadataCall<T> metadataCall) throws InvalidParameterException, PropertyServerException, UserNotAuthorizedException {
+        if (metadataCallExecutor == null) {
+            return CompletableFuture.completedFuture(metadataCall.call());
+        }
+        // the call is traced as part of the event that issued it
+        return metadataCallExecutor.submit(tracer.inActiveTrace(metadataCall::call));
+    }
+
+    /**
+     * A call to the metadata server that can be issued concurrently with the other calls of the same event.
+     *
+     * @param <T> result type of the call
+     */
+    @FunctionalInterface
+    private interface MetadataCall<T> {
+        T call() throws InvalidParameterException, PropertyServerException, UserNotAuthorizedException;
     }
 }
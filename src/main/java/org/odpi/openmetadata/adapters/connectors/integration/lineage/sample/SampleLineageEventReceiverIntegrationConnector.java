@@ -3,6 +3,7 @@
 
 package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
 
+import org.odpi.openmetadata.adapters.connectors.integration.lineage.sample.ffdc.LineageEventSampleConnectorErrorCode;
 import org.odpi.openmetadata.adapters.connectors.integration.lineage.sample.ffdc.LineageEventSampleEventConnectorAuditCode;
 import org.odpi.openmetadata.frameworks.connectors.Connector;
 import org.odpi.openmetadata.frameworks.connectors.ffdc.ConnectorCheckedException;
@@ -12,8 +13,17 @@ import org.odpi.openmetadata.integrationservices.lineage.connector.LineageIntegr
 import org.odpi.openmetadata.repositoryservices.connectors.openmetadatatopic.OpenMetadataTopicConnector;
 import org.odpi.openmetadata.repositoryservices.connectors.openmetadatatopic.OpenMetadataTopicListener;
 
+import javax.management.JMException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * This is an Integration connectors that processes events from a Kafka topic. Those events
@@ -22,10 +32,29 @@ import java.util.Map;
  * the latest values as specified in the event payload.
  */
 public class SampleLineageEventReceiverIntegrationConnector extends LineageIntegratorConnector implements OpenMetadataTopicListener {
+    private static final long LANE_SHUTDOWN_TIMEOUT_MILLIS = 30000;
+    private static final long INGESTION_SHUTDOWN_TIMEOUT_MILLIS = 30000;
+    private static final long AUDIT_SHUTDOWN_TIMEOUT_MILLIS = 5000;
+
     private final Map<String, OpenMetadataTopicConnector> topicConnectors = new HashMap<>();
+    // events are processed one at a time when there are no lanes
+    private final Object inlineProcessingLock = new Object();
 
     private LineageIntegratorContext myContext = null;
     private String topicNamespace = "";
+    private int maxDecompressedEventBytes = SampleLineageEventReceiverIntegrationProvider.DEFAULT_MAX_DECOMPRESSED_EVENT_BYTES;
+    private boolean preValidateEvents = false;
+    // audit log with the sampling, rate limits and payload excerpts for the messages written for each event
+    private LineageEventAuditLog eventAuditLog = new LineageEventAuditLog(null);
+    private LineageEventMetrics metrics = new LineageEventMetrics();
+    private LineageEventTracer tracer = LineageEventTracer.disabled();
+    private LineageEventIngestionQueue ingestionQueue = null;
+    private LineageEventLanes eventLanes = null;
+    private ExecutorService metadataCallExecutor = null;
+    private LineageMetadataCaches metadataCaches = null;
+    private SampleLineageEventProcessor eventProcessor = null;
+    // set once the topic connectors have been stopped, so events that still arrive are not accepted
+    private volatile boolean disconnecting = false;
 
     public SampleLineageEventReceiverIntegrationConnector() {
 
@@ -36,15 +65,150 @@ public class SampleLineageEventReceiverIntegrationConnector extends LineageInteg
         super.start();
 
         final String methodName = "start";
+        disconnecting = false;
+        int laneCount = SampleLineageEventReceiverIntegrationProvider.DEFAULT_EVENT_LANES;
+        int laneCapacity = SampleLineageEventReceiverIntegrationProvider.DEFAULT_EVENT_LANE_CAPACITY;
+        boolean useVirtualThreads = false;
+        boolean parallelMetadataCalls = false;
+        int batchSize = SampleLineageEventReceiverIntegrationProvider.DEFAULT_EVENT_BATCH_SIZE;
+        int batchMaxDelayMillis = SampleLineageEventReceiverIntegrationProvider.DEFAULT_EVENT_BATCH_MAX_DELAY_MILLIS;
+        boolean coalesceEvents = false;
+        int metadataCacheCapacity = SampleLineageEventReceiverIntegrationProvider.DEFAULT_METADATA_CACHE_CAPACITY;
+        int metadataCacheTimeToLiveMillis = SampleLineageEventReceiverIntegrationProvider.DEFAULT_METADATA_CACHE_TTL_MILLIS;
+        int schemaFingerprintCacheCapacity = SampleLineageEventReceiverIntegrationProvider.DEFAULT_SCHEMA_FINGERPRINT_CACHE_CAPACITY;
+        boolean reconcileSchemas = false;
+        int ingestionQueueCapacity = SampleLineageEventReceiverIntegrationProvider.DEFAULT_INGESTION_QUEUE_CAPACITY;
+        LineageEventIngestionQueue.OverflowPolicy overflowPolicy = LineageEventIngestionQueue.OverflowPolicy.BLOCK;
+        int auditSampleRate = SampleLineageEventReceiverIntegrationProvider.DEFAULT_AUDIT_SAMPLE_RATE;
+        int auditMessagesPerMinute = SampleLineageEventReceiverIntegrationProvider.DEFAULT_AUDIT_MESSAGES_PER_MINUTE;
+        int auditPayloadExcerptLength = SampleLineageEventReceiverIntegrationProvider.DEFAULT_AUDIT_PAYLOAD_EXCERPT_LENGTH;
+        int auditQueueCapacity = SampleLineageEventReceiverIntegrationProvider.DEFAULT_AUDIT_QUEUE_CAPACITY;
+        LineageEventAuditAppender.OverflowPolicy auditOverflowPolicy = LineageEventAuditAppender.OverflowPolicy.DROP_NEWEST;
+        boolean jmxMetrics = true;
+        int eventTraceCapacity = SampleLineageEventReceiverIntegrationProvider.DEFAULT_EVENT_TRACE_CAPACITY;
+        int slowEventThresholdMillis = SampleLineageEventReceiverIntegrationProvider.DEFAULT_SLOW_EVENT_THRESHOLD_MILLIS;
+        Path spillDirectory = null;
 
         if( this.connectionProperties != null  ) {
             Map<String, Object> configurationProps = this.connectionProperties.getConfigurationProperties();
             if( configurationProps != null ) {
                 this.topicNamespace = configurationProps.getOrDefault(SampleLineageEventReceiverIntegrationProvider.TOPIC_NAMESPACE, "").toString();
+                useVirtualThreads = getBooleanConfigurationProperty(configurationProps, SampleLineageEventReceiverIntegrationProvider.USE_VIRTUAL_THREADS, useVirtualThreads);
+                if (useVirtualThreads && !LineageEventThreads.isVirtualThreadSupported()) {
+                    // the platform runs on a Java release without virtual threads, so carry on with platform threads
+                    useVirtualThreads = false;
+                    if (auditLog != null) {
+                        auditLog.logMessage(methodName,
+                                LineageEventSampleEventConnectorAuditCode.VIRTUAL_THREADS_NOT_AVAILABLE.getMessageDefinition(connectorName,
+                                        Integer.toString(Runtime.version().feature())));
+                    }
+                }
+                parallelMetadataCalls = getBooleanConfigurationProperty(configurationProps, SampleLineageEventReceiverIntegrationProvider.PARALLEL_METADATA_CALLS, parallelMetadataCalls);
+                if (useVirtualThreads) {
+                    laneCount = SampleLineageEventReceiverIntegrationProvider.DEFAULT_VIRTUAL_EVENT_LANES;
+                }
+                laneCount = getIntegerConfigurationProperty(configurationProps, SampleLineageEventReceiverIntegrationProvider.EVENT_LANES, laneCount);
+                laneCapacity = getIntegerConfigurationProperty(configurationProps, SampleLineageEventReceiverIntegrationProvider.EVENT_LANE_CAPACITY, laneCapacity);
+                batchSize = getIntegerConfigurationProperty(configurationProps, SampleLineageEventReceiverIntegrationProvider.EVENT_BATCH_SIZE, batchSize);
+                batchMaxDelayMillis = getIntegerConfigurationProperty(configurationProps, SampleLineageEventReceiverIntegrationProvider.EVENT_BATCH_MAX_DELAY_MILLIS, batchMaxDelayMillis);
+                coalesceEvents = getBooleanConfigurationProperty(configurationProps, SampleLineageEventReceiverIntegrationProvider.COALESCE_EVENTS, coalesceEvents);
+                metadataCacheCapacity = getIntegerConfigurationProperty(configurationProps, SampleLineageEventReceiverIntegrationProvider.METADATA_CACHE_CAPACITY, metadataCacheCapacity);
+                metadataCacheTimeToLiveMillis = getIntegerConfigurationProperty(configurationProps, SampleLineageEventReceiverIntegrationProvider.METADATA_CACHE_TTL_MILLIS, metadataCacheTimeToLiveMillis);
+                schemaFingerprintCacheCapacity = getIntegerConfigurationProperty(configurationProps, SampleLineageEventReceiverIntegrationProvider.SCHEMA_FINGERPRINT_CACHE_CAPACITY, schemaFingerprintCacheCapacity);
+                reconcileSchemas = getBooleanConfigurationProperty(configurationProps, SampleLineageEventReceiverIntegrationProvider.RECONCILE_SCHEMAS, reconcileSchemas);
+                ingestionQueueCapacity = getIntegerConfigurationProperty(configurationProps, SampleLineageEventReceiverIntegrationProvider.INGESTION_QUEUE_CAPACITY, ingestionQueueCapacity);
+                Object overflowPolicyName = configurationProps.get(SampleLineageEventReceiverIntegrationProvider.INGESTION_OVERFLOW_POLICY);
+                if (overflowPolicyName != null) {
+                    overflowPolicy = LineageEventIngestionQueue.OverflowPolicy.fromName(overflowPolicyName.toString(), overflowPolicy);
+                }
+                maxDecompressedEventBytes = getIntegerConfigurationProperty(configurationProps, SampleLineageEventReceiverIntegrationProvider.MAX_DECOMPRESSED_EVENT_BYTES, maxDecompressedEventBytes);
+                preValidateEvents = getBooleanConfigurationProperty(configurationProps, SampleLineageEventReceiverIntegrationProvider.PRE_VALIDATE_EVENTS, preValidateEvents);
+                auditSampleRate = getIntegerConfigurationProperty(configurationProps, SampleLineageEventReceiverIntegrationProvider.AUDIT_SAMPLE_RATE, auditSampleRate);
+                auditMessagesPerMinute = getIntegerConfigurationProperty(configurationProps, SampleLineageEventReceiverIntegrationProvider.AUDIT_MESSAGES_PER_MINUTE, auditMessagesPerMinute);
+                auditPayloadExcerptLength = getIntegerConfigurationProperty(configurationProps, SampleLineageEventReceiverIntegrationProvider.AUDIT_PAYLOAD_EXCERPT_LENGTH, auditPayloadExcerptLength);
+                auditQueueCapacity = getIntegerConfigurationProperty(configurationProps, SampleLineageEventReceiverIntegrationProvider.AUDIT_QUEUE_CAPACITY, auditQueueCapacity);
+                Object auditOverflowPolicyName = configurationProps.get(SampleLineageEventReceiverIntegrationProvider.AUDIT_OVERFLOW_POLICY);
+                if (auditOverflowPolicyName != null) {
+                    auditOverflowPolicy = LineageEventAuditAppender.OverflowPolicy.fromName(auditOverflowPolicyName.toString(), auditOverflowPolicy);
+                }
+                jmxMetrics = getBooleanConfigurationProperty(configurationProps, SampleLineageEventReceiverIntegrationProvider.JMX_METRICS, jmxMetrics);
+                eventTraceCapacity = getIntegerConfigurationProperty(configurationProps, SampleLineageEventReceiverIntegrationProvider.EVENT_TRACE_CAPACITY, eventTraceCapacity);
+                slowEventThresholdMillis = getIntegerConfigurationProperty(configurationProps, SampleLineageEventReceiverIntegrationProvider.SLOW_EVENT_THRESHOLD_MILLIS, slowEventThresholdMillis);
+                Object spillDirectoryName = configurationProps.get(SampleLineageEventReceiverIntegrationProvider.INGESTION_SPILL_DIRECTORY);
+                if (spillDirectoryName != null && !spillDirectoryName.toString().isBlank()) {
+                    spillDirectory = Paths.get(spillDirectoryName.toString());
+                }
             }
         }
 
+        if (ingestionQueueCapacity > 0 && overflowPolicy == LineageEventIngestionQueue.OverflowPolicy.SPILL && spillDirectory == null) {
+            throw new ConnectorCheckedException(LineageEventSampleConnectorErrorCode.SPILL_DIRECTORY_NOT_CONFIGURED.getMessageDefinition(connectorName),
+                                                this.getClass().getName(),
+                                                methodName);
+        }
+
+        eventAuditLog = new LineageEventAuditLog(auditLog, auditSampleRate, auditMessagesPerMinute, auditPayloadExcerptLength);
+        if (auditQueueCapacity > 0) {
+            /*
+             * The messages for each event are written to the audit log by a background thread, so a slow audit log
+             * does not hold up the processing of events.
+             */
+            ThreadFactory auditThreadFactory = LineageEventThreads.daemonThreadFactory();
+            eventAuditLog.startAppender(auditQueueCapacity, auditOverflowPolicy, auditThreadFactory, connectorName + "-audit");
+        }
+        metrics = new LineageEventMetrics();
+        tracer = new LineageEventTracer(eventTraceCapacity, slowEventThresholdMillis, eventAuditLog, connectorName);
+        tracer.setTraceListener(metrics::recordRoundTrips);
+        if (jmxMetrics) {
+            try {
+                metrics.register(ManagementFactory.getPlatformMBeanServer(), connectorName);
+                tracer.register(ManagementFactory.getPlatformMBeanServer(), connectorName);
+            } catch (JMException error) {
+                if (auditLog != null) {
+                    auditLog.logException(methodName,
+                            LineageEventSampleEventConnectorAuditCode.METRICS_NOT_REGISTERED.getMessageDefinition(connectorName,
+                                    error.getClass().getName(),
+                                    error.getMessage()),
+                            error);
+                }
+            }
+        }
         myContext = super.getContext();
+        // build the json deserializers now rather than while the first event waits
+        LineageEventContentforSample.warmUp();
+
+        if (useVirtualThreads && parallelMetadataCalls) {
+            metadataCallExecutor = LineageEventThreads.newVirtualThreadPerTaskExecutor();
+        }
+        metadataCaches = new LineageMetadataCaches(metadataCacheCapacity, metadataCacheTimeToLiveMillis, schemaFingerprintCacheCapacity);
+        // the processor's calls to the context are timed, method by method
+        LineageMetadataContext measuredContext = myContext == null ? null : new MeasuredLineageIntegratorContext(myContext, metrics, tracer);
+        eventProcessor = new SampleLineageEventProcessor(measuredContext, auditLog, connectorName, metadataCallExecutor, metadataCaches);
+        eventProcessor.setReconcileSchemas(reconcileSchemas);
+        eventProcessor.setAuditLog(eventAuditLog);
+        eventProcessor.setMetrics(metrics);
+        eventProcessor.setTracer(tracer);
+
+        if (useVirtualThreads || laneCount > 1 || batchSize > 1 || coalesceEvents) {
+            /*
+             * Events for the same process stay on one lane so they are processed in order, other processes run in parallel.
+             * Each lane passes on the events it has waiting in micro-batches of up to batchSize events. As all the events
+             * for a process are on the same lane, the lane can also drop the events superseded by a newer one.
+             */
+            ThreadFactory laneThreadFactory = useVirtualThreads ? LineageEventThreads.virtualThreadFactory() : LineageEventThreads.daemonThreadFactory();
+            eventLanes = new LineageEventLanes(connectorName, laneCount, laneCapacity, laneThreadFactory, batchSize, batchMaxDelayMillis, coalesceEvents, this::processEventContents);
+            eventLanes.setAuditLog(auditLog);
+            eventLanes.start();
+        }
+
+        if (ingestionQueueCapacity > 0) {
+            /*
+             * The topic listener only queues the event, a dispatcher thread parses it and passes it on for processing.
+             */
+            ThreadFactory dispatcherThreadFactory = useVirtualThreads ? LineageEventThreads.virtualThreadFactory() : LineageEventThreads.daemonThreadFactory();
+            ingestionQueue = new LineageEventIngestionQueue(ingestionQueueCapacity, overflowPolicy, spillDirectory, this::dispatchEvent, auditLog, connectorName);
+            ingestionQueue.start(dispatcherThreadFactory, connectorName + "-ingestion");
+        }
 
         if (myContext != null) {
             if (embeddedConnectors != null) {
@@ -89,35 +253,401 @@ public class SampleLineageEventReceiverIntegrationConnector extends LineageInteg
     }
 
     /**
-     * No function needed in refresh()
+     * Report the state of the ingestion queue and the event lanes, if there are any, and of the metadata caches, and
+     * the number of audit messages suppressed since the last refresh.
      */
     @Override
     public void refresh() {
+        final String methodName = "refresh";
+        LineageMetadataCaches caches = metadataCaches;
+        if (caches != null && auditLog != null) {
+            for (Map.Entry<String, LineageMetadataCache<?, ?>> cache : caches.getCachesByName().entrySet()) {
+                auditLog.logMessage(methodName,
+                        LineageEventSampleEventConnectorAuditCode.METADATA_CACHE_STATUS.getMessageDefinition(connectorName,
+                                cache.getKey(),
+                                Integer.toString(cache.getValue().size()),
+                                Long.toString(cache.getValue().getHitCount()),
+                                Long.toString(cache.getValue().getMissCount()),
+                                Long.toString(cache.getValue().getEvictionCount())));
+            }
+        }
+        LineageEventLanes lanes = eventLanes;
+        if (lanes != null && auditLog != null) {
+            auditLog.logMessage(methodName,
+                    LineageEventSampleEventConnectorAuditCode.EVENT_LANE_STATUS.getMessageDefinition(connectorName,
+                            Integer.toString(lanes.getPendingEventCount()),
+                            Integer.toString(lanes.getLaneCount()),
+                            Long.toString(lanes.getSupersededEventCount())));
+        }
+        LineageEventIngestionQueue queue = ingestionQueue;
+        if (queue != null && auditLog != null) {
+            auditLog.logMessage(methodName,
+                    LineageEventSampleEventConnectorAuditCode.INGESTION_QUEUE_STATUS.getMessageDefinition(connectorName,
+                            Integer.toString(queue.getDepth()),
+                            Integer.toString(queue.getSpilledDepth()),
+                            Long.toString(queue.getDispatchedCount()),
+                            Long.toString(queue.getAverageWaitMillis()),
+                            Long.toString(queue.getMaxWaitMillis()),
+                            Long.toString(queue.getDroppedCount())));
+            queue.resetWaitStatistics();
+        }
+        eventAuditLog.reportSuppressedMessages(connectorName);
     }
 
+    /**
+     * Stop the topic connectors, so no more events arrive, then stop the ingestion queue and the event lanes, allowing
+     * them to finish the events they have already accepted. Then stop the metadata call executor, write the audit
+     * messages still waiting in the audit queue and unregister the metrics from JMX.
+     *
+     * @throws ConnectorCheckedException there is a problem within the connector.
+     */
     @Override
-    synchronized public void processEvent(String event) {
+    public synchronized void disconnect() throws ConnectorCheckedException {
+        final String methodName = "disconnect";
+        for (OpenMetadataTopicConnector topicConnector : topicConnectors.values()) {
+            try {
+                topicConnector.disconnect();
+            } catch (ConnectorCheckedException | RuntimeException error) {
+                // carry on, so the events already received are still processed
+                if (auditLog != null) {
+                    auditLog.logException(methodName,
+                            LineageEventSampleEventConnectorAuditCode.UNEXPECTED_EXCEPTION.getMessageDefinition(error.getClass().getName(),
+                                    connectorName,
+                                    error.getMessage()),
+                            error);
+                }
+            }
+        }
+        topicConnectors.clear();
+        disconnecting = true;
+        if (ingestionQueue != null) {
+            try {
+                ingestionQueue.shutdown(INGESTION_SHUTDOWN_TIMEOUT_MILLIS);
+            } catch (InterruptedException error) {
+                Thread.currentThread().interrupt();
+            }
+            ingestionQueue = null;
+        }
+        if (eventLanes != null) {
+            try {
+                eventLanes.shutdown(LANE_SHUTDOWN_TIMEOUT_MILLIS);
+            } catch (InterruptedException error) {
+                Thread.currentThread().interrupt();
+            }
+            eventLanes = null;
+        }
+        if (metadataCallExecutor != null) {
+            metadataCallExecutor.shutdown();
+            metadataCallExecutor = null;
+        }
+        try {
+            // the queue and the lanes have stopped, so the audit messages for their events are all waiting to be written
+            eventAuditLog.stopAppender(AUDIT_SHUTDOWN_TIMEOUT_MILLIS);
+        } catch (InterruptedException error) {
+            Thread.currentThread().interrupt();
+        }
+        metrics.unregister();
+        tracer.unregister();
+        super.disconnect();
+    }
+
+    @Override
+    public void processEvent(String event) {
+        processEvent(LineageEventPayload.of(event));
+    }
+
+    /**
+     * Process an event received as UTF-8 encoded json, Smile or CBOR, for example the value of a Kafka record read
+     * with a byte array deserializer. The bytes may be gzip or deflate compressed. The event is parsed from the
+     * bytes, without decoding it into a String first.
+     *
+     * @param event event json, which must not be changed once it has been passed in
+     */
+    public void processEvent(byte[] event) {
+        processEvent(LineageEventPayload.of(event));
+    }
+
+    /**
+     * Process an event received as UTF-8 encoded json, Smile or CBOR, between the position and the limit of the
+     * buffer. The bytes may be gzip or deflate compressed. The event is parsed from the bytes, without decoding it
+     * into a String first.
+     *
+     * @param event event json, which must not be changed once it has been passed in
+     */
+    public void processEvent(ByteBuffer event) {
+        processEvent(LineageEventPayload.of(event));
+    }
+
+    private void processEvent(LineageEventPayload event) {
         String methodName = "processEvent";
-        if (auditLog != null) {
-            auditLog.logMessage(methodName, LineageEventSampleEventConnectorAuditCode.PROCESSING_EVENT.getMessageDefinition(event));
+        eventAuditLog.logProcessingEvent(methodName, event, maxDecompressedEventBytes);
+        receiveEvent(event);
+    }
+
+    /**
+     * Pass the event to the ingestion queue, or dispatch it straight away when there is no ingestion queue. When
+     * pre-validation is configured, an event that is missing its Id, Input or Output is rejected here, before it is
+     * queued or decoded. An event that arrives once the connector is disconnecting, or that is not queued because the
+     * topic listener is interrupted while it waits for space, is not accepted; it is logged and counted as failed.
+     *
+     * @param event event payload
+     */
+    private void receiveEvent(LineageEventPayload event) {
+        String methodName = "receiveEvent";
+        if (disconnecting) {
+            logEventNotAccepted(methodName, event.getDescription());
+            metrics.recordReceived(1);
+            metrics.recordFailed(newEventNotAcceptedException(methodName, event.getDescription()));
+            return;
         }
         if (myContext != null) {
+            if (preValidateEvents) {
+                ConnectorCheckedException error = LineageEventPreValidator.validate(event, connectorName, maxDecompressedEventBytes,
+                        eventAuditLog.getPayloadExcerptLength());
+                if (error != null) {
+                    metrics.recordReceived(1);
+                    metrics.recordFailed(error);
+                    eventAuditLog.logException(methodName,
+                            LineageEventSampleEventConnectorAuditCode.UNABLE_TO_PROCESS_EVENT,
+                            error,
+                            error.getClass().getName(),
+                            connectorName,
+                            error.getMessage());
+                    return;
+                }
+            }
+            LineageEventIngestionQueue queue = ingestionQueue;
+            if (queue != null) {
+                try {
+                    if (!queue.enqueue(event)) {
+                        // the queue has been shut down, and has logged the event
+                        metrics.recordReceived(1);
+                        metrics.recordFailed(newEventNotAcceptedException(methodName, event.getDescription()));
+                    }
+                } catch (InterruptedException error) {
+                    Thread.currentThread().interrupt();
+                    logEventNotAccepted(methodName, event.getDescription());
+                    metrics.recordReceived(1);
+                    metrics.recordFailed(error);
+                }
+            } else {
+                dispatchEvent(event);
+            }
+        }
+    }
+
+    /**
+     * Log an event that the connector did not accept because it is stopping.
+     *
+     * @param methodName       calling method
+     * @param eventDescription description of the event
+     */
+    private void logEventNotAccepted(String methodName, String eventDescription) {
+        if (auditLog != null) {
+            auditLog.logMessage(methodName,
+                    LineageEventSampleEventConnectorAuditCode.EVENT_NOT_ACCEPTED.getMessageDefinition(connectorName,
+                            eventDescription));
+        }
+    }
+
+    /**
+     * Return the error an event that was not accepted is counted under in the metrics.
+     *
+     * @param methodName       calling method
+     * @param eventDescription description of the event
+     * @return exception describing the event
+     */
+    private ConnectorCheckedException newEventNotAcceptedException(String methodName, String eventDescription) {
+        return new ConnectorCheckedException(LineageEventSampleConnectorErrorCode.EVENT_NOT_ACCEPTED.getMessageDefinition(connectorName, eventDescription),
+                                             this.getClass().getName(),
+                                             methodName);
+    }
+
+    /**
+     * Parse the event and pass it to the lane for its process, or process it straight away when lanes are not
+     * configured. This runs on the ingestion queue's dispatcher thread, or on the topic listener's thread when there
+     * is no ingestion queue.
+     * <p>
+     * A message may hold a batch of events, as a json array or as one event after another. The valid events of a
+     * batch are passed on together, each rejected event is reported on its own.
+     *
+     * @param event event payload
+     */
+    private void dispatchEvent(LineageEventPayload event) {
+        String methodName = "dispatchEvent";
+        long startNanos = System.nanoTime();
+        LineageEventJfrEvents.DecodeEvent jfrEvent = LineageEventJfrEvents.beginDecode();
+        LineageEventEnvelope envelope = LineageEventEnvelope.read(event, connectorName, topicNamespace, maxDecompressedEventBytes,
+                eventAuditLog.getPayloadExcerptLength());
+        if (jfrEvent != null) {
+            jfrEvent.end();
+        }
+        long decodeNanos = System.nanoTime() - startNanos;
+        metrics.getStageLatency(LineageEventMetrics.Stage.DECODE).record(decodeNanos);
+        metrics.recordReceived(envelope.getElements().size());
+        List<Integer> rejectedEvents = new ArrayList<>();
+        for (LineageEventEnvelope.Element element : envelope.getElements()) {
+            ConnectorCheckedException error = element.getError();
+            if (error != null) {
+                metrics.recordFailed(error);
+                rejectedEvents.add(element.getIndex());
+                if (envelope.isBatch()) {
+                    eventAuditLog.logException(methodName,
+                            LineageEventSampleEventConnectorAuditCode.UNABLE_TO_PROCESS_BATCH_EVENT,
+                            error,
+                            error.getClass().getName(),
+                            connectorName,
+                            Integer.toString(element.getIndex()),
+                            error.getMessage());
+                } else {
+                    eventAuditLog.logException(methodName,
+                            LineageEventSampleEventConnectorAuditCode.UNABLE_TO_PROCESS_EVENT,
+                            error,
+                            error.getClass().getName(),
+                            connectorName,
+                            error.getMessage());
+                }
+            }
+        }
+        List<LineageEventContentforSample> eventContents = envelope.getEventContents();
+        for (LineageEventContentforSample eventContent : eventContents) {
+            eventContent.setDecodeTiming(startNanos, decodeNanos);
+        }
+        if (jfrEvent != null && jfrEvent.shouldCommit()) {
+            jfrEvent.payloadSize = event.getSize();
+            jfrEvent.eventCount = envelope.getElements().size();
+            jfrEvent.rejectedEventCount = rejectedEvents.size();
+            for (LineageEventContentforSample eventContent : eventContents) {
+                if (jfrEvent.processQualifiedName == null) {
+                    jfrEvent.processQualifiedName = eventContent.getProcessQualifiedName();
+                }
+                jfrEvent.assetCount = jfrEvent.assetCount + LineageEventJfrEvents.getAssetCount(eventContent);
+                jfrEvent.attributeCount = jfrEvent.attributeCount + LineageEventJfrEvents.getAttributeCount(eventContent);
+            }
+            jfrEvent.commit();
+        }
+        if (envelope.isBatch()) {
+            eventAuditLog.logMessage(methodName,
+                    LineageEventSampleEventConnectorAuditCode.BATCH_RECEIVED,
+                    connectorName,
+                    Integer.toString(envelope.getElements().size()),
+                    Integer.toString(eventContents.size()),
+                    Integer.toString(rejectedEvents.size()),
+                    rejectedEvents.isEmpty() ? "none" : "events " + rejectedEvents);
+        }
+        if (eventContents.isEmpty()) {
+            return;
+        }
+        LineageEventLanes lanes = eventLanes;
+        if (lanes != null) {
+            submitToLanes(lanes, eventContents);
+        } else {
+            synchronized (inlineProcessingLock) {
+                if (eventContents.size() == 1) {
+                    processEventContent(eventContents.get(0));
+                } else {
+                    processEventContents(eventContents);
+                }
+            }
+        }
+    }
+
+    /**
+     * Pass each event to the lane for its process. An event the lanes do not accept because they have been shut
+     * down is counted as failed; the lanes log it. When the thread is interrupted while it waits for space in a lane,
+     * that event and the events after it are logged and counted as failed.
+     *
+     * @param lanes         event lanes
+     * @param eventContents parsed events, in the order they arrived
+     */
+    private void submitToLanes(LineageEventLanes lanes, List<LineageEventContentforSample> eventContents) {
+        String methodName = "submitToLanes";
+        for (int i = 0; i < eventContents.size(); i++) {
+            LineageEventContentforSample eventContent = eventContents.get(i);
             try {
-                LineageEventContentforSample eventContent = new LineageEventContentforSample(event, connectorName, topicNamespace);
-                SampleLineageEventProcessor eventProcessor = new SampleLineageEventProcessor(myContext, auditLog, connectorName);
-                eventProcessor.processEvent(eventContent);
-                if (auditLog != null) {
-                    auditLog.logMessage(methodName, LineageEventSampleEventConnectorAuditCode.PROCESSED_EVENT_SUCCESSFULLY.getMessageDefinition());
+                if (!lanes.submit(eventContent)) {
+                    metrics.recordFailed(newEventNotAcceptedException(methodName, "process " + eventContent.getProcessQualifiedName()));
                 }
-            } catch (ConnectorCheckedException error) {
-                if (auditLog != null) {
-                    auditLog.logException(methodName,
-                            LineageEventSampleEventConnectorAuditCode.UNABLE_TO_PROCESS_EVENT.getMessageDefinition(
-                                    error.getClass().getName(),
-                                    connectorName,
-                                    error.getMessage()), error);
+            } catch (InterruptedException error) {
+                Thread.currentThread().interrupt();
+                for (LineageEventContentforSample notSubmitted : eventContents.subList(i, eventContents.size())) {
+                    logEventNotAccepted(methodName, "process " + notSubmitted.getProcessQualifiedName());
+                    metrics.recordFailed(error);
                 }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Issue the metadata calls for a batch of events taken from a lane.
+     *
+     * @param eventContents parsed events, in the order they arrived
+     */
+    private void processEventContents(List<LineageEventContentforSample> eventContents) {
+        String methodName = "processEventContents";
+        int processedEvents = eventProcessor.processEvents(eventContents);
+        for (int i = 0; i < processedEvents; i++) {
+            eventAuditLog.logMessage(methodName, LineageEventSampleEventConnectorAuditCode.PROCESSED_EVENT_SUCCESSFULLY);
+        }
+    }
+
+    /**
+     * Issue the metadata calls for an event that has been parsed. This runs on the caller's thread when lanes are
+     * not configured.
+     *
+     * @param eventContent parsed event
+     */
+    private void processEventContent(LineageEventContentforSample eventContent) {
+        String methodName = "processEventContent";
+        if (eventProcessor.processEvent(eventContent)) {
+            eventAuditLog.logMessage(methodName, LineageEventSampleEventConnectorAuditCode.PROCESSED_EVENT_SUCCESSFULLY);
+        }
+    }
+
+    /**
+     * Return the traces of the events processed most recently, oldest first. Only as many traces as the
+     * eventTraceCapacity configuration property allows are kept.
+     *
+     * @return formatted traces, empty if no traces are kept
+     */
+    public String dumpRecentTraces() {
+        return tracer.dumpRecentTraces();
+    }
+
+    /**
+     * Read a boolean configuration property, which may have been supplied as a boolean or as a string.
+     *
+     * @param configurationProps configuration properties
+     * @param propertyName       name of the property
+     * @param defaultValue       value to use when the property is absent
+     * @return property value
+     */
+    private boolean getBooleanConfigurationProperty(Map<String, Object> configurationProps, String propertyName, boolean defaultValue) {
+        Object value = configurationProps.get(propertyName);
+        if (value != null) {
+            return Boolean.parseBoolean(value.toString().trim());
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Read an integer configuration property, which may have been supplied as a number or as a string.
+     *
+     * @param configurationProps configuration properties
+     * @param propertyName       name of the property
+     * @param defaultValue       value to use when the property is absent or not a number
+     * @return property value
+     */
+    private int getIntegerConfigurationProperty(Map<String, Object> configurationProps, String propertyName, int defaultValue) {
+        Object value = configurationProps.get(propertyName);
+        if (value != null) {
+            try {
+                return Integer.parseInt(value.toString().trim());
+            } catch (NumberFormatException error) {
+                return defaultValue;
             }
         }
+        return defaultValue;
     }
 }
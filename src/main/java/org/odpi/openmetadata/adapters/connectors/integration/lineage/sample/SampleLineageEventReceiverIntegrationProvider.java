@@ -17,6 +17,133 @@ public class SampleLineageEventReceiverIntegrationProvider extends ConnectorProv
 {
     //org.odpi.openmetadata.adapters.connectors.integration.lineage.sample.SampleLineageEventReceiverIntegrationProvider
     public static final String TOPIC_NAMESPACE = "topicNamespace";
+    /*
+     * Number of worker lanes. Events are assigned to a lane by their process qualifiedName, so events for the same
+     * process are processed in order while other processes are processed in parallel. 1 processes every event in turn.
+     */
+    public static final String EVENT_LANES = "eventLanes";
+    public static final int DEFAULT_EVENT_LANES = 1;
+    /*
+     * Maximum number of events waiting in each lane before the topic listener is held back.
+     */
+    public static final String EVENT_LANE_CAPACITY = "eventLaneCapacity";
+    public static final int DEFAULT_EVENT_LANE_CAPACITY = 1000;
+    /*
+     * Run the lanes on virtual threads. Lanes are then cheap, so the default number of lanes is raised.
+     */
+    public static final String USE_VIRTUAL_THREADS = "useVirtualThreads";
+    public static final int DEFAULT_VIRTUAL_EVENT_LANES = 256;
+    /*
+     * With virtual threads, also issue the independent metadata calls of an event (each asset upsert and each DataFlow)
+     * concurrently, each on its own virtual thread.
+     */
+    public static final String PARALLEL_METADATA_CALLS = "parallelMetadataCalls";
+    /*
+     * Maximum number of events a lane processes as one micro-batch. The assets of a batch are upserted once for all
+     * its events. 1 processes each event on its own.
+     */
+    public static final String EVENT_BATCH_SIZE = "eventBatchSize";
+    public static final int DEFAULT_EVENT_BATCH_SIZE = 1;
+    /*
+     * Longest time in milliseconds that a lane waits for more events once it has started a batch.
+     */
+    public static final String EVENT_BATCH_MAX_DELAY_MILLIS = "eventBatchMaxDelayMillis";
+    public static final int DEFAULT_EVENT_BATCH_MAX_DELAY_MILLIS = 50;
+    /*
+     * Before a lane processes its waiting events, keep only the newest event for each process. The older events are
+     * counted as superseded.
+     */
+    public static final String COALESCE_EVENTS = "coalesceEvents";
+    /*
+     * Maximum number of entries in each metadata cache, such as the cache of asset GUIDs by qualifiedName. 0 disables
+     * the caches, so every event looks its metadata up again; this is the default. With the caches on, a change made
+     * to cached metadata by another tool may not be seen until its entry expires.
+     */
+    public static final String METADATA_CACHE_CAPACITY = "metadataCacheCapacity";
+    public static final int DEFAULT_METADATA_CACHE_CAPACITY = 0;
+    /*
+     * How long in milliseconds a cached entry is used before the metadata is looked up again.
+     */
+    public static final String METADATA_CACHE_TTL_MILLIS = "metadataCacheTimeToLiveMillis";
+    public static final int DEFAULT_METADATA_CACHE_TTL_MILLIS = 600000;
+    /*
+     * Maximum number of assets for which the fingerprint of the schema last catalogued is kept, so an event whose
+     * schema has not changed does not catalogue it again. Unlike the metadata caches this is on by default: a
+     * fingerprint only records what the connector itself has catalogued. Entries expire after the metadata cache time
+     * to live. 0 catalogues the schema of every event.
+     */
+    public static final String SCHEMA_FINGERPRINT_CACHE_CAPACITY = "schemaFingerprintCacheCapacity";
+    public static final int DEFAULT_SCHEMA_FINGERPRINT_CACHE_CAPACITY = 10000;
+    /*
+     * When the schema of an asset changes, update the existing EventTypes and attributes in place, creating and
+     * removing only those that were added or dropped, rather than removing the whole schema and creating it again.
+     */
+    public static final String RECONCILE_SCHEMAS = "reconcileSchemas";
+    /*
+     * Capacity of the in-memory queue between the topic listener and the processing of events. 0 processes each event
+     * on the topic listener's thread.
+     */
+    public static final String INGESTION_QUEUE_CAPACITY = "ingestionQueueCapacity";
+    public static final int DEFAULT_INGESTION_QUEUE_CAPACITY = 0;
+    /*
+     * What to do with a new event when the ingestion queue is full: block, drop-oldest or spill.
+     */
+    public static final String INGESTION_OVERFLOW_POLICY = "ingestionOverflowPolicy";
+    /*
+     * Directory for events spilled by the spill overflow policy. It must be set when that policy is used, and should
+     * belong to this connector alone.
+     */
+    public static final String INGESTION_SPILL_DIRECTORY = "ingestionSpillDirectory";
+    /*
+     * Largest number of bytes that a gzip or deflate compressed event may decompress to.
+     */
+    public static final String MAX_DECOMPRESSED_EVENT_BYTES = "maxDecompressedEventBytes";
+    public static final int DEFAULT_MAX_DECOMPRESSED_EVENT_BYTES = 64 * 1024 * 1024;
+    /*
+     * Scan each event for its Id, Input and Output before it is queued and decoded, rejecting events that are missing
+     * them without decoding them.
+     */
+    public static final String PRE_VALIDATE_EVENTS = "preValidateEvents";
+    /*
+     * Log one in every N of the audit messages written for each event that is processed normally. 1 logs them all.
+     */
+    public static final String AUDIT_SAMPLE_RATE = "auditSampleRate";
+    public static final int DEFAULT_AUDIT_SAMPLE_RATE = 1;
+    /*
+     * Most audit messages of each audit code to log in a minute. 0 logs them all.
+     */
+    public static final String AUDIT_MESSAGES_PER_MINUTE = "auditMessagesPerMinute";
+    public static final int DEFAULT_AUDIT_MESSAGES_PER_MINUTE = 0;
+    /*
+     * Most characters of an event payload to put in an audit message, longer payloads are cut short and followed by
+     * their size and SHA-256 digest. 0 puts the whole payload in the message.
+     */
+    public static final String AUDIT_PAYLOAD_EXCERPT_LENGTH = "auditPayloadExcerptLength";
+    public static final int DEFAULT_AUDIT_PAYLOAD_EXCERPT_LENGTH = 1024;
+    /*
+     * Capacity of the buffer of audit messages written to the audit log by a background thread. 0 writes each
+     * message on the thread that logs it.
+     */
+    public static final String AUDIT_QUEUE_CAPACITY = "auditQueueCapacity";
+    public static final int DEFAULT_AUDIT_QUEUE_CAPACITY = 0;
+    /*
+     * Which audit message to discard when the audit queue is full: drop-newest or drop-oldest.
+     */
+    public static final String AUDIT_OVERFLOW_POLICY = "auditOverflowPolicy";
+    /*
+     * Register the event counters and latency histograms as MXBeans on the platform MBean server. Defaults to true.
+     */
+    public static final String JMX_METRICS = "jmxMetrics";
+    /*
+     * Number of recent event traces to keep, so they can be dumped on demand. 0 keeps none.
+     */
+    public static final String EVENT_TRACE_CAPACITY = "eventTraceCapacity";
+    public static final int DEFAULT_EVENT_TRACE_CAPACITY = 0;
+    /*
+     * Write the trace of any event that takes longer than this many milliseconds to process to the audit log. 0 writes none.
+     */
+    public static final String SLOW_EVENT_THRESHOLD_MILLIS = "slowEventThresholdMillis";
+    public static final int DEFAULT_SLOW_EVENT_THRESHOLD_MILLIS = 0;
     private static final String connectorTypeGUID          = "f9d2da2d-0cd3-475a-8c38-f2ee50980ee5";
     private static final String connectorTypeQualifiedName = "Lineage event sample Integration Connector";
     private static final String connectorTypeDisplayName   = "Lineage event sample Integration Connector";
@@ -39,7 +166,31 @@ public class SampleLineageEventReceiverIntegrationProvider extends ConnectorProv
         connectorType.setDisplayName(connectorTypeDisplayName);
         connectorType.setDescription(connectorTypeDescription);
         connectorType.setConnectorProviderClassName(this.getClass().getName());
-        connectorType.setRecognizedConfigurationProperties(List.of(TOPIC_NAMESPACE));
+        connectorType.setRecognizedConfigurationProperties(List.of(TOPIC_NAMESPACE,
+                                                                 EVENT_LANES,
+                                                                 EVENT_LANE_CAPACITY,
+                                                                 USE_VIRTUAL_THREADS,
+                                                                 PARALLEL_METADATA_CALLS,
+                                                                 EVENT_BATCH_SIZE,
+                                                                 EVENT_BATCH_MAX_DELAY_MILLIS,
+                                                                 COALESCE_EVENTS,
+                                                                 METADATA_CACHE_CAPACITY,
+                                                                 METADATA_CACHE_TTL_MILLIS,
+                                                                 SCHEMA_FINGERPRINT_CACHE_CAPACITY,
+                                                                 RECONCILE_SCHEMAS,
+                                                                 INGESTION_QUEUE_CAPACITY,
+                                                                 INGESTION_OVERFLOW_POLICY,
+                                                                 INGESTION_SPILL_DIRECTORY,
+                                                                 MAX_DECOMPRESSED_EVENT_BYTES,
+                                                                 PRE_VALIDATE_EVENTS,
+                                                                 AUDIT_SAMPLE_RATE,
+                                                                 AUDIT_MESSAGES_PER_MINUTE,
+                                                                 AUDIT_PAYLOAD_EXCERPT_LENGTH,
+                                                                 AUDIT_QUEUE_CAPACITY,
+                                                                 AUDIT_OVERFLOW_POLICY,
+                                                                 JMX_METRICS,
+                                                                 EVENT_TRACE_CAPACITY,
+                                                                 SLOW_EVENT_THRESHOLD_MILLIS));
 
         super.connectorTypeBean = connectorType;
     }
@@ -13,15 +13,25 @@ import java.util.List;
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class AssetBean {
 
-    @JsonProperty("id")
+    /*
+     * Names of the fields of an asset in the event json, also read by the streaming decoder in
+     * LineageEventContentforSample.
+     */
+    public static final String ID = "id";
+    public static final String NAME = "name";
+    public static final String TYPE = "type";
+    public static final String VALUE = "value";
+    public static final String SCHEMAS = "schemas";
+
+    @JsonProperty(ID)
     private String qualifiedName;
-    @JsonProperty("name")
+    @JsonProperty(NAME)
     private String name;
-    @JsonProperty("type")
+    @JsonProperty(TYPE)
     private String type;
-    @JsonProperty("value")
+    @JsonProperty(VALUE)
     private String value;
-    @JsonProperty("schemas")
+    @JsonProperty(SCHEMAS)
     private List<SchemaBean> schemas;
     private String qualifiedNamePrefix = "";
     private String qualifiedNameSeparator = ".";
@@ -12,17 +12,27 @@ import java.util.*;
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class EventBean {
 
-    @JsonProperty("Id")
+    /*
+     * Names of the fields in the event json, also read by the streaming decoder in LineageEventContentforSample.
+     */
+    public static final String ID = "Id";
+    public static final String NAME = "Name";
+    public static final String DESCRIPTION = "Description";
+    public static final String TEAM = "Team";
+    public static final String INPUT = "Input";
+    public static final String OUTPUT = "Output";
+
+    @JsonProperty(ID)
     private String qualifiedName;
-    @JsonProperty("Name")
+    @JsonProperty(NAME)
     private String technicalName;
-    @JsonProperty("Description")
+    @JsonProperty(DESCRIPTION)
     private String description;
-    @JsonProperty("Team")
+    @JsonProperty(TEAM)
     private String team;
-    @JsonProperty("Input")
+    @JsonProperty(INPUT)
     private List<AssetBean> input = new ArrayList<AssetBean>();
-    @JsonProperty("Output")
+    @JsonProperty(OUTPUT)
     private List<AssetBean> output = new ArrayList<AssetBean>();
     /**
      * Returns the stored qualified name property for the metadata entity.
@@ -11,11 +11,20 @@ import com.fasterxml.jackson.databind.JsonNode;
  */
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class SchemaBean {
-    @JsonProperty("id")
+
+    /*
+     * Names of the fields of a schema in the event json, also read by the streaming decoder in
+     * LineageEventContentforSample. The attributes in the properties are read by that decoder alone.
+     */
+    public static final String ID = "id";
+    public static final String TYPE = "type";
+    public static final String PROPERTIES = "properties";
+
+    @JsonProperty(ID)
     private String displayName;
-    @JsonProperty("type")
+    @JsonProperty(TYPE)
     private String type;
-
+    @JsonProperty(PROPERTIES)
     private JsonNode properties;
 
     /**
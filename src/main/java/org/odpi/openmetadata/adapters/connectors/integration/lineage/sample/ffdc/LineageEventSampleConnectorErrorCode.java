@@ -46,7 +46,19 @@ public enum LineageEventSampleConnectorErrorCode implements ExceptionMessageSet
     INVALID_EVENT_INPUT_ASSET_HAS_NO_ID(400, "LINEAGE_SAMPLE-INTEGRATION-CONNECTOR-400-005",
             "The {0} integration connector has been sent an event with an input asset without an Id element. The badly formed event is:  {1}",
             "The connector requires input assets in events to have an Id.",
-            "Supply a json event with input assets that have an Id.")
+            "Supply a json event with input assets that have an Id."),
+    EVENT_PAYLOAD_TOO_LARGE(400, "LINEAGE_SAMPLE-INTEGRATION-CONNECTOR-400-006",
+            "The {0} integration connector has been sent a compressed event that is larger than {1} bytes once decompressed. The event is:  {2}",
+            "The connector stops decompressing an event once it reaches the maximum size, and does not process the event.",
+            "Send smaller events, or raise the maxDecompressedEventBytes configuration property of the connector."),
+    SPILL_DIRECTORY_NOT_CONFIGURED(400, "LINEAGE_SAMPLE-INTEGRATION-CONNECTOR-400-007",
+            "The {0} integration connector is configured with the spill ingestion overflow policy but no ingestionSpillDirectory.",
+            "The connector does not start, as spilled events must be kept in a directory that is not shared or cleaned up by the operating system.",
+            "Set the ingestionSpillDirectory configuration property to a directory owned by this connector, or choose another ingestionOverflowPolicy."),
+    EVENT_NOT_ACCEPTED(503, "LINEAGE_SAMPLE-INTEGRATION-CONNECTOR-503-001",
+            "The {0} integration connector is stopping and did not accept the event:  {1}",
+            "The event is not processed.",
+            "Send the event again once the connector has restarted.")
     ;
     
     @SuppressWarnings("ImmutableEnumChecker")
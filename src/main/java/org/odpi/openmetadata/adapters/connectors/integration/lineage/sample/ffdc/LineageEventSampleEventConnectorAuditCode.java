@@ -72,7 +72,77 @@ public enum LineageEventSampleEventConnectorAuditCode implements AuditLogMessage
     KAFKA_RECEIVER_CONFIGURATION("LINEAGE_SAMPLE-INTEGRATION-CONNECTOR-0010",
             OMRSAuditLogRecordSeverity.INFO, "Connector {0} use topic {1} by connection {2}",
             "It shows the kafka receiver configuration",
-            "Nothing - this is for awareness that an event has been processed." );
+            "Nothing - this is for awareness that an event has been processed." ),
+    INGESTION_SPILL_FAILED("LINEAGE_SAMPLE-INTEGRATION-CONNECTOR-0011",
+            OMRSAuditLogRecordSeverity.EXCEPTION,
+            "Exception {0} occurred in Integration connector {1} while using the spill file {2} - the error message was {3}.",
+            "The event is held in memory instead of being spilled, or the spilled event is skipped if it cannot be read.",
+            "Check that the spill directory exists, is writable and has free space."),
+    INGESTION_QUEUE_STATUS("LINEAGE_SAMPLE-INTEGRATION-CONNECTOR-0012",
+            OMRSAuditLogRecordSeverity.INFO,
+            "Integration connector {0} has {1} events waiting ({2} spilled). {3} events were dispatched with an average wait of {4} ms and a maximum wait of {5} ms. {6} events have been dropped.",
+            "The connector reports the state of its ingestion queue.",
+            "Nothing - this is for awareness of how far behind the topic the connector is. If the waits keep growing, add event lanes or raise the queue capacity."),
+    EVENT_LANE_STATUS("LINEAGE_SAMPLE-INTEGRATION-CONNECTOR-0013",
+            OMRSAuditLogRecordSeverity.INFO,
+            "Integration connector {0} has {1} events waiting in {2} lanes. {3} events have been superseded by a newer event for the same process.",
+            "The connector reports the state of its event lanes.",
+            "Nothing - this is for awareness of the backlog in the lanes and of how many redundant events were skipped."),
+    METADATA_CACHE_STATUS("LINEAGE_SAMPLE-INTEGRATION-CONNECTOR-0014",
+            OMRSAuditLogRecordSeverity.INFO,
+            "Integration connector {0} metadata cache {1} holds {2} entries. It has had {3} hits, {4} misses and {5} evictions.",
+            "The connector reports how effective its metadata cache is.",
+            "Nothing - this is for awareness. If there are many evictions, raise the metadata cache capacity or time to live."),
+    UNABLE_TO_PROCESS_BATCH_EVENT("LINEAGE_SAMPLE-INTEGRATION-CONNECTOR-0015",
+            OMRSAuditLogRecordSeverity.EXCEPTION,
+            "Exception {0} occurred in Integration connector {1} for event {2} of a batch of events - the error message was {3}.",
+            "The event is not processed. The other events of the batch are processed.",
+            "Ensure that the events written to the topic are well formed."),
+    BATCH_RECEIVED("LINEAGE_SAMPLE-INTEGRATION-CONNECTOR-0016",
+            OMRSAuditLogRecordSeverity.INFO,
+            "Integration connector {0} received a batch of {1} events. {2} events were accepted for processing and {3} were rejected: {4}.",
+            "The accepted events are processed, the rejected events are not.",
+            "Nothing if no events were rejected. Otherwise correct the rejected events, which are reported individually, and send them again."),
+    AUDIT_MESSAGES_SUPPRESSED("LINEAGE_SAMPLE-INTEGRATION-CONNECTOR-0017",
+            OMRSAuditLogRecordSeverity.INFO,
+            "Integration connector {0} did not log {1} audit messages since the last report, because of audit sampling, rate limits or a full audit queue: {2}.",
+            "The messages were counted but not logged. The connector continues to process events.",
+            "Nothing - this is for awareness. Raise the audit message rate limit, lower the sample rate or raise the audit queue capacity to see more of these messages."),
+    METRICS_NOT_REGISTERED("LINEAGE_SAMPLE-INTEGRATION-CONNECTOR-0018",
+            OMRSAuditLogRecordSeverity.EXCEPTION,
+            "Integration connector {0} could not register its metrics with JMX because of exception {1}: {2}",
+            "The connector continues to process events and to record its metrics, but they cannot be read over JMX.",
+            "Check that no other connector in this server has the same name, or set jmxMetrics to false."),
+    SLOW_EVENT("LINEAGE_SAMPLE-INTEGRATION-CONNECTOR-0019",
+            OMRSAuditLogRecordSeverity.INFO,
+            "Integration connector {0} took longer than the slow event threshold to process {1}: {2} ms. Trace: {3}",
+            "The connector carries on processing events. The trace shows when each stage and metadata call of the event started and how long it took.",
+            "Use the trace to find where the time went, for example a slow search or a slow metadata server."),
+    EVENT_HANDLER_FAILED("LINEAGE_SAMPLE-INTEGRATION-CONNECTOR-0020",
+            OMRSAuditLogRecordSeverity.EXCEPTION,
+            "Exception {0} occurred in Integration connector {1} on thread {2} while handling {3} events - the error message was {4}.",
+            "The events may not have been processed. The thread carries on with the next events.",
+            "Use the stack trace to find the cause, which is outside the processing of the events themselves, for example in the audit log."),
+    EVENT_NOT_ACCEPTED("LINEAGE_SAMPLE-INTEGRATION-CONNECTOR-0021",
+            OMRSAuditLogRecordSeverity.ERROR,
+            "Integration connector {0} is stopping and did not accept the event ({1}).",
+            "The event is not processed.",
+            "Send the event again once the connector has restarted."),
+    AUDIT_MESSAGE_NOT_WRITTEN("LINEAGE_SAMPLE-INTEGRATION-CONNECTOR-0022",
+            OMRSAuditLogRecordSeverity.EXCEPTION,
+            "Exception {0} occurred while writing audit message {1} - the error message was {2}.",
+            "The audit message is lost and the connector carries on. Only the first audit message that cannot be written is reported.",
+            "Use the stack trace to find out why the audit log failed, and check its destinations."),
+    INGESTION_EVENTS_DISCARDED("LINEAGE_SAMPLE-INTEGRATION-CONNECTOR-0023",
+            OMRSAuditLogRecordSeverity.ERROR,
+            "Integration connector {0} discarded {1} events from its ingestion queue because they were not dispatched within {2} ms of the connector stopping.",
+            "The events are not processed.",
+            "Send the events again once the connector has restarted. If this happens often, allow the connector more time to stop or lower the queue capacity."),
+    VIRTUAL_THREADS_NOT_AVAILABLE("LINEAGE_SAMPLE-INTEGRATION-CONNECTOR-0024",
+            OMRSAuditLogRecordSeverity.INFO,
+            "Integration connector {0} is configured to use virtual threads, but the platform runs on Java {1}, which does not have them.",
+            "The connector uses platform threads instead, with the lane count configured for platform threads.",
+            "Run the platform on Java 21 or later to use virtual threads, or turn off the useVirtualThreads configuration property.");
 
     private final String logMessageId;
     private final OMRSAuditLogRecordSeverity severity;
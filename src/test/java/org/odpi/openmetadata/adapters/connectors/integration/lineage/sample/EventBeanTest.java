@@ -6,7 +6,9 @@ package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
+import org.odpi.openmetadata.adapters.connectors.integration.lineage.sample.beans.AssetBean;
 import org.odpi.openmetadata.adapters.connectors.integration.lineage.sample.beans.EventBean;
+import org.odpi.openmetadata.adapters.connectors.integration.lineage.sample.beans.SchemaBean;
 import org.odpi.openmetadata.frameworks.connectors.ffdc.ConnectorCheckedException;
 import org.odpi.openmetadata.frameworks.connectors.ffdc.InvalidParameterException;
 import org.odpi.openmetadata.frameworks.connectors.ffdc.PropertyServerException;
@@ -17,6 +19,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
@@ -35,6 +38,36 @@ public class EventBeanTest
         EventBean eb = om.readValue(content, EventBean.class);
         assertTrue(eb != null);
     }
+
+    @Test
+    void testDecoderReadsTheBeanFields() throws IOException, ConnectorCheckedException {
+        String content = Files.readString(Paths.get("src/test/resources/Sample-real-anonymous.json"));
+        EventBean eventBean = new ObjectMapper().readValue(content, EventBean.class);
+        LineageEventContentforSample eventContent = new LineageEventContentforSample(content, "", "");
+
+        assertEquals(eventBean.getQualifiedName(), eventContent.getProcessQualifiedName());
+        assertEquals(eventBean.getTechnicalName(), eventContent.getProcessTechnicalName());
+        assertEquals(eventBean.getDescription(), eventContent.getProcessDescription());
+        assertEquals(eventBean.getTeam(), eventContent.getTeamName());
+        assertEquals(eventBean.getInput().size(), eventContent.getInputAssets().size());
+        for (int i = 0; i < eventBean.getInput().size(); i++) {
+            AssetBean assetBean = eventBean.getInput().get(i);
+            assertEquals(assetBean.getQualifiedName(), eventContent.getInputAssets().get(i).getQualifiedName());
+            assertEquals(assetBean.getName(), eventContent.getInputAssets().get(i).getDisplayName());
+            assertEquals(assetBean.getType() + " - " + assetBean.getValue(), eventContent.getFormulaForInputAsset(assetBean.getQualifiedName()));
+        }
+        assertEquals(eventBean.getOutput().size(), eventContent.getOutputAssets().size());
+        for (int i = 0; i < eventBean.getOutput().size(); i++) {
+            AssetBean assetBean = eventBean.getOutput().get(i);
+            assertEquals(assetBean.getQualifiedName(), eventContent.getOutputAssets().get(i).getDisplayName());
+            assertEquals(assetBean.getSchemas().size(), eventContent.getOutputAssets().get(i).getEventTypes().size());
+            for (int j = 0; j < assetBean.getSchemas().size(); j++) {
+                SchemaBean schemaBean = assetBean.getSchemas().get(j);
+                assertEquals(schemaBean.getDisplayName(), eventContent.getOutputAssets().get(i).getEventTypes().get(j).getTechnicalName());
+                assertEquals(schemaBean.getProperties().size(), eventContent.getOutputAssets().get(i).getEventTypes().get(j).getAttributes().size());
+            }
+        }
+    }
 }
 
 
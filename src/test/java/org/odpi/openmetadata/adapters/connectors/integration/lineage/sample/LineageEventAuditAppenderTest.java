@@ -0,0 +1,106 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+import org.junit.jupiter.api.Test;
+import org.odpi.openmetadata.adapters.connectors.integration.lineage.sample.ffdc.LineageEventSampleEventConnectorAuditCode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test of the buffer of audit messages written on a background thread.
+ */
+public class LineageEventAuditAppenderTest {
+
+    @Test
+    void testFullBufferDropsNewestMessages() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        List<LineageEventSampleEventConnectorAuditCode> dropped = Collections.synchronizedList(new ArrayList<>());
+        LineageEventAuditAppender appender = new LineageEventAuditAppender(null, 4, LineageEventAuditAppender.OverflowPolicy.DROP_NEWEST, dropped::add);
+        appender.start(heldThreadFactory(release), "unit test audit");
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(append(appender, LineageEventSampleEventConnectorAuditCode.PROCESSING_EVENT));
+        }
+        assertFalse(append(appender, LineageEventSampleEventConnectorAuditCode.UNABLE_TO_PROCESS_EVENT));
+        assertEquals(4, appender.getDepth());
+        assertEquals(1, appender.getDroppedCount());
+        assertEquals(List.of(LineageEventSampleEventConnectorAuditCode.UNABLE_TO_PROCESS_EVENT), dropped);
+
+        release.countDown();
+        appender.shutdown(5000);
+        assertEquals(0, appender.getDepth());
+    }
+
+    @Test
+    void testFullBufferDropsOldestMessages() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        List<LineageEventSampleEventConnectorAuditCode> dropped = Collections.synchronizedList(new ArrayList<>());
+        LineageEventAuditAppender appender = new LineageEventAuditAppender(null, 3, LineageEventAuditAppender.OverflowPolicy.DROP_OLDEST, dropped::add);
+        appender.start(heldThreadFactory(release), "unit test audit");
+
+        // the capacity is rounded up to 4
+        assertTrue(append(appender, LineageEventSampleEventConnectorAuditCode.PROCESSING_EVENT));
+        for (int i = 0; i < 5; i++) {
+            assertTrue(append(appender, LineageEventSampleEventConnectorAuditCode.PROCESSED_EVENT_SUCCESSFULLY));
+        }
+        assertEquals(4, appender.getDepth());
+        assertEquals(2, appender.getDroppedCount());
+        assertEquals(List.of(LineageEventSampleEventConnectorAuditCode.PROCESSING_EVENT,
+                             LineageEventSampleEventConnectorAuditCode.PROCESSED_EVENT_SUCCESSFULLY), dropped);
+
+        // shutdown writes the waiting messages even if the writer thread does not get to them
+        appender.shutdown(1);
+        assertEquals(0, appender.getDepth());
+        release.countDown();
+    }
+
+    @Test
+    void testConcurrentAppends() throws InterruptedException {
+        LineageEventAuditAppender appender = new LineageEventAuditAppender(null, 64, LineageEventAuditAppender.OverflowPolicy.DROP_OLDEST, null);
+        appender.start(LineageEventThreads.daemonThreadFactory(), "unit test audit");
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    assertTrue(append(appender, LineageEventSampleEventConnectorAuditCode.PROCESSING_EVENT));
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        appender.shutdown(5000);
+        assertEquals(0, appender.getDepth());
+        // once stopped, messages are written straight away
+        assertTrue(append(appender, LineageEventSampleEventConnectorAuditCode.PROCESSING_EVENT));
+        assertEquals(0, appender.getDepth());
+    }
+
+    private static boolean append(LineageEventAuditAppender appender, LineageEventSampleEventConnectorAuditCode auditCode) {
+        return appender.append("unit test", auditCode, auditCode.getMessageDefinition("unit test"), null);
+    }
+
+    /**
+     * Return a factory whose thread does nothing until it is released, so messages stay in the buffer.
+     */
+    private static ThreadFactory heldThreadFactory(CountDownLatch release) {
+        return runnable -> LineageEventThreads.daemonThreadFactory().newThread(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException error) {
+                return;
+            }
+            runnable.run();
+        });
+    }
+}
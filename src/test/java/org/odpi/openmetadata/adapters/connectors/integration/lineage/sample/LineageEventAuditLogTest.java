@@ -0,0 +1,112 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+import org.junit.jupiter.api.Test;
+import org.odpi.openmetadata.adapters.connectors.integration.lineage.sample.ffdc.LineageEventSampleEventConnectorAuditCode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test of the audit policy: sampling, rate limits and payload excerpts.
+ */
+public class LineageEventAuditLogTest {
+
+    @Test
+    void testEverythingIsLoggedByDefault() {
+        LineageEventAuditLog auditLog = new LineageEventAuditLog(null);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(auditLog.isLogged(LineageEventSampleEventConnectorAuditCode.PROCESSING_EVENT));
+            assertTrue(auditLog.isLogged(LineageEventSampleEventConnectorAuditCode.UNABLE_TO_PROCESS_EVENT));
+        }
+        assertTrue(auditLog.takeSuppressedCounts().isEmpty());
+    }
+
+    @Test
+    void testRoutineMessagesAreSampled() {
+        LineageEventAuditLog auditLog = new LineageEventAuditLog(null, 10, 0, 0);
+        int logged = 0;
+        for (int i = 0; i < 100; i++) {
+            if (auditLog.isLogged(LineageEventSampleEventConnectorAuditCode.PROCESSED_EVENT_SUCCESSFULLY)) {
+                logged++;
+            }
+            // errors are not sampled
+            assertTrue(auditLog.isLogged(LineageEventSampleEventConnectorAuditCode.UNABLE_TO_PROCESS_EVENT));
+        }
+        assertEquals(10, logged);
+        Map<LineageEventSampleEventConnectorAuditCode, Long> suppressed = auditLog.takeSuppressedCounts();
+        assertEquals(Map.of(LineageEventSampleEventConnectorAuditCode.PROCESSED_EVENT_SUCCESSFULLY, 90L), suppressed);
+        assertTrue(auditLog.takeSuppressedCounts().isEmpty());
+    }
+
+    @Test
+    void testMessagesAreRateLimitedPerCode() {
+        AtomicLong now = new AtomicLong(0);
+        LineageEventAuditLog auditLog = new LineageEventAuditLog(null, 1, 5, 0, now::get);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(auditLog.isLogged(LineageEventSampleEventConnectorAuditCode.UNABLE_TO_PROCESS_EVENT));
+        }
+        assertFalse(auditLog.isLogged(LineageEventSampleEventConnectorAuditCode.UNABLE_TO_PROCESS_EVENT));
+        assertFalse(auditLog.isLogged(LineageEventSampleEventConnectorAuditCode.UNABLE_TO_PROCESS_EVENT));
+        // another code has its own limit
+        assertTrue(auditLog.isLogged(LineageEventSampleEventConnectorAuditCode.BATCH_RECEIVED));
+        // the report of suppressed messages is never limited
+        for (int i = 0; i < 10; i++) {
+            assertTrue(auditLog.isLogged(LineageEventSampleEventConnectorAuditCode.AUDIT_MESSAGES_SUPPRESSED));
+        }
+
+        now.set(60_000);
+        assertTrue(auditLog.isLogged(LineageEventSampleEventConnectorAuditCode.UNABLE_TO_PROCESS_EVENT));
+        assertEquals(Map.of(LineageEventSampleEventConnectorAuditCode.UNABLE_TO_PROCESS_EVENT, 2L), auditLog.takeSuppressedCounts());
+    }
+
+    @Test
+    void testPayloadExcerpt() {
+        String event = "{\"Id\": \"" + "x".repeat(2000) + "\"}";
+        assertEquals(event, LineageEventPayload.getExcerpt(event, 0));
+        assertEquals(event, LineageEventPayload.getExcerpt(event, event.length()));
+
+        String excerpt = LineageEventPayload.of(event).getExcerpt(Long.MAX_VALUE, 100);
+        assertTrue(excerpt.startsWith(event.substring(0, 100) + "... [" + event.length() + " bytes, SHA-256 "), excerpt);
+        assertEquals(100 + "... [2011 bytes, SHA-256 ]".length() + 64, excerpt.length());
+        // the same payload received as bytes has the same excerpt
+        assertEquals(excerpt, LineageEventPayload.of(event.getBytes(StandardCharsets.UTF_8)).getExcerpt(Long.MAX_VALUE, 100));
+        assertEquals(excerpt, LineageEventPayload.getExcerpt(event, 100));
+    }
+
+    @Test
+    void testCompressedPayloadExcerpt() throws IOException {
+        String event = "{\"Id\": \"" + "x".repeat(2000) + "\"}";
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (OutputStream outputStream = new GZIPOutputStream(gzipped)) {
+            outputStream.write(event.getBytes(StandardCharsets.UTF_8));
+        }
+        LineageEventPayload payload = LineageEventPayload.of(gzipped.toByteArray());
+
+        // the size and digest are those of the decompressed event, so they match the excerpt of the event as text
+        String excerpt = payload.getExcerpt(Long.MAX_VALUE, 100);
+        String digest = LineageEventPayload.getExcerpt(event, 100).substring(100);
+        assertEquals("{\"Id\":\"" + "x".repeat(93) + digest, excerpt);
+
+        // a payload that fits is converted whole
+        assertEquals("{\"Id\":\"" + "x".repeat(2000) + "\"}", payload.getExcerpt(Long.MAX_VALUE, 5000));
+
+        // the limit on decompression still applies to the digest
+        String inputs = "{\"Input\": [" + "\"x\", ".repeat(5000) + "\"x\"]}";
+        gzipped.reset();
+        try (OutputStream outputStream = new GZIPOutputStream(gzipped)) {
+            outputStream.write(inputs.getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals("{\"Input\":[" + "\"x\",".repeat(22) + "\"x... [more than 10000 bytes]",
+                LineageEventPayload.of(gzipped.toByteArray()).getExcerpt(10000, 100));
+    }
+}
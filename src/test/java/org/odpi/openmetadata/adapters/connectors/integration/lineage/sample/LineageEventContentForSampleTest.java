@@ -4,14 +4,25 @@
 package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
 
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import org.junit.jupiter.api.Test;
 import org.odpi.openmetadata.frameworks.connectors.ffdc.ConnectorCheckedException;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -99,6 +110,151 @@ public class LineageEventContentForSampleTest {
         assertEquals(4, attributes.get(2).getNestedAttributes().size());
     }
 
+    @Test
+    void testEventContentFromBytes() throws IOException, ConnectorCheckedException {
+        byte[] bytes = Files.readAllBytes(Paths.get("src/test/resources/Sample-real-anonymous.json"));
+        String expectedFingerprint = getLineageEventContentforSample("src/test/resources/Sample-real-anonymous.json")
+                .getOutputAssets().get(0).getSchemaFingerprint();
+
+        LineageEventContentforSample fromArray = new LineageEventContentforSample(bytes, "unit test", topicNamespace);
+        assertEquals(expectedFingerprint, fromArray.getOutputAssets().get(0).getSchemaFingerprint());
+
+        // the event sits in the middle of a larger direct buffer, as it might in a consumer's receive buffer
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length + 20);
+        buffer.position(10);
+        buffer.put(bytes);
+        buffer.flip().position(10);
+        LineageEventContentforSample fromBuffer = new LineageEventContentforSample(buffer, "unit test", topicNamespace);
+        assertEquals(expectedFingerprint, fromBuffer.getOutputAssets().get(0).getSchemaFingerprint());
+        assertEquals(10, buffer.position());
+    }
+
+    @Test
+    void testBadEventFromBytesIsReportedAsText() {
+        byte[] bytes = "{\"Id\": \"Größe\"}".getBytes(StandardCharsets.UTF_8);
+        ConnectorCheckedException error = assertThrows(ConnectorCheckedException.class,
+                () -> new LineageEventContentforSample(bytes, "unit test", topicNamespace));
+        assertTrue(error.getMessage().contains("LINEAGE_SAMPLE-INTEGRATION-CONNECTOR-400-002"));
+        assertTrue(error.getMessage().contains("Größe"));
+    }
+
+    @Test
+    void testEventContentFromSmileAndCbor() throws IOException, ConnectorCheckedException {
+        JsonNode event = new ObjectMapper().readTree(Paths.get("src/test/resources/Sample-real-anonymous.json").toFile());
+        String expectedFingerprint = getLineageEventContentforSample("src/test/resources/Sample-real-anonymous.json")
+                .getOutputAssets().get(0).getSchemaFingerprint();
+
+        byte[] smile = new ObjectMapper(new SmileFactory()).writeValueAsBytes(event);
+        assertEquals(LineageEventPayload.Format.SMILE, LineageEventPayload.of(smile).getFormat());
+        LineageEventContentforSample fromSmile = new LineageEventContentforSample(smile, "unit test", topicNamespace);
+        assertEquals(expectedFingerprint, fromSmile.getOutputAssets().get(0).getSchemaFingerprint());
+
+        byte[] cbor = new ObjectMapper(new CBORFactory()).writeValueAsBytes(event);
+        assertEquals(LineageEventPayload.Format.CBOR, LineageEventPayload.of(cbor).getFormat());
+        LineageEventContentforSample fromCbor = new LineageEventContentforSample(cbor, "unit test", topicNamespace);
+        assertEquals(expectedFingerprint, fromCbor.getOutputAssets().get(0).getSchemaFingerprint());
+
+        assertEquals(LineageEventPayload.Format.JSON, LineageEventPayload.of(Files.readAllBytes(Paths.get("src/test/resources/Sample1.json"))).getFormat());
+    }
+
+    @Test
+    void testBadSmileEventIsReportedAsJson() throws IOException {
+        byte[] smile = new ObjectMapper(new SmileFactory()).writeValueAsBytes(Map.of("Id", "process"));
+        ConnectorCheckedException error = assertThrows(ConnectorCheckedException.class,
+                () -> new LineageEventContentforSample(smile, "unit test", topicNamespace));
+        assertTrue(error.getMessage().contains("LINEAGE_SAMPLE-INTEGRATION-CONNECTOR-400-002"));
+        assertTrue(error.getMessage().contains("{\"Id\":\"process\"}"), error.getMessage());
+    }
+
+    @Test
+    void testCompressedEventContent() throws IOException, ConnectorCheckedException {
+        byte[] bytes = Files.readAllBytes(Paths.get("src/test/resources/Sample-real-anonymous.json"));
+        String expectedFingerprint = new LineageEventContentforSample(bytes, "unit test", topicNamespace)
+                .getOutputAssets().get(0).getSchemaFingerprint();
+
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (OutputStream outputStream = new GZIPOutputStream(gzipped)) {
+            outputStream.write(bytes);
+        }
+        LineageEventPayload gzipPayload = LineageEventPayload.of(gzipped.toByteArray());
+        assertEquals(LineageEventPayload.Compression.GZIP, gzipPayload.getCompression());
+        assertEquals(expectedFingerprint, new LineageEventContentforSample(gzipPayload, "unit test", topicNamespace)
+                .getOutputAssets().get(0).getSchemaFingerprint());
+
+        ByteArrayOutputStream deflated = new ByteArrayOutputStream();
+        try (OutputStream outputStream = new DeflaterOutputStream(deflated)) {
+            outputStream.write(new ObjectMapper(new SmileFactory()).writeValueAsBytes(new ObjectMapper().readTree(bytes)));
+        }
+        LineageEventPayload deflatePayload = LineageEventPayload.of(deflated.toByteArray());
+        assertEquals(LineageEventPayload.Compression.DEFLATE, deflatePayload.getCompression());
+        assertEquals(LineageEventPayload.Format.SMILE, deflatePayload.getFormat());
+        assertEquals(expectedFingerprint, new LineageEventContentforSample(deflatePayload, "unit test", topicNamespace)
+                .getOutputAssets().get(0).getSchemaFingerprint());
+    }
+
+    @Test
+    void testCompressedEventIsLimitedInSize() throws IOException {
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (OutputStream outputStream = new GZIPOutputStream(gzipped)) {
+            outputStream.write("{\"Id\": \"process\", \"Description\": \"".getBytes(StandardCharsets.UTF_8));
+            outputStream.write("x".repeat(1024 * 1024).getBytes(StandardCharsets.UTF_8));
+        }
+        ConnectorCheckedException error = assertThrows(ConnectorCheckedException.class,
+                () -> new LineageEventContentforSample(LineageEventPayload.of(gzipped.toByteArray()), "unit test", topicNamespace, 64 * 1024));
+        assertTrue(error.getMessage().contains("LINEAGE_SAMPLE-INTEGRATION-CONNECTOR-400-006"), error.getMessage());
+        assertTrue(error.getMessage().contains("bytes of GZIP compressed JSON"), error.getMessage());
+    }
+
+    @Test
+    void testFieldsInAnyOrder() throws ConnectorCheckedException {
+        String json = "{\"Output\": [{\"schemas\": [{\"properties\": {\"address\": {\"properties\": {\"street\": {\"type\": \"string\"}}, " +
+                "\"type\": \"object\"}}, \"id\": \"Person\"}], \"id\": \"topic\"}], " +
+                "\"Input\": [{\"value\": \"select 1;\", \"type\": \"SQL\", \"id\": \"in\"}], \"Id\": \"process\"}";
+        LineageEventContentforSample eventContent = new LineageEventContentforSample(json, "unit test", topicNamespace);
+
+        assertEquals("process", eventContent.getProcessQualifiedName());
+        assertEquals("SQL - select 1;", eventContent.getFormulaForInputAsset("in"));
+        LineageEventContentforSample.EventTypeFromJSON eventType = eventContent.getOutputAssets().get(0).getEventTypes().get(0);
+        assertEquals("repnest-etu.topic~Person", eventType.getQualifiedName());
+        LineageEventContentforSample.Attribute address = eventType.getAttributes().get(0);
+        assertEquals("object", address.getType());
+        assertEquals("repnest-etu.topic~Person~address~street", address.getNestedAttributes().get(0).getQualifiedName());
+    }
+
+    @Test
+    void testAttributeValuesAreReadAsText() throws ConnectorCheckedException {
+        String json = "{\"Id\": \"process\", \"Input\": [{\"id\": \"in\"}], \"Output\": [{\"id\": \"topic\", \"schemas\": [{\"id\": \"Person\", " +
+                "\"properties\": {\"age\": {\"type\": \"integer\", \"description\": 1.50e1, \"formula\": null}, " +
+                "\"flag\": {\"type\": true, \"description\": {\"text\": \"ignored\"}}, \"plain\": \"no attribute object\"}}]}]}";
+        List<LineageEventContentforSample.Attribute> attributes = new LineageEventContentforSample(json, "unit test", topicNamespace)
+                .getOutputAssets().get(0).getEventTypes().get(0).getAttributes();
+
+        assertEquals(3, attributes.size());
+        assertEquals("15.0", attributes.get(0).getDescription());
+        assertEquals("null", attributes.get(0).getFormula());
+        assertEquals("true", attributes.get(1).getType());
+        assertEquals("", attributes.get(1).getDescription());
+        assertNull(attributes.get(1).getFormula());
+        assertNull(attributes.get(2).getType());
+        assertEquals(0, attributes.get(2).getNestedAttributes().size());
+    }
+
+    @Test
+    void testValuesOfTheWrongShapeAreInvalidJson() {
+        String[] events = {
+                "[]",
+                "{\"Id\": {\"name\": \"process\"}, \"Input\": [{\"id\": \"in\"}], \"Output\": [{\"id\": \"topic\"}]}",
+                "{\"Id\": \"process\", \"Input\": {\"id\": \"in\"}, \"Output\": [{\"id\": \"topic\"}]}",
+                "{\"Id\": \"process\", \"Input\": [\"in\"], \"Output\": [{\"id\": \"topic\"}]}",
+                "{\"Id\": \"process\", \"Input\": [{\"id\": \"in\"}], \"Output\": [{\"id\": \"topic\", \"schemas\": {}}]}"
+        };
+        for (String event : events) {
+            ConnectorCheckedException error = assertThrows(ConnectorCheckedException.class,
+                    () -> new LineageEventContentforSample(event, "unit test", topicNamespace));
+            assertTrue(error.getMessage().contains("LINEAGE_SAMPLE-INTEGRATION-CONNECTOR-400-001"), event + " gave " + error.getMessage());
+        }
+    }
+
     @Test
     void testBadlyFormedEventContent() {
         //  assertTrue(false,"Bad File name is " + textPath);
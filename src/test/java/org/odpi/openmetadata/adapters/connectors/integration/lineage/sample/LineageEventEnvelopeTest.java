@@ -0,0 +1,81 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test of reading the events in a message that may hold a batch of events.
+ */
+public class LineageEventEnvelopeTest {
+
+    private static final long MAX_DECOMPRESSED_BYTES = 1024 * 1024;
+
+    @Test
+    void testSingleEvent() throws IOException {
+        String event = Files.readString(Paths.get("src/test/resources/Sample1.json"));
+        LineageEventEnvelope envelope = read(LineageEventPayload.of(event));
+        assertFalse(envelope.isBatch());
+        assertEquals(1, envelope.getEventContents().size());
+        assertEquals("1234567890", envelope.getEventContents().get(0).getProcessQualifiedName());
+    }
+
+    @Test
+    void testArrayWithBadEvents() {
+        String message = "[" + createEvent("p1") + ", {\"Id\": \"p2\", \"Input\": []}, \"not an event\", " +
+                "{\"Id\": {\"wrong\": [1, 2]}, \"Input\": [{\"id\": \"in\"}]}, " + createEvent("p5") + "]";
+        LineageEventEnvelope envelope = read(LineageEventPayload.of(message.getBytes(StandardCharsets.UTF_8)));
+
+        assertTrue(envelope.isBatch());
+        List<LineageEventEnvelope.Element> elements = envelope.getElements();
+        assertEquals(5, elements.size());
+        assertEquals("p1", elements.get(0).getEventContent().getProcessQualifiedName());
+        assertTrue(elements.get(1).getError().getMessage().contains("LINEAGE_SAMPLE-INTEGRATION-CONNECTOR-400-002"));
+        // the error holds the text of the bad event only
+        assertTrue(elements.get(1).getError().getMessage().endsWith("{\"Id\": \"p2\", \"Input\": []}"), elements.get(1).getError().getMessage());
+        assertTrue(elements.get(2).getError().getMessage().contains("LINEAGE_SAMPLE-INTEGRATION-CONNECTOR-400-001"));
+        assertTrue(elements.get(3).getError().getMessage().contains("LINEAGE_SAMPLE-INTEGRATION-CONNECTOR-400-001"));
+        assertEquals("p5", elements.get(4).getEventContent().getProcessQualifiedName());
+        assertEquals(2, envelope.getEventContents().size());
+    }
+
+    @Test
+    void testNewlineDelimitedEvents() {
+        String message = createEvent("p1") + "\n" + "{\"Id\": \"p2\"}" + "\n" + createEvent("p3") + "\n";
+        LineageEventEnvelope envelope = read(LineageEventPayload.of(message));
+
+        assertTrue(envelope.isBatch());
+        assertEquals(3, envelope.getElements().size());
+        assertEquals(2, envelope.getEventContents().size());
+        assertEquals("p3", envelope.getEventContents().get(1).getProcessQualifiedName());
+        assertEquals(1, envelope.getElements().get(1).getIndex());
+        assertNotNull(envelope.getElements().get(1).getError());
+    }
+
+    @Test
+    void testBrokenJsonKeepsEarlierEvents() {
+        String message = createEvent("p1") + "\n" + createEvent("p2") + "\n{\"Id\": \"p3\", ";
+        LineageEventEnvelope envelope = read(LineageEventPayload.of(message));
+
+        assertEquals(3, envelope.getElements().size());
+        assertEquals(2, envelope.getEventContents().size());
+        assertTrue(envelope.getElements().get(2).getError().getMessage().contains("LINEAGE_SAMPLE-INTEGRATION-CONNECTOR-400-001"));
+    }
+
+    private static LineageEventEnvelope read(LineageEventPayload payload) {
+        return LineageEventEnvelope.read(payload, "unit test", "", MAX_DECOMPRESSED_BYTES);
+    }
+
+    private static String createEvent(String processQualifiedName) {
+        return "{\"Id\": \"" + processQualifiedName + "\", \"Input\": [{\"id\": \"in\"}], \"Output\": [{\"id\": \"out\", \"schemas\": []}]}";
+    }
+}
@@ -0,0 +1,263 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Test of the overflow policies of the ingestion queue
+ */
+public class LineageEventIngestionQueueTest {
+
+    @Test
+    void testDropOldest() throws InterruptedException {
+        List<String> dispatched = Collections.synchronizedList(new ArrayList<>());
+        LineageEventIngestionQueue queue = new LineageEventIngestionQueue(2,
+                LineageEventIngestionQueue.OverflowPolicy.DROP_OLDEST, null, event -> dispatched.add(event.getText()), null, "unit test");
+        // the dispatcher is not started, so the queue fills up
+        queue.enqueue("1");
+        queue.enqueue("2");
+        queue.enqueue("3");
+        assertEquals(2, queue.getDepth());
+        assertEquals(1, queue.getDroppedCount());
+        queue.start(LineageEventThreads.daemonThreadFactory(), "unit test");
+        queue.shutdown(5000);
+        assertEquals(List.of("2", "3"), dispatched);
+        assertEquals(2, queue.getDispatchedCount());
+    }
+
+    @Test
+    void testSpillKeepsOrder() throws InterruptedException, IOException {
+        Path spillDirectory = Files.createTempDirectory("lineage-spill-test");
+        List<String> dispatched = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch allDispatched = new CountDownLatch(5);
+        LineageEventIngestionQueue queue = new LineageEventIngestionQueue(2,
+                LineageEventIngestionQueue.OverflowPolicy.SPILL, spillDirectory, event -> {
+            dispatched.add(event.getText());
+            allDispatched.countDown();
+        }, null, "unit test");
+        for (int i = 1; i <= 5; i++) {
+            queue.enqueue("" + i);
+        }
+        assertEquals(5, queue.getDepth());
+        assertEquals(3, queue.getSpilledDepth());
+        assertEquals(3, queue.getSpilledCount());
+        queue.start(LineageEventThreads.daemonThreadFactory(), "unit test");
+        assertTrue(allDispatched.await(5, TimeUnit.SECONDS));
+        queue.shutdown(5000);
+        assertEquals(List.of("1", "2", "3", "4", "5"), dispatched);
+        try (var files = Files.list(spillDirectory)) {
+            assertEquals(0, files.count());
+        }
+        Files.delete(spillDirectory);
+    }
+
+    @Test
+    void testSpillWhileDispatchingKeepsOrder() throws InterruptedException, IOException {
+        Path spillDirectory = Files.createTempDirectory("lineage-spill-test");
+        List<String> dispatched = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch allDispatched = new CountDownLatch(200);
+        LineageEventIngestionQueue queue = new LineageEventIngestionQueue(2,
+                LineageEventIngestionQueue.OverflowPolicy.SPILL, spillDirectory, event -> {
+            dispatched.add(event.getText());
+            allDispatched.countDown();
+        }, null, "unit test");
+        queue.start(LineageEventThreads.daemonThreadFactory(), "unit test");
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String event = "{\"event\": " + i + "}";
+            queue.enqueue(event);
+            expected.add(event);
+        }
+        assertTrue(allDispatched.await(10, TimeUnit.SECONDS));
+        queue.shutdown(5000);
+        assertEquals(expected, dispatched);
+        try (var files = Files.list(spillDirectory)) {
+            assertEquals(0, files.count());
+        }
+        Files.delete(spillDirectory);
+    }
+
+    @Test
+    void testDispatcherCarriesOnAfterHandlerFails() throws InterruptedException {
+        List<String> dispatched = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch allDispatched = new CountDownLatch(5);
+        LineageEventIngestionQueue queue = new LineageEventIngestionQueue(1,
+                LineageEventIngestionQueue.OverflowPolicy.BLOCK, null, event -> {
+            allDispatched.countDown();
+            if (event.getText().startsWith("fail")) {
+                throw new IllegalStateException("handler failed");
+            }
+            dispatched.add(event.getText());
+        }, null, "unit test");
+        queue.start(LineageEventThreads.daemonThreadFactory(), "unit test");
+        // the queue holds one event, so enqueue would block for good if the failure had ended the dispatcher
+        queue.enqueue("fail 1");
+        queue.enqueue("1");
+        queue.enqueue("fail 2");
+        queue.enqueue("2");
+        queue.enqueue("3");
+        assertTrue(allDispatched.await(5, TimeUnit.SECONDS));
+        queue.shutdown(5000);
+        assertEquals(List.of("1", "2", "3"), dispatched);
+    }
+
+    @Test
+    void testSpilledEventsAreRecoveredOnStart() throws InterruptedException, IOException {
+        Path spillDirectory = Files.createTempDirectory("lineage-spill-test");
+        LineageEventIngestionQueue firstQueue = new LineageEventIngestionQueue(1,
+                LineageEventIngestionQueue.OverflowPolicy.SPILL, spillDirectory, event -> {
+        }, null, "unit test");
+        firstQueue.enqueue("in memory");
+        firstQueue.enqueue("spilled 1");
+        firstQueue.enqueue("spilled 2");
+
+        List<String> dispatched = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch allDispatched = new CountDownLatch(2);
+        LineageEventIngestionQueue secondQueue = new LineageEventIngestionQueue(1,
+                LineageEventIngestionQueue.OverflowPolicy.SPILL, spillDirectory, event -> {
+            dispatched.add(event.getText());
+            allDispatched.countDown();
+        }, null, "unit test");
+        secondQueue.start(LineageEventThreads.daemonThreadFactory(), "unit test");
+        assertTrue(allDispatched.await(5, TimeUnit.SECONDS));
+        secondQueue.shutdown(5000);
+        assertEquals(List.of("spilled 1", "spilled 2"), dispatched);
+        Files.delete(spillDirectory);
+    }
+
+    @Test
+    void testFailedSpillKeepsOrder() throws InterruptedException, IOException {
+        Path spillDirectory = Files.createTempDirectory("lineage-spill-test");
+        Files.delete(spillDirectory);
+        List<String> dispatched = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch allDispatched = new CountDownLatch(4);
+        LineageEventIngestionQueue queue = new LineageEventIngestionQueue(1,
+                LineageEventIngestionQueue.OverflowPolicy.SPILL, spillDirectory, event -> {
+            dispatched.add(event.getText());
+            allDispatched.countDown();
+        }, null, "unit test");
+        queue.enqueue("1");
+        // the spill directory does not exist, so the second event cannot be written and is held in memory
+        queue.enqueue("2");
+        Files.createDirectory(spillDirectory);
+        queue.enqueue("3");
+        queue.enqueue("4");
+        assertEquals(4, queue.getDepth());
+        assertEquals(2, queue.getSpilledDepth());
+        assertEquals(2, queue.getSpilledCount());
+        queue.start(LineageEventThreads.daemonThreadFactory(), "unit test");
+        assertTrue(allDispatched.await(5, TimeUnit.SECONDS));
+        queue.shutdown(5000);
+        assertEquals(List.of("1", "2", "3", "4"), dispatched);
+        try (var files = Files.list(spillDirectory)) {
+            assertEquals(0, files.count());
+        }
+        Files.delete(spillDirectory);
+    }
+
+    @Test
+    void testIncompleteSpillIsNotRecovered() throws InterruptedException, IOException {
+        Path spillDirectory = Files.createTempDirectory("lineage-spill-test");
+        Files.writeString(spillDirectory.resolve("0000000000000000000-1.event.tmp"), "{\"partial");
+        Files.writeString(spillDirectory.resolve("0000000000000000001-2.event"), "whole");
+        List<String> dispatched = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch allDispatched = new CountDownLatch(1);
+        LineageEventIngestionQueue queue = new LineageEventIngestionQueue(1,
+                LineageEventIngestionQueue.OverflowPolicy.SPILL, spillDirectory, event -> {
+            dispatched.add(event.getText());
+            allDispatched.countDown();
+        }, null, "unit test");
+        queue.start(LineageEventThreads.daemonThreadFactory(), "unit test");
+        assertTrue(allDispatched.await(5, TimeUnit.SECONDS));
+        queue.shutdown(5000);
+        assertEquals(List.of("whole"), dispatched);
+        try (var files = Files.list(spillDirectory)) {
+            assertEquals(0, files.count());
+        }
+        Files.delete(spillDirectory);
+    }
+
+    @Test
+    void testEventsAfterShutdownAreNotAccepted() throws InterruptedException {
+        List<String> dispatched = Collections.synchronizedList(new ArrayList<>());
+        LineageEventIngestionQueue queue = new LineageEventIngestionQueue(2,
+                LineageEventIngestionQueue.OverflowPolicy.BLOCK, null, event -> dispatched.add(event.getText()), null, "unit test");
+        queue.start(LineageEventThreads.daemonThreadFactory(), "unit test");
+        assertTrue(queue.enqueue("1"));
+        queue.shutdown(5000);
+
+        assertFalse(queue.enqueue("2"));
+        assertEquals(List.of("1"), dispatched);
+        assertEquals(0, queue.getDepth());
+    }
+
+    @Test
+    void testBlockedListenerIsReleasedOnShutdown() throws InterruptedException {
+        CountDownLatch firstEventStarted = new CountDownLatch(1);
+        CountDownLatch releaseDispatcher = new CountDownLatch(1);
+        LineageEventIngestionQueue queue = new LineageEventIngestionQueue(1,
+                LineageEventIngestionQueue.OverflowPolicy.BLOCK, null, event -> {
+            firstEventStarted.countDown();
+            try {
+                releaseDispatcher.await();
+            } catch (InterruptedException error) {
+                Thread.currentThread().interrupt();
+            }
+        }, null, "unit test");
+        queue.start(LineageEventThreads.daemonThreadFactory(), "unit test");
+        queue.enqueue("1");
+        assertTrue(firstEventStarted.await(5, TimeUnit.SECONDS));
+        // the dispatcher is held up, so the second event fills the queue and the third waits for space
+        queue.enqueue("2");
+        AtomicBoolean thirdAccepted = new AtomicBoolean(true);
+        Thread listener = LineageEventThreads.daemonThreadFactory().newThread(() -> {
+            try {
+                thirdAccepted.set(queue.enqueue("3"));
+            } catch (InterruptedException error) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        listener.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (listener.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        queue.shutdown(200);
+        listener.join(5000);
+        releaseDispatcher.countDown();
+
+        assertFalse(listener.isAlive());
+        assertFalse(thirdAccepted.get());
+        // the second event was never dispatched, so it is discarded and counted
+        assertEquals(0, queue.getDepth());
+        assertEquals(1, queue.getDroppedCount());
+    }
+
+    @Test
+    void testOverflowPolicyNames() {
+        assertEquals(LineageEventIngestionQueue.OverflowPolicy.DROP_OLDEST,
+                LineageEventIngestionQueue.OverflowPolicy.fromName("drop-oldest", LineageEventIngestionQueue.OverflowPolicy.BLOCK));
+        assertEquals(LineageEventIngestionQueue.OverflowPolicy.SPILL,
+                LineageEventIngestionQueue.OverflowPolicy.fromName(" Spill ", LineageEventIngestionQueue.OverflowPolicy.BLOCK));
+        assertEquals(LineageEventIngestionQueue.OverflowPolicy.BLOCK,
+                LineageEventIngestionQueue.OverflowPolicy.fromName("unknown", LineageEventIngestionQueue.OverflowPolicy.BLOCK));
+    }
+}
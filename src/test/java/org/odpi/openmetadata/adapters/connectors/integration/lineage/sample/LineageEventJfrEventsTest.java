@@ -0,0 +1,98 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.odpi.openmetadata.frameworks.connectors.ffdc.ConnectorCheckedException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test of the JDK Flight Recorder events of the processing stages.
+ */
+public class LineageEventJfrEventsTest {
+
+    @Test
+    void testStagesAreRecorded() throws IOException, ConnectorCheckedException {
+        String content = Files.readString(Paths.get("src/test/resources/Sample1.json"));
+        LineageEventContentforSample eventContent = new LineageEventContentforSample(content, "", "");
+        LineageEventMetrics metrics = new LineageEventMetrics();
+        LineageEventTracer tracer = new LineageEventTracer(0, 0, null, "unit test");
+        SampleLineageEventProcessor eventProcessor = new SampleLineageEventProcessor(
+                new MeasuredLineageIntegratorContext(new MockLineageIntegratorContext(), metrics, tracer), null, "");
+        eventProcessor.setTracer(tracer);
+
+        List<RecordedEvent> events = new ArrayList<>();
+        Path recordingFile = Files.createTempFile("lineage-event", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(LineageEventJfrEvents.UpsertAssetsEvent.class);
+            recording.enable(LineageEventJfrEvents.CatalogueSchemaEvent.class);
+            recording.enable(LineageEventJfrEvents.SaveLineageEvent.class);
+            recording.start();
+            eventProcessor.processEvent(eventContent);
+            recording.stop();
+            recording.dump(recordingFile);
+            events.addAll(RecordingFile.readAllEvents(recordingFile));
+        } finally {
+            Files.deleteIfExists(recordingFile);
+        }
+
+        List<RecordedEvent> upserts = getEvents(events, "org.odpi.openmetadata.lineage.sample.UpsertAssets");
+        List<RecordedEvent> schemas = getEvents(events, "org.odpi.openmetadata.lineage.sample.CatalogueSchema");
+        List<RecordedEvent> saves = getEvents(events, "org.odpi.openmetadata.lineage.sample.SaveLineage");
+        assertEquals(2, upserts.size());
+        assertFalse(schemas.isEmpty());
+        assertEquals(1, saves.size());
+
+        int upsertRoundTrips = 0;
+        for (RecordedEvent upsert : upserts) {
+            assertEquals("1234567890", upsert.getString("label"));
+            upsertRoundTrips = upsertRoundTrips + upsert.getInt("roundTrips");
+        }
+        for (RecordedEvent schema : schemas) {
+            assertEquals("1234567890", schema.getString("label"));
+            assertTrue(schema.getInt("attributeCount") > 0);
+            assertTrue(schema.getInt("roundTrips") > 0);
+        }
+        RecordedEvent save = saves.get(0);
+        assertEquals("1234567890", save.getString("processQualifiedName"));
+        assertEquals(LineageEventJfrEvents.getAssetCount(eventContent), save.getInt("assetCount"));
+        // every call the processor made is in the round trips of one of the stages
+        long contextCalls = 0;
+        for (LatencyHistogram histogram : metrics.getMetadataCallLatencies().values()) {
+            contextCalls = contextCalls + histogram.getCount();
+        }
+        assertEquals(contextCalls, upsertRoundTrips + save.getInt("roundTrips"));
+    }
+
+    @Test
+    void testDecodeEventIsOnlyCreatedWhenRecorded() {
+        assertNull(LineageEventJfrEvents.beginDecode());
+        try (Recording recording = new Recording()) {
+            recording.enable(LineageEventJfrEvents.DecodeEvent.class);
+            recording.start();
+            assertNotNull(LineageEventJfrEvents.beginDecode());
+        }
+    }
+
+    private static List<RecordedEvent> getEvents(List<RecordedEvent> events, String eventName) {
+        List<RecordedEvent> matchingEvents = new ArrayList<>();
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals(eventName)) {
+                matchingEvents.add(event);
+            }
+        }
+        return matchingEvents;
+    }
+}
@@ -0,0 +1,143 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+
+import org.junit.jupiter.api.Test;
+import org.odpi.openmetadata.frameworks.connectors.ffdc.ConnectorCheckedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Test that the lanes keep events for the same process in order and coalesce waiting events
+ */
+public class LineageEventLanesTest {
+
+    private static final int PROCESS_COUNT = 8;
+    private static final int EVENTS_PER_PROCESS = 50;
+
+    @Test
+    void testEventsForSameProcessStayInOrder() throws ConnectorCheckedException, InterruptedException {
+        Map<String, List<String>> processedNames = new ConcurrentHashMap<>();
+        Map<String, String> processThreads = new ConcurrentHashMap<>();
+        AtomicBoolean laneChanged = new AtomicBoolean(false);
+        LineageEventLanes lanes = new LineageEventLanes("unit test", 4, 10, eventContent -> {
+            String processQualifiedName = eventContent.getProcessQualifiedName();
+            processedNames.computeIfAbsent(processQualifiedName, k -> new ArrayList<>()).add(eventContent.getProcessTechnicalName());
+            String threadName = processThreads.putIfAbsent(processQualifiedName, Thread.currentThread().getName());
+            if (threadName != null && !threadName.equals(Thread.currentThread().getName())) {
+                laneChanged.set(true);
+            }
+        });
+        lanes.start();
+        for (int i = 0; i < EVENTS_PER_PROCESS; i++) {
+            for (int p = 0; p < PROCESS_COUNT; p++) {
+                lanes.submit(createEvent("process-" + p, "" + i));
+            }
+        }
+        lanes.shutdown(10000);
+
+        assertFalse(laneChanged.get());
+        assertEquals(PROCESS_COUNT, processedNames.size());
+        for (List<String> names : processedNames.values()) {
+            assertEquals(EVENTS_PER_PROCESS, names.size());
+            for (int i = 0; i < EVENTS_PER_PROCESS; i++) {
+                assertEquals("" + i, names.get(i));
+            }
+        }
+        assertEquals(0, lanes.getPendingEventCount());
+    }
+
+    @Test
+    void testLaneIndexIsStable() {
+        LineageEventLanes lanes = new LineageEventLanes("unit test", 3, 10, eventContent -> {
+        });
+        assertEquals(3, lanes.getLaneCount());
+        assertEquals(lanes.getLaneIndex("1234567890"), lanes.getLaneIndex("1234567890"));
+        assertTrue(lanes.getLaneIndex("1234567890") < 3);
+        assertEquals(0, lanes.getLaneIndex(null));
+    }
+
+    @Test
+    void testWaitingEventsAreCoalesced() throws ConnectorCheckedException, InterruptedException {
+        List<String> processedNames = new CopyOnWriteArrayList<>();
+        CountDownLatch firstEventStarted = new CountDownLatch(1);
+        CountDownLatch releaseLane = new CountDownLatch(1);
+        LineageEventLanes lanes = new LineageEventLanes("unit test", 1, 10, LineageEventThreads.daemonThreadFactory(), 1, 0, true, batch -> {
+            for (LineageEventContentforSample eventContent : batch) {
+                processedNames.add(eventContent.getProcessQualifiedName() + ":" + eventContent.getProcessTechnicalName());
+            }
+            firstEventStarted.countDown();
+            try {
+                releaseLane.await();
+            } catch (InterruptedException error) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        lanes.start();
+        lanes.submit(createEvent("process-1", "0"));
+        assertTrue(firstEventStarted.await(10, TimeUnit.SECONDS));
+        // these wait in the lane while the first event is processed
+        lanes.submit(createEvent("process-1", "1"));
+        lanes.submit(createEvent("process-2", "1"));
+        lanes.submit(createEvent("process-1", "2"));
+        lanes.submit(createEvent("process-1", "3"));
+        releaseLane.countDown();
+        lanes.shutdown(10000);
+
+        assertEquals(List.of("process-1:0", "process-2:1", "process-1:3"), processedNames);
+        assertEquals(2, lanes.getSupersededEventCount());
+    }
+
+    @Test
+    void testLaneCarriesOnAfterHandlerFails() throws ConnectorCheckedException, InterruptedException {
+        List<String> processedNames = new CopyOnWriteArrayList<>();
+        LineageEventLanes lanes = new LineageEventLanes("unit test", 1, 1, eventContent -> {
+            if ("fail".equals(eventContent.getProcessTechnicalName())) {
+                throw new IllegalStateException("handler failed");
+            }
+            processedNames.add(eventContent.getProcessTechnicalName());
+        });
+        lanes.start();
+        for (int i = 0; i < 5; i++) {
+            // the lane holds one event, so submit would block for good if the failure had ended the lane
+            lanes.submit(createEvent("process-1", "fail"));
+            lanes.submit(createEvent("process-1", "" + i));
+        }
+        lanes.shutdown(10000);
+
+        assertEquals(List.of("0", "1", "2", "3", "4"), processedNames);
+    }
+
+    @Test
+    void testEventsAfterShutdownAreNotAccepted() throws ConnectorCheckedException, InterruptedException {
+        List<String> processedNames = new CopyOnWriteArrayList<>();
+        LineageEventLanes lanes = new LineageEventLanes("unit test", 2, 10,
+                eventContent -> processedNames.add(eventContent.getProcessTechnicalName()));
+        lanes.start();
+        assertTrue(lanes.submit(createEvent("process-1", "0")));
+        lanes.shutdown(10000);
+
+        assertFalse(lanes.submit(createEvent("process-1", "1")));
+        assertEquals(List.of("0"), processedNames);
+    }
+
+    static LineageEventContentforSample createEvent(String processQualifiedName, String processName) throws ConnectorCheckedException {
+        String json = "{\"Id\": \"" + processQualifiedName + "\", \"Name\": \"" + processName + "\"," +
+                "\"Input\": [{\"id\": \"in\"}], \"Output\": [{\"id\": \"out\", \"schemas\": []}]}";
+        return new LineageEventContentforSample(json, "unit test", "");
+    }
+}
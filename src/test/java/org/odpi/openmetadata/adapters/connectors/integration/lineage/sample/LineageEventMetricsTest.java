@@ -0,0 +1,138 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+import org.junit.jupiter.api.Test;
+import org.odpi.openmetadata.accessservices.assetmanager.properties.ProcessProperties;
+import org.odpi.openmetadata.accessservices.assetmanager.properties.ProcessStatus;
+import org.odpi.openmetadata.frameworks.auditlog.messagesets.ExceptionMessageDefinition;
+import org.odpi.openmetadata.frameworks.connectors.ffdc.ConnectorCheckedException;
+import org.odpi.openmetadata.frameworks.connectors.ffdc.PropertyServerException;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test of the event counters and latency histograms.
+ */
+public class LineageEventMetricsTest {
+
+    @Test
+    void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram("unit test");
+        for (int i = 0; i < 98; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(10));
+        }
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(5));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(50));
+
+        assertEquals(100, histogram.getCount());
+        // 10 microseconds is in the bucket from 8 up to 16 microseconds
+        assertEquals(16, histogram.getP50Micros());
+        assertEquals(16, histogram.getP95Micros());
+        assertEquals(8192, histogram.getP99Micros());
+        assertEquals(50000, histogram.getMaxMicros());
+        assertEquals(98 * 10 + 5000 + 50000, histogram.getTotalMicros());
+        assertEquals(0, new LatencyHistogram("empty").getP99Micros());
+    }
+
+    @Test
+    void testProcessorRecordsStagesAndMetadataCalls() throws IOException, ConnectorCheckedException {
+        String content = Files.readString(Paths.get("src/test/resources/Sample1.json"));
+        LineageEventMetrics metrics = new LineageEventMetrics();
+        SampleLineageEventProcessor eventProcessor = new SampleLineageEventProcessor(
+                new MeasuredLineageIntegratorContext(new MockLineageIntegratorContext(), metrics), null, "");
+        eventProcessor.setMetrics(metrics);
+
+        eventProcessor.processEvent(new LineageEventContentforSample(content, "", ""));
+
+        assertEquals(1, metrics.getSucceededEventCount());
+        assertEquals(0, metrics.getFailedEventCount());
+        assertEquals(2, metrics.getStageLatency(LineageEventMetrics.Stage.UPSERT_ASSETS).getCount());
+        assertEquals(1, metrics.getStageLatency(LineageEventMetrics.Stage.SAVE_LINEAGE).getCount());
+        assertEquals(0, metrics.getStageLatency(LineageEventMetrics.Stage.DECODE).getCount());
+        Map<String, LatencyHistogram> calls = metrics.getMetadataCallLatencies();
+        assertEquals(2, calls.get("createDataAsset").getCount());
+        assertEquals(1, calls.get("createProcess").getCount());
+        assertTrue(calls.containsKey("setupDataFlow"));
+    }
+
+    @Test
+    void testFailuresAreCountedByErrorCode() throws IOException, ConnectorCheckedException {
+        String content = Files.readString(Paths.get("src/test/resources/Sample1.json"));
+        LineageEventMetrics metrics = new LineageEventMetrics();
+        MockLineageIntegratorContext failingContext = new MockLineageIntegratorContext() {
+            @Override
+            public String createProcess(boolean assetManagerIsHome, ProcessStatus processStatus, ProcessProperties processProperties) {
+                throw new IllegalStateException("unit test");
+            }
+        };
+        SampleLineageEventProcessor eventProcessor = new SampleLineageEventProcessor(
+                new MeasuredLineageIntegratorContext(failingContext, metrics), null, "");
+        eventProcessor.setMetrics(metrics);
+
+        eventProcessor.processEvent(new LineageEventContentforSample(content, "", ""));
+        metrics.recordFailed(new PropertyServerException(new ExceptionMessageDefinition(500, "MOCK-500-001", "Server unavailable", "", ""),
+                this.getClass().getName(), "createProcess"));
+
+        assertEquals(0, metrics.getSucceededEventCount());
+        assertEquals(2, metrics.getFailedEventCount());
+        assertEquals(Map.of("MOCK-500-001", 1L, "IllegalStateException", 1L), metrics.getFailedEventCountsByErrorCode());
+        // the failed call is still timed
+        assertEquals(1, metrics.getMetadataCallLatencies().get("createProcess").getCount());
+    }
+
+    @Test
+    void testEveryMetadataContextMethodIsMeasured() {
+        // the processor only calls the context through LineageMetadataContext, so each of its methods needs a call to count
+        Set<String> contextMethods = new TreeSet<>();
+        for (Method method : LineageMetadataContext.class.getMethods()) {
+            if (!Modifier.isStatic(method.getModifiers())) {
+                contextMethods.add(method.getName());
+            }
+        }
+        Set<String> measuredMethods = new TreeSet<>();
+        for (LineageContextCall contextCall : LineageContextCall.values()) {
+            measuredMethods.add(contextCall.getMethodName());
+        }
+        assertEquals(measuredMethods, contextMethods);
+    }
+
+    @Test
+    void testMetricsAreReadableOverJmx() throws JMException {
+        MBeanServer mBeanServer = MBeanServerFactory.newMBeanServer();
+        LineageEventMetrics metrics = new LineageEventMetrics();
+        metrics.register(mBeanServer, "unit test, connector");
+        metrics.recordReceived(3);
+        metrics.recordSucceeded();
+        metrics.getStageLatency(LineageEventMetrics.Stage.DECODE).record(TimeUnit.MICROSECONDS.toNanos(100));
+        metrics.getMetadataCallLatency("createDataAsset").record(TimeUnit.MICROSECONDS.toNanos(100));
+
+        String connectorKey = ",connector=" + ObjectName.quote("unit test, connector");
+        ObjectName counters = new ObjectName(LineageEventMetrics.JMX_DOMAIN + ":type=LineageEventMetrics" + connectorKey);
+        ObjectName decode = new ObjectName(LineageEventMetrics.JMX_DOMAIN + ":type=LineageEventLatency" + connectorKey + ",stage=\"decode\"");
+        ObjectName createDataAsset = new ObjectName(LineageEventMetrics.JMX_DOMAIN + ":type=MetadataCallLatency" + connectorKey + ",method=\"createDataAsset\"");
+        assertEquals(3L, mBeanServer.getAttribute(counters, "ReceivedEventCount"));
+        assertEquals(1L, mBeanServer.getAttribute(counters, "SucceededEventCount"));
+        assertEquals(1L, mBeanServer.getAttribute(decode, "Count"));
+        assertEquals(128L, mBeanServer.getAttribute(createDataAsset, "P99Micros"));
+
+        metrics.unregister();
+        assertFalse(mBeanServer.isRegistered(counters));
+        assertFalse(mBeanServer.isRegistered(createDataAsset));
+    }
+}
@@ -0,0 +1,71 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+import org.junit.jupiter.api.Test;
+import org.odpi.openmetadata.frameworks.connectors.ffdc.ConnectorCheckedException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test of the structural checks made on an event before it is decoded.
+ */
+public class LineageEventPreValidatorTest {
+
+    private static final long MAX_DECOMPRESSED_BYTES = 1024 * 1024;
+
+    @Test
+    void testValidEventsPass() throws IOException {
+        assertNull(validate(LineageEventPayload.of(Files.readString(Paths.get("src/test/resources/Sample1.json")))));
+        assertNull(validate(LineageEventPayload.of(Files.readAllBytes(Paths.get("src/test/resources/Sample-real-anonymous.json")))));
+    }
+
+    @Test
+    void testBadlyFormedEventsGiveTheDecoderError() throws IOException {
+        String[] files = {
+                "EmptyInput.json",
+                "InputWithEmptyObject.json",
+                "topid.json",
+                "ValidInputNoOutput.json",
+                "ValidInputEmptyOutput.json",
+                "ValidInputOutputEmptyAsset.json",
+                "ValidOutputNoInput.json",
+                "ValidOutputEmptyInput.json",
+                "ValidOutputInputHasOneEmptyObject.json"
+        };
+        for (String file : files) {
+            String content = Files.readString(Paths.get("src/test/resources/badly-formed-events", file));
+            ConnectorCheckedException error = validate(LineageEventPayload.of(content));
+            assertNotNull(error, file);
+            ConnectorCheckedException decoderError = assertThrows(ConnectorCheckedException.class,
+                    () -> new LineageEventContentforSample(content, "unit test", ""));
+            assertEquals(decoderError.getReportedErrorMessageId(), error.getReportedErrorMessageId(), file);
+            assertEquals(decoderError.getMessage(), error.getMessage(), file);
+        }
+    }
+
+    @Test
+    void testInvalidJsonIsLeftToTheDecoder() throws IOException {
+        assertNull(validate(LineageEventPayload.of(Files.readString(Paths.get("src/test/resources/badly-formed-events/notjson.txt")))));
+        assertNull(validate(LineageEventPayload.of(Files.readString(Paths.get("src/test/resources/badly-formed-events/empty.json")))));
+        assertNull(validate(LineageEventPayload.of("{\"Input\": [], \"Output\": ")));
+        assertNull(validate(LineageEventPayload.of("{\"Id\": {\"wrong\": 1}, \"Input\": []}")));
+    }
+
+    @Test
+    void testBatchesAreLeftToTheEnvelope() {
+        String message = "[{\"Id\": \"p1\", \"Input\": []}]";
+        assertNull(validate(LineageEventPayload.of(message.getBytes(StandardCharsets.UTF_8))));
+        assertNull(validate(LineageEventPayload.of("{\"Id\": \"p1\"}\n{\"Id\": \"p2\"}")));
+    }
+
+    private static ConnectorCheckedException validate(LineageEventPayload payload) {
+        return LineageEventPreValidator.validate(payload, "unit test", MAX_DECOMPRESSED_BYTES);
+    }
+}
@@ -0,0 +1,45 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test that the threads of the connector are created on Java 17 as well as on Java 21 and later.
+ */
+public class LineageEventThreadsTest {
+
+    @Test
+    void testVirtualThreadsFollowTheRuntime() throws Exception {
+        assertEquals(Runtime.version().feature() >= 21, LineageEventThreads.isVirtualThreadSupported());
+        if (LineageEventThreads.isVirtualThreadSupported()) {
+            Thread thread = LineageEventThreads.virtualThreadFactory().newThread(() -> {
+            });
+            assertTrue(thread.isDaemon());
+            ExecutorService executor = LineageEventThreads.newVirtualThreadPerTaskExecutor();
+            try {
+                Future<String> result = executor.submit(() -> "done");
+                assertEquals("done", result.get(5, TimeUnit.SECONDS));
+            } finally {
+                executor.shutdown();
+            }
+        } else {
+            assertThrows(UnsupportedOperationException.class, LineageEventThreads::virtualThreadFactory);
+            assertThrows(UnsupportedOperationException.class, LineageEventThreads::newVirtualThreadPerTaskExecutor);
+        }
+    }
+
+    @Test
+    void testDaemonThreads() {
+        Thread thread = LineageEventThreads.daemonThreadFactory().newThread(() -> {
+        });
+        assertTrue(thread.isDaemon());
+    }
+}
@@ -0,0 +1,169 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+import org.junit.jupiter.api.Test;
+import org.odpi.openmetadata.accessservices.assetmanager.properties.ProcessProperties;
+import org.odpi.openmetadata.accessservices.assetmanager.properties.ProcessStatus;
+import org.odpi.openmetadata.frameworks.connectors.ffdc.ConnectorCheckedException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test of the traces of the stages and metadata calls of each event.
+ */
+public class LineageEventTracerTest {
+
+    @Test
+    void testRecentTracesAreKeptInARing() throws IOException, ConnectorCheckedException {
+        String content = Files.readString(Paths.get("src/test/resources/Sample1.json"));
+        LineageEventTracer tracer = new LineageEventTracer(2, 0, null, "unit test");
+        SampleLineageEventProcessor eventProcessor = newProcessor(new MockLineageIntegratorContext(), tracer, null);
+
+        for (int i = 0; i < 3; i++) {
+            LineageEventContentforSample eventContent = new LineageEventContentforSample(content, "", "");
+            eventContent.setDecodeTiming(System.nanoTime(), 1000);
+            eventProcessor.processEvent(eventContent);
+        }
+
+        assertEquals(3, tracer.getTracedEventCount());
+        String traces = tracer.dumpRecentTraces();
+        assertEquals(2, traces.split("1234567890 started").length - 1);
+        assertTrue(traces.contains(" decode 0.001 ms"));
+        assertTrue(traces.contains(" upsertAssets "));
+        assertTrue(traces.contains(" getDataAssetsByName "));
+        assertTrue(traces.contains(" saveLineage "));
+        assertTrue(traces.contains(" getProcessesByName "));
+        assertEquals(0, tracer.getSlowEventCount());
+    }
+
+    @Test
+    void testSlowEventsAreCaptured() throws IOException, ConnectorCheckedException {
+        String content = Files.readString(Paths.get("src/test/resources/Sample1.json"));
+        MockLineageIntegratorContext slowContext = new MockLineageIntegratorContext() {
+            @Override
+            public String createProcess(boolean assetManagerIsHome, ProcessStatus processStatus, ProcessProperties processProperties) {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException error) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.createProcess(assetManagerIsHome, processStatus, processProperties);
+            }
+        };
+        LineageEventTracer tracer = new LineageEventTracer(0, 100, new LineageEventAuditLog(null), "unit test");
+        SampleLineageEventProcessor eventProcessor = newProcessor(slowContext, tracer, null);
+
+        eventProcessor.processEvent(new LineageEventContentforSample(content, "", ""));
+        eventProcessor.processEvent(new LineageEventContentforSample(content, "", ""));
+
+        // only the first event creates the process
+        assertEquals(2, tracer.getTracedEventCount());
+        assertEquals(1, tracer.getSlowEventCount());
+        assertEquals("", tracer.dumpRecentTraces());
+    }
+
+    @Test
+    void testCallsOnMetadataThreadsAreTraced() throws IOException, ConnectorCheckedException, InterruptedException {
+        String content = Files.readString(Paths.get("src/test/resources/Sample1.json"));
+        LineageEventTracer tracer = new LineageEventTracer(1, 0, null, "unit test");
+        // platform threads, so the test also runs on Java 17
+        ExecutorService metadataCallExecutor = Executors.newCachedThreadPool(LineageEventThreads.daemonThreadFactory());
+        try {
+            SampleLineageEventProcessor eventProcessor = newProcessor(new MockLineageIntegratorContext(), tracer, metadataCallExecutor);
+            eventProcessor.processEvent(new LineageEventContentforSample(content, "", ""));
+        } finally {
+            metadataCallExecutor.shutdown();
+            metadataCallExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+
+        String trace = tracer.dumpRecentTraces();
+        assertTrue(trace.contains(" createDataAsset "));
+        assertTrue(trace.contains(" setupDataFlow "));
+    }
+
+    @Test
+    void testTraceEndsOnceItsCallsHaveCompleted() throws InterruptedException, ExecutionException {
+        LineageEventTracer tracer = new LineageEventTracer(2, 0, null, "unit test");
+        List<String> endedTraces = Collections.synchronizedList(new ArrayList<>());
+        tracer.setTraceListener(trace -> endedTraces.add(trace.getLabel() + " " + trace.getRoundTrips()));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService metadataCallExecutor = Executors.newSingleThreadExecutor();
+        try {
+            LineageEventTrace trace = tracer.begin("first", System.nanoTime());
+            Future<Object> runningCall = metadataCallExecutor.submit(tracer.inActiveTrace(() -> {
+                started.countDown();
+                release.await();
+                tracer.recordRoundTrip(LineageContextCall.CREATE_DATA_ASSET, System.nanoTime(), 1000);
+                return null;
+            }));
+            // queued behind the running call, so it only starts once the event has stopped waiting for it
+            Callable<Object> lateCall = tracer.inActiveTrace(() -> {
+                tracer.recordRoundTrip(LineageContextCall.UPDATE_DATA_ASSET, System.nanoTime(), 1000);
+                return null;
+            });
+            Future<Object> queuedCall = metadataCallExecutor.submit(lateCall);
+            started.await();
+            tracer.end(trace);
+            assertEquals(List.of(), endedTraces);
+
+            // the next event is traced apart from the call still running in the first
+            LineageEventTrace nextTrace = tracer.begin("second", System.nanoTime());
+            assertNotSame(trace, nextTrace);
+            release.countDown();
+            runningCall.get();
+            queuedCall.get();
+            tracer.end(nextTrace);
+        } finally {
+            metadataCallExecutor.shutdown();
+            metadataCallExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+
+        assertEquals(List.of("first 1", "second 0"), endedTraces);
+        assertEquals(2, tracer.getTracedEventCount());
+    }
+
+    @Test
+    void testSpansBeyondTheTraceSizeAreCounted() {
+        LineageEventTracer tracer = new LineageEventTracer(1, 0, null, "unit test");
+        LineageEventTrace trace = tracer.begin("batch", System.nanoTime());
+        assertNull(tracer.begin("nested", System.nanoTime()));
+        for (int i = 0; i < LineageEventTrace.MAX_SPANS + 5; i++) {
+            tracer.recordSpan("getDataAssetsByName", System.nanoTime(), 1000);
+        }
+        tracer.end(trace);
+        tracer.recordSpan("afterTheEvent", System.nanoTime(), 1000);
+
+        assertEquals(LineageEventTrace.MAX_SPANS + 5, trace.getSpanCount());
+        String dump = tracer.dumpRecentTraces();
+        assertTrue(dump.startsWith("batch started "));
+        assertTrue(dump.contains("(5 spans not recorded)"));
+        assertFalse(dump.contains("afterTheEvent"));
+        assertNull(LineageEventTracer.disabled().begin("disabled", System.nanoTime()));
+    }
+
+    private static SampleLineageEventProcessor newProcessor(MockLineageIntegratorContext context, LineageEventTracer tracer, ExecutorService metadataCallExecutor) {
+        LineageEventMetrics metrics = new LineageEventMetrics();
+        SampleLineageEventProcessor eventProcessor = new SampleLineageEventProcessor(
+                new MeasuredLineageIntegratorContext(context, metrics, tracer), null, "", metadataCallExecutor);
+        eventProcessor.setMetrics(metrics);
+        eventProcessor.setTracer(tracer);
+        return eventProcessor;
+    }
+}
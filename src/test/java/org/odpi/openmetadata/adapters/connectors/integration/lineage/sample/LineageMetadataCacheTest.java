@@ -0,0 +1,62 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+
+/**
+ * Test the eviction and counters of the metadata cache
+ */
+public class LineageMetadataCacheTest {
+
+    @Test
+    void testLeastRecentlyUsedEntryIsEvicted() {
+        LineageMetadataCache<String, String> cache = new LineageMetadataCache<>(2, 0);
+        cache.put("a", "guid-a");
+        cache.put("b", "guid-b");
+        assertEquals("guid-a", cache.get("a"));
+        cache.put("c", "guid-c");
+
+        assertNull(cache.get("b"));
+        assertEquals("guid-a", cache.get("a"));
+        assertEquals("guid-c", cache.get("c"));
+        assertEquals(2, cache.size());
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    void testExpiredEntryIsNotReturned() {
+        AtomicLong now = new AtomicLong(1000);
+        LineageMetadataCache<String, String> cache = new LineageMetadataCache<>(10, 500, now::get);
+        cache.put("a", "guid-a");
+        now.addAndGet(499);
+        assertEquals("guid-a", cache.get("a"));
+        now.addAndGet(1);
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    void testInvalidateAndDisabledCache() {
+        LineageMetadataCache<String, String> cache = new LineageMetadataCache<>(10, 0);
+        cache.put("a", "guid-a");
+        cache.invalidate("a");
+        assertNull(cache.get("a"));
+
+        LineageMetadataCache<String, String> disabledCache = new LineageMetadataCache<>(0, 0);
+        disabledCache.put("a", "guid-a");
+        assertNull(disabledCache.get("a"));
+        assertEquals(0, disabledCache.size());
+    }
+}
@@ -6,6 +6,7 @@ package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
 
 import org.odpi.openmetadata.accessservices.assetmanager.metadataelements.*;
 import org.odpi.openmetadata.accessservices.assetmanager.properties.*;
+import org.odpi.openmetadata.frameworks.auditlog.messagesets.ExceptionMessageDefinition;
 import org.odpi.openmetadata.frameworks.connectors.ffdc.InvalidParameterException;
 import org.odpi.openmetadata.frameworks.connectors.ffdc.PropertyServerException;
 import org.odpi.openmetadata.frameworks.connectors.ffdc.UserNotAuthorizedException;
@@ -14,33 +15,34 @@ import org.odpi.openmetadata.frameworks.connectors.properties.beans.ElementType;
 import org.odpi.openmetadata.integrationservices.lineage.connector.LineageIntegratorContext;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * mock context
+ * mock context. The maps are concurrent so that the processor can issue metadata calls from several threads.
  */
 public class MockLineageIntegratorContext extends LineageIntegratorContext {
     private int guidCounter = 0;
     // source and target assets
-    private Map<String, DataAssetElement> guidToDataAssetElementMap = new HashMap<>();
-    private Map<String, DataAssetElement> qnameToDataAssetElementMap = new HashMap<>();
+    private Map<String, DataAssetElement> guidToDataAssetElementMap = new ConcurrentHashMap<>();
+    private Map<String, DataAssetElement> qnameToDataAssetElementMap = new ConcurrentHashMap<>();
 
     //Process
-    private Map<String, ProcessElement> guidToProcessElementMap = new HashMap<>();
-    private Map<String, ProcessElement> qnameToProcessElementMap = new HashMap<>();
-    private Map<String, DataFlowElement> guidToDataFlowElementMap = new HashMap<>();
+    private Map<String, ProcessElement> guidToProcessElementMap = new ConcurrentHashMap<>();
+    private Map<String, ProcessElement> qnameToProcessElementMap = new ConcurrentHashMap<>();
+    private Map<String, DataFlowElement> guidToDataFlowElementMap = new ConcurrentHashMap<>();
     // key is the asset
     // private Map<String, SchemaTypeElement> guidToSchemaTypeElementMap = new HashMap<>();
     // key is the schema type
-    private Map<String, SchemaTypeElement> guidToSchemaTypeMap = new HashMap<>();
-    private Map<String, SchemaTypeElement> qnameToSchemaTypeMap = new HashMap<>();
+    private Map<String, SchemaTypeElement> guidToSchemaTypeMap = new ConcurrentHashMap<>();
+    private Map<String, SchemaTypeElement> qnameToSchemaTypeMap = new ConcurrentHashMap<>();
 
 
-    private Map<String, RelationshipElement> guidToAssetSchemaTypeMap = new HashMap<>();
+    private Map<String, RelationshipElement> guidToAssetSchemaTypeMap = new ConcurrentHashMap<>();
 
-    private Map<String, SchemaAttributeElement> guidToSchemaAttributeElementMap = new HashMap<>();
+    private Map<String, SchemaAttributeElement> guidToSchemaAttributeElementMap = new ConcurrentHashMap<>();
 
-    private Map<String, List<SchemaAttributeElement>> schemaTypeGUIDToNestedAttributesMap = new HashMap<>();
-    private Map<String, String> attributeGuidToParentGuid = new HashMap<>();
+    private Map<String, List<SchemaAttributeElement>> schemaTypeGUIDToNestedAttributesMap = new ConcurrentHashMap<>();
+    private Map<String, String> attributeGuidToParentGuid = new ConcurrentHashMap<>();
 
     public MockLineageIntegratorContext() {
         super(null, null, null, null, null, null, null, null, null, null, null, false, null, null, null, null, null, 0, null);
@@ -79,11 +81,27 @@ public class MockLineageIntegratorContext extends LineageIntegratorContext {
     public void updateDataAsset(String assetGUID,
                                 boolean isMergeUpdate,
                                 DataAssetProperties assetProperties,
-                                Date effectiveTime) {
+                                Date effectiveTime) throws InvalidParameterException {
         DataAssetElement dataAssetElement = guidToDataAssetElementMap.get(assetGUID);
+        if (dataAssetElement == null) {
+            throw new InvalidParameterException(new ExceptionMessageDefinition(404, "MOCK-404-001", "Unknown asset " + assetGUID, "", ""),
+                    this.getClass().getName(), "updateDataAsset", "assetGUID");
+        }
         dataAssetElement.setDataAssetProperties(assetProperties);
     }
 
+    /**
+     * Remove an asset, as if another tool had deleted it.
+     *
+     * @param assetGUID asset GUID
+     */
+    public void removeDataAsset(String assetGUID) {
+        DataAssetElement dataAssetElement = guidToDataAssetElementMap.remove(assetGUID);
+        if (dataAssetElement != null) {
+            qnameToDataAssetElementMap.remove(dataAssetElement.getDataAssetProperties().getQualifiedName());
+        }
+    }
+
     @Override
     public DataAssetElement getDataAssetByGUID(String openMetadataGUID,
                                                Date effectiveTime) {
@@ -182,7 +200,13 @@ public class MockLineageIntegratorContext extends LineageIntegratorContext {
                                                                   int startFrom,
                                                                   int pageSize,
                                                                   Date effectiveTime) {
-        return schemaTypeGUIDToNestedAttributesMap.get(parentSchemaElementGUID);
+        List<SchemaAttributeElement> nestedAttributes = schemaTypeGUIDToNestedAttributesMap.get(parentSchemaElementGUID);
+        if (nestedAttributes == null || pageSize == 0) {
+            return nestedAttributes;
+        }
+        // a page of the attributes, as the server returns them
+        return new ArrayList<>(nestedAttributes.subList(Math.min(startFrom, nestedAttributes.size()),
+                                                        Math.min(startFrom + pageSize, nestedAttributes.size())));
     }
 
     @Override
@@ -237,6 +261,12 @@ public class MockLineageIntegratorContext extends LineageIntegratorContext {
         if (assetSchemaTypeGuid != null) {
             guidToAssetSchemaTypeMap.remove(assetSchemaTypeGuid);
         }
+        // remove the schema type from any schema type choice it is an option of
+        for (SchemaTypeElement schemaTypeChoiceElement : guidToSchemaTypeMap.values()) {
+            if (schemaTypeChoiceElement.getSchemaOptions() != null) {
+                schemaTypeChoiceElement.getSchemaOptions().removeIf(option -> option.getElementHeader().getGUID().equals(schemaTypeGUID));
+            }
+        }
 
 
         // cascade - removeAttribute should update the schemaTypeGUIDToNestedAttributesMap as removeAttribute could be
@@ -269,11 +299,27 @@ public class MockLineageIntegratorContext extends LineageIntegratorContext {
     }
 
     @Override
-    public void updateProcess(String processGUID, boolean isMergeUpdate, ProcessProperties processProperties, Date effectiveTime) {
+    public void updateProcess(String processGUID, boolean isMergeUpdate, ProcessProperties processProperties, Date effectiveTime) throws InvalidParameterException {
         ProcessElement processElement = guidToProcessElementMap.get(processGUID);
+        if (processElement == null) {
+            throw new InvalidParameterException(new ExceptionMessageDefinition(404, "MOCK-404-002", "Unknown process " + processGUID, "", ""),
+                    this.getClass().getName(), "updateProcess", "processGUID");
+        }
         processElement.setProcessProperties(processProperties);
     }
 
+    /**
+     * Remove a process, as if another tool had deleted it.
+     *
+     * @param processGUID process GUID
+     */
+    public void removeProcess(String processGUID) {
+        ProcessElement processElement = guidToProcessElementMap.remove(processGUID);
+        if (processElement != null) {
+            qnameToProcessElementMap.remove(processElement.getProcessProperties().getQualifiedName());
+        }
+    }
+
     @Override
     public String createProcess(boolean assetManagerIsHome,
                                 ProcessStatus processStatus,
@@ -354,8 +400,12 @@ public class MockLineageIntegratorContext extends LineageIntegratorContext {
     @Override
     public void updateDataFlow(String dataFlowGUID,
                                DataFlowProperties properties,
-                               Date effectiveTime) {
+                               Date effectiveTime) throws InvalidParameterException {
         DataFlowElement dataFlowElement = guidToDataFlowElementMap.get(dataFlowGUID);
+        if (dataFlowElement == null) {
+            throw new InvalidParameterException(new ExceptionMessageDefinition(404, "MOCK-404-003", "Unknown DataFlow " + dataFlowGUID, "", ""),
+                    this.getClass().getName(), "updateDataFlow", "dataFlowGUID");
+        }
         dataFlowElement.setDataFlowProperties(properties);
     }
 
@@ -381,7 +431,7 @@ public class MockLineageIntegratorContext extends LineageIntegratorContext {
         return dataFlowElement;
     }
 
-    private String createNewGUID() {
+    private synchronized String createNewGUID() {
         return "" + guidCounter++;
     }
 
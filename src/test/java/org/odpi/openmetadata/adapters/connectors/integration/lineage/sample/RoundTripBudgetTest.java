@@ -0,0 +1,133 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+import org.junit.jupiter.api.Test;
+import org.odpi.openmetadata.frameworks.connectors.ffdc.ConnectorCheckedException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Regression test of the round trips to the metadata server made for each sample event. The totals are what the
+ * processor makes today, so a change that makes more calls for the same event fails here, and so does a change that
+ * makes fewer, until the total is lowered with it. The round trips to each method are held to a budget that follows
+ * from the shape of the event.
+ */
+public class RoundTripBudgetTest {
+
+    @Test
+    void testSample1() throws IOException, ConnectorCheckedException {
+        assertFirstAndRepeatedWithinBudget("Sample1.json", 20, 21);
+    }
+
+    @Test
+    void testSample2() throws IOException, ConnectorCheckedException {
+        assertFirstAndRepeatedWithinBudget("Sample2-update-assets-and-process.json", 19, 20);
+    }
+
+    @Test
+    void testSample3() throws IOException, ConnectorCheckedException {
+        assertFirstAndRepeatedWithinBudget("Sample3-replace-assets.json", 18, 19);
+    }
+
+    @Test
+    void testSample4() throws IOException, ConnectorCheckedException {
+        assertFirstAndRepeatedWithinBudget("Sample4-update-attributes.json", 20, 21);
+    }
+
+    @Test
+    void testSample5() throws IOException, ConnectorCheckedException {
+        assertFirstAndRepeatedWithinBudget("Sample5-replace-eventtype.json", 18, 19);
+    }
+
+    @Test
+    void testSample6() throws IOException, ConnectorCheckedException {
+        assertFirstAndRepeatedWithinBudget("Sample6-update-SQL.json", 18, 19);
+    }
+
+    @Test
+    void testSampleRealAnonymous() throws IOException, ConnectorCheckedException {
+        assertFirstAndRepeatedWithinBudget("Sample-real-anonymous.json", 123, 124);
+    }
+
+    @Test
+    void testSamplesInSequence() throws IOException, ConnectorCheckedException {
+        // each sample changes the lineage saved by the one before it
+        String[] fileNames = {"Sample1.json", "Sample2-update-assets-and-process.json", "Sample3-replace-assets.json",
+                "Sample4-update-attributes.json", "Sample5-replace-eventtype.json", "Sample6-update-SQL.json"};
+        int[] totals = {20, 20, 18, 21, 19, 19};
+        RoundTripCounter counter = new RoundTripCounter();
+        int roundTrips = 0;
+        for (int sample = 0; sample < fileNames.length; sample++) {
+            RoundTripCounter.EventRoundTrips event = counter.process(fileNames[sample]);
+            RoundTripCounter.assertWithinBudget(event, totals[sample], getStructuralBudget(fileNames[sample]));
+            assertEquals(totals[sample], event.roundTrips(), event.roundTripsByMethod().toString());
+            roundTrips = roundTrips + event.roundTrips();
+        }
+
+        LineageEventMetrics metrics = counter.getMetrics();
+        assertEquals(roundTrips, metrics.getRoundTripCount());
+        assertEquals(metrics.getRoundTripCount(),
+                metrics.getRoundTripCountsByMethod().values().stream().mapToLong(Long::longValue).sum());
+        assertEquals(21, metrics.getMaxRoundTripsPerEvent());
+        assertEquals((double) roundTrips / fileNames.length, metrics.getRoundTripsPerEvent(), 0.001);
+    }
+
+    /**
+     * Process a sample against an empty metadata server, then again once its lineage is saved, and check both events
+     * make the expected round trips and keep within their budgets.
+     *
+     * @param fileName          sample in src/test/resources
+     * @param firstTotal        round trips when the lineage is new
+     * @param repeatedTotal     round trips when the same event is received again
+     */
+    private static void assertFirstAndRepeatedWithinBudget(String fileName, int firstTotal, int repeatedTotal) throws IOException, ConnectorCheckedException {
+        Map<LineageContextCall, Integer> budget = getStructuralBudget(fileName);
+        RoundTripCounter counter = new RoundTripCounter();
+
+        RoundTripCounter.EventRoundTrips first = counter.process(fileName);
+        RoundTripCounter.assertWithinBudget(first, firstTotal, budget);
+        assertEquals(firstTotal, first.roundTrips(), first.roundTripsByMethod().toString());
+        assertEquals(0, first.get(LineageContextCall.UPDATE_PROCESS));
+
+        RoundTripCounter.EventRoundTrips repeated = counter.process(fileName);
+        RoundTripCounter.assertWithinBudget(repeated, repeatedTotal, budget);
+        assertEquals(repeatedTotal, repeated.roundTrips(), repeated.roundTripsByMethod().toString());
+        assertEquals(0, repeated.get(LineageContextCall.CREATE_PROCESS));
+        assertEquals(0, repeated.get(LineageContextCall.CREATE_DATA_ASSET));
+        assertEquals(0, repeated.get(LineageContextCall.SETUP_DATA_FLOW));
+    }
+
+    /**
+     * Return the budget of the calls that depend on the shape of the event: one lookup, one upsert and one DataFlow
+     * per asset, one lookup and one upsert of the process, and one create per schema attribute.
+     *
+     * @param fileName sample in src/test/resources
+     * @return most round trips by method
+     */
+    private static Map<LineageContextCall, Integer> getStructuralBudget(String fileName) throws IOException, ConnectorCheckedException {
+        String content = Files.readString(Paths.get("src/test/resources", fileName));
+        LineageEventContentforSample eventContent = new LineageEventContentforSample(content, "", "");
+        int assets = LineageEventJfrEvents.getAssetCount(eventContent);
+
+        Map<LineageContextCall, Integer> budget = new EnumMap<>(LineageContextCall.class);
+        budget.put(LineageContextCall.GET_DATA_ASSETS_BY_NAME, assets);
+        budget.put(LineageContextCall.CREATE_DATA_ASSET, assets);
+        budget.put(LineageContextCall.UPDATE_DATA_ASSET, assets);
+        budget.put(LineageContextCall.GET_DATA_FLOW, assets);
+        budget.put(LineageContextCall.SETUP_DATA_FLOW, assets);
+        budget.put(LineageContextCall.UPDATE_DATA_FLOW, assets);
+        budget.put(LineageContextCall.GET_PROCESSES_BY_NAME, 1);
+        budget.put(LineageContextCall.CREATE_PROCESS, 1);
+        budget.put(LineageContextCall.UPDATE_PROCESS, 1);
+        budget.put(LineageContextCall.CREATE_SCHEMA_ATTRIBUTE, LineageEventJfrEvents.getAttributeCount(eventContent));
+        return budget;
+    }
+}
@@ -0,0 +1,96 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+/* Copyright Contributors to the ODPi Egeria project. */
+
+package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
+
+import org.odpi.openmetadata.frameworks.connectors.ffdc.ConnectorCheckedException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test support that processes sample events against a MockLineageIntegratorContext and counts the round trips each
+ * event made, by LineageIntegratorContext method, so tests can assert upper bounds on them.
+ */
+class RoundTripCounter {
+
+    /**
+     * The round trips of one event.
+     *
+     * @param label              label of the event's trace
+     * @param roundTrips         total round trips
+     * @param roundTripsByMethod round trips by method name
+     */
+    record EventRoundTrips(String label, int roundTrips, Map<String, Integer> roundTripsByMethod) {
+
+        /**
+         * Return the round trips made to one method.
+         *
+         * @param contextCall method
+         * @return round trips
+         */
+        int get(LineageContextCall contextCall) {
+            return roundTripsByMethod.getOrDefault(contextCall.getMethodName(), 0);
+        }
+    }
+
+    private final LineageEventMetrics metrics = new LineageEventMetrics();
+    private final LineageEventTracer tracer = new LineageEventTracer(0, 0, null, "round trip test");
+    private final List<EventRoundTrips> events = new ArrayList<>();
+    private final SampleLineageEventProcessor eventProcessor;
+
+    RoundTripCounter() {
+        tracer.setTraceListener(trace -> {
+            metrics.recordRoundTrips(trace);
+            events.add(new EventRoundTrips(trace.getLabel(), trace.getRoundTrips(), trace.getRoundTripsByMethod()));
+        });
+        eventProcessor = new SampleLineageEventProcessor(new MeasuredLineageIntegratorContext(new MockLineageIntegratorContext(), metrics, tracer), null, "");
+        eventProcessor.setMetrics(metrics);
+        eventProcessor.setTracer(tracer);
+    }
+
+    /**
+     * Process a sample event from src/test/resources.
+     *
+     * @param fileName name of the sample file
+     * @return the round trips of the event
+     * @throws IOException               the sample could not be read
+     * @throws ConnectorCheckedException the event could not be processed
+     */
+    EventRoundTrips process(String fileName) throws IOException, ConnectorCheckedException {
+        String content = Files.readString(Paths.get("src/test/resources", fileName));
+        int eventsBefore = events.size();
+        eventProcessor.processEvent(new LineageEventContentforSample(content, "", ""));
+        assertEquals(eventsBefore + 1, events.size(), "one trace for " + fileName);
+        return events.get(events.size() - 1);
+    }
+
+    /**
+     * Assert that an event made no more round trips than its budget, in total and to each method with a budget.
+     *
+     * @param event  round trips of the event
+     * @param total  most round trips in total
+     * @param budget most round trips to each method, methods not listed are not limited other than by the total
+     */
+    static void assertWithinBudget(EventRoundTrips event, int total, Map<LineageContextCall, Integer> budget) {
+        assertTrue(event.roundTrips() <= total,
+                event.label() + " made " + event.roundTrips() + " round trips, more than " + total + ": " + event.roundTripsByMethod());
+        for (Map.Entry<LineageContextCall, Integer> methodBudget : budget.entrySet()) {
+            int calls = event.get(methodBudget.getKey());
+            assertTrue(calls <= methodBudget.getValue(),
+                    event.label() + " made " + calls + " calls to " + methodBudget.getKey().getMethodName()
+                            + ", more than " + methodBudget.getValue() + ": " + event.roundTripsByMethod());
+        }
+    }
+
+    LineageEventMetrics getMetrics() {
+        return metrics;
+    }
+}
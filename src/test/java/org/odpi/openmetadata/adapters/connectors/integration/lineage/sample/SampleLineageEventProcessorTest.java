@@ -6,8 +6,11 @@ package org.odpi.openmetadata.adapters.connectors.integration.lineage.sample;
 
 import org.junit.jupiter.api.Test;
 import org.odpi.openmetadata.accessservices.assetmanager.metadataelements.*;
+import org.odpi.openmetadata.accessservices.assetmanager.properties.DataAssetProperties;
+import org.odpi.openmetadata.accessservices.assetmanager.properties.ExternalIdentifierProperties;
 import org.odpi.openmetadata.accessservices.assetmanager.properties.SchemaAttributeProperties;
 import org.odpi.openmetadata.accessservices.assetmanager.properties.SchemaTypeProperties;
+import org.odpi.openmetadata.frameworks.auditlog.messagesets.ExceptionMessageDefinition;
 import org.odpi.openmetadata.frameworks.connectors.ffdc.ConnectorCheckedException;
 import org.odpi.openmetadata.frameworks.connectors.ffdc.InvalidParameterException;
 import org.odpi.openmetadata.frameworks.connectors.ffdc.PropertyServerException;
@@ -20,9 +23,21 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 
 /**
@@ -302,6 +317,518 @@ public class SampleLineageEventProcessorTest {
         SampleLineageEventProcessor eventProcessor = new SampleLineageEventProcessor(mockContext, null, "");
         eventProcessor.processEvent(eventContent);
     }
-}
 
+    @Test
+    void testEventProcessorWithVirtualThreads() throws IOException, ConnectorCheckedException, InvalidParameterException, PropertyServerException, UserNotAuthorizedException, InterruptedException {
+        assumeTrue(LineageEventThreads.isVirtualThreadSupported());
+        String textPath = "src/test/resources/Sample-real-anonymous.json";
+        Path path = Paths.get(textPath);
+        String content = Files.readString(path);
+        LineageEventContentforSample eventContent = new LineageEventContentforSample(content, "", topicNamespace);
+        LineageIntegratorContext mockContext = new MockLineageIntegratorContext();
+        ExecutorService metadataCallExecutor = LineageEventThreads.newVirtualThreadPerTaskExecutor();
+        try {
+            SampleLineageEventProcessor eventProcessor = new SampleLineageEventProcessor(mockContext, null, "", metadataCallExecutor);
+            eventProcessor.processEvent(eventContent);
+        } finally {
+            metadataCallExecutor.shutdown();
+            metadataCallExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        List<ProcessElement> processElementList = mockContext.getProcessesByName("TestID", 0, 1000, new Date());
+        assertTrue(processElementList != null && processElementList.size() == 1);
+        String processGUID = processElementList.get(0).getElementHeader().getGUID();
+        for (LineageEventContentforSample.AssetFromJSON inputAsset : eventContent.getInputAssets()) {
+            List<DataAssetElement> assetList = mockContext.getDataAssetsByName(inputAsset.getQualifiedName(), 0, 1000, new Date());
+            assertTrue(assetList != null && assetList.size() == 1);
+            List<DataFlowElement> dataFlows = ((MockLineageIntegratorContext) mockContext).getDataflows(assetList.get(0).getElementHeader().getGUID(), processGUID, new Date());
+            assertTrue(dataFlows.size() == 1);
+            assertTrue(dataFlows.get(0).getDataFlowProperties().getFormula().equals(eventContent.getFormulaForInputAsset(inputAsset.getQualifiedName())));
+        }
+    }
+
+    @Test
+    void testFailedMetadataCallWaitsForItsSiblings() throws ConnectorCheckedException, InterruptedException {
+        AtomicBoolean slowCallFinished = new AtomicBoolean(false);
+        LineageIntegratorContext mockContext = new MockLineageIntegratorContext() {
+            @Override
+            public List<DataAssetElement> getDataAssetsByName(String name, int startFrom, int pageSize, Date effectiveTime) {
+                if (name.equals("bad")) {
+                    throw new IllegalStateException("lookup failed");
+                }
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException error) {
+                    Thread.currentThread().interrupt();
+                }
+                slowCallFinished.set(true);
+                return super.getDataAssetsByName(name, startFrom, pageSize, effectiveTime);
+            }
+        };
+        String json = "{\"Id\": \"process-1\", \"Name\": \"first\"," +
+                "\"Input\": [{\"id\": \"bad\"}, {\"id\": \"slow\"}], \"Output\": [{\"id\": \"out\", \"schemas\": []}]}";
+        LineageEventMetrics metrics = new LineageEventMetrics();
+        // platform threads, so the test also runs on Java 17
+        ExecutorService metadataCallExecutor = Executors.newCachedThreadPool(LineageEventThreads.daemonThreadFactory());
+        try {
+            SampleLineageEventProcessor eventProcessor = new SampleLineageEventProcessor(mockContext, null, "", metadataCallExecutor);
+            eventProcessor.setMetrics(metrics);
+            eventProcessor.processEvent(new LineageEventContentforSample(json, "", topicNamespace));
+            // the event has failed, and the upsert of the other input was not left running
+            assertTrue(slowCallFinished.get());
+        } finally {
+            metadataCallExecutor.shutdown();
+            metadataCallExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        assertEquals(1, metrics.getFailedEventCount());
+    }
+
+    @Test
+    void testProcessesOnDifferentLanesShareOutputTopic() throws ConnectorCheckedException, InterruptedException, InvalidParameterException, PropertyServerException, UserNotAuthorizedException {
+        AtomicInteger topicsCreated = new AtomicInteger();
+        AtomicInteger eventTypeLists = new AtomicInteger();
+        CountDownLatch topicLookups = new CountDownLatch(2);
+        LineageIntegratorContext mockContext = new MockLineageIntegratorContext() {
+            @Override
+            public List<DataAssetElement> getDataAssetsByName(String name, int startFrom, int pageSize, Date effectiveTime) {
+                if (name.equals("topic")) {
+                    // give the other lane the chance to look the topic up before it is created
+                    topicLookups.countDown();
+                    try {
+                        topicLookups.await(500, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException error) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.getDataAssetsByName(name, startFrom, pageSize, effectiveTime);
+            }
+
+            @Override
+            public String createDataAsset(boolean assetManagerIsHome, DataAssetProperties assetProperties) {
+                if (assetProperties.getQualifiedName().equals("topic")) {
+                    topicsCreated.incrementAndGet();
+                }
+                return super.createDataAsset(assetManagerIsHome, assetProperties);
+            }
+
+            @Override
+            public String createAnchoredSchemaType(boolean assetManagerIsHome, String anchorGUID, ExternalIdentifierProperties externalIdentifierProperties, SchemaTypeProperties schemaTypeProperties) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+                if (schemaTypeProperties.getTypeName().equals("EventTypeList")) {
+                    eventTypeLists.incrementAndGet();
+                }
+                return super.createAnchoredSchemaType(assetManagerIsHome, anchorGUID, externalIdentifierProperties, schemaTypeProperties);
+            }
+
+            @Override
+            public void removeSchemaType(String schemaTypeGUID, Date effectiveTime) {
+                if (getSchemaTypeByGUID(schemaTypeGUID, effectiveTime).getSchemaTypeProperties().getTypeName().equals("EventTypeList")) {
+                    eventTypeLists.decrementAndGet();
+                }
+                super.removeSchemaType(schemaTypeGUID, effectiveTime);
+            }
+        };
+        SampleLineageEventProcessor eventProcessor = new SampleLineageEventProcessor(mockContext, null, "");
+        LineageEventLanes lanes = new LineageEventLanes("unit test", 2, 10, eventProcessor::processEvent);
+        String otherProcess = "process-b";
+        for (int i = 0; lanes.getLaneIndex(otherProcess) == lanes.getLaneIndex("process-a"); i++) {
+            otherProcess = "process-b" + i;
+        }
+        lanes.start();
+        for (String processQualifiedName : List.of("process-a", otherProcess)) {
+            String json = "{\"Id\": \"" + processQualifiedName + "\", \"Name\": \"" + processQualifiedName + "\"," +
+                    "\"Input\": [{\"id\": \"in-" + processQualifiedName + "\"}]," +
+                    "\"Output\": [{\"id\": \"topic\", \"schemas\": [{\"id\": \"Person\", \"type\": \"object\"," +
+                    "\"properties\": {\"firstName\": {\"type\": \"string\"}}}]}]}";
+            lanes.submit(new LineageEventContentforSample(json, "", topicNamespace));
+        }
+        lanes.shutdown(10000);
+
+        // the upserts of the shared topic were serialized, so it was created once and has a single EventTypeList
+        assertEquals(1, topicsCreated.get());
+        assertEquals(1, eventTypeLists.get());
+        String topicGUID = mockContext.getDataAssetsByName("topic", 0, 1000, new Date()).get(0).getElementHeader().getGUID();
+        assertEquals(1, mockContext.getSchemaTypeForElement(topicGUID, "KafkaTopic", new Date()).getSchemaOptions().size());
+    }
+
+    @Test
+    void testEventBatchUpsertsSharedAssetsOnce() throws ConnectorCheckedException, InvalidParameterException, PropertyServerException, UserNotAuthorizedException {
+        AtomicInteger assetLookups = new AtomicInteger();
+        LineageIntegratorContext mockContext = new MockLineageIntegratorContext() {
+            @Override
+            public List<DataAssetElement> getDataAssetsByName(String name, int startFrom, int pageSize, Date effectiveTime) {
+                assetLookups.incrementAndGet();
+                return super.getDataAssetsByName(name, startFrom, pageSize, effectiveTime);
+            }
+        };
+        List<LineageEventContentforSample> batch = new ArrayList<>();
+        batch.add(LineageEventLanesTest.createEvent("process-1", "first"));
+        batch.add(LineageEventLanesTest.createEvent("process-2", "second"));
+        SampleLineageEventProcessor eventProcessor = new SampleLineageEventProcessor(mockContext, null, "");
+        eventProcessor.processEvents(batch);
+
+        // the shared input and output assets are looked up once for the batch
+        assertEquals(2, assetLookups.get());
+        String outputGUID = mockContext.getDataAssetsByName("out", 0, 1000, new Date()).get(0).getElementHeader().getGUID();
+        for (String processQualifiedName : List.of("process-1", "process-2")) {
+            List<ProcessElement> processElementList = mockContext.getProcessesByName(processQualifiedName, 0, 1000, new Date());
+            assertTrue(processElementList != null && processElementList.size() == 1);
+            String processGUID = processElementList.get(0).getElementHeader().getGUID();
+            assertEquals(1, ((MockLineageIntegratorContext) mockContext).getDataflows(processGUID, outputGUID, new Date()).size());
+        }
+    }
+
+    @Test
+    void testEventBatchRetriesOnlyFailedAssets() throws ConnectorCheckedException, InvalidParameterException, PropertyServerException, UserNotAuthorizedException {
+        Map<String, Integer> assetLookups = new HashMap<>();
+        LineageIntegratorContext mockContext = new MockLineageIntegratorContext() {
+            @Override
+            public List<DataAssetElement> getDataAssetsByName(String name, int startFrom, int pageSize, Date effectiveTime) {
+                assetLookups.merge(name, 1, Integer::sum);
+                if (name.equals("bad")) {
+                    throw new IllegalStateException("lookup failed");
+                }
+                return super.getDataAssetsByName(name, startFrom, pageSize, effectiveTime);
+            }
+        };
+        String badEvent = "{\"Id\": \"process-1\", \"Name\": \"first\"," +
+                "\"Input\": [{\"id\": \"bad\"}], \"Output\": [{\"id\": \"out\", \"schemas\": []}]}";
+        List<LineageEventContentforSample> batch = new ArrayList<>();
+        batch.add(new LineageEventContentforSample(badEvent, "", topicNamespace));
+        batch.add(LineageEventLanesTest.createEvent("process-2", "second"));
+        SampleLineageEventProcessor eventProcessor = new SampleLineageEventProcessor(mockContext, null, "");
+
+        assertEquals(1, eventProcessor.processEvents(batch));
+        // the bad asset is tried again for its event, the assets that were upserted are not
+        assertEquals(Map.of("bad", 2, "in", 1, "out", 1), assetLookups);
+        assertEquals(null, mockContext.getProcessesByName("process-1", 0, 1000, new Date()));
+        assertEquals(1, mockContext.getProcessesByName("process-2", 0, 1000, new Date()).size());
+    }
+
+    @Test
+    void testCachedAssetsAreNotSearchedAgain() throws ConnectorCheckedException, InvalidParameterException, PropertyServerException, UserNotAuthorizedException {
+        AtomicInteger assetLookups = new AtomicInteger();
+        LineageIntegratorContext mockContext = new MockLineageIntegratorContext() {
+            @Override
+            public List<DataAssetElement> getDataAssetsByName(String name, int startFrom, int pageSize, Date effectiveTime) {
+                assetLookups.incrementAndGet();
+                return super.getDataAssetsByName(name, startFrom, pageSize, effectiveTime);
+            }
+        };
+        LineageMetadataCaches metadataCaches = new LineageMetadataCaches(100, 0);
+        SampleLineageEventProcessor eventProcessor = new SampleLineageEventProcessor(mockContext, null, "", null, metadataCaches);
+        eventProcessor.processEvent(LineageEventLanesTest.createEvent("process-1", "first"));
+        eventProcessor.processEvent(LineageEventLanesTest.createEvent("process-1", "second"));
+
+        assertEquals(2, assetLookups.get());
+        assertEquals(2, metadataCaches.getDataAssets().getHitCount());
+        assertEquals("second", mockContext.getProcessesByName("process-1", 0, 1000, new Date()).get(0).getProcessProperties().getTechnicalName());
+    }
+
+    @Test
+    void testAssetWithoutGUIDIsNotCached() throws ConnectorCheckedException {
+        MockLineageIntegratorContext mockContext = new MockLineageIntegratorContext() {
+            @Override
+            public String createDataAsset(boolean assetManagerIsHome, DataAssetProperties assetProperties) {
+                // as when the create fails with an error that is not reported
+                return assetProperties.getQualifiedName().equals("in") ? null : super.createDataAsset(assetManagerIsHome, assetProperties);
+            }
+        };
+        LineageMetadataCaches metadataCaches = new LineageMetadataCaches(100, 0);
+        SampleLineageEventProcessor eventProcessor = new SampleLineageEventProcessor(mockContext, null, "", null, metadataCaches);
+        eventProcessor.processEvent(LineageEventLanesTest.createEvent("process-1", "first"));
+
+        assertEquals(null, metadataCaches.getDataAssets().get("in"));
+        assertTrue(metadataCaches.getDataAssets().get("out").getGUID() != null);
+    }
+
+    @Test
+    void testStaleCachedAssetIsLookedUpAgain() throws ConnectorCheckedException {
+        MockLineageIntegratorContext mockContext = new MockLineageIntegratorContext();
+        LineageMetadataCaches metadataCaches = new LineageMetadataCaches(100, 0);
+        SampleLineageEventProcessor eventProcessor = new SampleLineageEventProcessor(mockContext, null, "", null, metadataCaches);
+        eventProcessor.processEvent(LineageEventLanesTest.createEvent("process-1", "first"));
+        String deletedGUID = metadataCaches.getDataAssets().get("out").getGUID();
+        mockContext.removeDataAsset(deletedGUID);
+        eventProcessor.processEvent(LineageEventLanesTest.createEvent("process-1", "second"));
+
+        String recreatedGUID = metadataCaches.getDataAssets().get("out").getGUID();
+        assertTrue(recreatedGUID != null && !recreatedGUID.equals(deletedGUID));
+        assertEquals(1, mockContext.getDataAssetsByName("out", 0, 1000, new Date()).size());
+    }
+
+    @Test
+    void testCachedAssetSurvivesUpdateFailingForAnotherReason() throws ConnectorCheckedException {
+        AtomicInteger assetLookups = new AtomicInteger();
+        AtomicBoolean rejectUpdates = new AtomicBoolean(false);
+        MockLineageIntegratorContext mockContext = new MockLineageIntegratorContext() {
+            @Override
+            public List<DataAssetElement> getDataAssetsByName(String name, int startFrom, int pageSize, Date effectiveTime) {
+                assetLookups.incrementAndGet();
+                return super.getDataAssetsByName(name, startFrom, pageSize, effectiveTime);
+            }
+
+            @Override
+            public void updateDataAsset(String assetGUID, boolean isMergeUpdate, DataAssetProperties assetProperties, Date effectiveTime) throws InvalidParameterException {
+                if (rejectUpdates.get()) {
+                    // as when the properties are not valid, the asset itself is still there
+                    throw new InvalidParameterException(new ExceptionMessageDefinition(400, "MOCK-400-001", "Invalid properties for " + assetGUID, "", ""),
+                            this.getClass().getName(), "updateDataAsset", "assetProperties");
+                }
+                super.updateDataAsset(assetGUID, isMergeUpdate, assetProperties, effectiveTime);
+            }
+        };
+        LineageMetadataCaches metadataCaches = new LineageMetadataCaches(100, 0);
+        SampleLineageEventProcessor eventProcessor = new SampleLineageEventProcessor(mockContext, null, "", null, metadataCaches);
+        eventProcessor.processEvent(LineageEventLanesTest.createEvent("process-1", "first"));
+        String cachedGUID = metadataCaches.getDataAssets().get("in").getGUID();
+        rejectUpdates.set(true);
+
+        assertFalse(eventProcessor.processEvent(LineageEventLanesTest.createEvent("process-1", "second")));
+        // the asset is not looked up again, as that would only fail in the same way, and it stays in the cache
+        assertEquals(2, assetLookups.get());
+        assertEquals(cachedGUID, metadataCaches.getDataAssets().get("in").getGUID());
+    }
+
+    @Test
+    void testCachedProcessIsUpdatedAndReplacedWhenDeleted() throws ConnectorCheckedException, InvalidParameterException, PropertyServerException, UserNotAuthorizedException {
+        AtomicInteger processLookups = new AtomicInteger();
+        MockLineageIntegratorContext mockContext = new MockLineageIntegratorContext() {
+            @Override
+            public List<ProcessElement> getProcessesByName(String name, int startFrom, int pageSize, Date effectiveTime) {
+                processLookups.incrementAndGet();
+                return super.getProcessesByName(name, startFrom, pageSize, effectiveTime);
+            }
+        };
+        LineageMetadataCaches metadataCaches = new LineageMetadataCaches(100, 0);
+        SampleLineageEventProcessor eventProcessor = new SampleLineageEventProcessor(mockContext, null, "", null, metadataCaches);
+        eventProcessor.processEvent(LineageEventLanesTest.createEvent("process-1", "first"));
+        eventProcessor.processEvent(LineageEventLanesTest.createEvent("process-1", "second"));
+        assertEquals(1, processLookups.get());
+        String processGUID = metadataCaches.getProcesses().get("process-1");
+        assertEquals("second", mockContext.getProcessesByName("process-1", 0, 1000, new Date()).get(0).getProcessProperties().getTechnicalName());
+
+        mockContext.removeProcess(processGUID);
+        eventProcessor.processEvent(LineageEventLanesTest.createEvent("process-1", "third"));
+        List<ProcessElement> processElementList = mockContext.getProcessesByName("process-1", 0, 1000, new Date());
+        assertTrue(processElementList != null && processElementList.size() == 1);
+        String recreatedGUID = processElementList.get(0).getElementHeader().getGUID();
+        assertTrue(!recreatedGUID.equals(processGUID));
+        assertEquals(recreatedGUID, metadataCaches.getProcesses().get("process-1"));
+        assertEquals("third", processElementList.get(0).getProcessProperties().getTechnicalName());
+    }
+
+    @Test
+    void testCachedDataFlowsAreNotLookedUpAgain() throws ConnectorCheckedException, InvalidParameterException, PropertyServerException, UserNotAuthorizedException {
+        AtomicInteger dataFlowLookups = new AtomicInteger();
+        MockLineageIntegratorContext mockContext = new MockLineageIntegratorContext() {
+            @Override
+            public DataFlowElement getDataFlow(String dataSupplierGUID, String dataConsumerGUID, String qualifiedName, Date effectiveTime) {
+                dataFlowLookups.incrementAndGet();
+                return super.getDataFlow(dataSupplierGUID, dataConsumerGUID, qualifiedName, effectiveTime);
+            }
+        };
+        LineageMetadataCaches metadataCaches = new LineageMetadataCaches(100, 0);
+        SampleLineageEventProcessor eventProcessor = new SampleLineageEventProcessor(mockContext, null, "", null, metadataCaches);
+        eventProcessor.processEvent(LineageEventLanesTest.createEvent("process-1", "first"));
+        assertEquals(2, dataFlowLookups.get());
+        eventProcessor.processEvent(LineageEventLanesTest.createEvent("process-1", "second"));
+        assertEquals(2, dataFlowLookups.get());
+
+        String inputGUID = mockContext.getDataAssetsByName("in", 0, 1000, new Date()).get(0).getElementHeader().getGUID();
+        String processGUID = metadataCaches.getProcesses().get("process-1");
+        List<DataFlowElement> dataFlows = mockContext.getDataflows(inputGUID, processGUID, new Date());
+        assertEquals(1, dataFlows.size());
+        assertEquals("in", dataFlows.get(0).getDataFlowProperties().getQualifiedName());
+
+        // a DataFlow removed by another tool is set up again
+        mockContext.clearDataFlow(dataFlows.get(0).getDataFlowHeader().getGUID(), null);
+        eventProcessor.processEvent(LineageEventLanesTest.createEvent("process-1", "third"));
+        assertEquals(1, mockContext.getDataflows(inputGUID, processGUID, new Date()).size());
+    }
+
+    @Test
+    void testUnchangedSchemaIsNotCataloguedAgain() throws IOException, ConnectorCheckedException, InvalidParameterException, PropertyServerException, UserNotAuthorizedException {
+        AtomicInteger schemaTypesCreated = new AtomicInteger();
+        MockLineageIntegratorContext mockContext = new MockLineageIntegratorContext() {
+            @Override
+            public String createAnchoredSchemaType(boolean assetManagerIsHome, String anchorGUID, ExternalIdentifierProperties externalIdentifierProperties, SchemaTypeProperties schemaTypeProperties) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+                schemaTypesCreated.incrementAndGet();
+                return super.createAnchoredSchemaType(assetManagerIsHome, anchorGUID, externalIdentifierProperties, schemaTypeProperties);
+            }
+        };
+        String content = Files.readString(Paths.get("src/test/resources/Sample1.json"));
+        LineageMetadataCaches metadataCaches = new LineageMetadataCaches(100, 0);
+        SampleLineageEventProcessor eventProcessor = new SampleLineageEventProcessor(mockContext, null, "", null, metadataCaches);
+        eventProcessor.processEvent(new LineageEventContentforSample(content, "", topicNamespace));
+        int schemaTypesPerCatalogue = schemaTypesCreated.get();
+        assertTrue(schemaTypesPerCatalogue > 0);
+
+        eventProcessor.processEvent(new LineageEventContentforSample(content, "", topicNamespace));
+        assertEquals(schemaTypesPerCatalogue, schemaTypesCreated.get());
+
+        String changedContent = content.replace("The person's first name.", "The person's given name.");
+        eventProcessor.processEvent(new LineageEventContentforSample(changedContent, "", topicNamespace));
+        assertEquals(2 * schemaTypesPerCatalogue, schemaTypesCreated.get());
+        String outputGUID = mockContext.getDataAssetsByName("vertriebskunde-services.agree-kundendaten", 0, 1000, new Date()).get(0).getElementHeader().getGUID();
+        SchemaTypeElement schemaTypeElement = mockContext.getSchemaTypeForElement(outputGUID, "KafkaTopic", new Date());
+        boolean givenNameFound = false;
+        for (SchemaTypeElement eventType : schemaTypeElement.getSchemaOptions()) {
+            for (SchemaAttributeElement attribute : mockContext.getNestedSchemaAttributes(eventType.getElementHeader().getGUID(), 0, 0, new Date())) {
+                givenNameFound = givenNameFound || "The person's given name.".equals(attribute.getSchemaAttributeProperties().getDescription());
+            }
+        }
+        assertTrue(givenNameFound);
+    }
+
+    @Test
+    void testUnchangedSchemaIsNotCataloguedAgainWithDefaultConfiguration() throws IOException, ConnectorCheckedException {
+        AtomicInteger schemaTypesCreated = new AtomicInteger();
+        MockLineageIntegratorContext mockContext = new MockLineageIntegratorContext() {
+            @Override
+            public String createAnchoredSchemaType(boolean assetManagerIsHome, String anchorGUID, ExternalIdentifierProperties externalIdentifierProperties, SchemaTypeProperties schemaTypeProperties) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+                schemaTypesCreated.incrementAndGet();
+                return super.createAnchoredSchemaType(assetManagerIsHome, anchorGUID, externalIdentifierProperties, schemaTypeProperties);
+            }
+        };
+        assertTrue(new SampleLineageEventReceiverIntegrationProvider().getConnectorType().getRecognizedConfigurationProperties()
+                .contains(SampleLineageEventReceiverIntegrationProvider.SCHEMA_FINGERPRINT_CACHE_CAPACITY));
+        // the caches the connector creates when none of their properties are configured
+        LineageMetadataCaches metadataCaches = new LineageMetadataCaches(SampleLineageEventReceiverIntegrationProvider.DEFAULT_METADATA_CACHE_CAPACITY,
+                SampleLineageEventReceiverIntegrationProvider.DEFAULT_METADATA_CACHE_TTL_MILLIS,
+                SampleLineageEventReceiverIntegrationProvider.DEFAULT_SCHEMA_FINGERPRINT_CACHE_CAPACITY);
+        String content = Files.readString(Paths.get("src/test/resources/Sample1.json"));
+        SampleLineageEventProcessor eventProcessor = new SampleLineageEventProcessor(mockContext, null, "", null, metadataCaches);
+        eventProcessor.processEvent(new LineageEventContentforSample(content, "", topicNamespace));
+        int schemaTypesPerCatalogue = schemaTypesCreated.get();
+        assertTrue(schemaTypesPerCatalogue > 0);
+
+        eventProcessor.processEvent(new LineageEventContentforSample(content, "", topicNamespace));
+        assertEquals(schemaTypesPerCatalogue, schemaTypesCreated.get());
+        // the GUIDs from the metadata server are still looked up every time
+        assertEquals(0, metadataCaches.getDataAssets().size());
+    }
+
+    @Test
+    void testSchemaFingerprint() throws IOException, ConnectorCheckedException {
+        String content = Files.readString(Paths.get("src/test/resources/Sample1.json"));
+        String fingerprint = new LineageEventContentforSample(content, "", topicNamespace).getOutputAssets().get(0).getSchemaFingerprint();
+        assertEquals(fingerprint, new LineageEventContentforSample(content, "", topicNamespace).getOutputAssets().get(0).getSchemaFingerprint());
+        String changedContent = content.replace("The person's first name.", "The person's given name.");
+        assertTrue(!fingerprint.equals(new LineageEventContentforSample(changedContent, "", topicNamespace).getOutputAssets().get(0).getSchemaFingerprint()));
+    }
+
+    @Test
+    void testSchemaReconciliation() throws IOException, ConnectorCheckedException, InvalidParameterException, PropertyServerException, UserNotAuthorizedException {
+        AtomicInteger attributesCreated = new AtomicInteger();
+        AtomicInteger attributesUpdated = new AtomicInteger();
+        AtomicInteger schemaTypesRemoved = new AtomicInteger();
+        MockLineageIntegratorContext mockContext = new MockLineageIntegratorContext() {
+            @Override
+            public String createSchemaAttribute(boolean assetManagerIsHome, String schemaElementGUID, SchemaAttributeProperties schemaAttributeProperties, Date effectiveTime) {
+                attributesCreated.incrementAndGet();
+                return super.createSchemaAttribute(assetManagerIsHome, schemaElementGUID, schemaAttributeProperties, effectiveTime);
+            }
+
+            @Override
+            public void updateSchemaAttribute(String schemaAttributeGUID, boolean isMergeUpdate, SchemaAttributeProperties schemaAttributeProperties, Date effectiveTime) {
+                attributesUpdated.incrementAndGet();
+                super.updateSchemaAttribute(schemaAttributeGUID, isMergeUpdate, schemaAttributeProperties, effectiveTime);
+            }
+
+            @Override
+            public void removeSchemaType(String schemaTypeGUID, Date effectiveTime) {
+                schemaTypesRemoved.incrementAndGet();
+                super.removeSchemaType(schemaTypeGUID, effectiveTime);
+            }
+        };
+        SampleLineageEventProcessor eventProcessor = new SampleLineageEventProcessor(mockContext, null, "");
+        eventProcessor.setReconcileSchemas(true);
+        String content = Files.readString(Paths.get("src/test/resources/Sample3-replace-assets.json"));
+        eventProcessor.processEvent(new LineageEventContentforSample(content, "", topicNamespace));
+        String outputGUID = mockContext.getDataAssetsByName("vertriebskunde-services.agree-kundendaten-3", 0, 1000, new Date()).get(0).getElementHeader().getGUID();
+        Map<String, String> attributeGUIDs = new HashMap<>();
+        for (SchemaAttributeElement attribute : getEventTypeAttributes(mockContext, outputGUID)) {
+            attributeGUIDs.put(attribute.getSchemaAttributeProperties().getDisplayName(), attribute.getElementHeader().getGUID());
+        }
+        attributesCreated.set(0);
+
+        content = Files.readString(Paths.get("src/test/resources/Sample4-update-attributes.json"));
+        eventProcessor.processEvent(new LineageEventContentforSample(content, "", topicNamespace));
+
+        assertEquals(0, schemaTypesRemoved.get());
+        // middleName, derivedAge and derivedAge2 are new, firstName and age have changed
+        assertEquals(3, attributesCreated.get());
+        assertEquals(2, attributesUpdated.get());
+        Map<String, SchemaAttributeElement> attributes = new HashMap<>();
+        for (SchemaAttributeElement attribute : getEventTypeAttributes(mockContext, outputGUID)) {
+            attributes.put(attribute.getSchemaAttributeProperties().getDisplayName(), attribute);
+        }
+        assertEquals(Set.of("firstName", "middleName", "age", "derivedAge", "derivedAge2"), attributes.keySet());
+        assertEquals("The person's first name or name to be called.", attributes.get("firstName").getSchemaAttributeProperties().getDescription());
+        assertEquals("Derived Age 2 without formula.", attributes.get("derivedAge2").getSchemaAttributeProperties().getDescription());
+        // attributes that are still in the schema keep their GUIDs
+        assertEquals(attributeGUIDs.get("firstName"), attributes.get("firstName").getElementHeader().getGUID());
+        assertEquals(attributeGUIDs.get("age"), attributes.get("age").getElementHeader().getGUID());
+    }
+
+    @Test
+    void testSchemaReconciliationWithoutSchemaOptions() throws IOException, ConnectorCheckedException, InvalidParameterException, PropertyServerException, UserNotAuthorizedException {
+        AtomicInteger schemaTypesCreated = new AtomicInteger();
+        AtomicBoolean hideSchemaOptions = new AtomicBoolean(true);
+        MockLineageIntegratorContext mockContext = new MockLineageIntegratorContext() {
+            @Override
+            public SchemaTypeElement getSchemaTypeForElement(String parentElementGUID, String parentElementTypeName, Date effectiveTime) {
+                SchemaTypeElement schemaTypeElement = super.getSchemaTypeForElement(parentElementGUID, parentElementTypeName, effectiveTime);
+                return hideSchemaOptions.get() ? withoutSchemaOptions(schemaTypeElement) : schemaTypeElement;
+            }
 
+            @Override
+            public SchemaTypeElement getSchemaTypeByGUID(String schemaTypeGUID, Date effectiveTime) {
+                SchemaTypeElement schemaTypeElement = super.getSchemaTypeByGUID(schemaTypeGUID, effectiveTime);
+                return hideSchemaOptions.get() ? withoutSchemaOptions(schemaTypeElement) : schemaTypeElement;
+            }
+
+            @Override
+            public String createAnchoredSchemaType(boolean assetManagerIsHome, String anchorGUID, ExternalIdentifierProperties externalIdentifierProperties, SchemaTypeProperties schemaTypeProperties) throws InvalidParameterException, UserNotAuthorizedException, PropertyServerException {
+                schemaTypesCreated.incrementAndGet();
+                return super.createAnchoredSchemaType(assetManagerIsHome, anchorGUID, externalIdentifierProperties, schemaTypeProperties);
+            }
+        };
+        SampleLineageEventProcessor eventProcessor = new SampleLineageEventProcessor(mockContext, null, "");
+        eventProcessor.setReconcileSchemas(true);
+        String content = Files.readString(Paths.get("src/test/resources/Sample3-replace-assets.json"));
+        eventProcessor.processEvent(new LineageEventContentforSample(content, "", topicNamespace));
+        schemaTypesCreated.set(0);
+
+        eventProcessor.processEvent(new LineageEventContentforSample(content, "", topicNamespace));
+
+        // the existing EventTypes are found by name, so none are created again
+        assertEquals(0, schemaTypesCreated.get());
+        hideSchemaOptions.set(false);
+        String outputGUID = mockContext.getDataAssetsByName("vertriebskunde-services.agree-kundendaten-3", 0, 1000, new Date()).get(0).getElementHeader().getGUID();
+        SchemaTypeElement eventTypeList = mockContext.getSchemaTypeForElement(outputGUID, "KafkaTopic", new Date());
+        assertEquals(new LineageEventContentforSample(content, "", topicNamespace).getOutputAssets().get(0).getEventTypes().size(),
+                eventTypeList.getSchemaOptions().size());
+    }
+
+    /**
+     * Return a copy of the schema type without its options, as the metadata server may return it.
+     */
+    private static SchemaTypeElement withoutSchemaOptions(SchemaTypeElement schemaTypeElement) {
+        if (schemaTypeElement == null) {
+            return null;
+        }
+        SchemaTypeElement copy = new SchemaTypeElement();
+        copy.setElementHeader(schemaTypeElement.getElementHeader());
+        copy.setSchemaTypeProperties(schemaTypeElement.getSchemaTypeProperties());
+        return copy;
+    }
+
+    private static List<SchemaAttributeElement> getEventTypeAttributes(LineageIntegratorContext context, String assetGUID) throws InvalidParameterException, PropertyServerException, UserNotAuthorizedException {
+        List<SchemaAttributeElement> attributes = new ArrayList<>();
+        SchemaTypeElement schemaTypeElement = context.getSchemaTypeForElement(assetGUID, "KafkaTopic", new Date());
+        for (SchemaTypeElement eventType : schemaTypeElement.getSchemaOptions()) {
+            attributes.addAll(context.getNestedSchemaAttributes(eventType.getElementHeader().getGUID(), 0, 0, new Date()));
+        }
+        return attributes;
+    }
+}